@@ -31,4 +31,18 @@ public abstract class AbstractCellValidator
      * @return True if the value successfully validated and there were no errors added to the ErrorLog, false otherwise
      */
     public abstract boolean validate(String inputValue, int rowNumber, int columnNumber);
+
+    /**
+     * Validates a cell from a typed column, which has already been parsed into a CellValue for the current row.
+     * Validators that can work from the parsed value override this so the cell isn't parsed a second time. All others validate the raw value.
+     * @param inputValue The value encountered from the input source during validation time. This is what gets 'validated'.
+     * @param cellValue The parsed form of inputValue, or null if the column doesn't have a typed value
+     * @param rowNumber The row number where this value occurred. Used to report the row number to the error log when a validation error occurs.
+     * @param columnNumber The column number where this value occurred. Used to report the column number to the error log when a validation error occurs.
+     * @return True if the value successfully validated and there were no errors added to the ErrorLog, false otherwise
+     */
+    public boolean validate(String inputValue, CellValue cellValue, int rowNumber, int columnNumber)
+    {
+        return this.validate(inputValue, rowNumber, columnNumber);
+    }
 }
@@ -73,6 +73,13 @@ public abstract class AbstractColumnDefinition
      */
     public String getColumnName() { return this.getClass().getSimpleName(); }
 
+    /**
+     * Columns holding dates, integers, decimals or booleans override this so that their cells are parsed once, while the column is validated,
+     * and the parsed value is kept in the row for the cell validators and row validators that need it.
+     * @return The type of value that this column holds. TEXT unless overridden.
+     */
+    public CellValue.ValueType getValueType() { return CellValue.ValueType.TEXT; }
+
     /**
      * Takes an input string at the given coordinates and attempts to run each internally saved validator against it.
      * If all validators pass without error, True is returned. If any of the validators contained within the
@@ -91,6 +98,40 @@ public abstract class AbstractColumnDefinition
         return true;
     }
 
+    /**
+     * Validates the cell at the given column directly out of the row view that the input reader filled in.
+     * No intermediate joined or split strings are created; the cell is handed to each validator as it was read.
+     * @param rowView The current row's values as read from the input source
+     * @param currentRow The current row that the input was located on.
+     * @param currentColumn The current column that the input was located on. Also the index of the cell inside rowView.
+     * @return True if all validators passed successfully, false otherwise.
+     */
+    public boolean validateInput(RowView rowView, int currentRow, int currentColumn)
+    {
+        return this.validateInput(rowView.getCellString(currentColumn), currentRow, currentColumn);
+    }
+
+    /**
+     * Parses the cell at the given column into cellValue as this column's value type and then validates it.
+     * The parsed value is handed to each validator, and stays in cellValue for the row validators afterwards.
+     * @param rowView The current row's values as read from the input source
+     * @param cellValue The CellValue to parse the cell into, or null if this column doesn't have a typed value
+     * @param currentRow The current row that the input was located on.
+     * @param currentColumn The current column that the input was located on. Also the index of the cell inside rowView.
+     * @return True if all validators passed successfully, false otherwise.
+     */
+    public boolean validateInput(RowView rowView, CellValue cellValue, int currentRow, int currentColumn)
+    {
+        if(cellValue == null)
+            return this.validateInput(rowView, currentRow, currentColumn);
+        String inputString = rowView.getCellString(currentColumn);
+        cellValue.parse(this.getValueType(), inputString);
+        for (AbstractCellValidator currentValidator : validators)
+            if(!currentValidator.validate(inputString, cellValue, currentRow, currentColumn))
+                return false;
+        return true;
+    }
+
     /**
      * Lexicographically compares two ColumnDefinitions against each other by using their class name
      * @param otherColumnName The name of another column. Retrieved via ColumnName.getClass().getSimpleName()
@@ -17,6 +17,8 @@ package emavalidator;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.Iterator;
 import java.util.List;
 
@@ -24,6 +26,8 @@ import org.apache.commons.csv.CSVRecord;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 
+import emavalidator.notifications.RowNotificationSkippedValidator;
+
 /**
  * An instance of an EMASpec contains all the version specific information for each EMA spec definition.
  * This abstract EMASpec definition contains all version agnostic information for each EMA spec definition.
@@ -34,9 +38,9 @@ import org.apache.poi.ss.usermodel.Sheet;
 public abstract class AbstractEMASpec
 {
     /**
-     * The package name that is concatenated before the class name to instantiate based on a string for reflection
+     * The package name that each EMASpec implementation is declared in
      */
-    public static final String PACKAGE_INFO = "emavalidator.";                // the string to prepend to any instance of EMASpec in order to instantiate via reflection using its fully qualified name
+    public static final String PACKAGE_INFO = "emavalidator.";
 
     /**
      * The list of all section headers defined across all EMA versions. Is used to try to find the section headers row during validation time.
@@ -63,11 +67,76 @@ public abstract class AbstractEMASpec
      */
     protected RowSpec rowSpec = new RowSpec();
 
+    /**
+     * The number of the validation context's worker threads to validate data rows across. Rows are only validated in parallel once a sheet has more than ParallelRowValidator.SERIAL_ROW_COUNT of them.
+     */
+    private int rowValidationParallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * The validation this spec was built for. See ValidationContext.prepareEMASpec(). Without one, every row is validated on the calling thread.
+     */
+    private ValidationContext validationContext = null;
+
+    /**
+     * The error log of the validation this spec was built for
+     */
+    private ErrorLog errorLog = null;
+
+    /**
+     * Validates the data rows of the current sheet across threads. Null until the first data row arrives, and again once finishValidation() is called.
+     */
+    private ParallelRowValidator parallelRowValidator = null;
+
+    /**
+     * The compiled validation of this spec's EMA version, or null if the version couldn't be compiled. See SpecCompiler.
+     */
+    private CompiledValidation compiledValidation = null;
+
+    /**
+     * The spec column index of each column of the current layout, for the compiled validation
+     */
+    private int[] compiledSpecColumns = null;
+
+    /**
+     * The row validators of the current layout, for the compiled validation. Null if rows are validated the interpreted way.
+     */
+    private AbstractRowValidator[] compiledRowValidators = null;
+
+    /**
+     * Whether rows are validated with the compiled validation, when there is one
+     */
+    private boolean compiledValidationEnabled = true;
+
     /**
      * @return The column spec that this EMA instance is currently using to validate against.
      */
     public ColumnSpec getColumnSpec() { return this.columnSpec; }
 
+    /**
+     * @param validationContext The validation this spec was built for. Its error log and worker pool are used from here on out.
+     */
+    void setValidationContext(ValidationContext validationContext)
+    {
+        this.validationContext = validationContext;
+        this.errorLog = validationContext.getErrorLog();
+    }
+
+    /**
+     * @param rowValidationParallelism The number of worker threads to validate data rows across. 1 validates every row on the calling thread. Defaults to the number of processors.
+     */
+    public void setRowValidationParallelism(int rowValidationParallelism) { this.rowValidationParallelism = Math.max(1, rowValidationParallelism); }
+
+    /**
+     * Should be set before the first row is validated.
+     * @param compiledValidationEnabled True to validate rows with the compiled validation of this spec's EMA version, when it could be compiled. False to always validate rows the interpreted way. Defaults to true.
+     */
+    public void setCompiledValidation(boolean compiledValidationEnabled) { this.compiledValidationEnabled = compiledValidationEnabled; }
+
+    /**
+     * @return True if rows are validated with the compiled validation of this spec's EMA version, false if they're validated the interpreted way
+     */
+    public boolean isCompiledValidation() { return this.compiledValidationEnabled && this.compiledRowValidators != null; }
+
     /**
      * A simple enum representing all the (currently) possible EMA spec versions.
      * @author canavan
@@ -88,6 +157,41 @@ public abstract class AbstractEMASpec
         this.buildColumnSpec();
         this.buildHeaderStrings();
         this.buildRowSpec(); // generate the respective row spec based on the EMA type instantiation at run time
+        this.columnSpec.assignColumnSlots();
+        this.rowSpec.bindColumns(this.columnSpec);
+    }
+
+    /**
+     * Creates a spec for a single validation from one of the prototypes built once per EMA version. See getInstance().
+     * The prototype's column definitions and header strings are shared, since neither changes during validation. Only the column layout is copied.
+     * The row spec is built fresh, because row validators hold the state of a single validation: their column slots, and values remembered from earlier rows.
+     * @param prototype The spec of the same EMA version to share the column definitions of
+     */
+    protected AbstractEMASpec(AbstractEMASpec prototype)
+    {
+        this.columnSpec = new ColumnSpec(prototype.columnSpec);
+        this.specHeaderContents = prototype.specHeaderContents;
+        this.buildRowSpec();
+        this.rowSpec.bindColumns(this.columnSpec);
+    }
+
+    /**
+     * Reorders this spec's columns to match the column headers of the input source, and lays the row values and row validators out to match.
+     * Row validators that need a column the input source doesn't have are left out, and they're all reported in a single notification on the column header row.
+     * @param columnHeaderDefinitions A list of column header names in the order in which they appeared in the input sheet
+     * @param rowNumber The row number where the column headers are located. For use in error reporting if columns are not recognized
+     */
+    public void reorderColumnDefinitions(ArrayList<String> columnHeaderDefinitions, int rowNumber)
+    {
+        this.columnSpec.reorderColumnDefinitions(columnHeaderDefinitions, rowNumber);
+        this.rowSpec.bindColumns(this.columnSpec);
+        this.bindCompiledValidation();
+        if(this.rowSpec.getSkippedValidators().isEmpty())
+            return;
+        ArrayList<String> skippedChecks = new ArrayList<String>();
+        for(AbstractRowValidator skippedRowValidator : this.rowSpec.getSkippedValidators())
+            skippedChecks.add(RowNotificationSkippedValidator.describeSkippedCheck(skippedRowValidator.getClass().getSimpleName(), skippedRowValidator.getMissingColumns()));
+        ErrorLog.appendNotification(new RowNotificationSkippedValidator(rowNumber, skippedChecks));
     }
 
     /**
@@ -98,18 +202,19 @@ public abstract class AbstractEMASpec
      */
     public static AbstractEMASpec getInstance(AbstractEMASpec.EMAVersion emaVersion)
     {
-        try
-        {
-            Class<?> emaInstanceClass = Class.forName(AbstractEMASpec.PACKAGE_INFO + emaVersion.toString()); // get the class object for the required EMA version based off of the enum's declared name value
-            return (AbstractEMASpec) emaInstanceClass.newInstance(); // generate a new instance of EMASpec with the given parameter list, cast it to EMASpec, and return it
-        }
-        catch (ClassNotFoundException | SecurityException | InstantiationException | IllegalAccessException | IllegalArgumentException e)
-        {
-            System.out.println("Error invoking new EMA instance class: " + e.getClass().getSimpleName());
-            System.out.println("Exception of type: " + e.getClass().getSimpleName());
-            e.printStackTrace();
-        }
-        return null;
+        AbstractEMASpec emaSpec = AbstractEMASpec.Prototypes.SPECS.get(emaVersion).newInstance();
+        emaSpec.compiledValidation = AbstractEMASpec.Prototypes.COMPILED.get(emaVersion);
+        emaSpec.bindCompiledValidation();
+        return emaSpec;
+    }
+
+    /**
+     * @param emaVersion An EMASpec.EMAVersion value
+     * @return The names of the EMA version's columns, in the order they're defined in the spec. The list can't be changed.
+     */
+    public static List<String> getColumnNames(AbstractEMASpec.EMAVersion emaVersion)
+    {
+        return AbstractEMASpec.Prototypes.COLUMN_NAMES.get(emaVersion);
     }
 
     /**
@@ -130,7 +235,7 @@ public abstract class AbstractEMASpec
 
     /**
      * Validates the input Apache POI Sheet object passed in against this EMASpec object's validation guidelines.
-     * Errors are reported directly to the static ErrorLog class at validation time.
+     * Errors are reported to the ErrorLog of the spec's ValidationContext at validation time.
      * Implements the Apache POI XSSF WorkBook API: http://poi.apache.org/apidocs/org/apache/poi/xssf/usermodel/XSSFWorkbook.html
      * @param inputWorkSheet The current sheet to be validated. Caller should be SURE this is a sheet with EMA data on it.
      * @param dataStartsRowIndex the first row number to start validating on, 0th based.
@@ -141,6 +246,7 @@ public abstract class AbstractEMASpec
         System.out.println("received workbook to validate. currently inside EMASpec.validate(inputWorkSheet) with sheet: " + inputWorkSheet.getSheetName());
         Row currentRow = null;
         int currentRowNumber = 0;
+        RowView rowView = new RowView(); // reused for every row so each cell is read straight from the sheet into the view
         Iterator<Row> rowIterator = inputWorkSheet.iterator(); // iterator to grab every row in the sheet
         while (rowIterator.hasNext()) // iterate over every row in the sheet
         {
@@ -149,60 +255,34 @@ public abstract class AbstractEMASpec
             if(currentRowNumber < dataStartsRowIndex) // do not validate header rows
                 continue;
 
-            String rowContents = EMAResourceValidator.getRowContents(currentRow); // get the contents of the entire row as one clean string value with EMASpec.SPLIT_CHAR inserted between each value
-            
+            EMAResourceValidator.fillRowView(currentRow, rowView); // read every cell of the row into the row view
+
             // TODO(ckha):
             // 1. Create concatenated UID String from relevant column values
             // 2. Add uid to a mapping
             // 3. If collision, flag as a duplicate. (Not an error, just a notification that a duplicate is found).
             // 4. Else, no duplicates are found.
             //String concatUID = EMAResourceValidator.getUIDRowContents(currentRow);
-                    
-            if(EMAResourceValidator.hasActualStringContent(rowContents)) // verify that the row isn't blank before trying to validate it. prevents errors on rows that are seen as 'active' in the sheet but don't actually contain data.
-            {
-                String[] cellContents = rowContents.split(EMAResourceValidator.SPLIT_CHAR); // split the string into an array of values to create an array parallel to the column spec's column definition array
-                //TODO(ckha) make cell contents get parsed as an arraylist
-                cellContents = guaranteeRowLength(cellContents);
-                // this.getMaximumColumnCount() -- minimum
-                // currentRow.getLastCellNum() -- maximum
-                // AbstractEMASpec.MAX_REASONABLE_COLUMN_COUNT -- HARD maximum
-                int lastColumn = Math.max(this.getMaximumColumnCount(), currentRow.getLastCellNum());
-                if(lastColumn > AbstractEMASpec.MAX_REASONABLE_COLUMN_COUNT)
-                    lastColumn = AbstractEMASpec.MAX_REASONABLE_COLUMN_COUNT;
-                
-                for(int currentColumnNumber = 0; currentColumnNumber < lastColumn; currentColumnNumber++)
-                {
-                    String currentCellContents = this.getCurrentCellContents(cellContents, currentColumnNumber); // attempt to get the current cell's string contents
-                    AbstractColumnDefinition currentColumnDefinition = this.columnSpec.getColumnDefinitionAt(currentColumnNumber); // get the column definition which corresponds to the current column we are currently validating
-                    this.rowSpec.addValue(currentColumnDefinition.getColumnName(), currentCellContents); // map the current column's name to the current value from this row. for use in row validation afterwards.
-                    currentColumnDefinition.validateInput(currentCellContents, currentRowNumber, currentColumnNumber); // validate the current cell value
-                }
-                this.rowSpec.validateRow(currentRowNumber); // validate the contents of the row
-                this.rowSpec.clearValues(); // clear the contents of the row spec to delete old values before next row validation
-            }
+
+            this.validate(rowView, currentRowNumber, true);
         }
-        return ErrorLog.getTotalErrorCount();
-    }
-    
-    public String[] guaranteeRowLength(String[] array) {
-        int maxColumns = this.getMaximumColumnCount();
-        ArrayList<String> returnThis = new ArrayList<String>(Arrays.asList(array));
-        while(returnThis.size() < maxColumns)
-            returnThis.add("");
-        return returnThis.toArray(new String[returnThis.size()]);
+        this.finishValidation();
+        return this.errorLog == null ? 0 : this.errorLog.getTotalErrorCount();
     }
 
     /**
      * Validates the input set of Apache CSV iterable CSVRecords against this EMASpec object's validation guidelines.
-     * Errors are reported directly to the static ErrorLog class at validation time.
+     * Errors are reported to the ErrorLog of the spec's ValidationContext at validation time.
+     * The records are only walked once, in order, so they can be streamed straight off of the parser instead of being loaded up front.
      * @param inputCsvRecords The records from the input file, each of which should represent one row of file input
      * @param dataStartsRowIndex the first row number to start validating on, 0th based.
      * @return The number of errors encountered during validation.
      */
-    public int validate(List<CSVRecord> inputCsvRecords, int dataStartsRowIndex)
+    public int validate(Iterable<CSVRecord> inputCsvRecords, int dataStartsRowIndex)
     {
         System.out.println("received CSV file to validate. currently inside EMASpec.validate(inputCsvRecords)");
         int currentRowNumber = 0;
+        RowView rowView = new RowView(); // reused for every record so each value is handed to the validators exactly as the parser produced it
         for(CSVRecord currentRecord : inputCsvRecords) // for every line in the input file
         {
             if(currentRowNumber < dataStartsRowIndex) // do not validate header rows
@@ -211,41 +291,143 @@ public abstract class AbstractEMASpec
                 continue;
             }
 
-            String rowContents = EMAResourceValidator.getRowContents(currentRecord); // get the contents of the entire row as one clean string value with EMASpec.SPLIT_CHAR inserted between each value
+            EMAResourceValidator.fillRowView(currentRecord, rowView); // point the row view at every value of the record
+            this.validate(rowView, currentRowNumber);
+            currentRowNumber++;
+        }
+        this.finishValidation();
+        return this.errorLog == null ? 0 : this.errorLog.getTotalErrorCount();
+    }
+
+    /**
+     * Validates a single data row that was read by a streaming input reader. Blank rows are skipped.
+     * Only the cells that are actually present in the row are validated, up to the maximum column count of this spec.
+     * @param rowView The current row's values as read from the input source
+     * @param currentRowNumber The row number where the values occurred, 0th based
+     */
+    public void validate(RowView rowView, int currentRowNumber) { this.validate(rowView, currentRowNumber, false); }
+
+    /**
+     * Validates a single data row that was read by a streaming input reader. Blank rows are skipped.
+     * Rows of large sheets are validated in parallel, so the row's errors might not be in the ErrorLog until finishValidation() is called.
+     * @param rowView The current row's values as read from the input source
+     * @param currentRowNumber The row number where the values occurred, 0th based
+     * @param validateMissingCells True to validate every column of this spec even when the row ends early, the way workbook rows are validated.
+     *        False to only validate the cells that are actually present in the row, the way CSV rows are validated.
+     */
+    public void validate(RowView rowView, int currentRowNumber, boolean validateMissingCells)
+    {
+        if(!rowView.hasActualContent()) // verify that the row isn't blank before trying to validate it. prevents errors on rows that are seen as 'active' in the sheet but don't actually contain data.
+            return;
+
+        int lastColumn;
+        if(validateMissingCells)
+        {
+            // this.getMaximumColumnCount() -- minimum
+            // rowView.size() -- maximum
+            // AbstractEMASpec.MAX_REASONABLE_COLUMN_COUNT -- HARD maximum
+            lastColumn = Math.min(AbstractEMASpec.MAX_REASONABLE_COLUMN_COUNT, Math.max(this.getMaximumColumnCount(), rowView.size()));
+        }
+        else
+            lastColumn = Math.min(this.getMaximumColumnCount(), rowView.size());
+
+        if(this.parallelRowValidator == null)
+            this.parallelRowValidator = new ParallelRowValidator(this, this.validationContext, this.rowValidationParallelism);
+        this.parallelRowValidator.acceptRow(rowView, currentRowNumber, lastColumn);
+    }
+
+    /**
+     * Wait for every data row handed to validate() to finish and merge their errors into the ErrorLog, in row order.
+     * Has to be called once the last row of a sheet has been handed to validate().
+     */
+    public void finishValidation()
+    {
+        if(this.parallelRowValidator == null)
+            return;
+        try
+        {
+            this.parallelRowValidator.finish();
+        }
+        finally
+        {
+            this.parallelRowValidator = null;
+        }
+    }
+
+    /**
+     * Free anything this spec's validators hold on to outside of the heap, such as fingerprints spilled to disk. Called by its ValidationContext once the validation is over.
+     */
+    void release() { this.rowSpec.release(); }
+
+    /**
+     * Validates every cell of a single row against its column definition and then validates the row as a whole with this spec's row validators.
+     * @param rowView The current row's values as read from the input source
+     * @param currentRowNumber The row number where the values occurred, 0th based
+     * @param lastColumn One past the last column index to validate. Cells past the end of the row are validated as the empty string.
+     */
+    protected void validateRow(RowView rowView, int currentRowNumber, int lastColumn)
+    {
+        this.validateRow(rowView, this.rowSpec.getRowValues(), currentRowNumber, lastColumn, null);
+        this.rowSpec.clearValues(); // clear the contents of the row spec to delete old values before next row validation
+    }
 
-            if(EMAResourceValidator.hasActualStringContent(rowContents)) // verify that the row isn't blank before trying to validate it. prevents errors on rows that are seen as 'active' in the sheet but don't actually contain data.
+    /**
+     * Validates every cell of a single row against its column definition and then validates the row as a whole, keeping the row's values in the given row values.
+     * Safe to call from several threads at once, as long as each passes its own row values and has its own ErrorBuffer set in the ErrorLog.
+     * @param rowView The current row's values as read from the input source
+     * @param rowValues Where to keep the row's values for the row validators. Should be empty.
+     * @param currentRowNumber The row number where the values occurred, 0th based
+     * @param lastColumn One past the last column index to validate. Cells past the end of the row are validated as the empty string.
+     * @param errorBuffer Where cross row validators are deferred to when the row is validated out of order. Null to run them right away.
+     */
+    void validateRow(RowView rowView, RowValues rowValues, int currentRowNumber, int lastColumn, ErrorBuffer errorBuffer)
+    {
+        if(this.compiledValidationEnabled && this.compiledRowValidators != null)
+        {
+            for(int currentColumnNumber = 0; currentColumnNumber < lastColumn; currentColumnNumber++)
             {
-                String[] cellContents = rowContents.split(EMAResourceValidator.SPLIT_CHAR); // split the string into an array of values to create an array parallel to the column spec's column definition array
-                for(int currentColumnNumber = 0; currentColumnNumber < Math.min(this.getMaximumColumnCount(), currentRecord.size()); currentColumnNumber++)
-                {
-                    String currentCellContents = this.getCurrentCellContents(cellContents, currentColumnNumber); // attempt to get the current cell's string contents
-                    AbstractColumnDefinition currentColumnDefinition = this.columnSpec.getColumnDefinitionAt(currentColumnNumber); // get the column definition which corresponds to the current column we are currently validating
-                    this.rowSpec.addValue(currentColumnDefinition.getColumnName(), currentCellContents); // map the current column's name to the current value from this row. for use in row validation afterwards.
-                    currentColumnDefinition.validateInput(currentCellContents, currentRowNumber, currentColumnNumber); // validate the current cell value
-                }
-                this.rowSpec.validateRow(currentRowNumber); // validate the contents of the row
-                this.rowSpec.clearValues(); // clear the contents of the row spec to delete old values before next row validation
+                int specColumn = currentColumnNumber < this.compiledSpecColumns.length ? this.compiledSpecColumns[currentColumnNumber] : CompiledValidation.NO_SPEC_COLUMN;
+                this.compiledValidation.validateCell(specColumn, rowView, rowValues, currentRowNumber, currentColumnNumber, this.columnSpec.getColumnSlotAt(currentColumnNumber));
             }
-            currentRowNumber++;
+            this.putMissingCells(rowValues, lastColumn);
+            this.compiledValidation.validateRow(this.compiledRowValidators, rowValues, currentRowNumber, errorBuffer);
+            return;
         }
-        return ErrorLog.getTotalErrorCount();
+
+        for(int currentColumnNumber = 0; currentColumnNumber < lastColumn; currentColumnNumber++)
+        {
+            AbstractColumnDefinition currentColumnDefinition = this.columnSpec.getColumnDefinitionAt(currentColumnNumber); // get the column definition which corresponds to the current column we are currently validating
+            int currentColumnSlot = this.columnSpec.getColumnSlotAt(currentColumnNumber);
+            this.rowSpec.addValue(rowValues, currentColumnSlot, rowView.getCell(currentColumnNumber)); // store the current value from this row in the current column's slot. for use in row validation afterwards.
+            CellValue cellValue = this.rowSpec.getCellValueForParsing(rowValues, currentColumnDefinition, currentColumnSlot); // typed columns are parsed once here and the parsed value is kept for row validation
+            currentColumnDefinition.validateInput(rowView, cellValue, currentRowNumber, currentColumnNumber); // validate the current cell value
+        }
+        this.putMissingCells(rowValues, lastColumn);
+        this.rowSpec.validateRow(rowValues, currentRowNumber, errorBuffer); // validate the contents of the row
     }
 
     /**
-     * A smart method that will take in the current row's contents as an array and pull out the desired value for the current column index being validated.
-     * Is smart enough to realize that if the current active cell's column index is greater than the number of actual values in the row content, an empty string will be returned.
-     * @param cellContents An array of string values which each represent an atomic cell value from the spreadsheet
-     * @param currentColumnNumber The index where the desired value is located at. Performs smart error checking.
-     * @return The value located at the input cell contents at the given index. The empty string is returned for all invalid index cases or where the desired index is higher than the defined column spec's length for this EMASpec instance.
+     * Short rows, which CSV files have whenever the trailing cells are empty, end before some of the spec's columns. Their cells aren't validated, but row validators see them as empty.
+     * @param rowValues The values of the row
+     * @param lastColumn One past the last column index that was validated
      */
-    private String getCurrentCellContents(String[] cellContents, int currentColumnNumber)
+    private void putMissingCells(RowValues rowValues, int lastColumn)
     {
-        if(currentColumnNumber >= cellContents.length || currentColumnNumber < 0)
-            return "";
-        else
-            return cellContents[currentColumnNumber];
+        int lastSpecColumn = Math.min(this.getMaximumColumnCount(), this.columnSpec.getColumnDefinitionSize());
+        for(int currentColumnNumber = lastColumn; currentColumnNumber < lastSpecColumn; currentColumnNumber++)
+            rowValues.putMissingCell(this.columnSpec.getColumnSlotAt(currentColumnNumber));
     }
 
+    /**
+     * Lays the compiled validation out for the current column layout. Rows are validated the interpreted way if this spec's row validators don't match the compiled ones.
+     */
+    private void bindCompiledValidation()
+    {
+        if(this.compiledValidation == null)
+            return;
+        this.compiledSpecColumns = this.compiledValidation.getSpecColumnIndexes(this.columnSpec);
+        this.compiledRowValidators = this.compiledValidation.getRowValidators(this.rowSpec);
+    }
 
     /**
      * Override with each concrete implementation of EMASpec.
@@ -286,4 +468,48 @@ public abstract class AbstractEMASpec
      * @return The EMA version corresponding to this instantiation of EMASpec
      */
     public abstract AbstractEMASpec.EMAVersion getEMAVersion();
+
+    /**
+     * Override with each implementation of EMASpec by calling the implementation's prototype constructor. See AbstractEMASpec(AbstractEMASpec).
+     * @return A new spec for a single validation that shares this spec's column definitions
+     */
+    protected abstract AbstractEMASpec newInstance();
+
+    /**
+     * One spec of each EMA version, built the first time a spec is asked for. Each is only ever copied by getInstance(), never laid out or validated against,
+     * so they can be shared by every validation on every thread.
+     */
+    private static final class Prototypes
+    {
+        private static final EnumMap<EMAVersion, AbstractEMASpec> SPECS = new EnumMap<EMAVersion, AbstractEMASpec>(EMAVersion.class);
+
+        private static final EnumMap<EMAVersion, List<String>> COLUMN_NAMES = new EnumMap<EMAVersion, List<String>>(EMAVersion.class);
+
+        /**
+         * The compiled validation of each EMA version that could be compiled
+         */
+        private static final EnumMap<EMAVersion, CompiledValidation> COMPILED = new EnumMap<EMAVersion, CompiledValidation>(EMAVersion.class);
+
+        static
+        {
+            Prototypes.add(new EMASpec14());
+            Prototypes.add(new EMASpec15());
+            Prototypes.add(new EMASpec16());
+            Prototypes.add(new EMASpec16TV());
+            Prototypes.add(new EMASpec17());
+            Prototypes.add(new EMASpec17TV());
+        }
+
+        private static void add(AbstractEMASpec prototype)
+        {
+            ArrayList<String> columnNames = new ArrayList<String>();
+            for(AbstractColumnDefinition currentColumn : prototype.columnSpec)
+                columnNames.add(currentColumn.getColumnName());
+            Prototypes.SPECS.put(prototype.getEMAVersion(), prototype);
+            Prototypes.COLUMN_NAMES.put(prototype.getEMAVersion(), Collections.unmodifiableList(columnNames));
+            CompiledValidation compiledValidation = SpecCompiler.compile(prototype);
+            if(compiledValidation != null)
+                Prototypes.COMPILED.put(prototype.getEMAVersion(), compiledValidation);
+        }
+    }
 }
\ No newline at end of file
@@ -15,15 +15,108 @@ limitations under the License.
 
 package emavalidator;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 
 /**
  * A RowValidator should be used in scenarios where different column values and their 'correctness' are based off of values in other columns.
- * These different cell values are indexed via their class name to be accessed at row validation time.
+ * Each RowValidator declares the columns it reads through column() and optionalColumn(), and the values are read by the slot that each column was assigned when the columns were laid out.
+ * A RowValidator is only ever called for rows that have a value for every one of its required columns, so it doesn't have to guard against them being missing.
+ * When the input source doesn't have one of the required columns at all, the validator is left out of the RowSpec's validation plan altogether.
  * This requires that every value encountered in the sheet be appended to the map during execution so each RowValidator can access the values it needs.
+ * Dates, integers, decimals and booleans are also available already parsed through RowValues.getCellValue().
  * @author canavan
  */
 public abstract class AbstractRowValidator
 {
-    public abstract boolean validate(HashMap<String, String> rowValues, int rowNumber);
+    /**
+     * The columns that this validator can't do anything without, as declared through column()
+     */
+    private ArrayList<ColumnSlot> requiredColumns = new ArrayList<ColumnSlot>();
+
+    /**
+     * The columns that this validator reads when they're there and copes without otherwise, as declared through optionalColumn()
+     */
+    private ArrayList<ColumnSlot> optionalColumns = new ArrayList<ColumnSlot>();
+
+    /**
+     * Declares a column that this validator needs. Should be called once per column, when the validator is constructed.
+     * The validator isn't called for rows without a value in the column, so its value is never null inside of validate().
+     * @param columnClass The column to read
+     * @return The column's slot, to read the column's values out of RowValues with
+     */
+    protected ColumnSlot column(Class<? extends AbstractColumnDefinition> columnClass)
+    {
+        ColumnSlot column = new ColumnSlot(columnClass.getSimpleName());
+        this.requiredColumns.add(column);
+        return column;
+    }
+
+    /**
+     * Declares a column that this validator reads when it's there. Should be called once per column, when the validator is constructed.
+     * Its value is null inside of validate() whenever the row doesn't have the column.
+     * @param columnClass The column to read
+     * @return The column's slot, to read the column's values out of RowValues with
+     */
+    protected ColumnSlot optionalColumn(Class<? extends AbstractColumnDefinition> columnClass)
+    {
+        ColumnSlot column = new ColumnSlot(columnClass.getSimpleName());
+        this.optionalColumns.add(column);
+        return column;
+    }
+
+    /**
+     * Looks up the slot of every declared column in the given column spec
+     * @param columnSpec The column spec that rows will be validated against, already laid out to match the input source
+     */
+    public void bindColumns(ColumnSpec columnSpec)
+    {
+        for(ColumnSlot currentColumn : this.requiredColumns)
+            currentColumn.bind(columnSpec);
+        for(ColumnSlot currentColumn : this.optionalColumns)
+            currentColumn.bind(columnSpec);
+    }
+
+    /**
+     * @return The names of the required columns that the current column layout doesn't have. Empty if the validator can run.
+     */
+    public ArrayList<String> getMissingColumns()
+    {
+        ArrayList<String> missingColumns = new ArrayList<String>();
+        for(ColumnSlot currentColumn : this.requiredColumns)
+            if(currentColumn.getSlot() == ColumnSpec.NO_SLOT)
+                missingColumns.add(currentColumn.getColumnName());
+        return missingColumns;
+    }
+
+    /**
+     * Cells that a short row ends before are empty, but columns past the spec's maximum column count are never read, so this is checked for each row before the validator is called.
+     * @param rowValues The values of the current row
+     * @return True if the row has a value for every required column
+     */
+    public boolean hasRequiredValues(RowValues rowValues)
+    {
+        for(int x = 0; x < this.requiredColumns.size(); x++)
+            if(rowValues.get(this.requiredColumns.get(x)) == null)
+                return false;
+        return true;
+    }
+
+    /**
+     * Validators that remember values from earlier rows, such as duplicate checks, have to see the rows one at a time and in order.
+     * When rows are validated in parallel they're run on the thread that merges the results, in row order, instead of with the rest of the row.
+     * @return True if this validator keeps state from one row to the next. False by default.
+     */
+    public boolean isCrossRow() { return false; }
+
+    /**
+     * Free anything the validator holds on to outside of the heap, such as files on disk. Called once the validation it belongs to is over. Does nothing by default.
+     */
+    public void release() { }
+
+    /**
+     * @param rowValues The values of the current row. Only called when hasRequiredValues() is true for the row.
+     * @param rowNumber The row number where the values occurred, 0th based
+     * @return True if the row passed validation, false otherwise
+     */
+    public abstract boolean validate(RowValues rowValues, int rowNumber);
 }
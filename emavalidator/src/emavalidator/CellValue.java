@@ -0,0 +1,278 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package emavalidator;
+
+import emavalidator.validators.CompiledRegex;
+import emavalidator.validators.DateParser;
+import emavalidator.validators.ValidatorUtils;
+
+/**
+ * The parsed form of a single cell from a typed column: dates, integers, decimals and booleans.
+ * Each cell is parsed once when its column is validated and the result is kept in the row, so that cell validators and row validators
+ * can all read the same primitive value instead of each matching and parsing the cell's string again.
+ * Instances are reused for every row, so nothing is allocated per cell.
+ */
+public final class CellValue
+{
+    /**
+     * The kind of value that a column holds. Columns are TEXT unless they declare otherwise.
+     */
+    public static enum ValueType { TEXT, DATE, INTEGER, DECIMAL, BOOLEAN };
+
+    /**
+     * What a cell turned out to hold once it was parsed as its column's value type
+     */
+    public static enum Kind
+    {
+        /**
+         * The cell hasn't been parsed for the current row, usually because the row ended before its column
+         */
+        UNPARSED,
+        /**
+         * The cell is the empty string
+         */
+        EMPTY,
+        /**
+         * The cell isn't a value of its column's type
+         */
+        INVALID,
+        /**
+         * A JULIAN_DATE_FORMAT_REGEX date. The value is in DateParser.JULIAN_DATE_SCALE units.
+         */
+        JULIAN_DATE,
+        /**
+         * A CHRONOLOGICAL_DATE_FORMAT_REGEX (yyyy-MM-dd) date that exists. The value is the number of days since 1970-01-01.
+         */
+        CHRONOLOGICAL_DATE,
+        /**
+         * Shaped like a CHRONOLOGICAL_DATE_FORMAT_REGEX date, but not a date that exists
+         */
+        INVALID_CHRONOLOGICAL_DATE,
+        /**
+         * Any other date with one or more digits in each field. The value is the number of days since 1970-01-01.
+         */
+        DATE,
+        /**
+         * An ISO-8601 date time. The value is the number of seconds since 1970-01-01T00:00:00Z.
+         */
+        DATE_TIME,
+        /**
+         * One of the ENDING_DATE_VALUES_REGEX symbols: Open or ESTStart
+         */
+        ENDING_DATE_SYMBOL,
+        /**
+         * One of the STARTING_DATE_VALUES_REGEX symbols: TBD
+         */
+        STARTING_DATE_SYMBOL,
+        /**
+         * A NUMBER_FORMAT_REGEX integer. Values too large for a long are kept as Long.MAX_VALUE.
+         */
+        INTEGER,
+        /**
+         * A FLOAT_FORMAT_REGEX decimal. The value is in DECIMAL_SCALE units, rounded down.
+         */
+        DECIMAL,
+        /**
+         * A YES_OR_NO_ONLY_REGEX value. The value is 1 for yes and 0 for no.
+         */
+        BOOLEAN
+    };
+
+    /**
+     * Decimal values are kept in millionths
+     */
+    public static final long DECIMAL_SCALE = 1000000;
+
+    private static final CompiledRegex ENDING_DATE_VALUES = CompiledRegex.get(ValidatorUtils.ENDING_DATE_VALUES_REGEX);
+    private static final CompiledRegex STARTING_DATE_VALUES = CompiledRegex.get(ValidatorUtils.STARTING_DATE_VALUES_REGEX);
+
+    private Kind kind = Kind.UNPARSED;
+    private long value;
+
+    /**
+     * @return What the cell turned out to hold
+     */
+    public Kind getKind() { return this.kind; }
+
+    /**
+     * @return The parsed value. Its unit depends on the kind; see each Kind.
+     */
+    public long getLong() { return this.value; }
+
+    /**
+     * @return True if the cell is a BOOLEAN that means yes
+     */
+    public boolean isYes() { return this.kind == Kind.BOOLEAN && this.value != 0; }
+
+    /**
+     * @return True if the cell is any kind of date or date time. Date symbols like Open or TBD aren't included.
+     */
+    public boolean isDate()
+    {
+        return this.kind == Kind.JULIAN_DATE || this.kind == Kind.CHRONOLOGICAL_DATE || this.kind == Kind.DATE || this.kind == Kind.DATE_TIME;
+    }
+
+    /**
+     * @return True if the cell matches CHRONOLOGICAL_DATE_FORMAT_REGEX, whether or not it's a date that exists
+     */
+    public boolean isChronologicalDateFormat() { return this.kind == Kind.CHRONOLOGICAL_DATE || this.kind == Kind.INVALID_CHRONOLOGICAL_DATE; }
+
+    /**
+     * Forget the value from the previous row
+     */
+    public void reset()
+    {
+        this.kind = Kind.UNPARSED;
+        this.value = 0;
+    }
+
+    /**
+     * @param valueType The value type of the cell's column
+     * @param inputString The cell's contents
+     * @return This cell value, holding the parsed form of the input
+     */
+    public CellValue parse(ValueType valueType, CharSequence inputString)
+    {
+        this.value = 0;
+        if(inputString.length() == 0)
+            this.kind = Kind.EMPTY;
+        else if(valueType == ValueType.DATE)
+            this.parseDate(inputString);
+        else if(valueType == ValueType.INTEGER)
+            this.parseInteger(inputString);
+        else if(valueType == ValueType.DECIMAL)
+            this.parseDecimal(inputString);
+        else if(valueType == ValueType.BOOLEAN)
+            this.parseBoolean(inputString);
+        else
+            this.kind = Kind.UNPARSED;
+        return this;
+    }
+
+    private void parseDate(CharSequence inputString)
+    {
+        this.value = DateParser.parseJulianDate(inputString);
+        if(this.value != DateParser.INVALID)
+        {
+            this.kind = Kind.JULIAN_DATE;
+            return;
+        }
+
+        boolean chronologicalDateFormat = DateParser.isChronologicalDateFormat(inputString);
+        if(inputString.length() > 10) // longer values can only be ISO-8601 date times
+        {
+            this.value = DateParser.parseDateTime(inputString);
+            this.kind = Kind.DATE_TIME;
+        }
+        else
+        {
+            this.value = DateParser.parseDate(inputString);
+            this.kind = chronologicalDateFormat ? Kind.CHRONOLOGICAL_DATE : Kind.DATE;
+        }
+        if(this.value != DateParser.INVALID)
+            return;
+
+        this.value = 0;
+        if(CellValue.ENDING_DATE_VALUES.matches(inputString))
+            this.kind = Kind.ENDING_DATE_SYMBOL;
+        else if(CellValue.STARTING_DATE_VALUES.matches(inputString))
+            this.kind = Kind.STARTING_DATE_SYMBOL;
+        else
+            this.kind = chronologicalDateFormat ? Kind.INVALID_CHRONOLOGICAL_DATE : Kind.INVALID;
+    }
+
+    private void parseInteger(CharSequence inputString)
+    {
+        long integer = 0;
+        for(int position = 0; position < inputString.length(); position++)
+        {
+            int digit = inputString.charAt(position) - '0';
+            if(digit < 0 || digit > 9)
+            {
+                this.kind = Kind.INVALID;
+                return;
+            }
+            integer = integer > (Long.MAX_VALUE - digit) / 10 ? Long.MAX_VALUE : integer * 10 + digit;
+        }
+        this.kind = Kind.INTEGER;
+        this.value = integer;
+    }
+
+    private void parseDecimal(CharSequence inputString)
+    {
+        int length = inputString.length();
+        int pointPosition = -1;
+        long decimal = 0;
+        long fractionScale = DECIMAL_SCALE;
+        for(int position = 0; position < length; position++)
+        {
+            char character = inputString.charAt(position);
+            if(character == '.' && pointPosition == -1)
+            {
+                pointPosition = position;
+                continue;
+            }
+            int digit = character - '0';
+            if(digit < 0 || digit > 9)
+            {
+                this.kind = Kind.INVALID;
+                return;
+            }
+            if(pointPosition == -1)
+                decimal = decimal > (Long.MAX_VALUE / DECIMAL_SCALE - digit) / 10 ? Long.MAX_VALUE / DECIMAL_SCALE : decimal * 10 + digit;
+            else if(fractionScale > 1)
+            {
+                fractionScale /= 10;
+                this.value += digit * fractionScale;
+            }
+        }
+        if(pointPosition == length - 1) // there has to be at least one digit after the decimal point
+        {
+            this.value = 0;
+            this.kind = Kind.INVALID;
+            return;
+        }
+        this.kind = Kind.DECIMAL;
+        this.value += decimal * DECIMAL_SCALE;
+    }
+
+    private void parseBoolean(CharSequence inputString)
+    {
+        this.kind = Kind.BOOLEAN;
+        if(CellValue.equalsIgnoreCase(inputString, "yes") || CellValue.equalsIgnoreCase(inputString, "y"))
+            this.value = 1;
+        else if(!CellValue.equalsIgnoreCase(inputString, "no") && !CellValue.equalsIgnoreCase(inputString, "n"))
+            this.kind = Kind.INVALID;
+    }
+
+    /**
+     * Only ASCII letters are folded, the same as a case insensitive regex
+     */
+    private static boolean equalsIgnoreCase(CharSequence inputString, String lowerCaseValue)
+    {
+        if(inputString.length() != lowerCaseValue.length())
+            return false;
+        for(int position = 0; position < lowerCaseValue.length(); position++)
+        {
+            char character = inputString.charAt(position);
+            if(character >= 'A' && character <= 'Z')
+                character += 'a' - 'A';
+            if(character != lowerCaseValue.charAt(position))
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,48 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package emavalidator;
+
+/**
+ * A column that a row validator reads, along with the slot that the column's values sit in inside of RowValues.
+ * Row validators declare their columns once through AbstractRowValidator.column(), and the slots are looked up again every time
+ * the spec's columns are laid out to match an input source, so reading a value during row validation is a plain array access.
+ */
+public final class ColumnSlot
+{
+    private final String columnName;
+    private int slot = ColumnSpec.NO_SLOT;
+
+    /**
+     * @param columnName The name of the column. Should be a Class.class.getSimpleName() value.
+     */
+    public ColumnSlot(String columnName) { this.columnName = columnName; }
+
+    /**
+     * @return The name of the column. A Class.class.getSimpleName() value.
+     */
+    public String getColumnName() { return this.columnName; }
+
+    /**
+     * @return The index of the column's values inside of RowValues, or ColumnSpec.NO_SLOT if the input source doesn't have the column
+     */
+    public int getSlot() { return this.slot; }
+
+    /**
+     * Looks up the column's slot in the given column spec
+     * @param columnSpec The column spec, already laid out to match the input source
+     */
+    public void bind(ColumnSpec columnSpec) { this.slot = columnSpec.getColumnSlot(this.columnName); }
+}
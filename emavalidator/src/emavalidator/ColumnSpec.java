@@ -16,6 +16,8 @@ limitations under the License.
 package emavalidator;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 
 import emavalidator.columns.UnsupportedColumn;
@@ -38,6 +40,57 @@ public class ColumnSpec implements Iterable<AbstractColumnDefinition>
      */
     private ArrayList<AbstractColumnDefinition> columnDefinitions = new ArrayList<AbstractColumnDefinition>();
 
+    /**
+     * The slot of a column that isn't part of the current layout
+     */
+    public static final int NO_SLOT = -1;
+
+    /**
+     * Stands in for every column that isn't part of the spec. It has no validators, so a single instance is shared by every column spec.
+     */
+    private static final UnsupportedColumn UNSUPPORTED_COLUMN = new UnsupportedColumn();
+
+    /**
+     * Every column definition added to this spec, by name. Kept as the spec defined it when the columns are reordered, so the columns of the input source are always looked up against the whole spec.
+     * Column specs copied from a prototype share the prototype's index until a column is added to them.
+     */
+    private HashMap<String, AbstractColumnDefinition> columnDefinitionsByName = new HashMap<String, AbstractColumnDefinition>();
+
+    /**
+     * True while columnDefinitionsByName is shared with the prototype this column spec was copied from
+     */
+    private boolean columnIndexShared = false;
+
+    /**
+     * The slot that each distinct column name's values are kept in inside of RowValues. Assigned in column order whenever the columns are laid out.
+     * Replaced rather than changed, so that it can be shared with copies.
+     */
+    private HashMap<String, Integer> columnSlots = new HashMap<String, Integer>();
+
+    /**
+     * The slot of the column at each index of the current layout. Kept here rather than in the column definitions, since those are shared by every copy of a spec.
+     */
+    private int[] columnSlotsByIndex = new int[0];
+
+    /**
+     * Creates an empty column spec
+     */
+    public ColumnSpec() { }
+
+    /**
+     * Creates a column spec with the same columns, in the same layout, as the given one. The column definitions themselves are shared, not copied.
+     * Reordering the copy doesn't change the original.
+     * @param prototype The column spec to copy
+     */
+    ColumnSpec(ColumnSpec prototype)
+    {
+        this.columnDefinitions = new ArrayList<AbstractColumnDefinition>(prototype.columnDefinitions);
+        this.columnDefinitionsByName = prototype.columnDefinitionsByName;
+        this.columnIndexShared = true;
+        this.columnSlots = prototype.columnSlots;
+        this.columnSlotsByIndex = prototype.columnSlotsByIndex;
+    }
+
     /**
      * Reorganizes the internal ordering of column definitions for this instance of ColumnSpec and makes them
      * match up with the input Column Header definitions
@@ -52,20 +105,81 @@ public class ColumnSpec implements Iterable<AbstractColumnDefinition>
             AbstractColumnDefinition currentColumn = this.getColumnDefinitionByName(columnHeaderDefinitions.get(x));
             if(currentColumn == null)
             {
-                reorderedColumnDefinitions.add(new UnsupportedColumn());
+                reorderedColumnDefinitions.add(ColumnSpec.UNSUPPORTED_COLUMN);
                 ErrorLog.appendError(new CellErrorUnsupportedColumn(rowNumber, x, columnHeaderDefinitions.get(x)));
             }
             else
                 reorderedColumnDefinitions.add(currentColumn);
         }
         this.columnDefinitions = reorderedColumnDefinitions;
+        this.assignColumnSlots();
+    }
+
+    /**
+     * Gives each distinct column name a slot, in column order, and saves the slot of each column index.
+     * Columns that appear more than once share a slot, so the last value in the row wins, the same as before slots existed.
+     * Called whenever the columns are laid out so that row values can be stored and read by slot instead of by name.
+     */
+    public void assignColumnSlots()
+    {
+        HashMap<String, Integer> newColumnSlots = new HashMap<String, Integer>();
+        int[] newColumnSlotsByIndex = new int[this.columnDefinitions.size()];
+        for(int x = 0; x < this.columnDefinitions.size(); x++)
+        {
+            String columnName = this.columnDefinitions.get(x).getColumnName();
+            Integer slot = newColumnSlots.get(columnName);
+            if(slot == null)
+            {
+                slot = newColumnSlots.size();
+                newColumnSlots.put(columnName, slot);
+            }
+            newColumnSlotsByIndex[x] = slot;
+        }
+        this.columnSlots = newColumnSlots;
+        this.columnSlotsByIndex = newColumnSlotsByIndex;
+    }
+
+    /**
+     * @param columnName The name of a column. Should be a Class.class.getSimpleName() value.
+     * @return The slot of the column's values inside of RowValues, or NO_SLOT if the column isn't part of the current layout
+     */
+    public int getColumnSlot(String columnName)
+    {
+        Integer slot = this.columnSlots.get(columnName);
+        return slot == null ? ColumnSpec.NO_SLOT : slot;
+    }
+
+    /**
+     * @return The number of distinct columns in the current layout, which is also the number of slots that RowValues needs
+     */
+    public int getColumnSlotCount() { return this.columnSlots.size(); }
+
+    /**
+     * @param inputIndex The index of a column in the current layout
+     * @return The slot of the column's values inside of RowValues, or NO_SLOT if the index is past the last column
+     */
+    public int getColumnSlotAt(int inputIndex)
+    {
+        if(inputIndex < 0 || inputIndex >= this.columnSlotsByIndex.length)
+            return ColumnSpec.NO_SLOT;
+        return this.columnSlotsByIndex[inputIndex];
     }
 
     /**
      * Add a new column definition to this spec. The set of column definitions 'defines' this column spec.
      * @param inputDefinition An instance of a new column definition and all its appropriate validators saved inside
      */
-    public void addColumnDefinition(AbstractColumnDefinition inputDefinition) { this.columnDefinitions.add(inputDefinition); }
+    public void addColumnDefinition(AbstractColumnDefinition inputDefinition)
+    {
+        this.columnDefinitions.add(inputDefinition);
+        if(this.columnIndexShared)
+        {
+            this.columnDefinitionsByName = new HashMap<String, AbstractColumnDefinition>(this.columnDefinitionsByName);
+            this.columnIndexShared = false;
+        }
+        if(!this.columnDefinitionsByName.containsKey(inputDefinition.getColumnName())) // the first definition of a name wins, the same as a scan in column order
+            this.columnDefinitionsByName.put(inputDefinition.getColumnName(), inputDefinition);
+    }
 
     /**
      * @param excelColumnLetters The letter code of the column requested. E.G. "A", "BC", "G"
@@ -81,15 +195,13 @@ public class ColumnSpec implements Iterable<AbstractColumnDefinition>
      * Returns the instance of the column definition represented by the column located at the given column index.
      * This can be useful for retrieving the name of the current column while iterating over this column spec's column definition set.
      * @param inputIndex The index of the column definition to retrieve. Valid values are [0, columnDefinitions.length).
-     * @return The requested instance of a column definition located at the given column index.
+     * @return The requested instance of a column definition located at the given column index. An UnsupportedColumn if the index is out of range.
      */
-    public AbstractColumnDefinition getColumnDefinitionAt(int inputIndex) throws IndexOutOfBoundsException
+    public AbstractColumnDefinition getColumnDefinitionAt(int inputIndex)
     {
-        try
-        {
-            return this.columnDefinitions.get(inputIndex);
-        }
-        catch (IndexOutOfBoundsException IOOBE) { return new UnsupportedColumn(); }
+        if(inputIndex < 0 || inputIndex >= this.columnDefinitions.size())
+            return ColumnSpec.UNSUPPORTED_COLUMN;
+        return this.columnDefinitions.get(inputIndex);
     }
 
     /**
@@ -98,10 +210,7 @@ public class ColumnSpec implements Iterable<AbstractColumnDefinition>
      */
     public AbstractColumnDefinition getColumnDefinitionByName(String inputColumnDefinitionName)
     {
-        for(AbstractColumnDefinition currentColumn : this.columnDefinitions)
-            if(currentColumn.compareTo(inputColumnDefinitionName) == 0)
-                return currentColumn;
-        return null;
+        return this.columnDefinitionsByName.get(inputColumnDefinitionName);
     }
 
     /**
@@ -111,6 +220,8 @@ public class ColumnSpec implements Iterable<AbstractColumnDefinition>
     public void clearColumnDefinition()
     {
         this.columnDefinitions.clear();
+        this.columnDefinitionsByName = new HashMap<String, AbstractColumnDefinition>();
+        this.columnIndexShared = false;
     }
 
     /**
@@ -132,15 +243,15 @@ public class ColumnSpec implements Iterable<AbstractColumnDefinition>
     public boolean verifyColumnDefinitions(AbstractEMASpec.EMAVersion emaVersion, ArrayList<String> columnHeaderDefinitions)
     {
         ArrayList<String> missingColumns = new ArrayList<String>();
-        ColumnSpec cs = AbstractEMASpec.getInstance(emaVersion).getColumnSpec();
+        HashSet<String> inputColumns = new HashSet<String>(columnHeaderDefinitions);
         
         // Loop through the spec's column headers and find each column in the inputted column headers
-        for (AbstractColumnDefinition currentColumn : cs.columnDefinitions) 
+        for (String currentColumnName : AbstractEMASpec.getColumnNames(emaVersion)) 
         {
             // Track the missing columns for flagging later.
-            if (!columnHeaderDefinitions.contains(currentColumn.getColumnName()))
+            if (!inputColumns.contains(currentColumnName))
             {
-                missingColumns.add(currentColumn.getColumnName());
+                missingColumns.add(currentColumnName);
             }
         }
         
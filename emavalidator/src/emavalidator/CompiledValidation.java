@@ -0,0 +1,160 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package emavalidator;
+
+import java.util.IdentityHashMap;
+
+/**
+ * The validation of one EMA version's columns and row validators, compiled by SpecCompiler into a generated subclass with a straight-line method per column.
+ * Each cell validator and row validator is called from its own spot in the generated code, so every call only ever sees one class and can be inlined by the JIT,
+ * instead of every cell going through the same call inside AbstractColumnDefinition.validateInput() and every row through the loop in RowSpec.validateRow().
+ * Compiled once per EMA version from its prototype and shared by every spec of that version, so it holds nothing that belongs to a single validation.
+ * Has to be public, since the generated subclasses are defined by their own class loader.
+ */
+public abstract class CompiledValidation
+{
+    /**
+     * The spec column index of a column that isn't one of the compiled spec's columns
+     */
+    public static final int NO_SPEC_COLUMN = -1;
+
+    /**
+     * The compiled spec's columns, in the order they're defined in the spec. A column's index here is its spec column index.
+     */
+    protected final AbstractColumnDefinition[] columns;
+
+    /**
+     * The cell validators of every column, one column after the other, in the order each column runs them
+     */
+    protected final AbstractCellValidator[] cellValidators;
+
+    /**
+     * The value type of each column, by spec column index
+     */
+    private final CellValue.ValueType[] valueTypes;
+
+    /**
+     * The class of each of the compiled spec's row validators, in the order they were added to its row spec
+     */
+    private final Class<?>[] rowValidatorClasses;
+
+    /**
+     * The spec column index of each column
+     */
+    private final IdentityHashMap<AbstractColumnDefinition, Integer> specColumnIndexes = new IdentityHashMap<AbstractColumnDefinition, Integer>();
+
+    /**
+     * @param columns The compiled spec's columns, in the order they're defined in the spec
+     * @param cellValidators The cell validators of every column, one column after the other
+     * @param rowValidatorClasses The class of each of the compiled spec's row validators, in the order they were added to its row spec
+     */
+    protected CompiledValidation(AbstractColumnDefinition[] columns, AbstractCellValidator[] cellValidators, Class<?>[] rowValidatorClasses)
+    {
+        this.columns = columns;
+        this.cellValidators = cellValidators;
+        this.rowValidatorClasses = rowValidatorClasses;
+        this.valueTypes = new CellValue.ValueType[columns.length];
+        for(int x = 0; x < columns.length; x++)
+        {
+            this.valueTypes[x] = columns[x].getValueType();
+            if(!this.specColumnIndexes.containsKey(columns[x]))
+                this.specColumnIndexes.put(columns[x], x);
+        }
+    }
+
+    /**
+     * Validates one cell the same way as AbstractEMASpec.validateRow() does: the cell's value is kept in its slot, typed columns are parsed,
+     * and then the column's cell validators are run in order until one of them fails.
+     * @param specColumn The spec column index of the cell's column. See getSpecColumnIndexes(). Cells of any other column only have their value kept.
+     * @param rowView The current row's values as read from the input source
+     * @param rowValues Where to keep the row's values for the row validators
+     * @param rowNumber The row number where the values occurred, 0th based
+     * @param column The index of the cell inside rowView
+     * @param slot The slot of the cell's column in the current layout. See ColumnSpec.getColumnSlotAt().
+     */
+    public abstract void validateCell(int specColumn, RowView rowView, RowValues rowValues, int rowNumber, int column, int slot);
+
+    /**
+     * Runs the row validators the same way as RowSpec.validateRow() does.
+     * @param rowValidators The row validators of the current layout, from getRowValidators()
+     * @param rowValues The values of the row
+     * @param rowNumber The row number where the values occurred, 0th based
+     * @param errorBuffer Where cross row validators are deferred to when the row is validated out of order. Null to run them right away.
+     */
+    public abstract void validateRow(AbstractRowValidator[] rowValidators, RowValues rowValues, int rowNumber, ErrorBuffer errorBuffer);
+
+    /**
+     * @param columnSpec A column spec of the compiled EMA version, laid out to match an input source
+     * @return The spec column index of the column at each index of the layout, or NO_SPEC_COLUMN for columns the spec doesn't have
+     */
+    public int[] getSpecColumnIndexes(ColumnSpec columnSpec)
+    {
+        int[] specColumns = new int[columnSpec.getColumnDefinitionSize()];
+        for(int x = 0; x < specColumns.length; x++)
+        {
+            Integer specColumn = this.specColumnIndexes.get(columnSpec.getColumnDefinitionAt(x));
+            specColumns[x] = specColumn == null ? CompiledValidation.NO_SPEC_COLUMN : specColumn;
+        }
+        return specColumns;
+    }
+
+    /**
+     * Every spec of the compiled EMA version builds the same row validators in the same order, so each one's place in the generated code is fixed.
+     * @param rowSpec The row spec of a spec of the compiled EMA version, bound to its current layout
+     * @return Every row validator of the row spec, in the order they were added, with the ones left out of the validation plan set to null.
+     *         Null if the row spec's row validators don't match the ones that were compiled, in which case the row spec has to validate rows itself.
+     */
+    public AbstractRowValidator[] getRowValidators(RowSpec rowSpec)
+    {
+        AbstractRowValidator[] rowValidators = rowSpec.getValidationPlanByPosition();
+        if(rowValidators.length != this.rowValidatorClasses.length)
+            return null;
+        for(int x = 0; x < rowValidators.length; x++)
+            if(rowSpec.getValidatorAt(x).getClass() != this.rowValidatorClasses[x])
+                return null;
+        return rowValidators;
+    }
+
+    /**
+     * Keeps a cell's value in its slot
+     * @return The cell's value
+     */
+    protected final String readCell(RowView rowView, RowValues rowValues, int column, int slot)
+    {
+        String inputString = rowView.getCellString(column);
+        rowValues.put(slot, inputString);
+        return inputString;
+    }
+
+    /**
+     * Parses a cell of a typed column into the row's CellValue for the column's slot
+     * @return The parsed cell
+     */
+    protected final CellValue parseCell(RowValues rowValues, int specColumn, int slot, String inputString)
+    {
+        return rowValues.getCellValueForParsing(slot).parse(this.valueTypes[specColumn], inputString);
+    }
+
+    /**
+     * Validates a cell through its column definition, for columns that validate their cells their own way instead of just running their cell validators
+     */
+    protected final void validateColumn(int specColumn, RowView rowView, RowValues rowValues, int rowNumber, int column, int slot)
+    {
+        this.readCell(rowView, rowValues, column, slot);
+        CellValue cellValue = this.valueTypes[specColumn] == CellValue.ValueType.TEXT ? null : rowValues.getCellValueForParsing(slot);
+        this.columns[specColumn].validateInput(rowView, cellValue, rowNumber, column);
+    }
+}
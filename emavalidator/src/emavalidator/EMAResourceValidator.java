@@ -16,20 +16,19 @@ limitations under the License.
 package emavalidator;
 
 import java.io.BufferedReader;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PrintStream;
-import java.io.StringReader;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Locale;
 
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
@@ -47,6 +46,9 @@ import org.xml.sax.SAXException;
 
 import emavalidator.AbstractEMASpec.EMAVersion;
 import emavalidator.utils.EMAVersionParser;
+import emavalidator.utils.EMAXMLParser;
+import emavalidator.utils.ParallelCSVParser;
+import emavalidator.utils.XLSStreamingReader;
 import emavalidator.utils.XLSX2CSV;
 
 /**
@@ -68,34 +70,29 @@ public final class EMAResourceValidator
     private static final int COLUMN_HEADER_COUNT_MAX_DIFF = 3;
 
     /**
-     * The column section headers row index location, 0th based, not always present. Should come after the first non blank row, if the section headers exist
-     */
-    private static int sectionHeaderRowIndex = -1;
-
-    /**
-     * The column headers row index location, 0th based, should always be present. Should come after sectionHeaderRowIndex, if there is one, else it should be after the first non blank row
+     * The number of input rows from the input source to search for column header sections, column header definitions, and possible comment rows.
      */
-    private static int columnHeaderRowIndex  = -1;
+    static final int NUM_ROWS_FOR_HEADER_SEARCH = 10;
 
-    /**
-     * The last row that a comment row appears on, 0th based, not always present. Should come after columnHeaderRowIndex
-     */
-    private static int lastCommentRowIndex   = -1;
+    // SimpleDateFormat isn't thread safe, so each thread builds its own formats once instead of once per cell.
 
     /**
-     * The first row that actual data appears on, 0th based, not always present. Should come after lastCommentRowIndex, if there is one, else after columnHeaderRowIndex
+     * Formats the time of day of date formatted cells
      */
-    private static int dataStartsRowIndex    = -1;
+    private static final ThreadLocal<SimpleDateFormat> RUN_TIME_CELL_FORMAT = new ThreadLocal<SimpleDateFormat>()
+    {
+        @Override
+        protected SimpleDateFormat initialValue() { return new SimpleDateFormat("HH:mm"); }
+    };
 
     /**
-     * The first row that is not blank in the input sheet. Indexes that follow after, in order: sectionHeaderRowIndex, columnHeaderRowIndex,lastCommentRowIndex, dataStartsRowIndex
-     */
-    private static int firstNonEmptyRow = -1;
-    
-    /**
-     * The number of input rows from the input source to search for column header sections, column header definitions, and possible comment rows.
+     * Formats the date of date formatted cells
      */
-    private static final int NUM_ROWS_FOR_HEADER_SEARCH = 10;
+    private static final ThreadLocal<SimpleDateFormat> DATE_CELL_FORMAT = new ThreadLocal<SimpleDateFormat>()
+    {
+        @Override
+        protected SimpleDateFormat initialValue() { return new SimpleDateFormat("yyyy-MM-dd"); }
+    };
     
     /**
      * Private constructor to promote the fact that all methods are static.
@@ -113,56 +110,127 @@ public final class EMAResourceValidator
      */
     public static ValidatorResults validateEMACSVFile(String fileName, BufferedReader inputFileReader, String logOutputType) throws IOException
     {
-//        Iterable<CSVRecord> csvRecords = CSVFormat.EXCEL.parse(inputFileReader);
+        return EMAResourceValidator.validateEMACSVFile(fileName, inputFileReader, new ValidationContext(logOutputType));
+    }
+
+    /**
+     * Validate the incoming CSV file by automatically detecting the EMA version, location of the input data, number of column header rows, and location of each EMA column definition
+     * @param fileName The name of the file that is to be validated. This is not used to open the file directly
+     * @param inputFileReader A buffered reader that's wrapped around the input file to be validated
+     * @param validationContext The context to validate in. Its error log is cleared first and holds every error found once this returns.
+     * @return A pretty string representing all the errors that occurred during validation. Formatted as requested by the context's error log.
+     * @throws IOException If there are any issues handling the file input / reading
+     */
+    public static ValidatorResults validateEMACSVFile(String fileName, BufferedReader inputFileReader, ValidationContext validationContext) throws IOException
+    {
         ValidatorResults validatorResults;
         CSVParser parser = new CSVParser(inputFileReader, CSVFormat.EXCEL);
-        List<CSVRecord> csvRecords = parser.getRecords();
-        parser.close();
-        ErrorLog.setErrorLogType(logOutputType);
-        ErrorLog.clearErrorLog();
-        ArrayList<String> columnHeaderRows = EMAResourceValidator.getColumnHeaderRows(csvRecords);
-        EMAResourceValidator.resetHeaderRowIndexValues(); // get rid of all the old values. stupid static classes :(
-        // find out what row the actual data starts on in the sheet,   EMAWorkbookValidator.dataStartsRowIndex
-        // find out what row the main header values are located on,    EMAWorkbookValidator.columnHeaderRowIndex
-        // find out what row the section header values are located on, EMAWorkbookValidator.sectionHeaderRowIndex
-        // find out what row the last comment row is,                  EMAWorkbookValidator.lastCommentRowIndex
-        // find out what row is the first non empty row,               EMAWorkbookValidator.firstNonEmptyRow
-        EMAResourceValidator.findHeaderRowIndexes(columnHeaderRows, fileName);
-        ArrayList<String> columnHeaderDefinitions = EMAResourceValidator.getColumnHeaderValues(columnHeaderRows.get(EMAResourceValidator.columnHeaderRowIndex));
-        // decide the EMA version from the list of user defined columns from the input sheet
-        AbstractEMASpec.EMAVersion emaVersion = EMAResourceValidator.getEMAVersionNumber(columnHeaderDefinitions);
-        // instantiate the corresponding EMA spec based on the EMA version that was dynamically decided
-        AbstractEMASpec emaSpec = AbstractEMASpec.getInstance(emaVersion);
-        // send the current sheet's properties to the error log so that it can correctly format and analyze incoming errors
-        ErrorLog.setCurrentSheet(fileName, emaVersion, emaSpec, 0);
-        // reorder the columns in the EMA spec based off of the user's input which doesn't necessarily match the spec itself
-        emaSpec.getColumnSpec().reorderColumnDefinitions(columnHeaderDefinitions, EMAResourceValidator.columnHeaderRowIndex);
-        // Verify that all column headers are present for an emaVersion.
-        emaSpec.getColumnSpec().verifyColumnDefinitions(emaVersion, columnHeaderDefinitions);
-        // validate the sheet with the custom user column input spec
-        emaSpec.validate(csvRecords, EMAResourceValidator.dataStartsRowIndex);
-        validatorResults = new ValidatorResults(ErrorLog.getFormattedErrorLog(), "csv", false);
+        try
+        {
+            ErrorLog errorLog = validationContext.getErrorLog();
+            errorLog.clearErrorLog();
+            // records are pulled from the parser one at a time and pushed straight into validation so the whole file is never held in memory
+            StreamingSheetValidator sheetValidator = new StreamingSheetValidator(validationContext, fileName, 0, true);
+            RowView rowView = new RowView();
+            for(CSVRecord currentRecord : parser)
+            {
+                EMAResourceValidator.fillRowView(currentRecord, rowView);
+                sheetValidator.acceptRow(rowView);
+            }
+            sheetValidator.finish();
+            validatorResults = new ValidatorResults(errorLog.getFormattedErrorLog(), "csv", false);
+        }
+        catch (RuntimeException RE)
+        {
+            if(RE.getCause() instanceof IOException) // the CSVParser iterator wraps read failures. unwrap them so callers see the same IOException getRecords() used to throw
+                throw (IOException) RE.getCause();
+            throw RE;
+        }
+        finally
+        {
+            parser.close();
+            validationContext.release();
+        }
         return validatorResults;
     }
-    
+
+    /**
+     * Validate a CSV file on disk the same way as validateEMACSVFile(String, BufferedReader, String), but with the file tokenized on every core.
+     * Records are still validated one at a time, in file order, while the chunks further along the file are being tokenized. See ParallelCSVParser.
+     * @param inputFile The UTF-8 encoded CSV file to be validated
+     * @param logOutputType The formatting of the output log that's requested. Please see ErrorLog.OUTPUT_LOG_TYPE for output types
+     * @return A pretty string representing all the errors that occurred during validation. Formatted as requested by the logOutputType input parameter and pulled from the ErrorLog class.
+     * @throws IOException If there are any issues handling the file input / reading
+     */
+    public static ValidatorResults validateEMACSVFile(File inputFile, String logOutputType) throws IOException
+    {
+        return EMAResourceValidator.validateEMACSVFile(inputFile, new ValidationContext(logOutputType));
+    }
+
+    /**
+     * Validate a CSV file on disk the same way as validateEMACSVFile(String, BufferedReader, String), but with the file tokenized on every core.
+     * Records are still validated one at a time, in file order, while the chunks further along the file are being tokenized. See ParallelCSVParser.
+     * @param inputFile The UTF-8 encoded CSV file to be validated
+     * @param validationContext The context to validate in. Its error log is cleared first and holds every error found once this returns.
+     * @return A pretty string representing all the errors that occurred during validation. Formatted as requested by the context's error log.
+     * @throws IOException If there are any issues handling the file input / reading
+     */
+    public static ValidatorResults validateEMACSVFile(File inputFile, ValidationContext validationContext) throws IOException
+    {
+        ParallelCSVParser parser = new ParallelCSVParser(inputFile, validationContext.getWorkerPool());
+        try
+        {
+            ErrorLog errorLog = validationContext.getErrorLog();
+            errorLog.clearErrorLog();
+            StreamingSheetValidator sheetValidator = new StreamingSheetValidator(validationContext, inputFile.getPath(), 0, true);
+            RowView rowView = new RowView();
+            while(parser.nextRecord(rowView))
+                sheetValidator.acceptRow(rowView);
+            sheetValidator.finish();
+            return new ValidatorResults(errorLog.getFormattedErrorLog(), "csv", false);
+        }
+        finally
+        {
+            parser.close();
+            validationContext.release();
+        }
+    }
+
+    /**
+     * Validate the incoming XLSX workbook by streaming each row of every data sheet out of the SAX parser and straight into validation.
+     * The sheets are validated in parallel and never converted to any intermediate form; only the shared strings and styles tables are held in memory.
+     * @param inputStream The stream of the XLSX file opened for reading
+     * @param logOutputType The formatting of the output log that's requested. Please see ErrorLog.OUTPUT_LOG_TYPE for output types
+     * @return A pretty string representing all the errors that occurred during validation. Null if the workbook couldn't be opened.
+     */
     public static ValidatorResults validateEMAXLSXAsCSV(InputStream inputStream, String logOutputType) throws IOException, SAXException, ParserConfigurationException 
+    {
+        return EMAResourceValidator.validateEMAXLSXAsCSV(inputStream, new ValidationContext(logOutputType));
+    }
+
+    /**
+     * Validate the incoming XLSX workbook by streaming each row of every data sheet out of the SAX parser and straight into validation.
+     * The sheets are validated in parallel and never converted to any intermediate form; only the shared strings and styles tables are held in memory.
+     * @param inputStream The stream of the XLSX file opened for reading
+     * @param validationContext The context to validate in. Its error log is cleared first and holds every error found once this returns.
+     * @return A pretty string representing all the errors that occurred during validation. Null if the workbook couldn't be opened.
+     */
+    public static ValidatorResults validateEMAXLSXAsCSV(InputStream inputStream, ValidationContext validationContext) throws IOException, SAXException, ParserConfigurationException
     {
         ValidatorResults validatorResults = null;
         OPCPackage pkg;
         try
         {
             pkg = OPCPackage.open(inputStream);
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            PrintStream ps = new PrintStream(baos);
-            XLSX2CSV xlsx2csv = new XLSX2CSV(pkg, ps, -1);
-            
-            System.out.println("Doing internal conversion of .xlsx into .csv.");
-            String sheetName = xlsx2csv.process();
-            System.out.println(".xlsx conversion to .csv complete.");
+            ErrorLog errorLog = validationContext.getErrorLog();
+            errorLog.clearErrorLog();
+            XLSX2CSV xlsx2csv = new XLSX2CSV(pkg, validationContext);
             
-            BufferedReader bufferedCSVReader = new BufferedReader(new StringReader(baos.toString()));
+            System.out.println("Streaming .xlsx rows into validation.");
+            xlsx2csv.process();
+            System.out.println(".xlsx validation complete.");
             
-            validatorResults = EMAResourceValidator.validateEMACSVFile(sheetName, bufferedCSVReader, logOutputType);
+            validatorResults = new ValidatorResults(errorLog.getFormattedErrorLog(), "csv", false);
         }
         catch (InvalidFormatException e)
         {
@@ -174,10 +242,52 @@ public final class EMAResourceValidator
             // TODO Auto-generated catch block
             e.printStackTrace();
         }
+        finally
+        {
+            validationContext.release();
+        }
 
         return validatorResults;
     }
 
+    /**
+     * Validate the incoming legacy .xls workbook by streaming each row of every data sheet out of the HSSF event model and straight into validation.
+     * The workbook object model is never built, so large workbooks can be validated on the same memory budget as CSV files.
+     * Gives the same results as validateEMAWorkbook.
+     * @param inputStream The stream of the .xls file opened for reading
+     * @param logOutputType The formatting of the output log that's requested. Please see ErrorLog.OUTPUT_LOG_TYPE for output types
+     * @return A pretty string representing all the errors that occurred during validation. Formatted as requested by the logOutputType input parameter and pulled from the ErrorLog class.
+     * @throws IOException If there are any issues reading the workbook
+     */
+    public static ValidatorResults validateEMAXLSFile(InputStream inputStream, String logOutputType) throws IOException
+    {
+        return EMAResourceValidator.validateEMAXLSFile(inputStream, new ValidationContext(logOutputType));
+    }
+
+    /**
+     * Validate the incoming legacy .xls workbook by streaming each row of every data sheet out of the HSSF event model and straight into validation.
+     * The workbook object model is never built, so large workbooks can be validated on the same memory budget as CSV files.
+     * Gives the same results as validateEMAWorkbook.
+     * @param inputStream The stream of the .xls file opened for reading
+     * @param validationContext The context to validate in. Its error log is cleared first and holds every error found once this returns.
+     * @return A pretty string representing all the errors that occurred during validation. Formatted as requested by the context's error log.
+     * @throws IOException If there are any issues reading the workbook
+     */
+    public static ValidatorResults validateEMAXLSFile(InputStream inputStream, ValidationContext validationContext) throws IOException
+    {
+        ErrorLog errorLog = validationContext.getErrorLog();
+        errorLog.clearErrorLog();
+        try
+        {
+            new XLSStreamingReader(validationContext).process(inputStream);
+        }
+        finally
+        {
+            validationContext.release();
+        }
+        return new ValidatorResults(errorLog.getFormattedErrorLog(), "xls", false);
+    }
+
     /**
      * Validate the incoming workbook by automatically detecting the EMA version, location of the input data, number of column header rows, and location of each EMA column definition
      * @param inputWorkbook The org.apache.poi.ss.usermodel.Workbook to that needs to be validated. Will validate all valid worksheets that are inside the workbook.
@@ -185,39 +295,44 @@ public final class EMAResourceValidator
      * @return A pretty string representing all the errors that occurred during validation. Formatted as requested by the logOutputType input parameter and pulled from the ErrorLog class.
      */
     public static ValidatorResults validateEMAWorkbook(Workbook inputWorkbook, String logOutputType)
+    {
+        return EMAResourceValidator.validateEMAWorkbook(inputWorkbook, new ValidationContext(logOutputType));
+    }
+
+    /**
+     * Validate the incoming workbook by automatically detecting the EMA version, location of the input data, number of column header rows, and location of each EMA column definition
+     * @param inputWorkbook The org.apache.poi.ss.usermodel.Workbook to that needs to be validated. Will validate all valid worksheets that are inside the workbook.
+     * @param validationContext The context to validate in. Its error log is cleared first and holds every error found once this returns.
+     * @return A pretty string representing all the errors that occurred during validation. Formatted as requested by the context's error log.
+     */
+    public static ValidatorResults validateEMAWorkbook(Workbook inputWorkbook, ValidationContext validationContext)
     {
         ValidatorResults validatorResults;
         int sheetCount = inputWorkbook.getNumberOfSheets(); // find the number of sheets to validate
-        ErrorLog.setErrorLogType(logOutputType);
-        ErrorLog.clearErrorLog(); // Clear out the error log before we start any work.
-        for(int x = 0; x < sheetCount; x++) // go through every sheet
-        {
-            Sheet currentSheet = inputWorkbook.getSheetAt(x);  // get the current sheet to validate
-            if(!isValidSheetName(currentSheet.getSheetName())) // check the name of the sheet
-                continue;                                      // do not process sheets with invalid names
-
-            // get the first 10 rows from the sheet which should hopefully contain all the header rows that we need
-            ArrayList<String> columnHeaderRows = EMAResourceValidator.getColumnHeaderRows(currentSheet);
-            EMAResourceValidator.resetHeaderRowIndexValues(); // get rid of all the old values. stupid static classes :(
-            // find out what row the actual data starts on in the sheet,   EMAWorkbookValidator.dataStartsRowIndex
-            // find out what row the main header values are located on,    EMAWorkbookValidator.columnHeaderRowIndex
-            // find out what row the section header values are located on, EMAWorkbookValidator.sectionHeaderRowIndex
-            // find out what row the last comment row is,                  EMAWorkbookValidator.lastCommentRowIndex
-            // find out what row is the first non empty row,               EMAWorkbookValidator.firstNonEmptyRow
-            EMAResourceValidator.findHeaderRowIndexes(columnHeaderRows, currentSheet.getSheetName());
-            ArrayList<String> columnHeaderDefinitions = EMAResourceValidator.getColumnHeaderValues(columnHeaderRows.get(EMAResourceValidator.columnHeaderRowIndex));
-            // decide the EMA version from the list of user defined columns from the input sheet
-            AbstractEMASpec.EMAVersion emaVersion = EMAResourceValidator.getEMAVersionNumber(columnHeaderDefinitions);
-            // instantiate the corresponding EMA spec based on the EMA version that was dynamically decided
-            AbstractEMASpec emaSpec = AbstractEMASpec.getInstance(emaVersion);
-            // send the current sheet's properties to the error log so that it can correctly format and analyze incoming errors
-            ErrorLog.setCurrentSheet(currentSheet.getSheetName(), emaVersion, emaSpec, x);
-            // reorder the columns in the EMA spec based off of the user's input
-            emaSpec.getColumnSpec().reorderColumnDefinitions(columnHeaderDefinitions, EMAResourceValidator.columnHeaderRowIndex);
-            // validate the sheet with the custom user column input spec
-            emaSpec.validate(currentSheet, EMAResourceValidator.dataStartsRowIndex);
-        }
-        validatorResults = new ValidatorResults(ErrorLog.getFormattedErrorLog(), "xls", false);
+        ErrorLog errorLog = validationContext.getErrorLog();
+        errorLog.clearErrorLog(); // Clear out the error log before we start any work.
+        try
+        {
+            for(int x = 0; x < sheetCount; x++) // go through every sheet
+            {
+                Sheet currentSheet = inputWorkbook.getSheetAt(x);  // get the current sheet to validate
+                if(!isValidSheetName(currentSheet.getSheetName())) // check the name of the sheet
+                    continue;                                      // do not process sheets with invalid names
+
+                // get the first 10 rows from the sheet which should hopefully contain all the header rows that we need
+                ArrayList<String> columnHeaderRows = EMAResourceValidator.getColumnHeaderRows(currentSheet);
+                // locate the header rows, deduce the EMA version and build its spec with the columns reordered to match the user's input
+                HeaderRowIndexes headerRowIndexes = validationContext.locateHeaderRows(columnHeaderRows, currentSheet.getSheetName());
+                AbstractEMASpec emaSpec = validationContext.prepareEMASpec(columnHeaderRows, headerRowIndexes, currentSheet.getSheetName(), x, false);
+                // validate the sheet with the custom user column input spec
+                emaSpec.validate(currentSheet, headerRowIndexes.getDataStartsRowIndex());
+            }
+        }
+        finally
+        {
+            validationContext.release();
+        }
+        validatorResults = new ValidatorResults(errorLog.getFormattedErrorLog(), "xls", false);
         return validatorResults;
     }
     
@@ -231,26 +346,54 @@ public final class EMAResourceValidator
      * @return String printing out whether the XML validates against the XSD or not.
      */
     public static ValidatorResults validateEMAXML(String fileName, InputStream inputStream, String logOutputType) throws SAXException, ParserConfigurationException 
+    {
+        return EMAResourceValidator.validateEMAXML(fileName, inputStream, new ValidationContext(logOutputType));
+    }
+
+    /**
+     * Validate the incoming XML file against an avails XSD Template.
+     * XSD Template version is automatically chosen by parsing the XML for
+     * the version URL under the namespace 'xmlns' attribute in AvailList tag.
+     * @param fileName The string name of the xml file to validate.
+     * @param inputStream The stream of the fileName file opened for reading
+     * @param validationContext The context to validate in. Its error log is cleared first and holds every error found once this returns.
+     * @return String printing out whether the XML validates against the XSD or not.
+     */
+    public static ValidatorResults validateEMAXML(String fileName, InputStream inputStream, ValidationContext validationContext) throws SAXException, ParserConfigurationException
     {
         String xsdFilePath;
         String xsdTemplateVersion;
         String xmlAvailsVersion;
 
-        ErrorLog.setErrorLogType(logOutputType);
-        ErrorLog.clearErrorLog();
-        
-        // Copy inputStream to be used in multiple places.
-        ByteArrayOutputStream baos = copyInputStream(inputStream);
+        ErrorLog errorLog = validationContext.getErrorLog();
+        errorLog.clearErrorLog();
         
-        // Open new InputStreams using the recorded bytes
-        // Can be repeated as many times as you wish
-        InputStream is1 = new ByteArrayInputStream(baos.toByteArray()); 
-        InputStream is2 = new ByteArrayInputStream(baos.toByteArray()); 
-        
-        EMAVersionParser emaVersionParser = new EMAVersionParser(fileName, is1);
-        
-        // Parse the XML for the avails version number.
-        xmlAvailsVersion = emaVersionParser.process();
+        // Read the XML once, straight off of the input stream. The root element is only looked at long enough to pull out
+        // the avails version, then the same reader is handed on to the schema validator for the rest of the document.
+        XMLStreamReader xmlStreamReader = null;
+        try
+        {
+            xmlStreamReader = XMLInputFactory.newInstance().createXMLStreamReader(inputStream);
+            // Parse the XML for the avails version number.
+            xmlAvailsVersion = EMAVersionParser.readVersion(xmlStreamReader);
+        }
+        catch (XMLStreamException XSE) // the XML is malformed before the schema validator could even be started
+        {
+            if(xmlStreamReader != null)
+            {
+                try
+                {
+                    xmlStreamReader.close();
+                }
+                catch (XMLStreamException closeException) { } // the document is already known to be malformed
+            }
+            validationContext.release();
+            ValidatorResults validatorResults = new ValidatorResults();
+            validatorResults.setResults(String.format("XML is invalid: %s", "XML Stream Exception: " + XSE.getMessage()));
+            validatorResults.setFileType("xml");
+            validatorResults.setIsXmlValid(false);
+            return validatorResults;
+        }
                 
         // Dynamically determine the avails-version to use based on the xmlns namespace in the validating XML.
         if ( xmlAvailsVersion.contains("v1.6") ) 
@@ -274,57 +417,47 @@ public final class EMAResourceValidator
             xsdTemplateVersion = "avails-v1.6a";
         }
         
-        // Validate XML with XSD Template first.
+        // Validate XML with XSD Template first. The Avails are mapped onto rows and run through the EMA spec as the schema validator reads them.
         XSDValidator xsdValidator = new XSDValidator();
-        boolean isXMLValidated = xsdValidator.validateXMLSchema(xsdFilePath, is2);
+        EMAXMLParser xmlParser = new EMAXMLParser(validationContext, xmlStreamReader, fileName, xmlAvailsVersion);
+        boolean isXMLValidated;
+        try
+        {
+            isXMLValidated = xsdValidator.validateXMLSchema(xsdFilePath, xmlParser);
+            xmlParser.finish();
+        }
+        finally
+        {
+            validationContext.release();
+        }
+        try
+        {
+            xmlStreamReader.close();
+        }
+        catch (XMLStreamException XSE) { } // nothing left to read. the results are already known
         ValidatorResults validatorResults = new ValidatorResults();
         String msg = "";
         if( isXMLValidated )
         {
             msg = String.format("%s validated successfully against Schema %s", fileName, xsdTemplateVersion);
-
-            // Create factory parser
-            try 
-            {
-                //EMAXMLParser xmlParser = new EMAXMLParser(fileName);
-                //xmlParser.process(); // hold parsed result in xmlParser object, use the results in validate function?
-                
-            } 
-            catch (Exception e) 
-            {
-                e.printStackTrace();
-            }            
+            if(xmlParser.getAvailCount() > 0) // report how the avails held up against the EMA spec's cell and row validators
+                msg += System.lineSeparator() + errorLog.getFormattedErrorLog();
         } 
         else
         {
             msg = String.format("XML is invalid: %s", xsdValidator.getErrorMessage());
         }
-        // Parse XML into data structure.
-        
-        // Validate XML
         validatorResults.setResults(msg);
         validatorResults.setFileType("xml");
         validatorResults.setIsXmlValid(isXMLValidated);
         return validatorResults;
     }
 
-    /**
-     * An unfortunate construct of static classes I'm afraid. This really could be more elegant.
-     */
-    private static void resetHeaderRowIndexValues()
-    {
-        EMAResourceValidator.dataStartsRowIndex = -1;
-        EMAResourceValidator.columnHeaderRowIndex = -1;
-        EMAResourceValidator.sectionHeaderRowIndex = -1;
-        EMAResourceValidator.lastCommentRowIndex = -1;
-        EMAResourceValidator.firstNonEmptyRow = -1;
-    }
-
     /**
      * @param unsplitInputLine The line in the input source that contains all of the critical column header values
      * @return A neat split list of column header values
      */
-    private static ArrayList<String> getColumnHeaderValues(String unsplitInputLine)
+    static ArrayList<String> getColumnHeaderValues(String unsplitInputLine)
     {
         ArrayList<String> columnHeaderValues = new ArrayList<String>();
         for(String currentColumnHeaderValue : unsplitInputLine.split(EMAResourceValidator.SPLIT_CHAR))
@@ -338,16 +471,18 @@ public final class EMAResourceValidator
 
     /**
      * Searches the first 10 lines of input to find all of the critical locations where input header data is stored and located in this specific input source
-     * find out what row the actual data starts on in the sheet,   EMAWorkbookValidator.dataStartsRowIndex
-     * find out what row the main header values are located on,    EMAWorkbookValidator.columnHeaderRowIndex
-     * find out what row the section header values are located on, EMAWorkbookValidator.sectionHeaderRowIndex
-     * find out what row the last comment row is,                  EMAWorkbookValidator.lastCommentRowIndex
-     * find out what row is the first non empty row,               EMAWorkbookValidator.firstNonEmptyRow
+     * find out what row the actual data starts on in the sheet,   HeaderRowIndexes.dataStartsRowIndex
+     * find out what row the main header values are located on,    HeaderRowIndexes.columnHeaderRowIndex
+     * find out what row the section header values are located on, HeaderRowIndexes.sectionHeaderRowIndex
+     * find out what row the last comment row is,                  HeaderRowIndexes.lastCommentRowIndex
+     * find out what row is the first non empty row,               HeaderRowIndexes.firstNonEmptyRow
      * @param columnHeaderRows The first 10 rows of input from the input source to be validated. One row per entry in the ArrayList
      * @param originatingSheetName The sheet name that is currently being validated. Used to throw back to the user in an error if data can't be successfully located or the structure of the input data can't be understood.
+     * @return Where the header rows were located
      */
-    private static void findHeaderRowIndexes(ArrayList<String> columnHeaderRows, String originatingSheetName)
+    static HeaderRowIndexes findHeaderRowIndexes(ArrayList<String> columnHeaderRows, String originatingSheetName)
     {
+        HeaderRowIndexes headerRowIndexes = new HeaderRowIndexes();
         Iterator<String> rowIterator = columnHeaderRows.listIterator();
         int rowIndex = 0;
         boolean foundNonBlankRow = false;
@@ -357,32 +492,33 @@ public final class EMAResourceValidator
             if(!foundNonBlankRow && EMAResourceValidator.hasActualStringContent(currentRowContents))
             {
                 foundNonBlankRow = true;
-                EMAResourceValidator.firstNonEmptyRow = rowIndex;
+                headerRowIndexes.firstNonEmptyRow = rowIndex;
             }
             if(EMAResourceValidator.isCommentRow(currentRowContents))
-                EMAResourceValidator.lastCommentRowIndex = rowIndex;
+                headerRowIndexes.lastCommentRowIndex = rowIndex;
             if(EMAResourceValidator.isSectionHeaderRow(currentRowContents))
-                EMAResourceValidator.sectionHeaderRowIndex = rowIndex;
+                headerRowIndexes.sectionHeaderRowIndex = rowIndex;
 
             rowIndex++;
         }
 
-        if(EMAResourceValidator.sectionHeaderRowIndex != -1) // if the section headers are located, then the column headers come after them
-            EMAResourceValidator.columnHeaderRowIndex = EMAResourceValidator.sectionHeaderRowIndex + 1;
-        else if(EMAResourceValidator.firstNonEmptyRow != -1) // otherwise the column headers should be the first non empty row
-            EMAResourceValidator.columnHeaderRowIndex = EMAResourceValidator.firstNonEmptyRow;
+        if(headerRowIndexes.sectionHeaderRowIndex != -1) // if the section headers are located, then the column headers come after them
+            headerRowIndexes.columnHeaderRowIndex = headerRowIndexes.sectionHeaderRowIndex + 1;
+        else if(headerRowIndexes.firstNonEmptyRow != -1) // otherwise the column headers should be the first non empty row
+            headerRowIndexes.columnHeaderRowIndex = headerRowIndexes.firstNonEmptyRow;
         else // if we can't locate the column headers, we can't define the EMA spec, so error out
             throw new IllegalArgumentException("Column header row cannot be deduced as no section headers could be found and no non empty rows could be found. Please fix or remove the offending sheet in question and revalidate: " + originatingSheetName);
 
-        if(EMAResourceValidator.lastCommentRowIndex != -1) // if the last comment row is located, then the data should start immediately following the last comment row
-            EMAResourceValidator.dataStartsRowIndex = EMAResourceValidator.lastCommentRowIndex + 1;
-        else if(EMAResourceValidator.columnHeaderRowIndex != -1) // if there are no comment rows located, then the data should start after the column header definitions
-            EMAResourceValidator.dataStartsRowIndex = EMAResourceValidator.columnHeaderRowIndex + 1;
+        if(headerRowIndexes.lastCommentRowIndex != -1) // if the last comment row is located, then the data should start immediately following the last comment row
+            headerRowIndexes.dataStartsRowIndex = headerRowIndexes.lastCommentRowIndex + 1;
+        else if(headerRowIndexes.columnHeaderRowIndex != -1) // if there are no comment rows located, then the data should start after the column header definitions
+            headerRowIndexes.dataStartsRowIndex = headerRowIndexes.columnHeaderRowIndex + 1;
         else // if we can't locate the exact row that information in the sheet starts on, then error out
             throw new IllegalArgumentException("Data starts row index cannot be deduced as no comment rows could be found and no column header row index could be found. Please fix or remove the offending sheet in question and revalidate: " + originatingSheetName);
 
-        if(EMAResourceValidator.firstNonEmptyRow == -1) // if we don't find any data in the first set of rows that we parse, then the format is most likely invalid
+        if(headerRowIndexes.firstNonEmptyRow == -1) // if we don't find any data in the first set of rows that we parse, then the format is most likely invalid
             throw new IllegalArgumentException("No non empty rows could be found on the beginning of the input sheet. Please verify the sheet contents and submit again. Please fix or remove the offending sheet in question and revalidate: " + originatingSheetName);
+        return headerRowIndexes;
     }
 
     /**
@@ -437,32 +573,22 @@ public final class EMAResourceValidator
     }
 
     /**
-     * Retrieve the first 10 rows of the input CSV file and return them as an ArrayList of strings with EMAWorkbookValidator.SPLIT_CHAR between each value in the row
-     * @param csvRecords The iterable list of records obtained from the Apache Commons CSV Parse API
-     * @return Up to the first 10 rows of data as strings wrapped in an ArrayList each containing EMAWorkbookValidator.SPLIT_CHAR between every individiaul value
+     * Joins the values of a buffered input row back together for the header search.
+     * @param rowValues The cell values of one of the first rows of the input source
+     * @return A concatenated string containing each value from the row with EMAResourceValidator.SPLIT_CHAR after every value
      */
-    private static ArrayList<String> getColumnHeaderRows(List<CSVRecord> csvRecords)
+    static String getRowContents(String[] rowValues)
     {
-        ArrayList<String> headerRowContents = new ArrayList<String>();
-
-        for (CSVRecord currentRecord : csvRecords)
-        {
-            if(headerRowContents.size() == NUM_ROWS_FOR_HEADER_SEARCH) // take only the first 10 lines, or less, if there are less
-                return headerRowContents;
-
-            StringBuilder currentLine = new StringBuilder();
-
-            for(int x = 0; x < currentRecord.size(); x++)
-                currentLine.append(currentRecord.get(x) + EMAResourceValidator.SPLIT_CHAR);
-
-            headerRowContents.add(currentLine.toString());
-        }
-        return headerRowContents;
+        StringBuilder rowContents = new StringBuilder();
+        for(String currentValue : rowValues)
+            rowContents.append(currentValue.replace(EMAResourceValidator.SPLIT_CHAR, "_")).append(EMAResourceValidator.SPLIT_CHAR); // replace instances of the splitting character so no extra columns added later
+        return rowContents.toString();
     }
 
     /**
      * Takes in the current row's Row object as retrieved from a Row object's iterator implementation
      * Every value from the row will be iterated over and missing values will be represented via the empty string
+     * Only used for the header search rows. Data rows are read through fillRowView so that cell values never get joined and split apart again.
      * @param currentRow The Row object returned from Apache POI Row.rowIterator().next() object's call.
      * @return A concatenated string object containing each value from the row represented by the input cell iterator object with each value separated by the EMASpec.SPLIT_CHAR value.
      */
@@ -478,7 +604,7 @@ public final class EMAResourceValidator
         {
             currentCell = currentRow.getCell(cellNumber, Row.CREATE_NULL_AS_BLANK);
             cellContents = EMAResourceValidator.getCellContentsAsString(currentCell); // translate the cell's contents into string format, performing basic data sanitization in the process
-            rowContents.append(cellContents);
+            rowContents.append(cellContents.replace(EMAResourceValidator.SPLIT_CHAR, "_")); // replace instances of the splitting character so no extra columns added later
             rowContents.append(EMAResourceValidator.SPLIT_CHAR); // cell marker, for split later
         }
 
@@ -488,20 +614,28 @@ public final class EMAResourceValidator
     }
 
     /**
-     * Translates a line of file CSV file input into separated values for iteration over later
-     * @param currentRow The current row being parsed from the CSV file input as an unparsed CSV formatted String
-     * @return A concatenated string object containing each value from the row represented by the input cell iterator object with each value separated by the EMASpec.SPLIT_CHAR value.
+     * Reads every cell of an Apache POI row straight into the given row view. Missing cells are represented via the empty string.
+     * @param currentRow The Row object returned from Apache POI Row.rowIterator().next() object's call.
+     * @param rowView The reusable row view to fill. Any values from the previous row are cleared first.
      */
-    public static String getRowContents(CSVRecord currentRecord)
+    public static void fillRowView(Row currentRow, RowView rowView)
     {
-        StringBuilder rowContents = new StringBuilder();
+        rowView.clear();
+        int maxColumnNumber = AbstractEMASpec.MAX_REASONABLE_COLUMN_COUNT < currentRow.getLastCellNum() ? AbstractEMASpec.MAX_REASONABLE_COLUMN_COUNT : currentRow.getLastCellNum();
+        for(int cellNumber = 0; cellNumber < maxColumnNumber; cellNumber++)
+            rowView.setCell(cellNumber, EMAResourceValidator.getCellContentsAsString(currentRow.getCell(cellNumber, Row.CREATE_NULL_AS_BLANK)));
+    }
 
+    /**
+     * Points the given row view at every value of a parsed CSV record. The record's own strings are used as is; nothing is copied.
+     * @param currentRecord The current record being parsed from the CSV file input
+     * @param rowView The reusable row view to fill. Any values from the previous row are cleared first.
+     */
+    public static void fillRowView(CSVRecord currentRecord, RowView rowView)
+    {
+        rowView.clear();
         for(int x = 0; x < currentRecord.size(); x++)
-            rowContents.append(currentRecord.get(x) + EMAResourceValidator.SPLIT_CHAR);
-
-        if(rowContents.length() > 0) // if we've succeeded in parsing a value from the row
-            rowContents.setLength(rowContents.length() - 1); // delete extra character added to the end of the last loop during the last iterator of the above while loop
-        return rowContents.toString(); // return the row contents as a string value
+            rowView.setCell(x, currentRecord.get(x));
     }
 
     /**
@@ -513,31 +647,12 @@ public final class EMAResourceValidator
     public static String getCellContentsAsString(Cell inputCurrentCell)
     {
         if(inputCurrentCell.getCellType() == Cell.CELL_TYPE_STRING) // if the current cell represents a string value
-            return inputCurrentCell.getStringCellValue().replace(EMAResourceValidator.SPLIT_CHAR, "_"); // replace instances of the splitting character so no extra columns added later
+            return inputCurrentCell.getStringCellValue();
         if(inputCurrentCell.getCellType() == Cell.CELL_TYPE_NUMERIC) // if the current cell represents a number value
         {
-            String cellContents;
-            if(HSSFDateUtil.isCellDateFormatted(inputCurrentCell)) {
-                Date date = inputCurrentCell.getDateCellValue();
-                String timeTest = String.valueOf(new SimpleDateFormat("HH:mm").format(date));
-                // This is a little weird, but I am using the HH:mm as a way to distinguish between
-                // TotalRunTime column and Start/End/other dated columns.
-                if(timeTest.equals("00:00"))
-                {
-                    // Dates columns
-                    cellContents = String.valueOf(new SimpleDateFormat("yyyy-MM-dd").format(date));
-                }
-                else
-                {
-                    // RunTime
-                    cellContents = timeTest;
-                }
-            } else {
-                cellContents = String.valueOf(inputCurrentCell.getNumericCellValue()); // get the string representation of the number contained in the cell
-                if (cellContents.length() > 2 && cellContents.endsWith(".0")) // turns non remainder floats into whole numbers to match regexes better. Turns 10.0 into 10 so decimals are not treated as floats when regex matching
-                    cellContents = cellContents.substring(0, cellContents.length() - 2);
-            }
-            return cellContents;
+            if(HSSFDateUtil.isCellDateFormatted(inputCurrentCell))
+                return EMAResourceValidator.getDateCellContents(inputCurrentCell.getDateCellValue());
+            return EMAResourceValidator.getNumericCellContents(inputCurrentCell.getNumericCellValue());
         }
         if(inputCurrentCell.getCellType() == Cell.CELL_TYPE_BOOLEAN) // if the current cell represents a boolean value
             return String.valueOf(inputCurrentCell.getBooleanCellValue());
@@ -547,6 +662,32 @@ public final class EMAResourceValidator
             return inputCurrentCell.toString();
     }
 
+    /**
+     * Turns the value of a date formatted numeric cell into a string.
+     * This is a little weird, but the HH:mm time is used as a way to distinguish between the TotalRunTime column and the Start/End/other dated columns.
+     * @param cellDate The cell's value as a java date
+     * @return The time of day in HH:mm format for run times, otherwise the date in YYYY-MM-DD format
+     */
+    public static String getDateCellContents(Date cellDate)
+    {
+        String timeTest = EMAResourceValidator.RUN_TIME_CELL_FORMAT.get().format(cellDate);
+        if(timeTest.equals("00:00"))
+            return EMAResourceValidator.DATE_CELL_FORMAT.get().format(cellDate); // Dates columns
+        return timeTest; // RunTime
+    }
+
+    /**
+     * @param cellValue The value of a numeric cell that isn't date formatted
+     * @return The string representation of the number. Non remainder floats are turned into whole numbers to match regexes better. Turns 10.0 into 10 so decimals are not treated as floats when regex matching
+     */
+    public static String getNumericCellContents(double cellValue)
+    {
+        String cellContents = String.valueOf(cellValue); // get the string representation of the number contained in the cell
+        if (cellContents.length() > 2 && cellContents.endsWith(".0"))
+            cellContents = cellContents.substring(0, cellContents.length() - 2);
+        return cellContents;
+    }
+
     /**
      * Does its best to deduce which version of EMA that is represented by the input source.
      * First compares the number of input header values against the number of header values in each EMA spec. If an exact match is found, returns that EMA version.
@@ -555,7 +696,7 @@ public final class EMAResourceValidator
      * @param columnHeaderDefinitions The list of column header values that were previously located in the input source
      * @return A concrete EMAVersion definition which represents this program's best guess at determining the EMA version of the input sheet.
      */
-    private static EMAVersion getEMAVersionNumber(ArrayList<String> columnHeaderDefinitions)
+    static EMAVersion getEMAVersionNumber(ArrayList<String> columnHeaderDefinitions)
     {
         // See if we have the exact number of columns that we expect
         if(columnHeaderDefinitions.size() == EMASpec17TV.NUM_COLUMNS)
@@ -632,7 +773,7 @@ public final class EMAResourceValidator
      * @param sheetName The name of the input sheet from the input source
      * @return True if the sheet should be validated, false otherwise
      */
-    private static boolean isValidSheetName(String sheetName)
+    public static boolean isValidSheetName(String sheetName)
     {
         if(sheetName.toLowerCase(Locale.ENGLISH).contains("dictionary") ||
            sheetName.toLowerCase(Locale.ENGLISH).contains("faq")        ||
@@ -640,25 +781,5 @@ public final class EMAResourceValidator
             return false;
         return true;
     }
-    
-    private static ByteArrayOutputStream copyInputStream(InputStream inputStream) {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
 
-        // You can generally do better with nio if you need...
-        // And please, unlike me, do something about the Exceptions :D
-        try
-        {
-            byte[] buffer = new byte[1024];
-            int len;
-            while ((len = inputStream.read(buffer)) > -1 ) {
-                baos.write(buffer, 0, len);
-            }
-            baos.flush();
-        }
-        catch (IOException e) 
-        {
-            e.printStackTrace();
-        }
-        return baos;
-    }
 }
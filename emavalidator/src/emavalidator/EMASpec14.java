@@ -40,6 +40,16 @@ public class EMASpec14 extends AbstractEMASpec
      */
     public static final ArrayList<String> UNIQUE_COLUMN_HEADER_VALUES = new ArrayList<String>(Arrays.asList("WSP", "Tier"));
 
+    /**
+     * Builds the complete EMA 1.4 spec. Validations should get their spec from AbstractEMASpec.getInstance() instead, which copies a prototype built once.
+     */
+    public EMASpec14() { super(); }
+
+    private EMASpec14(EMASpec14 prototype) { super(prototype); }
+
+    @Override
+    protected AbstractEMASpec newInstance() { return new EMASpec14(this); }
+
     @Override
     protected void buildColumnSpec()
     {
@@ -40,6 +40,16 @@ public class EMASpec15 extends AbstractEMASpec
      */
     public static final ArrayList<String> UNIQUE_COLUMN_HEADER_VALUES = new ArrayList<String>(Arrays.asList("AnnounceDate"));
 
+    /**
+     * Builds the complete EMA 1.5 spec. Validations should get their spec from AbstractEMASpec.getInstance() instead, which copies a prototype built once.
+     */
+    public EMASpec15() { super(); }
+
+    private EMASpec15(EMASpec15 prototype) { super(prototype); }
+
+    @Override
+    protected AbstractEMASpec newInstance() { return new EMASpec15(this); }
+
     @Override
     protected void buildColumnSpec()
     {
@@ -46,6 +46,16 @@ public class EMASpec16 extends AbstractEMASpec
                                                 "HoldbackLanguage",
                                                 "HoldbackExclusionLanguage"));
 
+    /**
+     * Builds the complete EMA 1.6 spec. Validations should get their spec from AbstractEMASpec.getInstance() instead, which copies a prototype built once.
+     */
+    public EMASpec16() { super(); }
+
+    private EMASpec16(EMASpec16 prototype) { super(prototype); }
+
+    @Override
+    protected AbstractEMASpec newInstance() { return new EMASpec16(this); }
+
     @Override
     protected void buildColumnSpec()    {
         this.columnSpec.addColumnDefinition(new DisplayName());                                 //Avail         DisplayName
@@ -126,6 +126,16 @@ public class EMASpec16TV extends AbstractEMASpec
                                                 "EpisodeProductID",
                                                 "FixedEndDate"));
 
+    /**
+     * Builds the complete EMA 1.6 TV spec. Validations should get their spec from AbstractEMASpec.getInstance() instead, which copies a prototype built once.
+     */
+    public EMASpec16TV() { super(); }
+
+    private EMASpec16TV(EMASpec16TV prototype) { super(prototype); }
+
+    @Override
+    protected AbstractEMASpec newInstance() { return new EMASpec16TV(this); }
+
     @Override
     protected void buildColumnSpec()
     {
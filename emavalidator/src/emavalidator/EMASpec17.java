@@ -103,6 +103,16 @@ public class EMASpec17 extends AbstractEMASpec
                                                 "EditID",
                                                 "BundleALIDs"));
 
+    /**
+     * Builds the complete EMA 1.7 spec. Validations should get their spec from AbstractEMASpec.getInstance() instead, which copies a prototype built once.
+     */
+    public EMASpec17() { super(); }
+
+    private EMASpec17(EMASpec17 prototype) { super(prototype); }
+
+    @Override
+    protected AbstractEMASpec newInstance() { return new EMASpec17(this); }
+
     @Override
     protected void buildColumnSpec()    {
         this.columnSpec.addColumnDefinition(new DisplayName());                                 //Avail         DisplayName
@@ -123,6 +123,16 @@ public class EMASpec17TV extends AbstractEMASpec
                                                 "EpisodeContentID"
                                                 ));
 
+    /**
+     * Builds the complete EMA 1.7 TV spec. Validations should get their spec from AbstractEMASpec.getInstance() instead, which copies a prototype built once.
+     */
+    public EMASpec17TV() { super(); }
+
+    private EMASpec17TV(EMASpec17TV prototype) { super(prototype); }
+
+    @Override
+    protected AbstractEMASpec newInstance() { return new EMASpec17TV(this); }
+
     @Override
     protected void buildColumnSpec()
     {
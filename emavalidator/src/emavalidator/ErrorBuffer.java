@@ -0,0 +1,81 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package emavalidator;
+
+import java.util.ArrayList;
+
+/**
+ * Holds the errors and notifications raised while rows are validated away from the thread that owns the sheet's ErrorLog, in the order they were raised.
+ * Row validators that carry state from one row to the next can't run out of row order, so they're held in the same sequence, in the spot where they would have run.
+ * Replaying the entries row by row on the owning thread appends exactly what validating the rows one at a time would have appended, in the same order.
+ */
+public final class ErrorBuffer
+{
+    /**
+     * Errors, notifications and deferred row validators, in the order they were raised
+     */
+    private final ArrayList<Object> entries = new ArrayList<Object>();
+
+    /**
+     * @param newError An error to append to the ErrorLog when this buffer is replayed
+     */
+    public void appendError(AbstractErrorEntry newError) { this.entries.add(newError); }
+
+    /**
+     * @param newNotification A notification to append to the ErrorLog when this buffer is replayed
+     */
+    public void appendNotification(AbstractNotificationEntry newNotification) { this.entries.add(newNotification); }
+
+    /**
+     * @param rowValidator A row validator to run at this point of the row when this buffer is replayed
+     */
+    public void deferRowValidator(AbstractRowValidator rowValidator) { this.entries.add(rowValidator); }
+
+    /**
+     * @return The number of entries held so far. Marks where the current row's entries end.
+     */
+    public int size() { return this.entries.size(); }
+
+    /**
+     * Append a single row's entries to the ErrorLog of the calling thread, running its deferred row validators along the way
+     * @param firstEntry The index of the row's first entry
+     * @param lastEntry One past the index of the row's last entry
+     * @param rowValues The values of the row, for the deferred row validators
+     * @param rowNumber The row number where the values occurred, 0th based
+     */
+    public void replay(int firstEntry, int lastEntry, RowValues rowValues, int rowNumber)
+    {
+        for(int x = firstEntry; x < lastEntry; x++)
+        {
+            Object currentEntry = this.entries.get(x);
+            if(currentEntry instanceof AbstractErrorEntry)
+                ErrorLog.appendError((AbstractErrorEntry) currentEntry);
+            else if(currentEntry instanceof AbstractNotificationEntry)
+                ErrorLog.appendNotification((AbstractNotificationEntry) currentEntry);
+            else
+            {
+                AbstractRowValidator deferredRowValidator = (AbstractRowValidator) currentEntry;
+                if(deferredRowValidator.hasRequiredValues(rowValues))
+                    deferredRowValidator.validate(rowValues, rowNumber);
+            }
+        }
+    }
+
+    /**
+     * Forget every entry so the buffer can be reused
+     */
+    public void clear() { this.entries.clear(); }
+}
@@ -16,14 +16,18 @@ limitations under the License.
 package emavalidator;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Locale;
 
 import emavalidator.AbstractErrorEntry.ErrorLevel;
 
 /**
- * A fully static class that implements a global error log.
- * Any class from anywhere in the project should be able to throw and store an error as needed.
+ * The error log of a single validation, owned by its ValidationContext.
+ * Any class from anywhere in the project should be able to throw and store an error as needed, so errors are still appended statically:
+ * they go to the sheet summary bound to the current thread by setCurrentSheet(), which belongs to whichever error log registered it.
+ * Nothing else is shared, so any number of error logs can be filled at the same time on different threads.
  * @author canavan
  */
 public final class ErrorLog
@@ -31,17 +35,25 @@ public final class ErrorLog
     /**
      * The list of SheetErrorSummary instances: one for each input sheet from the input file. There should be only one instance for CSV files but N number from input workbooks.
      */
-    private static ArrayList<SheetErrorSummary> sheetErrorSummaries = new ArrayList<SheetErrorSummary>(); // store each sheet's unique error list
+    private final ArrayList<SheetErrorSummary> sheetErrorSummaries = new ArrayList<SheetErrorSummary>(); // store each sheet's unique error list
 
     /**
      * The current SheetErrorSummary that all instances of new errors are redirected to and stored in. When a new sheet is being validated, this instance must be updated.
+     * Bound per thread so that sheets of the same workbook can be validated at the same time, each thread reporting into its own sheet's summary.
+     * Bound by setCurrentSheet() and unbound by unbindCurrentThread() once the sheet is done, so pooled request threads don't hold on to finished validations.
      */
-    private static SheetErrorSummary currentSheetErrorSummary;
+    private static ThreadLocal<SheetErrorSummary> currentSheetErrorSummary = new ThreadLocal<SheetErrorSummary>();
+
+    /**
+     * Where errors raised on the current thread are held instead, while rows are validated away from the thread that owns the sheet's summary.
+     * Null on every thread that reports straight into its sheet's summary.
+     */
+    private static ThreadLocal<ErrorBuffer> currentErrorBuffer = new ThreadLocal<ErrorBuffer>();
 
     /**
      * The preferred output log type when this ErrorLog is printed to screen, saved to file, or sent to a web front end, etc.
      */
-    private static OUTPUT_LOG_TYPE outputLogType = OUTPUT_LOG_TYPE.LOG;
+    private OUTPUT_LOG_TYPE outputLogType = OUTPUT_LOG_TYPE.LOG;
 
     /**
      * The type of log output desired when error values are printed to screen, saved to file, or sent to a web front end, etc.
@@ -59,36 +71,74 @@ public final class ErrorLog
         CSV
     }
 
-    private ErrorLog() { } // A fully static class needs no concrete constructor. This also correctly enforces that all future methods are static as well
+    /**
+     * Error logs are created by their ValidationContext
+     */
+    ErrorLog() { }
 
     /**
      * Add a new error to this ErrorLog. Like errors from the same columns are joined instead of repeated. This saves output space but requires more calculation at run time.
      * @param newError Add a new error to store inside this error log inside the current error sheet summary.
      */
-    public static void appendError(AbstractErrorEntry newError)  { currentSheetErrorSummary.appendError(newError); }
+    public static void appendError(AbstractErrorEntry newError)
+    {
+        ErrorBuffer errorBuffer = currentErrorBuffer.get();
+        if(errorBuffer != null)
+            errorBuffer.appendError(newError);
+        else
+            currentSheetErrorSummary.get().appendError(newError);
+    }
 
     /**
      * Add a new notification to this ErrorLog.
      * @param newNotification Add a new notification to store inside this error log inside the current error sheet summary.
      */
-    public static void appendNotification(AbstractNotificationEntry newNotification) { currentSheetErrorSummary.appendNotification(newNotification); }
+    public static void appendNotification(AbstractNotificationEntry newNotification)
+    {
+        ErrorBuffer errorBuffer = currentErrorBuffer.get();
+        if(errorBuffer != null)
+            errorBuffer.appendNotification(newNotification);
+        else
+            currentSheetErrorSummary.get().appendNotification(newNotification);
+    }
+
+    /**
+     * Hold every error and notification raised on the current thread in the given buffer instead of the current sheet's summary, until this is called again with null.
+     * @param errorBuffer The buffer to hold errors in, or null to go back to reporting straight into the current sheet's summary
+     */
+    public static void setErrorBuffer(ErrorBuffer errorBuffer)
+    {
+        if(errorBuffer == null)
+            ErrorLog.currentErrorBuffer.remove();
+        else
+            ErrorLog.currentErrorBuffer.set(errorBuffer);
+    }
+
+    /**
+     * Forget the sheet summary and error buffer bound to the current thread. Called once a thread is done validating a sheet.
+     */
+    public static void unbindCurrentThread()
+    {
+        ErrorLog.currentSheetErrorSummary.remove();
+        ErrorLog.currentErrorBuffer.remove();
+    }
 
     /**
      * Print the output of each sheet error summary directly to the console
      */
-    public static void printErrorLog()
+    public void printErrorLog()
     {
-        for(SheetErrorSummary currentSheetErrorSummary : sheetErrorSummaries)
+        for(SheetErrorSummary currentSheetErrorSummary : this.sheetErrorSummaries)
             currentSheetErrorSummary.printSheetErrorSummary();
     }
 
     /**
      * @return The total number of errors that occurred across all sheets for all types. Used to display a total error count at the end of validation time.
      */
-    public static int getTotalErrorCount()
+    public int getTotalErrorCount()
     {
         int totalErrorCount = 0;
-        for(SheetErrorSummary currentSheetErrorSummary : sheetErrorSummaries)
+        for(SheetErrorSummary currentSheetErrorSummary : this.sheetErrorSummaries)
             totalErrorCount += currentSheetErrorSummary.getErrorCount();
         return totalErrorCount;
     }
@@ -96,10 +146,10 @@ public final class ErrorLog
     /**
      * @return The total number of errors that occurred across all sheets for all types. Used to display a total error count at the end of validation time.
      */
-    public static int getTotalErrorColumnsCount()
+    public int getTotalErrorColumnsCount()
     {
         int totalErrorColumnsCount = 0;
-        for(SheetErrorSummary currentSheetErrorSummary : sheetErrorSummaries)
+        for(SheetErrorSummary currentSheetErrorSummary : this.sheetErrorSummaries)
             totalErrorColumnsCount += currentSheetErrorSummary.getErrorColumnsCount();
         return totalErrorColumnsCount;
     }
@@ -107,7 +157,7 @@ public final class ErrorLog
     /**
      * @return Each ErrorLevel and it's associated error count formatted in a pretty way with a line separator between each entry
      */
-    public static String getErrorSummary()
+    public String getErrorSummary()
     {
         StringBuilder combinedErrorSummary = new StringBuilder(100);
         int grandTotalErrors = 0;
@@ -115,7 +165,7 @@ public final class ErrorLog
         for(ErrorLevel currentErrorLevel : ErrorLevel.values()) // initialize the master error mapping to 0 for every error type
             errorMappingSummary.put(currentErrorLevel, 0);
 
-        for(SheetErrorSummary currentSheetErrorSummary : sheetErrorSummaries) // for all the sheets currently validated so far
+        for(SheetErrorSummary currentSheetErrorSummary : this.sheetErrorSummaries) // for all the sheets currently validated so far
         {
             HashMap<ErrorLevel, Integer> currentSheetErrorSummaryErrorMapping = currentSheetErrorSummary.getErrorCounts(); // get the current mapping of errors for that sheet
             for(ErrorLevel currentErrorLevel : ErrorLevel.values()) // for every type of error level there is
@@ -136,13 +186,13 @@ public final class ErrorLog
     /**
      * Erase all entries in the ErrorLog, effectively resetting it for the next validation attempt
      */
-    public static void clearErrorLog()
+    public void clearErrorLog()
     {
         System.out.println("clear error log");
-        for(SheetErrorSummary currentSheetErrorSummary : ErrorLog.sheetErrorSummaries)
+        for(SheetErrorSummary currentSheetErrorSummary : this.sheetErrorSummaries)
             currentSheetErrorSummary.clearErrorSheetSummary(); // just to be safe. these SHOULD get garbage collected by the next line
-        ErrorLog.sheetErrorSummaries = new ArrayList<SheetErrorSummary>();
-        ErrorLog.currentSheetErrorSummary = null; // drop the reference to the current sheet error summary. this should be the final garbage collection state
+        this.sheetErrorSummaries.clear();
+        ErrorLog.currentSheetErrorSummary.remove(); // drop the reference to the current sheet error summary. this should be the final garbage collection state
     }
 
     /**
@@ -150,30 +200,30 @@ public final class ErrorLog
      * This is the master formatting function and should be used in almost all cases to retrieve correctly formatted error output.
      * @return A cleanly formatted string with exact details of each error that occurred as well as a workbook wide error summary AND individual worksheet error summaries
      */
-    public static String getFormattedErrorLog()
+    public String getFormattedErrorLog()
     {
         StringBuilder formattedErrorLog = new StringBuilder();
-        formattedErrorLog.append(System.lineSeparator()).append(ErrorLog.getErrorSummary());
+        formattedErrorLog.append(System.lineSeparator()).append(this.getErrorSummary());
 
-        for(SheetErrorSummary currentSheetErrorSummary : sheetErrorSummaries)
+        for(SheetErrorSummary currentSheetErrorSummary : this.sheetErrorSummaries)
         {
             HashMap<AbstractErrorEntry, AbstractErrorEntry> currentErrorList = currentSheetErrorSummary.getErrorLog();
             HashMap<AbstractNotificationEntry, AbstractNotificationEntry> currentNotificationsList = currentSheetErrorSummary.getNotificationsLog();
 
             formattedErrorLog.append(System.lineSeparator()).append(currentSheetErrorSummary.getSheetPrintString()).append(System.lineSeparator());
 
-            if(ErrorLog.outputLogType == ErrorLog.OUTPUT_LOG_TYPE.CSV)
-                formattedErrorLog.append(ErrorLog.getCSVFormattedColumnHeaders()).append(System.lineSeparator());
+            if(this.outputLogType == ErrorLog.OUTPUT_LOG_TYPE.CSV)
+                formattedErrorLog.append(this.getCSVFormattedColumnHeaders()).append(System.lineSeparator());
 
             // Append Notifications to print Notifications Log
             for(AbstractNotificationEntry currentNotificationEntry : currentNotificationsList.keySet())
-                formattedErrorLog.append(currentNotificationEntry.toString(ErrorLog.outputLogType, currentSheetErrorSummary.getValidatingEMASpec())).append(System.lineSeparator());
+                formattedErrorLog.append(currentNotificationEntry.toString(this.outputLogType, currentSheetErrorSummary.getValidatingEMASpec())).append(System.lineSeparator());
             
             formattedErrorLog.append(System.lineSeparator());
             
             // Append Errors to print Error Log
             for(AbstractErrorEntry currentErrorEntry : currentErrorList.keySet())
-                formattedErrorLog.append(currentErrorEntry.toString(ErrorLog.outputLogType, currentSheetErrorSummary.getValidatingEMASpec())).append(System.lineSeparator());
+                formattedErrorLog.append(currentErrorEntry.toString(this.outputLogType, currentSheetErrorSummary.getValidatingEMASpec())).append(System.lineSeparator());
         }
         return formattedErrorLog.toString();
     }
@@ -181,7 +231,7 @@ public final class ErrorLog
     /**
      * @return Returns the list of columns separated by commas in order to print to the CSV log output
      */
-    private static String getCSVFormattedColumnHeaders()
+    private String getCSVFormattedColumnHeaders()
     {
         StringBuilder csvColumnHeaderContents = new StringBuilder();
         for(String currentColumnHeader : AbstractErrorEntry.CSV_LOG_OUTPUT_HEADERS)
@@ -201,29 +251,49 @@ public final class ErrorLog
      * @param validatingSpec The column-order specific column spec definition that was input by the user
      * @param sheetIndex The index of the sheet inside the Workbook about to be validated
      */
-    public static void setCurrentSheet(String sheetName, AbstractEMASpec.EMAVersion emaVersion, AbstractEMASpec validatingSpec, int sheetIndex)
+    public void setCurrentSheet(String sheetName, AbstractEMASpec.EMAVersion emaVersion, AbstractEMASpec validatingSpec, int sheetIndex)
     {
-        ErrorLog.currentSheetErrorSummary = new SheetErrorSummary(sheetName, sheetIndex, emaVersion, validatingSpec);
-        sheetErrorSummaries.add(currentSheetErrorSummary);
+        SheetErrorSummary newSheetErrorSummary = new SheetErrorSummary(sheetName, sheetIndex, emaVersion, validatingSpec);
+        ErrorLog.currentSheetErrorSummary.set(newSheetErrorSummary);
+        synchronized(this.sheetErrorSummaries)
+        {
+            this.sheetErrorSummaries.add(newSheetErrorSummary);
+        }
+    }
+
+    /**
+     * Put the stored sheet error summaries back into the order their sheets appear in the workbook.
+     * Sheets that were validated at the same time register their summaries in whatever order they happen to finish their header search.
+     */
+    public void sortSheetErrorSummaries()
+    {
+        synchronized(this.sheetErrorSummaries)
+        {
+            Collections.sort(this.sheetErrorSummaries, new Comparator<SheetErrorSummary>()
+            {
+                @Override
+                public int compare(SheetErrorSummary first, SheetErrorSummary second) { return Integer.compare(first.getSheetIndex(), second.getSheetIndex()); }
+            });
+        }
     }
 
     /**
      * A string representing the kind of log the user would like to receive. Recommend using ErrorLog.OUTPUT_LOG_TYPE.xyz.toString() to set the value.
      * @param logOutputType A string containing "csv" to set to OUTPUT_LOG_TYPE.CSV or anything else for OUTPUT_LOG_TYPE.LOG
      */
-    public static void setErrorLogType(String logOutputType)
+    public void setErrorLogType(String logOutputType)
     {
         if(logOutputType.toLowerCase(Locale.ENGLISH).contains("csv"))
-            ErrorLog.outputLogType = ErrorLog.OUTPUT_LOG_TYPE.CSV;
+            this.outputLogType = ErrorLog.OUTPUT_LOG_TYPE.CSV;
         else
-            ErrorLog.outputLogType = ErrorLog.OUTPUT_LOG_TYPE.LOG;
+            this.outputLogType = ErrorLog.OUTPUT_LOG_TYPE.LOG;
     }
 
     /**
      * @param logOutputType The desired log output type requested by the user. See ErrorLog.OUTPUT_LOG_TYPE for complete documentation.
      */
-    public static void setErrorLogType(ErrorLog.OUTPUT_LOG_TYPE logOutputType)
+    public void setErrorLogType(ErrorLog.OUTPUT_LOG_TYPE logOutputType)
     {
-        ErrorLog.outputLogType = logOutputType;
+        this.outputLogType = logOutputType;
     }
 }
@@ -0,0 +1,59 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package emavalidator;
+
+/**
+ * Where the header rows of a single sheet were located by EMAResourceValidator.findHeaderRowIndexes, all 0th based.
+ * Every sheet gets its own, so sheets can be searched at the same time.
+ */
+final class HeaderRowIndexes
+{
+    /**
+     * The column section headers row index location, not always present. Should come after the first non blank row, if the section headers exist
+     */
+    int sectionHeaderRowIndex = -1;
+
+    /**
+     * The column headers row index location, should always be present. Should come after sectionHeaderRowIndex, if there is one, else it should be after the first non blank row
+     */
+    int columnHeaderRowIndex = -1;
+
+    /**
+     * The last row that a comment row appears on, not always present. Should come after columnHeaderRowIndex
+     */
+    int lastCommentRowIndex = -1;
+
+    /**
+     * The first row that actual data appears on, not always present. Should come after lastCommentRowIndex, if there is one, else after columnHeaderRowIndex
+     */
+    int dataStartsRowIndex = -1;
+
+    /**
+     * The first row that is not blank in the input sheet. Indexes that follow after, in order: sectionHeaderRowIndex, columnHeaderRowIndex, lastCommentRowIndex, dataStartsRowIndex
+     */
+    int firstNonEmptyRow = -1;
+
+    /**
+     * @return The column headers row index location
+     */
+    int getColumnHeaderRowIndex() { return this.columnHeaderRowIndex; }
+
+    /**
+     * @return The first row that actual data appears on
+     */
+    int getDataStartsRowIndex() { return this.dataStartsRowIndex; }
+}
@@ -20,10 +20,10 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
@@ -34,6 +34,9 @@ import org.xml.sax.SAXException;
 
 import com.beust.jcommander.JCommander;
 
+import emavalidator.utils.InputFormatDetector;
+import emavalidator.utils.MappedFileReader;
+
 /**
  * The main entry point for the EMA Validator project where users can execute the validator directly from the command line.
  * Uses a set of command line parameters that should be sent in during execution time. See RunTimeParameters documentation or
@@ -67,13 +70,49 @@ public class Main
         else
             System.out.println("Detected Log output. Formatting error results in Log format.");
 
-        if(rtp.getInputFilePath().endsWith(".txt") || rtp.getInputFilePath().endsWith(".csv")) // if the input file is text formatted. either CSV or txt file is fine since both would have the same encoding scheme
+        InputFormatDetector.DetectedInput detectedInput = null;
+        try
+        {
+            // decide how to read the input from its first bytes rather than its extension. compressed input is decompressed as it's read
+            detectedInput = InputFormatDetector.detect(new FileInputStream(new File(rtp.getInputFilePath())));
+        }
+        catch (FileNotFoundException FNFE)
+        {
+            System.out.println("File could not be located on any local or remote storage disks. Please correct your input parameters and run again.");
+            FNFE.printStackTrace();
+            System.exit(1);
+        }
+        catch (IOException IOE)
+        {
+            System.out.println("The input file could not be read: " + IOE.getMessage());
+            System.out.println("Please verify the integrity of the input file and run again.");
+            System.exit(1);
+        }
+
+        if(detectedInput.getInputFormat() == InputFormatDetector.InputFormat.UNKNOWN)
+        {
+            System.out.println("The input file is not a CSV, XLS, XLSX or XML file. Please choose a supported file type and run again.");
+            System.exit(1);
+        }
+
+        if(detectedInput.getInputFormat() == InputFormatDetector.InputFormat.CSV) // if the input file is text formatted. either CSV or txt file is fine since both would have the same encoding scheme
         {
             try
             {
-                BufferedReader bufferedCSVReader = new BufferedReader(new FileReader(rtp.getInputFilePath()));
                 System.out.println("CSV file successfully opened and preparing for validation.");
-                validatorResults = EMAResourceValidator.validateEMACSVFile(rtp.getInputFilePath(), bufferedCSVReader, outputLogType.toString());
+                if(detectedInput.isCompressed())
+                    validatorResults = EMAResourceValidator.validateEMACSVFile(rtp.getInputFilePath(), detectedInput.openReader(), outputLogType.toString()); // decompressed and decoded as it's read
+                else if(!detectedInput.getCharset().equals(StandardCharsets.UTF_8))
+                {
+                    detectedInput.getInputStream().close();
+                    BufferedReader mappedReader = InputFormatDetector.skipByteOrderMark(new BufferedReader(new MappedFileReader(new File(rtp.getInputFilePath()), detectedInput.getCharset())));
+                    validatorResults = EMAResourceValidator.validateEMACSVFile(rtp.getInputFilePath(), mappedReader, outputLogType.toString()); // decoded straight out of the mapped file
+                }
+                else
+                {
+                    detectedInput.getInputStream().close();
+                    validatorResults = EMAResourceValidator.validateEMACSVFile(new File(rtp.getInputFilePath()), outputLogType.toString()); // tokenized in parallel straight out of the mapped file
+                }
                 System.out.println("CSV file successfully validated and output contents retrieved.");
             }
             catch (FileNotFoundException FNFE) // catch text related exceptions here only. throw them to the surrounding catch clause with context.
@@ -90,13 +129,16 @@ public class Main
                 System.exit(1);
             }
         }
-        else if(rtp.getInputFilePath().endsWith(".xls") || rtp.getInputFilePath().endsWith("xlsx")) // if the input file is a workbook. either XLS or XLSX is fine
+        else if(detectedInput.getInputFormat() == InputFormatDetector.InputFormat.XLS || detectedInput.getInputFormat() == InputFormatDetector.InputFormat.XLSX) // if the input file is a workbook. either XLS or XLSX is fine
         {
             try
             {
-                InputStream is = new FileInputStream(new File(rtp.getInputFilePath()));
+                InputStream is = detectedInput.getInputStream();
                 System.out.println("Excel WorkBook file successfully opened and preparing for validation.");
-                validatorResults = EMAResourceValidator.validateEMAXLSXAsCSV(is, outputLogType.toString());
+                if(detectedInput.getInputFormat() == InputFormatDetector.InputFormat.XLS) // legacy workbooks are read with the HSSF event model instead of the XLSX SAX parser
+                    validatorResults = EMAResourceValidator.validateEMAXLSFile(is, outputLogType.toString());
+                else
+                    validatorResults = EMAResourceValidator.validateEMAXLSXAsCSV(is, outputLogType.toString());
                                 
 //                formattedOutput = EMAResourceValidator.validateEMAWorkbook(WorkbookFactory.create(new File(rtp.getInputFilePath())), outputLogType.toString()); // original
                 System.out.println("Excel file successfully validated and output contents retrieved.");
@@ -125,13 +167,13 @@ public class Main
                 e.printStackTrace();
             }
         }
-        else if(rtp.getInputFilePath().endsWith(".xml"))
+        else if(detectedInput.getInputFormat() == InputFormatDetector.InputFormat.XML)
         {
             try
             {
             // Process XML format
             String fileName = rtp.getInputFilePath();
-            InputStream is = new FileInputStream(new File(fileName));
+            InputStream is = detectedInput.getInputStream();
             System.out.println("XML file successfully opened and preparing for validation");
             validatorResults = EMAResourceValidator.validateEMAXML(fileName, is, outputLogType.toString());
             }
@@ -0,0 +1,283 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package emavalidator;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Validates the data rows of one sheet across the validation's worker pool while reporting exactly what validating them one at a time would have.
+ * The first SERIAL_ROW_COUNT rows are validated straight away on the calling thread, so small sheets never start the pool at all.
+ * After that, rows are copied into fixed size batches that are validated on the pool, each into its own row values and ErrorBuffer.
+ * Batches are merged back on the calling thread strictly in row order: each row's errors are appended to the ErrorLog in the order they were raised,
+ * and the row validators that carry state across rows (see AbstractRowValidator.isCrossRow()) are run there, at their place in the row.
+ * Cell validators and all other row validators only read their own row, so they're safe to run on any thread.
+ */
+final class ParallelRowValidator
+{
+    /**
+     * The number of rows validated on the calling thread before any are handed to the pool. Sheets with no more rows than this are validated serially.
+     */
+    public static final int SERIAL_ROW_COUNT = 4096;
+
+    /**
+     * The number of rows in each batch handed to the pool
+     */
+    public static final int ROWS_PER_BATCH = 256;
+
+    private final AbstractEMASpec emaSpec;
+
+    /**
+     * The validation whose worker pool the batches are validated on. Null to validate every row on the calling thread.
+     */
+    private final ValidationContext validationContext;
+
+    private final int parallelism;
+
+    /**
+     * The most batches that can be validated ahead of the merge at once. Also bounds how many rows are held in memory.
+     */
+    private final int maxBatchesInFlight;
+
+    /**
+     * Validates the batches. Null until more than SERIAL_ROW_COUNT rows have arrived.
+     */
+    private ForkJoinPool validationPool = null;
+
+    /**
+     * Set once the validation is stopped early, so that batches that haven't started yet skip their rows
+     */
+    private volatile boolean stopped = false;
+
+    /**
+     * The batches that have been handed to the pool but not yet merged, in row order
+     */
+    private final ArrayDeque<BatchTask> batchesInFlight = new ArrayDeque<BatchTask>();
+
+    /**
+     * Merged batches, kept to be filled again
+     */
+    private final ArrayDeque<RowBatch> freeBatches = new ArrayDeque<RowBatch>();
+
+    /**
+     * The batch that rows are currently being copied into
+     */
+    private RowBatch currentBatch = null;
+
+    /**
+     * The number of rows validated on the calling thread so far
+     */
+    private int serialRowCount = 0;
+
+    /**
+     * @param emaSpec The spec to validate rows against. Its columns must already be laid out to match the input source.
+     * @param validationContext The validation whose worker pool to validate rows on. Null to validate every row on the calling thread.
+     * @param parallelism The number of worker threads to validate rows across
+     */
+    ParallelRowValidator(AbstractEMASpec emaSpec, ValidationContext validationContext, int parallelism)
+    {
+        this.emaSpec = emaSpec;
+        this.validationContext = validationContext;
+        this.parallelism = Math.max(1, parallelism);
+        this.maxBatchesInFlight = this.parallelism * 2;
+    }
+
+    /**
+     * Validate the next data row. Its errors might not be in the ErrorLog until finish() returns.
+     * The row view can be cleared and reused by the caller as soon as this returns.
+     * @param rowView The row's values as read from the input source
+     * @param currentRowNumber The row number where the values occurred, 0th based
+     * @param lastColumn One past the last column index to validate. See AbstractEMASpec.validateRow()
+     */
+    void acceptRow(RowView rowView, int currentRowNumber, int lastColumn)
+    {
+        if(this.validationPool == null)
+        {
+            if(this.serialRowCount < ParallelRowValidator.SERIAL_ROW_COUNT || this.parallelism == 1 || this.validationContext == null)
+            {
+                this.serialRowCount++;
+                this.emaSpec.validateRow(rowView, currentRowNumber, lastColumn);
+                return;
+            }
+            this.validationPool = this.validationContext.getWorkerPool();
+        }
+
+        if(this.currentBatch == null)
+            this.currentBatch = this.freeBatches.isEmpty() ? new RowBatch() : this.freeBatches.removeFirst();
+        this.currentBatch.addRow(rowView, currentRowNumber, lastColumn);
+        if(this.currentBatch.rowCount == ParallelRowValidator.ROWS_PER_BATCH)
+        {
+            this.submitBatch(this.currentBatch);
+            this.currentBatch = null;
+        }
+    }
+
+    /**
+     * Validate the last partly filled batch and merge every batch still in flight
+     */
+    void finish()
+    {
+        try
+        {
+            if(this.currentBatch != null && this.currentBatch.rowCount > 0)
+                this.submitBatch(this.currentBatch);
+            this.currentBatch = null;
+            while(!this.batchesInFlight.isEmpty())
+                this.mergeBatch(this.batchesInFlight.removeFirst().join());
+        }
+        finally
+        {
+            this.shutdown();
+        }
+    }
+
+    /**
+     * Stop without merging anything further, waiting for the batches already running to finish.
+     * The pool itself belongs to the validation context and is left running for the rest of the validation.
+     */
+    void shutdown()
+    {
+        if(this.validationPool == null)
+            return;
+        this.stopped = true; // batches that haven't started return straight away
+        for(BatchTask batchTask : this.batchesInFlight)
+            batchTask.quietlyJoin();
+        this.batchesInFlight.clear();
+        this.validationPool = null;
+    }
+
+    /**
+     * Hand a full batch to the pool, first merging the oldest batches until there's room for it
+     */
+    private void submitBatch(RowBatch batch)
+    {
+        while(this.batchesInFlight.size() >= this.maxBatchesInFlight)
+            this.mergeBatch(this.batchesInFlight.removeFirst().join());
+        BatchTask batchTask = new BatchTask(batch);
+        this.batchesInFlight.addLast(batchTask);
+        this.validationPool.execute(batchTask);
+    }
+
+    /**
+     * Replay a validated batch into the ErrorLog of the calling thread, row by row, then keep it to be filled again
+     */
+    private void mergeBatch(RowBatch batch)
+    {
+        int firstEntry = 0;
+        for(int x = 0; x < batch.rowCount; x++)
+        {
+            batch.errorBuffer.replay(firstEntry, batch.entryEnds[x], batch.rowValues[x], batch.rowNumbers[x]);
+            firstEntry = batch.entryEnds[x];
+        }
+        batch.clear();
+        this.freeBatches.addLast(batch);
+    }
+
+    /**
+     * Copies of up to ROWS_PER_BATCH consecutive rows, along with everything their validation produced
+     */
+    private final class RowBatch
+    {
+        private final RowView[] rowViews = new RowView[ParallelRowValidator.ROWS_PER_BATCH];
+
+        /**
+         * Each row's values. Kept after validation for the cross row validators that run during the merge.
+         */
+        private final RowValues[] rowValues = new RowValues[ParallelRowValidator.ROWS_PER_BATCH];
+
+        private final int[] rowNumbers = new int[ParallelRowValidator.ROWS_PER_BATCH];
+
+        private final int[] lastColumns = new int[ParallelRowValidator.ROWS_PER_BATCH];
+
+        /**
+         * One past the index of each row's last entry in errorBuffer
+         */
+        private final int[] entryEnds = new int[ParallelRowValidator.ROWS_PER_BATCH];
+
+        private final ErrorBuffer errorBuffer = new ErrorBuffer();
+
+        private int rowCount = 0;
+
+        private RowBatch()
+        {
+            for(int x = 0; x < ParallelRowValidator.ROWS_PER_BATCH; x++)
+            {
+                this.rowViews[x] = new RowView();
+                this.rowValues[x] = ParallelRowValidator.this.emaSpec.rowSpec.createRowValues();
+            }
+        }
+
+        private void addRow(RowView rowView, int currentRowNumber, int lastColumn)
+        {
+            RowView rowCopy = this.rowViews[this.rowCount];
+            for(int x = 0; x < rowView.size(); x++)
+                rowCopy.setCell(x, rowView.getCellString(x));
+            this.rowNumbers[this.rowCount] = currentRowNumber;
+            this.lastColumns[this.rowCount] = lastColumn;
+            this.rowCount++;
+        }
+
+        /**
+         * Validate every row of the batch. Runs on the pool.
+         */
+        private void validate()
+        {
+            ErrorLog.setErrorBuffer(this.errorBuffer);
+            try
+            {
+                for(int x = 0; x < this.rowCount; x++)
+                {
+                    this.rowValues[x].clear();
+                    ParallelRowValidator.this.emaSpec.validateRow(this.rowViews[x], this.rowValues[x], this.rowNumbers[x], this.lastColumns[x], this.errorBuffer);
+                    this.entryEnds[x] = this.errorBuffer.size();
+                }
+            }
+            finally
+            {
+                ErrorLog.setErrorBuffer(null);
+            }
+        }
+
+        private void clear()
+        {
+            for(int x = 0; x < this.rowCount; x++)
+                this.rowViews[x].clear();
+            this.errorBuffer.clear();
+            this.rowCount = 0;
+        }
+    }
+
+    /**
+     * Validates one batch on the pool
+     */
+    private final class BatchTask extends RecursiveTask<RowBatch>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final RowBatch batch;
+
+        private BatchTask(RowBatch batch) { this.batch = batch; }
+
+        @Override
+        protected RowBatch compute()
+        {
+            if(!ParallelRowValidator.this.stopped)
+                this.batch.validate();
+            return this.batch;
+        }
+    }
+}
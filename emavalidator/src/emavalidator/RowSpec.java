@@ -16,11 +16,10 @@ limitations under the License.
 package emavalidator;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 
 /**
  * A RowSpec represents a set of RowValidators in the same way that a ColumnSpec represents a set of CellValidators.
- * RowSpecs also should contain a mapping of all of that current row's values indexed by their Class.class.getSimpleName() value.
+ * RowSpecs also should contain all of that current row's values, kept in the slot that the ColumnSpec assigned to each column.
  * It should then, once all row values have been filled out, perform the important role of row validation by delegating each
  * validate call to its internal set of row validators. Each concrete EMA spec implementation has a unique set of RowValidators and thus a unique RowSpec defintion.
  * @author canavan
@@ -28,9 +27,14 @@ import java.util.HashMap;
 public class RowSpec
 {
     /**
-     * The mapping of ColumnName.class.getSimpleName() values mapped to the values that occurred in that row for that Column
+     * The values that occurred in that row for each Column, along with their parsed values, indexed by each column's slot
      */
-    private HashMap<String, String> rowValues = new HashMap<String, String>();
+    private RowValues rowValues = new RowValues();
+
+    /**
+     * The column spec whose layout the row values and row validators are currently bound to
+     */
+    private ColumnSpec columnSpec;
 
     /**
      * The list of RowValidators to apply to each of the values for each row of input data
@@ -38,17 +42,122 @@ public class RowSpec
     private ArrayList<AbstractRowValidator> rowValidators = new ArrayList<AbstractRowValidator>();
 
     /**
-     * @param key The key to access this value in the row later by. Should be a Class.class.getSimpleName() value.
-     * @param value The value that was in the cell indexed by the column name from 'key'
+     * The validation plan for the current column layout: the row validators that have every column they need, in the order they were added
+     */
+    private ArrayList<AbstractRowValidator> plannedRowValidators = new ArrayList<AbstractRowValidator>();
+
+    /**
+     * The row validators left out of the validation plan because the current column layout is missing columns they need
+     */
+    private ArrayList<AbstractRowValidator> skippedRowValidators = new ArrayList<AbstractRowValidator>();
+
+    /**
+     * Lays the row values out for the given column spec's slots, looks up the slot of every column that the row validators read,
+     * and builds the validation plan: row validators that need a column the layout doesn't have are left out of it.
+     * Has to be called again whenever the column spec's columns are reordered.
+     * @param columnSpec The column spec that rows will be validated against, already laid out to match the input source
+     */
+    public void bindColumns(ColumnSpec columnSpec)
+    {
+        this.columnSpec = columnSpec;
+        this.rowValues.setSlotCount(columnSpec.getColumnSlotCount());
+        this.plannedRowValidators.clear();
+        this.skippedRowValidators.clear();
+        for(AbstractRowValidator currentRowValidator : this.rowValidators)
+            this.planValidator(currentRowValidator);
+    }
+
+    /**
+     * @return The row validators left out of the validation plan by the last call to bindColumns(), because the column layout is missing columns they need
+     */
+    public ArrayList<AbstractRowValidator> getSkippedValidators() { return this.skippedRowValidators; }
+
+    /**
+     * @param index The position of a row validator, in the order they were added
+     * @return The row validator at the given position, whether or not it's part of the validation plan
+     */
+    AbstractRowValidator getValidatorAt(int index) { return this.rowValidators.get(index); }
+
+    /**
+     * @return Every row validator in the order they were added, with the ones left out of the validation plan by the last call to bindColumns() set to null
+     */
+    AbstractRowValidator[] getValidationPlanByPosition()
+    {
+        AbstractRowValidator[] validationPlan = new AbstractRowValidator[this.rowValidators.size()];
+        for(int x = 0; x < validationPlan.length; x++)
+            if(this.plannedRowValidators.contains(this.rowValidators.get(x)))
+                validationPlan[x] = this.rowValidators.get(x);
+        return validationPlan;
+    }
+
+    private void planValidator(AbstractRowValidator rowValidator)
+    {
+        rowValidator.bindColumns(this.columnSpec);
+        if(rowValidator.getMissingColumns().isEmpty())
+            this.plannedRowValidators.add(rowValidator);
+        else
+            this.skippedRowValidators.add(rowValidator);
+    }
+
+    /**
+     * @param columnDefinition The column that the value was found in. The value is stored in the column's slot.
+     * @param value The value that was in the cell of the given column
+     */
+    public void addValue(AbstractColumnDefinition columnDefinition, Object value) { this.addValue(this.rowValues, this.getColumnSlot(columnDefinition), value); }
+
+    /**
+     * @param rowValues The row values to store the value in, made by createRowValues()
+     * @param slot The slot of the column that the value was found in. See ColumnSpec.getColumnSlotAt().
+     * @param value The value that was in the cell of the given column
      */
-    public void addValue(Object key, Object value) { this.rowValues.put(key.toString(), value.toString()); }
+    public void addValue(RowValues rowValues, int slot, Object value) { rowValues.put(slot, value.toString()); }
 
     /**
      * Return the value indexed by the given column name.
      * @param key Should be a Class.class.getSimpleName() value.
      * @return The valued stored in this RowSpec indexed by the column name from 'key'
      */
-    public Object getValue(Object key) { return this.rowValues.get(key.toString()); }
+    public Object getValue(Object key) { return this.columnSpec == null ? null : this.rowValues.get(this.columnSpec.getColumnSlot(key.toString())); }
+
+    /**
+     * @param columnDefinition The column whose cell is about to be validated
+     * @return The CellValue to parse the column's cell into for the current row, or null if the column doesn't have a typed value
+     */
+    public CellValue getCellValueForParsing(AbstractColumnDefinition columnDefinition) { return this.getCellValueForParsing(this.rowValues, columnDefinition, this.getColumnSlot(columnDefinition)); }
+
+    /**
+     * @param rowValues The row values to parse the cell into, made by createRowValues()
+     * @param columnDefinition The column whose cell is about to be validated
+     * @param slot The slot of the column. See ColumnSpec.getColumnSlotAt().
+     * @return The CellValue to parse the column's cell into for the current row, or null if the column doesn't have a typed value
+     */
+    public CellValue getCellValueForParsing(RowValues rowValues, AbstractColumnDefinition columnDefinition, int slot)
+    {
+        if(columnDefinition.getValueType() == CellValue.ValueType.TEXT)
+            return null;
+        return rowValues.getCellValueForParsing(slot);
+    }
+
+    private int getColumnSlot(AbstractColumnDefinition columnDefinition)
+    {
+        return this.columnSpec == null ? ColumnSpec.NO_SLOT : this.columnSpec.getColumnSlot(columnDefinition.getColumnName());
+    }
+
+    /**
+     * @return The values of the row being validated one at a time
+     */
+    public RowValues getRowValues() { return this.rowValues; }
+
+    /**
+     * Rows validated at the same time each need their own row values. Has to be called again whenever the columns are reordered.
+     * @return New, empty row values laid out for the current column layout
+     */
+    public RowValues createRowValues()
+    {
+        RowValues newRowValues = new RowValues();
+        newRowValues.setSlotCount(this.columnSpec.getColumnSlotCount());
+        return newRowValues;
+    }
 
     /**
      * Resets the values in this RowSpec and thus the underlying map of keys to values
@@ -59,19 +168,45 @@ public class RowSpec
      * Add a new RowValidator implementation to this RowSpec. Each implementation will be called independently at run time via the validate() function.
      * @param rowValidator A new row validator to run on each independent row of input values
      */
-    public void addValidator(AbstractRowValidator rowValidator) { this.rowValidators.add(rowValidator); }
+    public void addValidator(AbstractRowValidator rowValidator)
+    {
+        this.rowValidators.add(rowValidator);
+        if(this.columnSpec != null)
+            this.planValidator(rowValidator);
+    }
 
     /**
-     * Sequentially calls each validator's validate() function that is stored in this RowSpec implementation.
+     * Free anything this row spec's validators hold on to outside of the heap. Called once the validation is over.
+     */
+    public void release()
+    {
+        for(AbstractRowValidator currentRowValidator : this.rowValidators)
+            currentRowValidator.release();
+    }
+
+    /**
+     * Sequentially calls the validate() function of each validator in the validation plan, for rows that have all of the validator's required values.
      * @param row The row number that this spec is performing validation on. For use in forwarding to appropriate new ErrorEntry objects, if any.
      * @return The number of errors that occurred during row validation time, if any.
      */
-    public int validateRow(int row)
+    public int validateRow(int row) { return this.validateRow(this.rowValues, row, null); }
+
+    /**
+     * Sequentially calls the validate() function of each validator in the validation plan on the given row values, the same as validateRow(int).
+     * @param rowValues The values of the row, made by createRowValues()
+     * @param row The row number that this spec is performing validation on. For use in forwarding to appropriate new ErrorEntry objects, if any.
+     * @param errorBuffer Where cross row validators are deferred to, in their place in the plan, when the row is validated out of order. Null to run them right away.
+     * @return The number of errors that occurred during row validation time, if any. Deferred validators aren't counted.
+     */
+    public int validateRow(RowValues rowValues, int row, ErrorBuffer errorBuffer)
     {
         int errorCount = 0;
-        for(AbstractRowValidator currentRowValidator : rowValidators)
+        for(int x = 0; x < this.plannedRowValidators.size(); x++)
         {
-            if(!currentRowValidator.validate(rowValues, row))
+            AbstractRowValidator currentRowValidator = this.plannedRowValidators.get(x);
+            if(errorBuffer != null && currentRowValidator.isCrossRow())
+                errorBuffer.deferRowValidator(currentRowValidator);
+            else if(currentRowValidator.hasRequiredValues(rowValues) && !currentRowValidator.validate(rowValues, row))
                 errorCount++;
         }
         return errorCount;
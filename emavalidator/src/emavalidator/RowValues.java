@@ -0,0 +1,118 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package emavalidator;
+
+import java.util.Arrays;
+
+/**
+ * The values of the row that's currently being validated, kept in flat arrays indexed by each column's slot.
+ * Slots are assigned once by ColumnSpec whenever its columns are laid out, so reading a value is an array access instead of a
+ * hash of the column's name. Next to each raw cell string, columns with a typed value (dates, integers, decimals and booleans) also keep the CellValue
+ * that the cell was parsed into during column validation, so that row validators can compare the parsed values directly.
+ * The CellValue instances are kept for the whole sheet and reset between rows.
+ */
+public class RowValues
+{
+    /**
+     * The raw value of each column in the current row, indexed by slot. Null for columns that weren't read, such as those past the spec's maximum column count.
+     */
+    private String[] values = new String[0];
+
+    /**
+     * The parsed value of each column in the current row, indexed by slot. Only typed columns are ever parsed.
+     */
+    private CellValue[] cellValues = new CellValue[0];
+
+    /**
+     * Throws away all values and makes room for the given number of slots
+     * @param slotCount The number of distinct columns in the current layout. See ColumnSpec.getColumnSlotCount()
+     */
+    public void setSlotCount(int slotCount)
+    {
+        this.values = new String[slotCount];
+        this.cellValues = new CellValue[slotCount];
+        for(int x = 0; x < slotCount; x++)
+            this.cellValues[x] = new CellValue();
+    }
+
+    /**
+     * @param column A column declared by a row validator
+     * @return The raw value of the cell in the given column, or null if the current row doesn't have the column
+     */
+    public String get(ColumnSlot column) { return this.get(column.getSlot()); }
+
+    /**
+     * @param slot The slot of a column, or ColumnSpec.NO_SLOT
+     * @return The raw value of the cell in the given column, or null if the current row doesn't have the column
+     */
+    public String get(int slot) { return slot == ColumnSpec.NO_SLOT ? null : this.values[slot]; }
+
+    /**
+     * @param slot The slot of a column. Values for ColumnSpec.NO_SLOT are ignored.
+     * @param value The value that was in the cell of the given column
+     */
+    public void put(int slot, String value)
+    {
+        if(slot != ColumnSpec.NO_SLOT)
+            this.values[slot] = value;
+    }
+
+    /**
+     * Records the cell of a column that the row ended before as empty, so that row validators see it the same as an empty cell.
+     * Slots that already have a value, from an earlier column with the same name, are left alone.
+     * @param slot The slot of a column. Values for ColumnSpec.NO_SLOT are ignored.
+     */
+    public void putMissingCell(int slot)
+    {
+        if(slot == ColumnSpec.NO_SLOT || this.values[slot] != null)
+            return;
+        this.values[slot] = "";
+        this.cellValues[slot].parse(CellValue.ValueType.TEXT, ""); // an empty cell parses the same whatever the column's type
+    }
+
+    /**
+     * @param column A column declared by a row validator
+     * @return The parsed value of the cell in the given column, or null if the current row doesn't have the column or it isn't typed
+     */
+    public CellValue getCellValue(ColumnSlot column) { return this.getCellValue(column.getSlot()); }
+
+    /**
+     * @param slot The slot of a column, or ColumnSpec.NO_SLOT
+     * @return The parsed value of the cell in the given column, or null if the current row doesn't have the column or it isn't typed
+     */
+    public CellValue getCellValue(int slot)
+    {
+        if(slot == ColumnSpec.NO_SLOT || this.cellValues[slot].getKind() == CellValue.Kind.UNPARSED)
+            return null;
+        return this.cellValues[slot];
+    }
+
+    /**
+     * @param slot The slot of a column, or ColumnSpec.NO_SLOT
+     * @return The CellValue to parse the given column's cell into for the current row, or null for ColumnSpec.NO_SLOT
+     */
+    public CellValue getCellValueForParsing(int slot) { return slot == ColumnSpec.NO_SLOT ? null : this.cellValues[slot]; }
+
+    /**
+     * Forgets every raw and parsed value of the current row
+     */
+    public void clear()
+    {
+        Arrays.fill(this.values, null);
+        for(int x = 0; x < this.cellValues.length; x++)
+            this.cellValues[x].reset();
+    }
+}
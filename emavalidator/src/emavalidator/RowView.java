@@ -0,0 +1,110 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package emavalidator;
+
+import java.util.Arrays;
+
+/**
+ * A reusable, indexed view over the cell values of a single input row.
+ * Each input reader (CSV, XLS, XLSX) fills the cells of a RowView directly as it parses a row so that the values never have to be
+ * joined into one string and split back apart again before validation. One instance is meant to be cleared and refilled for every row.
+ * Cells that were never set, or that lie past the end of the row, read back as the empty string.
+ */
+public final class RowView
+{
+    /**
+     * The characters that mark a cell as holding actual content. Matches the historical behavior of EMAResourceValidator.hasActualStringContent.
+     */
+    private static final String ACTUAL_CONTENT_CHARACTERS = "etaoinshrdlcumwfgypbvkjxqz0123456789";
+
+    /**
+     * The cell values for the current row, indexed by their 0th based column number. Only the first cellCount entries are meaningful.
+     */
+    private CharSequence[] cells = new CharSequence[AbstractEMASpec.MAX_REASONABLE_COLUMN_COUNT];
+
+    /**
+     * The number of cells in the current row. One past the highest column index that has been set since the last clear().
+     */
+    private int cellCount = 0;
+
+    /**
+     * Reset this view so that it can be filled in with the next row's values. The backing array is kept and reused.
+     */
+    public void clear()
+    {
+        Arrays.fill(this.cells, 0, this.cellCount, null);
+        this.cellCount = 0;
+    }
+
+    /**
+     * @param columnIndex The 0th based column index of the cell
+     * @param value The cell's contents as they were read from the input source. Null is treated as the empty string.
+     */
+    public void setCell(int columnIndex, CharSequence value)
+    {
+        if(columnIndex >= this.cells.length)
+            this.cells = Arrays.copyOf(this.cells, Math.max(columnIndex + 1, this.cells.length * 2));
+        this.cells[columnIndex] = value;
+        if(columnIndex >= this.cellCount)
+            this.cellCount = columnIndex + 1;
+    }
+
+    /**
+     * @param value The next cell's contents, appended directly after the last cell in the row
+     */
+    public void addCell(CharSequence value) { this.setCell(this.cellCount, value); }
+
+    /**
+     * @return The number of cells in the current row, including any empty cells between set values
+     */
+    public int size() { return this.cellCount; }
+
+    /**
+     * @param columnIndex The 0th based column index of the cell to retrieve
+     * @return The contents of the requested cell. The empty string for unset cells and all out of range indexes.
+     */
+    public CharSequence getCell(int columnIndex)
+    {
+        if(columnIndex < 0 || columnIndex >= this.cellCount || this.cells[columnIndex] == null)
+            return "";
+        return this.cells[columnIndex];
+    }
+
+    /**
+     * @param columnIndex The 0th based column index of the cell to retrieve
+     * @return The contents of the requested cell as a String. No copy is made when the reader stored a String to begin with.
+     */
+    public String getCellString(int columnIndex) { return this.getCell(columnIndex).toString(); }
+
+    /**
+     * This should in essence verify whether or not the row has any kind of important cell data inside of it or not.
+     * This fixes the case where an empty row is parsed in and is seen as 'active' by the input source but contains no actual values.
+     * @return True if any cell in the row contains actual content that needs to be validated, false otherwise.
+     */
+    public boolean hasActualContent()
+    {
+        for(int x = 0; x < this.cellCount; x++)
+        {
+            CharSequence currentCell = this.cells[x];
+            if(currentCell == null)
+                continue;
+            for(int y = 0; y < currentCell.length(); y++)
+                if(ACTUAL_CONTENT_CHARACTERS.indexOf(currentCell.charAt(y)) >= 0)
+                    return true;
+        }
+        return false;
+    }
+}
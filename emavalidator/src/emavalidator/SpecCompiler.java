@@ -0,0 +1,675 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package emavalidator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Compiles the columns and row validators of an EMA spec into a generated CompiledValidation subclass, written out as class file bytes and defined by its own class loader.
+ * The generated class has one straight-line method per column that runs the column's cell validators one after the other, a switch from spec column index to column method,
+ * and a straight-line method that runs every row validator in order. Each validator is called from its own spot in the code, which keeps every call monomorphic.
+ * The class file is written for Java 5 so the JVM verifies it by type inference, without needing stack map frames.
+ * Compiling is optional: if the class can't be generated, defined or loaded, compile() returns null and the spec validates rows the interpreted way,
+ * unless COMPILED_VALIDATION_PROPERTY is set to COMPILED_VALIDATION_REQUIRED, as the tests do, in which case it throws.
+ */
+final class SpecCompiler
+{
+    /**
+     * Set to false to never compile specs, so that every spec validates rows the interpreted way
+     */
+    public static final String COMPILED_VALIDATION_PROPERTY = "emavalidator.compiledValidation";
+
+    /**
+     * The value of COMPILED_VALIDATION_PROPERTY that makes a spec that can't be compiled throw instead of falling back to the interpreted way
+     */
+    public static final String COMPILED_VALIDATION_REQUIRED = "required";
+
+    /**
+     * The package that generated classes are named in
+     */
+    private static final String GENERATED_PACKAGE = "emavalidator/generated/";
+
+    /**
+     * HotSpot never compiles methods with more bytecode than this, so a generated method any larger would be slower than the interpreted path
+     */
+    private static final int HUGE_METHOD_LIMIT = 8000;
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_PRIVATE = 0x0002;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int ICONST_0 = 0x03;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int ILOAD = 0x15;
+    private static final int ALOAD = 0x19;
+    private static final int AALOAD = 0x32;
+    private static final int ASTORE = 0x3a;
+    private static final int POP = 0x57;
+    private static final int IFEQ = 0x99;
+    private static final int GOTO = 0xa7;
+    private static final int TABLESWITCH = 0xaa;
+    private static final int RETURN = 0xb1;
+    private static final int GETFIELD = 0xb4;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int IFNULL = 0xc6;
+
+    private static final String STRING = "Ljava/lang/String;";
+    private static final String ROW_VIEW = SpecCompiler.descriptor(RowView.class);
+    private static final String ROW_VALUES = SpecCompiler.descriptor(RowValues.class);
+    private static final String CELL_VALUE = SpecCompiler.descriptor(CellValue.class);
+    private static final String ERROR_BUFFER = SpecCompiler.descriptor(ErrorBuffer.class);
+    private static final String ROW_VALIDATOR = SpecCompiler.descriptor(AbstractRowValidator.class);
+    private static final String COLUMN_METHOD = "(" + ROW_VIEW + ROW_VALUES + "III)V";
+
+    private final String className;
+    private final AbstractColumnDefinition[] columns;
+    private final AbstractCellValidator[] cellValidators;
+    private final int[] firstCellValidators;
+    private final int rowValidatorCount;
+    private final ConstantPool constantPool = new ConstantPool();
+    private final ArrayList<MethodInfo> methods = new ArrayList<MethodInfo>();
+
+    private SpecCompiler(String className, AbstractColumnDefinition[] columns, AbstractCellValidator[] cellValidators, int[] firstCellValidators, int rowValidatorCount)
+    {
+        this.className = className;
+        this.columns = columns;
+        this.cellValidators = cellValidators;
+        this.firstCellValidators = firstCellValidators;
+        this.rowValidatorCount = rowValidatorCount;
+    }
+
+    /**
+     * @param prototype The spec to compile. Its columns have to be laid out as the spec defines them, and it can't be validated against while it's compiled.
+     * @return The compiled validation of the spec's EMA version, or null if it couldn't be compiled
+     */
+    static CompiledValidation compile(AbstractEMASpec prototype)
+    {
+        if("false".equalsIgnoreCase(System.getProperty(SpecCompiler.COMPILED_VALIDATION_PROPERTY)))
+            return null;
+        try
+        {
+            ColumnSpec columnSpec = prototype.getColumnSpec();
+            AbstractColumnDefinition[] columns = new AbstractColumnDefinition[columnSpec.getColumnDefinitionSize()];
+            int[] firstCellValidators = new int[columns.length + 1];
+            ArrayList<AbstractCellValidator> cellValidators = new ArrayList<AbstractCellValidator>();
+            for(int x = 0; x < columns.length; x++)
+            {
+                columns[x] = columnSpec.getColumnDefinitionAt(x);
+                firstCellValidators[x] = cellValidators.size();
+                cellValidators.addAll(columns[x].validators);
+            }
+            firstCellValidators[columns.length] = cellValidators.size();
+
+            AbstractRowValidator[] rowValidators = prototype.rowSpec.getValidationPlanByPosition();
+            Class<?>[] rowValidatorClasses = new Class<?>[rowValidators.length];
+            for(int x = 0; x < rowValidators.length; x++)
+                rowValidatorClasses[x] = prototype.rowSpec.getValidatorAt(x).getClass();
+
+            String className = SpecCompiler.GENERATED_PACKAGE + "Compiled" + prototype.getEMAVersion();
+            AbstractCellValidator[] cellValidatorArray = cellValidators.toArray(new AbstractCellValidator[cellValidators.size()]);
+            byte[] classBytes = new SpecCompiler(className, columns, cellValidatorArray, firstCellValidators, rowValidators.length).generateClass();
+            Class<?> compiledClass = new GeneratedClassLoader(SpecCompiler.class.getClassLoader()).define(className.replace('/', '.'), classBytes);
+            return (CompiledValidation) compiledClass.getConstructor(AbstractColumnDefinition[].class, AbstractCellValidator[].class, Class[].class)
+                                                     .newInstance(columns, cellValidatorArray, rowValidatorClasses);
+        }
+        catch (IOException | ReflectiveOperationException | RuntimeException | LinkageError e)
+        {
+            IllegalStateException compileFailure = new IllegalStateException("Couldn't compile " + prototype.getEMAVersion(), e);
+            if(SpecCompiler.COMPILED_VALIDATION_REQUIRED.equalsIgnoreCase(System.getProperty(SpecCompiler.COMPILED_VALIDATION_PROPERTY)))
+                throw compileFailure;
+            // the generated class only runs the same validators faster, so the spec still validates correctly without it. report it as the bug it is
+            compileFailure.printStackTrace();
+            return null;
+        }
+    }
+
+    private byte[] generateClass() throws IOException
+    {
+        String superName = SpecCompiler.internalName(CompiledValidation.class);
+        this.generateConstructor(superName);
+        for(int x = 0; x < this.columns.length; x++)
+            this.generateColumnMethod(x);
+        this.generateValidateCell();
+        this.generateValidateRow();
+
+        int thisClass = this.constantPool.classRef(this.className);
+        int superClass = this.constantPool.classRef(superName);
+        int codeAttribute = this.constantPool.utf8("Code");
+
+        ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(classBytes);
+        output.writeInt(0xCAFEBABE);
+        output.writeShort(0);  // minor version
+        output.writeShort(49); // Java 5
+        this.constantPool.writeTo(output);
+        output.writeShort(SpecCompiler.ACC_PUBLIC | SpecCompiler.ACC_FINAL | SpecCompiler.ACC_SUPER);
+        output.writeShort(thisClass);
+        output.writeShort(superClass);
+        output.writeShort(0); // interfaces
+        output.writeShort(0); // fields
+        output.writeShort(this.methods.size());
+        for(MethodInfo currentMethod : this.methods)
+        {
+            output.writeShort(currentMethod.access);
+            output.writeShort(currentMethod.name);
+            output.writeShort(currentMethod.descriptor);
+            output.writeShort(1); // the Code attribute only
+            output.writeShort(codeAttribute);
+            output.writeInt(12 + currentMethod.code.length);
+            output.writeShort(currentMethod.maxStack);
+            output.writeShort(currentMethod.maxLocals);
+            output.writeInt(currentMethod.code.length);
+            output.write(currentMethod.code);
+            output.writeShort(0); // exception table
+            output.writeShort(0); // code attributes
+        }
+        output.writeShort(0); // class attributes
+        output.flush();
+        return classBytes.toByteArray();
+    }
+
+    /**
+     * public (AbstractColumnDefinition[], AbstractCellValidator[], Class[]) { super(...); }
+     */
+    private void generateConstructor(String superName)
+    {
+        String descriptor = "([" + SpecCompiler.descriptor(AbstractColumnDefinition.class) + "[" + SpecCompiler.descriptor(AbstractCellValidator.class) + "[Ljava/lang/Class;)V";
+        Code code = new Code();
+        code.load(SpecCompiler.ALOAD, 0);
+        code.load(SpecCompiler.ALOAD, 1);
+        code.load(SpecCompiler.ALOAD, 2);
+        code.load(SpecCompiler.ALOAD, 3);
+        code.invoke(SpecCompiler.INVOKESPECIAL, this.constantPool.methodRef(superName, "<init>", descriptor));
+        code.u1(SpecCompiler.RETURN);
+        this.addMethod(SpecCompiler.ACC_PUBLIC, "<init>", descriptor, code, 4, 4);
+    }
+
+    /**
+     * private void columnN(RowView rowView, RowValues rowValues, int rowNumber, int column, int slot)
+     * Keeps the cell's value, parses typed cells, then runs the column's cell validators until one fails, the same as AbstractColumnDefinition.validateInput().
+     * Locals 6 and 7 hold the cell's string and CellValue.
+     */
+    private void generateColumnMethod(int specColumn)
+    {
+        AbstractColumnDefinition column = this.columns[specColumn];
+        Code code = new Code();
+        if(SpecCompiler.validatesItsOwnInput(column.getClass()))
+        {
+            code.load(SpecCompiler.ALOAD, 0);
+            code.pushInt(specColumn);
+            code.load(SpecCompiler.ALOAD, 1);
+            code.load(SpecCompiler.ALOAD, 2);
+            code.load(SpecCompiler.ILOAD, 3);
+            code.load(SpecCompiler.ILOAD, 4);
+            code.load(SpecCompiler.ILOAD, 5);
+            code.invoke(SpecCompiler.INVOKEVIRTUAL, this.constantPool.methodRef(this.className, "validateColumn", "(I" + ROW_VIEW + ROW_VALUES + "III)V"));
+            code.u1(SpecCompiler.RETURN);
+            this.addMethod(SpecCompiler.ACC_PRIVATE, "column" + specColumn, SpecCompiler.COLUMN_METHOD, code, 8, 8);
+            return;
+        }
+
+        code.load(SpecCompiler.ALOAD, 0);
+        code.load(SpecCompiler.ALOAD, 1);
+        code.load(SpecCompiler.ALOAD, 2);
+        code.load(SpecCompiler.ILOAD, 4);
+        code.load(SpecCompiler.ILOAD, 5);
+        code.invoke(SpecCompiler.INVOKEVIRTUAL, this.constantPool.methodRef(this.className, "readCell", "(" + ROW_VIEW + ROW_VALUES + "II)" + STRING));
+        code.load(SpecCompiler.ASTORE, 6);
+
+        boolean typed = column.getValueType() != CellValue.ValueType.TEXT;
+        if(typed)
+        {
+            code.load(SpecCompiler.ALOAD, 0);
+            code.load(SpecCompiler.ALOAD, 2);
+            code.pushInt(specColumn);
+            code.load(SpecCompiler.ILOAD, 5);
+            code.load(SpecCompiler.ALOAD, 6);
+            code.invoke(SpecCompiler.INVOKEVIRTUAL, this.constantPool.methodRef(this.className, "parseCell", "(" + ROW_VALUES + "II" + STRING + ")" + CELL_VALUE));
+            code.load(SpecCompiler.ASTORE, 7);
+        }
+
+        int cellValidatorsField = this.constantPool.fieldRef(this.className, "cellValidators", "[" + SpecCompiler.descriptor(AbstractCellValidator.class));
+        int validate = this.constantPool.methodRef(SpecCompiler.internalName(AbstractCellValidator.class), "validate", typed ? "(" + STRING + CELL_VALUE + "II)Z" : "(" + STRING + "II)Z");
+        Label columnEnd = new Label();
+        int lastCellValidator = this.firstCellValidators[specColumn + 1];
+        for(int x = this.firstCellValidators[specColumn]; x < lastCellValidator; x++)
+        {
+            code.load(SpecCompiler.ALOAD, 0);
+            code.u1(SpecCompiler.GETFIELD);
+            code.u2(cellValidatorsField);
+            code.pushInt(x);
+            code.u1(SpecCompiler.AALOAD);
+            code.load(SpecCompiler.ALOAD, 6);
+            if(typed)
+                code.load(SpecCompiler.ALOAD, 7);
+            code.load(SpecCompiler.ILOAD, 3);
+            code.load(SpecCompiler.ILOAD, 4);
+            code.invoke(SpecCompiler.INVOKEVIRTUAL, validate);
+            if(x == lastCellValidator - 1)
+                code.u1(SpecCompiler.POP);
+            else
+                code.jump(SpecCompiler.IFEQ, columnEnd); // validation of the cell stops at the first validator that fails
+        }
+        code.bind(columnEnd);
+        code.u1(SpecCompiler.RETURN);
+        this.addMethod(SpecCompiler.ACC_PRIVATE, "column" + specColumn, SpecCompiler.COLUMN_METHOD, code, 8, 8);
+    }
+
+    /**
+     * public void validateCell(int specColumn, RowView rowView, RowValues rowValues, int rowNumber, int column, int slot)
+     * Switches on the spec column to its column method. Cells of any other column only have their value kept, the same as an UnsupportedColumn.
+     */
+    private void generateValidateCell()
+    {
+        Code code = new Code();
+        Label unsupportedColumn = new Label();
+        Label[] columnLabels = new Label[this.columns.length];
+        if(this.columns.length > 0)
+        {
+            for(int x = 0; x < columnLabels.length; x++)
+                columnLabels[x] = new Label();
+            code.load(SpecCompiler.ILOAD, 1);
+            code.tableSwitch(unsupportedColumn, columnLabels);
+        }
+        for(int x = 0; x < columnLabels.length; x++)
+        {
+            code.bind(columnLabels[x]);
+            code.load(SpecCompiler.ALOAD, 0);
+            code.load(SpecCompiler.ALOAD, 2);
+            code.load(SpecCompiler.ALOAD, 3);
+            code.load(SpecCompiler.ILOAD, 4);
+            code.load(SpecCompiler.ILOAD, 5);
+            code.load(SpecCompiler.ILOAD, 6);
+            code.invoke(SpecCompiler.INVOKESPECIAL, this.constantPool.methodRef(this.className, "column" + x, SpecCompiler.COLUMN_METHOD));
+            code.u1(SpecCompiler.RETURN);
+        }
+        code.bind(unsupportedColumn);
+        code.load(SpecCompiler.ALOAD, 0);
+        code.load(SpecCompiler.ALOAD, 2);
+        code.load(SpecCompiler.ALOAD, 3);
+        code.load(SpecCompiler.ILOAD, 5);
+        code.load(SpecCompiler.ILOAD, 6);
+        code.invoke(SpecCompiler.INVOKEVIRTUAL, this.constantPool.methodRef(this.className, "readCell", "(" + ROW_VIEW + ROW_VALUES + "II)" + STRING));
+        code.u1(SpecCompiler.POP);
+        code.u1(SpecCompiler.RETURN);
+        this.addMethod(SpecCompiler.ACC_PUBLIC, "validateCell", "(I" + ROW_VIEW + ROW_VALUES + "III)V", code, 6, 7);
+    }
+
+    /**
+     * public void validateRow(AbstractRowValidator[] rowValidators, RowValues rowValues, int rowNumber, ErrorBuffer errorBuffer)
+     * Runs every row validator that's part of the plan, in order, the same as RowSpec.validateRow(). Local 5 holds the current row validator.
+     */
+    private void generateValidateRow()
+    {
+        String rowValidatorName = SpecCompiler.internalName(AbstractRowValidator.class);
+        int isCrossRow = this.constantPool.methodRef(rowValidatorName, "isCrossRow", "()Z");
+        int hasRequiredValues = this.constantPool.methodRef(rowValidatorName, "hasRequiredValues", "(" + ROW_VALUES + ")Z");
+        int validate = this.constantPool.methodRef(rowValidatorName, "validate", "(" + ROW_VALUES + "I)Z");
+        int deferRowValidator = this.constantPool.methodRef(SpecCompiler.internalName(ErrorBuffer.class), "deferRowValidator", "(" + ROW_VALIDATOR + ")V");
+
+        Code code = new Code();
+        for(int x = 0; x < this.rowValidatorCount; x++)
+        {
+            Label runValidator = new Label();
+            Label nextValidator = new Label();
+            code.load(SpecCompiler.ALOAD, 1);
+            code.pushInt(x);
+            code.u1(SpecCompiler.AALOAD);
+            code.load(SpecCompiler.ASTORE, 5);
+            code.load(SpecCompiler.ALOAD, 5);
+            code.jump(SpecCompiler.IFNULL, nextValidator); // left out of the plan for the current layout
+
+            code.load(SpecCompiler.ALOAD, 4);
+            code.jump(SpecCompiler.IFNULL, runValidator);
+            code.load(SpecCompiler.ALOAD, 5);
+            code.invoke(SpecCompiler.INVOKEVIRTUAL, isCrossRow);
+            code.jump(SpecCompiler.IFEQ, runValidator);
+            code.load(SpecCompiler.ALOAD, 4);
+            code.load(SpecCompiler.ALOAD, 5);
+            code.invoke(SpecCompiler.INVOKEVIRTUAL, deferRowValidator);
+            code.jump(SpecCompiler.GOTO, nextValidator);
+
+            code.bind(runValidator);
+            code.load(SpecCompiler.ALOAD, 5);
+            code.load(SpecCompiler.ALOAD, 2);
+            code.invoke(SpecCompiler.INVOKEVIRTUAL, hasRequiredValues);
+            code.jump(SpecCompiler.IFEQ, nextValidator);
+            code.load(SpecCompiler.ALOAD, 5);
+            code.load(SpecCompiler.ALOAD, 2);
+            code.load(SpecCompiler.ILOAD, 3);
+            code.invoke(SpecCompiler.INVOKEVIRTUAL, validate);
+            code.u1(SpecCompiler.POP);
+            code.bind(nextValidator);
+        }
+        code.u1(SpecCompiler.RETURN);
+        this.addMethod(SpecCompiler.ACC_PUBLIC, "validateRow", "([" + ROW_VALIDATOR + ROW_VALUES + "I" + ERROR_BUFFER + ")V", code, 3, 6);
+    }
+
+    private void addMethod(int access, String name, String descriptor, Code code, int maxStack, int maxLocals)
+    {
+        byte[] methodCode = code.toByteArray();
+        if(methodCode.length > SpecCompiler.HUGE_METHOD_LIMIT)
+            throw new IllegalStateException(name + " would be " + methodCode.length + " bytes long, too long for the JIT to compile");
+        this.methods.add(new MethodInfo(access, this.constantPool.utf8(name), this.constantPool.utf8(descriptor), methodCode, maxStack, maxLocals));
+    }
+
+    /**
+     * @return True if the column, or one of the classes between it and AbstractColumnDefinition, overrides a validateInput() method
+     */
+    private static boolean validatesItsOwnInput(Class<?> columnClass)
+    {
+        for(Class<?> currentClass = columnClass; currentClass != AbstractColumnDefinition.class; currentClass = currentClass.getSuperclass())
+            for(Method currentMethod : currentClass.getDeclaredMethods())
+                if(currentMethod.getName().equals("validateInput"))
+                    return true;
+        return false;
+    }
+
+    private static String internalName(Class<?> inputClass) { return inputClass.getName().replace('.', '/'); }
+
+    private static String descriptor(Class<?> inputClass) { return "L" + SpecCompiler.internalName(inputClass) + ";"; }
+
+    /**
+     * A method of the generated class, with its code
+     */
+    private static final class MethodInfo
+    {
+        private final int access;
+        private final int name;
+        private final int descriptor;
+        private final byte[] code;
+        private final int maxStack;
+        private final int maxLocals;
+
+        private MethodInfo(int access, int name, int descriptor, byte[] code, int maxStack, int maxLocals)
+        {
+            this.access = access;
+            this.name = name;
+            this.descriptor = descriptor;
+            this.code = code;
+            this.maxStack = maxStack;
+            this.maxLocals = maxLocals;
+        }
+    }
+
+    /**
+     * The constant pool of the generated class. Each constant is only added once.
+     */
+    private static final class ConstantPool
+    {
+        private static final int CONSTANT_UTF8 = 1;
+        private static final int CONSTANT_CLASS = 7;
+        private static final int CONSTANT_FIELDREF = 9;
+        private static final int CONSTANT_METHODREF = 10;
+        private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+        private final ByteArrayOutputStream constantBytes = new ByteArrayOutputStream();
+        private final DataOutputStream output = new DataOutputStream(this.constantBytes);
+        private final HashMap<String, Integer> constantIndexes = new HashMap<String, Integer>();
+        private int constantCount = 1; // constant 0 doesn't exist
+
+        private int utf8(String value)
+        {
+            Integer index = this.constantIndexes.get("utf8 " + value);
+            if(index != null)
+                return index;
+            try
+            {
+                this.output.writeByte(ConstantPool.CONSTANT_UTF8);
+                this.output.writeUTF(value); // the class file format uses the same modified UTF-8 as DataOutput
+            }
+            catch (IOException IOE) { throw new IllegalStateException(IOE); } // never thrown by a ByteArrayOutputStream
+            return this.add("utf8 " + value);
+        }
+
+        private int classRef(String internalName)
+        {
+            return this.reference("class " + internalName, ConstantPool.CONSTANT_CLASS, this.utf8(internalName), -1);
+        }
+
+        private int fieldRef(String owner, String name, String descriptor)
+        {
+            return this.reference("field " + owner + "." + name + ":" + descriptor, ConstantPool.CONSTANT_FIELDREF, this.classRef(owner), this.nameAndType(name, descriptor));
+        }
+
+        private int methodRef(String owner, String name, String descriptor)
+        {
+            return this.reference("method " + owner + "." + name + descriptor, ConstantPool.CONSTANT_METHODREF, this.classRef(owner), this.nameAndType(name, descriptor));
+        }
+
+        private int nameAndType(String name, String descriptor)
+        {
+            return this.reference("nameAndType " + name + ":" + descriptor, ConstantPool.CONSTANT_NAME_AND_TYPE, this.utf8(name), this.utf8(descriptor));
+        }
+
+        /**
+         * Adds a constant that's made of one or two references to other constants
+         * @param secondIndex The second constant, or -1 if there's only one
+         */
+        private int reference(String key, int tag, int firstIndex, int secondIndex)
+        {
+            Integer index = this.constantIndexes.get(key);
+            if(index != null)
+                return index;
+            try
+            {
+                this.output.writeByte(tag);
+                this.output.writeShort(firstIndex);
+                if(secondIndex != -1)
+                    this.output.writeShort(secondIndex);
+            }
+            catch (IOException IOE) { throw new IllegalStateException(IOE); } // never thrown by a ByteArrayOutputStream
+            return this.add(key);
+        }
+
+        private int add(String key)
+        {
+            if(this.constantCount == 0xFFFF)
+                throw new IllegalStateException("Too many constants");
+            this.constantIndexes.put(key, this.constantCount);
+            return this.constantCount++;
+        }
+
+        private void writeTo(DataOutputStream classOutput) throws IOException
+        {
+            this.output.flush();
+            classOutput.writeShort(this.constantCount);
+            this.constantBytes.writeTo(classOutput);
+        }
+    }
+
+    /**
+     * A position in a method's code that branches jump to. Branches can be added before the label is bound.
+     */
+    private static final class Label
+    {
+        private int position = -1;
+
+        /**
+         * Pairs of where each branch to this label starts, and where its offset is written
+         */
+        private final ArrayList<int[]> branches = new ArrayList<int[]>();
+
+        /**
+         * Whether each branch's offset is 4 bytes wide rather than 2
+         */
+        private final ArrayList<Boolean> wideBranches = new ArrayList<Boolean>();
+    }
+
+    /**
+     * The bytecode of a single method
+     */
+    private static final class Code
+    {
+        private byte[] code = new byte[256];
+        private int length = 0;
+        private final ArrayList<Label> labels = new ArrayList<Label>();
+
+        private void u1(int value)
+        {
+            if(this.length == this.code.length)
+            {
+                byte[] newCode = new byte[this.code.length * 2];
+                System.arraycopy(this.code, 0, newCode, 0, this.length);
+                this.code = newCode;
+            }
+            this.code[this.length++] = (byte) value;
+        }
+
+        private void u2(int value)
+        {
+            this.u1(value >> 8);
+            this.u1(value);
+        }
+
+        private void u4(int value)
+        {
+            this.u2(value >> 16);
+            this.u2(value);
+        }
+
+        /**
+         * @param opcode ILOAD, ALOAD or ASTORE
+         */
+        private void load(int opcode, int local)
+        {
+            this.u1(opcode);
+            this.u1(local);
+        }
+
+        private void pushInt(int value)
+        {
+            if(value >= -1 && value <= 5)
+                this.u1(SpecCompiler.ICONST_0 + value);
+            else if(value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE)
+            {
+                this.u1(SpecCompiler.BIPUSH);
+                this.u1(value);
+            }
+            else if(value >= Short.MIN_VALUE && value <= Short.MAX_VALUE)
+            {
+                this.u1(SpecCompiler.SIPUSH);
+                this.u2(value);
+            }
+            else
+                throw new IllegalStateException("Constant too large: " + value);
+        }
+
+        private void invoke(int opcode, int methodRef)
+        {
+            this.u1(opcode);
+            this.u2(methodRef);
+        }
+
+        /**
+         * @param opcode A branch with a 2 byte offset, such as IFEQ, IFNULL or GOTO
+         */
+        private void jump(int opcode, Label target)
+        {
+            int branchStart = this.length;
+            this.u1(opcode);
+            this.addBranch(target, branchStart, false);
+            this.u2(0);
+        }
+
+        /**
+         * Switches on the int on top of the stack, from 0 to the number of targets
+         */
+        private void tableSwitch(Label defaultTarget, Label[] targets)
+        {
+            int branchStart = this.length;
+            this.u1(SpecCompiler.TABLESWITCH);
+            while(this.length % 4 != 0) // the operands start on a 4 byte boundary
+                this.u1(0);
+            this.addBranch(defaultTarget, branchStart, true);
+            this.u4(0);
+            this.u4(0);
+            this.u4(targets.length - 1);
+            for(Label currentTarget : targets)
+            {
+                this.addBranch(currentTarget, branchStart, true);
+                this.u4(0);
+            }
+        }
+
+        private void addBranch(Label target, int branchStart, boolean wide)
+        {
+            target.branches.add(new int[] { branchStart, this.length });
+            target.wideBranches.add(wide);
+            if(!this.labels.contains(target))
+                this.labels.add(target);
+        }
+
+        private void bind(Label label)
+        {
+            label.position = this.length;
+            if(!this.labels.contains(label))
+                this.labels.add(label);
+        }
+
+        /**
+         * @return The method's code, with every branch pointed at its label
+         */
+        private byte[] toByteArray()
+        {
+            for(Label currentLabel : this.labels)
+            {
+                if(currentLabel.position == -1)
+                    throw new IllegalStateException("Branch to a label that was never bound");
+                for(int x = 0; x < currentLabel.branches.size(); x++)
+                {
+                    int[] branch = currentLabel.branches.get(x);
+                    int offset = currentLabel.position - branch[0];
+                    if(currentLabel.wideBranches.get(x))
+                    {
+                        this.code[branch[1]] = (byte) (offset >> 24);
+                        this.code[branch[1] + 1] = (byte) (offset >> 16);
+                        this.code[branch[1] + 2] = (byte) (offset >> 8);
+                        this.code[branch[1] + 3] = (byte) offset;
+                    }
+                    else
+                    {
+                        if(offset > Short.MAX_VALUE || offset < Short.MIN_VALUE)
+                            throw new IllegalStateException("Branch offset too large: " + offset);
+                        this.code[branch[1]] = (byte) (offset >> 8);
+                        this.code[branch[1] + 1] = (byte) offset;
+                    }
+                }
+            }
+            byte[] methodCode = new byte[this.length];
+            System.arraycopy(this.code, 0, methodCode, 0, this.length);
+            return methodCode;
+        }
+    }
+
+    /**
+     * Defines a single generated class. Each compiled spec gets its own loader, so its class can be unloaded once nothing uses it.
+     */
+    private static final class GeneratedClassLoader extends ClassLoader
+    {
+        private GeneratedClassLoader(ClassLoader parent) { super(parent); }
+
+        private Class<?> define(String name, byte[] classBytes) { return this.defineClass(name, classBytes, 0, classBytes.length); }
+    }
+}
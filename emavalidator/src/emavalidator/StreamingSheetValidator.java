@@ -0,0 +1,194 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package emavalidator;
+
+import java.util.ArrayList;
+
+/**
+ * Validates one sheet's worth of rows as they are pushed in, one at a time, by a streaming input reader.
+ * The first EMAResourceValidator.NUM_ROWS_FOR_HEADER_SEARCH rows are held back so the header rows can be located and the EMA version deduced.
+ * Once that's done the spec is built, the held back data rows are validated, and every row after that is validated as soon as it arrives.
+ * Only the header search rows are ever kept in memory, no matter how many rows the sheet has.
+ */
+public class StreamingSheetValidator
+{
+    /**
+     * The validation the sheet belongs to. Builds the sheet's spec and holds its errors.
+     */
+    private final ValidationContext validationContext;
+
+    /**
+     * The name of the sheet (or file) being validated. Reported back to the user in the error log.
+     */
+    private final String sheetName;
+
+    /**
+     * The 0th based index of the sheet inside its containing workbook. Always 0 for CSV input.
+     */
+    private final int sheetIndex;
+
+    /**
+     * Whether to report every column of the deduced EMA spec that is missing from the input's column headers.
+     */
+    private final boolean verifyColumnDefinitions;
+
+    /**
+     * Whether rows that end early are still validated out to the last column of the spec, the way workbook sheets always have been.
+     */
+    private final boolean validateMissingCells;
+
+    /**
+     * Copies of the rows seen so far, held until the header rows can be located. Emptied as soon as the spec is built.
+     */
+    private final ArrayList<String[]> headerSearchRows = new ArrayList<String[]>(EMAResourceValidator.NUM_ROWS_FOR_HEADER_SEARCH);
+
+    /**
+     * The row number of each of the held back rows, in the same order as headerSearchRows.
+     */
+    private final int[] headerSearchRowNumbers = new int[EMAResourceValidator.NUM_ROWS_FOR_HEADER_SEARCH];
+
+    /**
+     * The spec built off of the located column headers. Null until enough rows have arrived to search for the header rows.
+     */
+    private AbstractEMASpec emaSpec = null;
+
+    /**
+     * The first row that actual data appears on, 0th based. Only valid once emaSpec has been built.
+     */
+    private int dataStartsRowIndex = -1;
+
+    /**
+     * The 0th based row number that the next row pushed in without a row number will be validated as.
+     */
+    private int nextRowNumber = 0;
+
+    /**
+     * @param validationContext The validation the sheet belongs to
+     * @param sheetName The name of the sheet (or file) being validated
+     * @param sheetIndex The 0th based index of the sheet inside its containing workbook
+     * @param verifyColumnDefinitions True to report the columns of the deduced EMA spec that are missing from the input
+     */
+    public StreamingSheetValidator(ValidationContext validationContext, String sheetName, int sheetIndex, boolean verifyColumnDefinitions)
+    {
+        this(validationContext, sheetName, sheetIndex, verifyColumnDefinitions, false);
+    }
+
+    /**
+     * @param validationContext The validation the sheet belongs to
+     * @param sheetName The name of the sheet (or file) being validated
+     * @param sheetIndex The 0th based index of the sheet inside its containing workbook
+     * @param verifyColumnDefinitions True to report the columns of the deduced EMA spec that are missing from the input
+     * @param validateMissingCells True to validate every column of the spec even on rows that end early. See AbstractEMASpec.validate(RowView, int, boolean)
+     */
+    public StreamingSheetValidator(ValidationContext validationContext, String sheetName, int sheetIndex, boolean verifyColumnDefinitions, boolean validateMissingCells)
+    {
+        this.validationContext = validationContext;
+        this.sheetName = sheetName;
+        this.sheetIndex = sheetIndex;
+        this.verifyColumnDefinitions = verifyColumnDefinitions;
+        this.validateMissingCells = validateMissingCells;
+    }
+
+    /**
+     * For input sources that carry no header rows of their own, such as rows mapped out of an XML avails document.
+     * The spec is built straight away and every row pushed in, starting from row 0, is validated as a data row.
+     * Every column of the spec is validated on every row, the same as workbook sheets.
+     * @param validationContext The validation the sheet belongs to
+     * @param sheetName The name of the sheet (or file) being validated
+     * @param sheetIndex The 0th based index of the sheet inside its containing workbook
+     * @param emaVersion The EMA version to validate the rows against
+     * @param columnHeaderDefinitions The column header names in the order that each row's values are laid out in
+     */
+    public StreamingSheetValidator(ValidationContext validationContext, String sheetName, int sheetIndex, AbstractEMASpec.EMAVersion emaVersion, ArrayList<String> columnHeaderDefinitions)
+    {
+        this(validationContext, sheetName, sheetIndex, false, true);
+        this.emaSpec = validationContext.prepareEMASpec(emaVersion, columnHeaderDefinitions, 0, sheetName, sheetIndex);
+        this.dataStartsRowIndex = 0;
+    }
+
+    /**
+     * Accept the next row of the sheet, numbered one after the row pushed in before it. Rows must be pushed in order.
+     * The row view can be cleared and reused by the caller as soon as this returns.
+     * @param rowView The row's values as read from the input source
+     */
+    public void acceptRow(RowView rowView) { this.acceptRow(rowView, this.nextRowNumber); }
+
+    /**
+     * Accept the next row of the sheet. Rows must be pushed in order, but rows that don't exist in the input source can be skipped.
+     * The row view can be cleared and reused by the caller as soon as this returns.
+     * @param rowView The row's values as read from the input source
+     * @param currentRowNumber The row number where the values occurred, 0th based
+     */
+    public void acceptRow(RowView rowView, int currentRowNumber)
+    {
+        this.nextRowNumber = currentRowNumber + 1;
+        if(this.emaSpec == null) // still searching for the header rows
+        {
+            String[] rowCopy = new String[rowView.size()];
+            for(int x = 0; x < rowCopy.length; x++)
+                rowCopy[x] = rowView.getCellString(x);
+            this.headerSearchRowNumbers[this.headerSearchRows.size()] = currentRowNumber;
+            this.headerSearchRows.add(rowCopy);
+            if(this.headerSearchRows.size() == EMAResourceValidator.NUM_ROWS_FOR_HEADER_SEARCH)
+                this.buildSpec();
+        }
+        else if(currentRowNumber >= this.dataStartsRowIndex) // do not validate header rows
+            this.emaSpec.validate(rowView, currentRowNumber, this.validateMissingCells);
+    }
+
+    /**
+     * Signal that the last row of the sheet has been pushed in. Sheets shorter than the header search window are validated here.
+     * Every row's errors are in the context's ErrorLog once this returns.
+     * @throws IllegalArgumentException If the header rows can't be located in the sheet
+     */
+    public void finish()
+    {
+        if(this.emaSpec == null)
+            this.buildSpec();
+        this.emaSpec.finishValidation(); // rows of large sheets are still being validated in parallel
+    }
+
+    /**
+     * @return The spec used to validate this sheet, or null if no rows have been validated yet
+     */
+    public AbstractEMASpec getEMASpec() { return this.emaSpec; }
+
+    /**
+     * Locate the header rows from the held back rows, build the matching EMA spec, then validate whichever held back rows turned out to be data rows.
+     */
+    private void buildSpec()
+    {
+        ArrayList<String> columnHeaderRows = new ArrayList<String>(this.headerSearchRows.size());
+        for(String[] currentRow : this.headerSearchRows)
+            columnHeaderRows.add(EMAResourceValidator.getRowContents(currentRow));
+
+        HeaderRowIndexes headerRowIndexes = this.validationContext.locateHeaderRows(columnHeaderRows, this.sheetName);
+        this.emaSpec = this.validationContext.prepareEMASpec(columnHeaderRows, headerRowIndexes, this.sheetName, this.sheetIndex, this.verifyColumnDefinitions);
+        this.dataStartsRowIndex = headerRowIndexes.getDataStartsRowIndex();
+
+        RowView rowView = new RowView();
+        for(int x = 0; x < this.headerSearchRows.size(); x++)
+        {
+            if(this.headerSearchRowNumbers[x] < this.dataStartsRowIndex) // do not validate header rows
+                continue;
+            rowView.clear();
+            for(String currentCell : this.headerSearchRows.get(x))
+                rowView.addCell(currentCell);
+            this.emaSpec.validate(rowView, this.headerSearchRowNumbers[x], this.validateMissingCells);
+        }
+        this.headerSearchRows.clear();
+    }
+}
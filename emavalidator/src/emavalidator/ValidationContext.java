@@ -0,0 +1,147 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package emavalidator;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Everything a single validation needs that used to be kept in static fields: the header row search of each sheet,
+ * the spec built for each sheet, and the error log every sheet's errors are reported into.
+ * Each file validated gets its own context, so any number of files can be validated at the same time in one process.
+ * The context also owns the one worker pool that a validation's CSV tokenizing and row validation share, so a validation never runs more worker threads than there are processors.
+ */
+public final class ValidationContext
+{
+    private final ErrorLog errorLog = new ErrorLog();
+
+    /**
+     * Shared by every part of the validation that works across threads. Null until first needed, and again once release() is called.
+     */
+    private ForkJoinPool workerPool = null;
+
+    /**
+     * Every spec built for this validation, to be released once it's over
+     */
+    private final ArrayList<AbstractEMASpec> preparedSpecs = new ArrayList<AbstractEMASpec>();
+
+    /**
+     * A context whose error log is formatted as OUTPUT_LOG_TYPE.LOG
+     */
+    public ValidationContext() { }
+
+    /**
+     * @param logOutputType The formatting of the output log that's requested. Please see ErrorLog.OUTPUT_LOG_TYPE for output types
+     */
+    public ValidationContext(String logOutputType) { this.errorLog.setErrorLogType(logOutputType); }
+
+    /**
+     * @param logOutputType The formatting of the output log that's requested
+     */
+    public ValidationContext(ErrorLog.OUTPUT_LOG_TYPE logOutputType) { this.errorLog.setErrorLogType(logOutputType); }
+
+    /**
+     * @return The error log that every sheet validated in this context reports into
+     */
+    public ErrorLog getErrorLog() { return this.errorLog; }
+
+    /**
+     * @return The worker pool of this validation, started with one thread per processor the first time it's asked for
+     */
+    synchronized ForkJoinPool getWorkerPool()
+    {
+        if(this.workerPool == null)
+            this.workerPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        return this.workerPool;
+    }
+
+    /**
+     * Shuts down the worker pool, releases every spec built for the validation, and unbinds the error log from the calling thread once a validation is over.
+     * Every EMAResourceValidator entry point calls this before it returns. Anything still queued on the pool is dropped; the context can be used for another validation afterwards.
+     */
+    public synchronized void release()
+    {
+        ErrorLog.unbindCurrentThread();
+        for(AbstractEMASpec currentSpec : this.preparedSpecs)
+            currentSpec.release();
+        this.preparedSpecs.clear();
+        if(this.workerPool == null)
+            return;
+        this.workerPool.shutdownNow();
+        this.workerPool = null;
+    }
+
+    /**
+     * Searches the first rows of a sheet for its section headers, column headers, comment rows and first data row
+     * @param columnHeaderRows The first rows of input from the input source, one row per entry with EMAResourceValidator.SPLIT_CHAR between each value
+     * @param sheetName The name of the sheet (or file) being validated. Reported back to the user if the header rows can't be located.
+     * @return Where the sheet's header rows were located
+     * @throws IllegalArgumentException If the header rows can't be located in the sheet
+     */
+    HeaderRowIndexes locateHeaderRows(ArrayList<String> columnHeaderRows, String sheetName)
+    {
+        return EMAResourceValidator.findHeaderRowIndexes(columnHeaderRows, sheetName);
+    }
+
+    /**
+     * Deduces a sheet's EMA version from its located column headers and builds the matching spec with its columns reordered to match the input source.
+     * The sheet is registered with this context's error log so that every error found from here on out on this thread is attributed to it.
+     * @param columnHeaderRows The first rows of input from the input source, one row per entry with EMAResourceValidator.SPLIT_CHAR between each value
+     * @param headerRowIndexes Where the sheet's header rows were located by locateHeaderRows()
+     * @param sheetName The name of the sheet (or file) being validated
+     * @param sheetIndex The 0th based index of the sheet inside its containing workbook
+     * @param verifyColumnDefinitions True to report every column of the deduced EMA spec that is missing from the input's column headers
+     * @return The spec to validate the sheet's data rows with. The data rows start at headerRowIndexes.getDataStartsRowIndex().
+     */
+    AbstractEMASpec prepareEMASpec(ArrayList<String> columnHeaderRows, HeaderRowIndexes headerRowIndexes, String sheetName, int sheetIndex, boolean verifyColumnDefinitions)
+    {
+        ArrayList<String> columnHeaderDefinitions = EMAResourceValidator.getColumnHeaderValues(columnHeaderRows.get(headerRowIndexes.getColumnHeaderRowIndex()));
+        // decide the EMA version from the list of user defined columns from the input sheet
+        AbstractEMASpec.EMAVersion emaVersion = EMAResourceValidator.getEMAVersionNumber(columnHeaderDefinitions);
+        AbstractEMASpec emaSpec = this.prepareEMASpec(emaVersion, columnHeaderDefinitions, headerRowIndexes.getColumnHeaderRowIndex(), sheetName, sheetIndex);
+        // Verify that all column headers are present for an emaVersion.
+        if(verifyColumnDefinitions)
+            emaSpec.getColumnSpec().verifyColumnDefinitions(emaVersion, columnHeaderDefinitions);
+        return emaSpec;
+    }
+
+    /**
+     * Builds the spec for an input source whose EMA version and column headers are already known, such as rows mapped out of an XML avails document.
+     * The sheet is registered with this context's error log so that every error found from here on out on this thread is attributed to it.
+     * @param emaVersion The EMA version to validate the input source against
+     * @param columnHeaderDefinitions The column header names in the order the input source's values are laid out in
+     * @param columnHeaderRowIndex The row number the column headers were found on. Only used to report unrecognized column headers.
+     * @param sheetName The name of the sheet (or file) being validated
+     * @param sheetIndex The 0th based index of the sheet inside its containing workbook
+     * @return The spec to validate the input source's data rows with
+     */
+    AbstractEMASpec prepareEMASpec(AbstractEMASpec.EMAVersion emaVersion, ArrayList<String> columnHeaderDefinitions, int columnHeaderRowIndex, String sheetName, int sheetIndex)
+    {
+        // instantiate the corresponding EMA spec based on the EMA version that was dynamically decided
+        AbstractEMASpec emaSpec = AbstractEMASpec.getInstance(emaVersion);
+        emaSpec.setValidationContext(this);
+        synchronized(this)
+        {
+            this.preparedSpecs.add(emaSpec);
+        }
+        // send the current sheet's properties to the error log so that it can correctly format and analyze incoming errors
+        this.errorLog.setCurrentSheet(sheetName, emaVersion, emaSpec, sheetIndex);
+        // reorder the columns in the EMA spec based off of the user's input which doesn't necessarily match the spec itself
+        emaSpec.reorderColumnDefinitions(columnHeaderDefinitions, columnHeaderRowIndex);
+        return emaSpec;
+    }
+}
@@ -0,0 +1,205 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package emavalidator;
+
+import java.util.Arrays;
+
+/**
+ * The avail windows, start and end date pairs, of every row that shares a single window key.
+ * Windows are kept in an interval tree so that finding the ones a new window overlaps doesn't compare it against every window before it.
+ * The tree is a treap ordered by start date, augmented with the latest end date and the earliest window in each subtree.
+ * Each window is a single slot across a handful of int arrays, identified by the order it was added in, so nothing is allocated per window.
+ */
+public final class WindowTree
+{
+    /**
+     * Returned when no window overlaps
+     */
+    public static final int NO_WINDOW = -1;
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private int[] starts = new int[WindowTree.INITIAL_CAPACITY];
+    private int[] ends = new int[WindowTree.INITIAL_CAPACITY];
+    private int[] rows = new int[WindowTree.INITIAL_CAPACITY];
+    private int[] lefts = new int[WindowTree.INITIAL_CAPACITY];
+    private int[] rights = new int[WindowTree.INITIAL_CAPACITY];
+
+    /**
+     * The latest end date in each window's subtree
+     */
+    private int[] maxEnds = new int[WindowTree.INITIAL_CAPACITY];
+
+    /**
+     * The earliest added window in each window's subtree
+     */
+    private int[] minWindows = new int[WindowTree.INITIAL_CAPACITY];
+
+    private int size = 0;
+
+    private int root = WindowTree.NO_WINDOW;
+
+    /**
+     * @return The number of windows added so far
+     */
+    public int size() { return this.size; }
+
+    /**
+     * @param window A window returned by add() or findEarliestOverlap()
+     * @return The row number the window was added with
+     */
+    public int getRow(int window) { return this.rows[window]; }
+
+    /**
+     * @param start Item start date
+     * @param end Item end date
+     * @param row Row number from the sheet that this pair is found
+     * @return The new window, numbered in the order windows were added
+     */
+    public int add(int start, int end, int row)
+    {
+        if(this.size == this.starts.length)
+            this.grow();
+        int window = this.size++;
+        this.starts[window] = start;
+        this.ends[window] = end;
+        this.rows[window] = row;
+        this.lefts[window] = WindowTree.NO_WINDOW;
+        this.rights[window] = WindowTree.NO_WINDOW;
+        this.maxEnds[window] = end;
+        this.minWindows[window] = window;
+        this.root = this.insert(this.root, window);
+        return window;
+    }
+
+    /**
+     * Windows overlap when each one starts before the other ends.
+     * @param start The start date of the window to check
+     * @param end The end date of the window to check
+     * @return The first window added that overlaps the given one, or NO_WINDOW if none do
+     */
+    public int findEarliestOverlap(int start, int end)
+    {
+        int found = this.findEarliestOverlap(this.root, start, end, Integer.MAX_VALUE);
+        return found == Integer.MAX_VALUE ? WindowTree.NO_WINDOW : found;
+    }
+
+    private int findEarliestOverlap(int node, int start, int end, int earliest)
+    {
+        // Skip subtrees that all end too early, or whose windows were all added after the earliest overlap found so far
+        if(node == WindowTree.NO_WINDOW || this.maxEnds[node] <= start || this.minWindows[node] >= earliest)
+            return earliest;
+        earliest = this.findEarliestOverlap(this.lefts[node], start, end, earliest);
+        // Everything to the right starts no earlier than this window, so it can only overlap if this one starts early enough
+        if(this.starts[node] < end)
+        {
+            if(this.ends[node] > start && node < earliest)
+                earliest = node;
+            earliest = this.findEarliestOverlap(this.rights[node], start, end, earliest);
+        }
+        return earliest;
+    }
+
+    /**
+     * Windows are ordered by start date, then by the order they were added, so a new window always goes after any equal start date.
+     * @return The root of the subtree after the window was inserted into it
+     */
+    private int insert(int node, int window)
+    {
+        if(node == WindowTree.NO_WINDOW)
+            return window;
+        if(this.starts[window] < this.starts[node])
+        {
+            this.lefts[node] = this.insert(this.lefts[node], window);
+            if(WindowTree.priority(this.lefts[node]) > WindowTree.priority(node))
+                return this.rotateRight(node);
+        }
+        else
+        {
+            this.rights[node] = this.insert(this.rights[node], window);
+            if(WindowTree.priority(this.rights[node]) > WindowTree.priority(node))
+                return this.rotateLeft(node);
+        }
+        this.update(node);
+        return node;
+    }
+
+    private int rotateRight(int node)
+    {
+        int pivot = this.lefts[node];
+        this.lefts[node] = this.rights[pivot];
+        this.rights[pivot] = node;
+        this.update(node);
+        this.update(pivot);
+        return pivot;
+    }
+
+    private int rotateLeft(int node)
+    {
+        int pivot = this.rights[node];
+        this.rights[node] = this.lefts[pivot];
+        this.lefts[pivot] = node;
+        this.update(node);
+        this.update(pivot);
+        return pivot;
+    }
+
+    /**
+     * Recompute a window's subtree summary from its children
+     */
+    private void update(int node)
+    {
+        int maxEnd = this.ends[node];
+        int minWindow = node;
+        int left = this.lefts[node];
+        int right = this.rights[node];
+        if(left != WindowTree.NO_WINDOW)
+        {
+            maxEnd = Math.max(maxEnd, this.maxEnds[left]);
+            minWindow = Math.min(minWindow, this.minWindows[left]);
+        }
+        if(right != WindowTree.NO_WINDOW)
+        {
+            maxEnd = Math.max(maxEnd, this.maxEnds[right]);
+            minWindow = Math.min(minWindow, this.minWindows[right]);
+        }
+        this.maxEnds[node] = maxEnd;
+        this.minWindows[node] = minWindow;
+    }
+
+    /**
+     * The treap priority of a window, scrambled from the order it was added in so that it doesn't need to be stored
+     */
+    private static int priority(int window)
+    {
+        int hash = window * 0x9E3779B9;
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        return hash ^ (hash >>> 13);
+    }
+
+    private void grow()
+    {
+        int capacity = this.starts.length * 2;
+        this.starts = Arrays.copyOf(this.starts, capacity);
+        this.ends = Arrays.copyOf(this.ends, capacity);
+        this.rows = Arrays.copyOf(this.rows, capacity);
+        this.lefts = Arrays.copyOf(this.lefts, capacity);
+        this.rights = Arrays.copyOf(this.rights, capacity);
+        this.maxEnds = Arrays.copyOf(this.maxEnds, capacity);
+        this.minWindows = Arrays.copyOf(this.minWindows, capacity);
+    }
+}
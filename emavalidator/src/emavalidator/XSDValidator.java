@@ -1,10 +1,16 @@
 package emavalidator;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.xml.XMLConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.Source;
+import javax.xml.transform.stax.StAXSource;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
@@ -16,33 +22,47 @@ import emavalidator.utils.ResourceResolver;
 
 public class XSDValidator
 {   
+    // XMLStreamException prepends the error location to the message of the underlying parse error, ending with this prefix.
+    private static final String STAX_MESSAGE_PREFIX = "Message: ";
+
+    // Every XSD template compiled so far, keyed by its file name.
+    private static final ConcurrentHashMap<String, Schema> SCHEMA_CACHE = new ConcurrentHashMap<String, Schema>();
+
+    // Each thread's validators, keyed by the file name of the XSD template they validate against.
+    private static final ThreadLocal<HashMap<String, Validator>> THREAD_VALIDATORS = new ThreadLocal<HashMap<String, Validator>>()
+    {
+        @Override
+        protected HashMap<String, Validator> initialValue() { return new HashMap<String, Validator>(); }
+    };
+
     // If there is an error, save the error into this variable to be printed.
     String errorMessage = "";
     
     public boolean validateXMLSchema(String xsdFilePath, InputStream xmlInputStream) 
     {
-        try 
-        {
-            // Create factory with default XML Schema.
-            SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
-            
-            // Associate the schema factory with the resource resolver, which is responsible for resolving the imported XSD's
-            factory.setResourceResolver(new ResourceResolver());
-            
-            String fullFilePath = "emavalidator/resources/ema_xsd_template/" + xsdFilePath;
+        return this.validateXMLSchema(xsdFilePath, new StreamSource(xmlInputStream));
+    }
 
-            Source[] schemaSources = new Source[] {
-              new StreamSource(this.getClass().getClassLoader().getResourceAsStream(fullFilePath)),
-            };
+    /**
+     * Validates the rest of an XML document that's already being read, so the document is only parsed once.
+     * @param xsdFilePath The name of the XSD template to validate against
+     * @param xmlStreamReader A reader positioned on the root element, or the start, of the document
+     * @return True if the document is valid against the XSD template, false otherwise. See getErrorMessage() for the reason.
+     */
+    public boolean validateXMLSchema(String xsdFilePath, XMLStreamReader xmlStreamReader) 
+    {
+        return this.validateXMLSchema(xsdFilePath, new StAXSource(xmlStreamReader));
+    }
 
-            // Create the schema using the XSD Schema source.
-            Schema schema = factory.newSchema(schemaSources);
-            
-            // Create a validator using the schema.
-            Validator validator = schema.newValidator();
+    private boolean validateXMLSchema(String xsdFilePath, Source xmlSource) 
+    {
+        try 
+        {
+            // Reuse this thread's validator for the schema, or create one from the compiled schema.
+            Validator validator = XSDValidator.getValidator(xsdFilePath);
             
             // Validate the XML of the avail against the XSD.
-            validator.validate(new StreamSource(xmlInputStream));
+            validator.validate(xmlSource);
         } 
         catch (IOException e)
         {
@@ -52,13 +72,83 @@ public class XSDValidator
         }
         catch(SAXException e1) 
         {
-            this.errorMessage = "SAX Exception: "+e1.getMessage();
+            this.errorMessage = "SAX Exception: "+getRootMessage(e1);
             System.out.println(this.errorMessage);
             return false;
         }
         return true;
     }
-    
+
+    /**
+     * Validators aren't thread safe, so each thread keeps its own, one per XSD template. They're reset before every reuse.
+     * @param xsdFilePath The name of the XSD template to validate against
+     * @return A validator for the XSD template that belongs to the current thread
+     * @throws SAXException If the XSD template can't be compiled
+     */
+    private static Validator getValidator(String xsdFilePath) throws SAXException
+    {
+        HashMap<String, Validator> threadValidators = THREAD_VALIDATORS.get();
+        Validator validator = threadValidators.get(xsdFilePath);
+        if(validator == null)
+        {
+            validator = XSDValidator.getSchema(xsdFilePath).newValidator();
+            threadValidators.put(xsdFilePath, validator);
+        }
+        else
+            validator.reset();
+        return validator;
+    }
+
+    /**
+     * Compiled schemas are immutable and thread safe, so each XSD template is only ever compiled once per process.
+     * @param xsdFilePath The name of the XSD template to compile
+     * @return The compiled schema for the XSD template
+     * @throws SAXException If the XSD template can't be compiled
+     */
+    private static Schema getSchema(String xsdFilePath) throws SAXException
+    {
+        Schema schema = SCHEMA_CACHE.get(xsdFilePath);
+        if(schema != null)
+            return schema;
+        synchronized(SCHEMA_CACHE) // SchemaFactory isn't thread safe, and there's no sense in compiling the same template twice
+        {
+            schema = SCHEMA_CACHE.get(xsdFilePath);
+            if(schema == null)
+            {
+                // Create factory with default XML Schema.
+                SchemaFactory factory = SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI);
+                
+                // Associate the schema factory with the resource resolver, which is responsible for resolving the imported XSD's
+                factory.setResourceResolver(new ResourceResolver());
+                
+                String fullFilePath = ResourceResolver.SCHEMA_RESOURCE_PATH + xsdFilePath;
+                byte[] bundledTemplate = ResourceResolver.getBundledResource(xsdFilePath);
+                InputStream templateStream = bundledTemplate != null ? new ByteArrayInputStream(bundledTemplate) : XSDValidator.class.getClassLoader().getResourceAsStream(fullFilePath);
+
+                // Create the schema using the XSD Schema source.
+                schema = factory.newSchema(new StreamSource(templateStream));
+                SCHEMA_CACHE.put(xsdFilePath, schema);
+            }
+        }
+        return schema;
+    }
+
+    /**
+     * Validating a StAXSource wraps the original parse error in a TransformerException and then an XMLStreamException.
+     * Dig back down to the original error so the message reads the same no matter which kind of source was validated.
+     * @param exception The exception thrown out of the validator
+     * @return The message of the innermost cause of the exception
+     */
+    private static String getRootMessage(Throwable exception)
+    {
+        Throwable rootCause = exception;
+        while(rootCause.getCause() != null && rootCause.getCause() != rootCause)
+            rootCause = rootCause.getCause();
+        if(rootCause instanceof XMLStreamException && rootCause.getMessage() != null && rootCause.getMessage().contains(STAX_MESSAGE_PREFIX))
+            return rootCause.getMessage().substring(rootCause.getMessage().indexOf(STAX_MESSAGE_PREFIX) + STAX_MESSAGE_PREFIX.length());
+        return rootCause.getMessage();
+    }
+
     public String getErrorMessage() {
         return this.errorMessage;
     }
@@ -17,12 +17,16 @@ package emavalidator.columns;
 
 import emavalidator.AbstractColumnDefinition;
 import emavalidator.AbstractErrorEntry.ErrorLevel;
+import emavalidator.CellValue;
 import emavalidator.errors.CellErrorSpecificValueFormat;
 import emavalidator.validators.CellValidatorRegexFormat;
 import emavalidator.validators.ValidatorUtils;
 
 public class CaptionIncluded extends AbstractColumnDefinition
 {
+    @Override
+    public CellValue.ValueType getValueType() { return CellValue.ValueType.BOOLEAN; }
+
     @Override
     public void buildValidators()
     {
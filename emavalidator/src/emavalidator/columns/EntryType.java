@@ -15,11 +15,13 @@ limitations under the License.
 
 package emavalidator.columns;
 
+import java.util.List;
+
 import emavalidator.AbstractColumnDefinition;
 import emavalidator.AbstractEMASpec;
 import emavalidator.AbstractErrorEntry.ErrorLevel;
 import emavalidator.errors.CellErrorEntryType;
-import emavalidator.validators.CellValidatorRegexFormat;
+import emavalidator.validators.CellValidatorEnumeratedValues;
 import emavalidator.validators.ValidatorUtils;
 
 public class EntryType extends AbstractColumnDefinition
@@ -41,7 +43,7 @@ public class EntryType extends AbstractColumnDefinition
     @Override
     public void buildValidators()
     {
-        String valuesRegex = "";
+        List<String> acceptedValues = null;
         String valuesAccepted = "";
 
         if( this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec17 ||
@@ -50,12 +52,12 @@ public class EntryType extends AbstractColumnDefinition
             this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec16TV ||
             this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec15)
         {
-            valuesRegex = ValidatorUtils.ENTRY_TYPE_VALUES_REGEX_15_16;
+            acceptedValues = ValidatorUtils.ENTRY_TYPE_VALUES_15_16;
             valuesAccepted = CellErrorEntryType.VALUES_ACCEPTED_15_16;
         }
         else if(this.emaVersion == (AbstractEMASpec.EMAVersion.EMASpec14))
         {
-            valuesRegex = ValidatorUtils.ENTRY_TYPE_VALUES_REGEX_14;
+            acceptedValues = ValidatorUtils.ENTRY_TYPE_VALUES_14;
             valuesAccepted = CellErrorEntryType.VALUES_ACCEPTED_14;
         }
         else
@@ -63,8 +65,7 @@ public class EntryType extends AbstractColumnDefinition
 
         if(required)
         {
-            this.validators.add(new CellValidatorRegexFormat(new String[]{
-                                valuesRegex},
+            this.validators.add(new CellValidatorEnumeratedValues(acceptedValues,
                                 false,
                                 ErrorLevel.ERROR,
                                 CellErrorEntryType.VERSION_SPECIFIC_ERROR,
@@ -72,10 +73,8 @@ public class EntryType extends AbstractColumnDefinition
         }
         else
         {
-            this.validators.add(new CellValidatorRegexFormat(new String[]{
-                                valuesRegex,
-                                ValidatorUtils.EMPTY_STRING_REGEX},
-                                false,
+            this.validators.add(new CellValidatorEnumeratedValues(acceptedValues,
+                                true,
                                 ErrorLevel.ERROR,
                                 CellErrorEntryType.VERSION_SPECIFIC_ERROR,
                                 valuesAccepted));
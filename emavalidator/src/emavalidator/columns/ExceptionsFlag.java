@@ -17,6 +17,7 @@ package emavalidator.columns;
 
 import emavalidator.AbstractColumnDefinition;
 import emavalidator.AbstractErrorEntry.ErrorLevel;
+import emavalidator.CellValue;
 import emavalidator.errors.CellErrorSpecificValueFormat;
 import emavalidator.validators.CellValidatorRegexFormat;
 import emavalidator.validators.ValidatorUtils;
@@ -28,6 +29,9 @@ import emavalidator.validators.ValidatorUtils;
  */
 public class ExceptionsFlag extends AbstractColumnDefinition
 {
+    @Override
+    public CellValue.ValueType getValueType() { return CellValue.ValueType.BOOLEAN; }
+
     @Override
     public void buildValidators()
     {
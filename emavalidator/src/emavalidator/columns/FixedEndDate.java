@@ -16,10 +16,14 @@ limitations under the License.
 package emavalidator.columns;
 
 import emavalidator.AbstractColumnDefinition;
+import emavalidator.CellValue;
 import emavalidator.validators.CellValidatorValidDate;
 
 public class FixedEndDate extends AbstractColumnDefinition
 {
+    @Override
+    public CellValue.ValueType getValueType() { return CellValue.ValueType.DATE; }
+
     @Override
     public void buildValidators()
     {
@@ -19,7 +19,7 @@ import emavalidator.AbstractColumnDefinition;
 import emavalidator.AbstractErrorEntry.ErrorLevel;
 import emavalidator.errors.CellErrorFormatProfile;
 import emavalidator.errors.CellErrorSpecificValueFormat;
-import emavalidator.validators.CellValidatorRegexFormat;
+import emavalidator.validators.CellValidatorEnumeratedValues;
 import emavalidator.validators.ValidatorUtils;
 
 public class FormatProfile extends AbstractColumnDefinition
@@ -28,10 +28,8 @@ public class FormatProfile extends AbstractColumnDefinition
     @Override
     public void buildValidators()
     {
-        this.validators.add(new CellValidatorRegexFormat(new String[]{
-                                ValidatorUtils.FORMAT_PROFILE_VALUES_REGEX,
-                                ValidatorUtils.EMPTY_STRING_REGEX},
-                                false,
+        this.validators.add(new CellValidatorEnumeratedValues(ValidatorUtils.FORMAT_PROFILE_VALUES,
+                                true,
                                 ErrorLevel.ERROR,
                                 CellErrorSpecificValueFormat.SPECIFIC_VALUES_ONLY_ERROR,
                                 CellErrorFormatProfile.EXPECTED_FORMAT_PROFILE_VALUES));
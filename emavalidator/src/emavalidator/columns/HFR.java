@@ -19,7 +19,7 @@ import emavalidator.AbstractColumnDefinition;
 import emavalidator.AbstractErrorEntry.ErrorLevel;
 import emavalidator.errors.CellErrorHFR;
 import emavalidator.errors.CellErrorSpecificValueFormat;
-import emavalidator.validators.CellValidatorRegexFormat;
+import emavalidator.validators.CellValidatorEnumeratedValues;
 import emavalidator.validators.ValidatorUtils;
 
 public class HFR extends AbstractColumnDefinition
@@ -27,10 +27,8 @@ public class HFR extends AbstractColumnDefinition
     @Override
     public void buildValidators()
     {
-        this.validators.add(new CellValidatorRegexFormat(new String[]{
-                ValidatorUtils.HFR_VALUES_REGEX,
-                ValidatorUtils.EMPTY_STRING_REGEX},
-                false,
+        this.validators.add(new CellValidatorEnumeratedValues(ValidatorUtils.HFR_VALUES,
+                true,
                 ErrorLevel.ERROR,
                 CellErrorSpecificValueFormat.SPECIFIC_VALUES_ONLY_ERROR,
                 CellErrorHFR.EXPECTED_HFR_VALUES));
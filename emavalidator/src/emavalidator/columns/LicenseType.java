@@ -15,11 +15,13 @@ limitations under the License.
 
 package emavalidator.columns;
 
+import java.util.List;
+
 import emavalidator.AbstractColumnDefinition;
 import emavalidator.AbstractEMASpec;
 import emavalidator.AbstractErrorEntry.ErrorLevel;
 import emavalidator.errors.CellErrorLicenseType;
-import emavalidator.validators.CellValidatorRegexFormat;
+import emavalidator.validators.CellValidatorEnumeratedValues;
 import emavalidator.validators.ValidatorUtils;
 
 public class LicenseType extends AbstractColumnDefinition
@@ -30,7 +32,7 @@ public class LicenseType extends AbstractColumnDefinition
     @Override
     public void buildValidators()
     {
-        String valuesRegex = "";
+        List<String> acceptedValues = null;
         String valuesAccepted = "";
 
         if( this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec17 ||
@@ -38,22 +40,20 @@ public class LicenseType extends AbstractColumnDefinition
             this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec16 ||
             this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec16TV)
         {
-            valuesRegex = ValidatorUtils.LICENSE_TYPE_VALUES_REGEX_16;
+            acceptedValues = ValidatorUtils.LICENSE_TYPE_VALUES_16;
             valuesAccepted = CellErrorLicenseType.VALUES_ACCEPTED_16;
         }
         else if(this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec14 ||
                 this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec15)
         {
-            valuesRegex = ValidatorUtils.LICENSE_TYPE_VALUES_REGEX_14_15;
+            acceptedValues = ValidatorUtils.LICENSE_TYPE_VALUES_14_15;
             valuesAccepted = CellErrorLicenseType.VALUES_ACCEPTED_14_15;
         }
         else
             throw new IllegalArgumentException("Can't instantiate unknown EMA spec version for License Type");
 
-        this.validators.add(new CellValidatorRegexFormat(new String[] {
-                            valuesRegex,
-                            ValidatorUtils.EMPTY_STRING_REGEX}, // This field is required but will be caught in the row validator.
-                            false,
+        this.validators.add(new CellValidatorEnumeratedValues(acceptedValues,
+                            true, // This field is required but will be caught in the row validator.
                             ErrorLevel.ERROR,
                             CellErrorLicenseType.VERSION_SPECIFIC_ERROR,
                             valuesAccepted));
@@ -18,7 +18,7 @@ package emavalidator.columns;
 import emavalidator.AbstractColumnDefinition;
 import emavalidator.AbstractErrorEntry.ErrorLevel;
 import emavalidator.errors.CellErrorSpecificValueFormat;
-import emavalidator.validators.CellValidatorRegexFormat;
+import emavalidator.validators.CellValidatorEnumeratedValues;
 import emavalidator.validators.ValidatorUtils;
 
 public class LocalizationType extends AbstractColumnDefinition
@@ -26,10 +26,8 @@ public class LocalizationType extends AbstractColumnDefinition
     @Override
     public void buildValidators()
     {
-        this.validators.add(new CellValidatorRegexFormat( new String[] {
-                            ValidatorUtils.LOCALIZATION_TYPE_VALUES_REGEX,
-                            ValidatorUtils.EMPTY_STRING_REGEX},
-                            false,
+        this.validators.add(new CellValidatorEnumeratedValues(ValidatorUtils.LOCALIZATION_TYPE_VALUES,
+                            true,
                             ErrorLevel.ERROR,
                             CellErrorSpecificValueFormat.SPECIFIC_VALUES_ONLY_ERROR,
                             CellErrorSpecificValueFormat.EXPECTED_VALUES_SUBDUB));
@@ -18,7 +18,7 @@ package emavalidator.columns;
 import emavalidator.AbstractColumnDefinition;
 import emavalidator.AbstractErrorEntry.ErrorLevel;
 import emavalidator.errors.CellErrorSpecificValueFormat;
-import emavalidator.validators.CellValidatorRegexFormat;
+import emavalidator.validators.CellValidatorEnumeratedValues;
 import emavalidator.validators.ValidatorUtils;
 
 public class PriceType extends AbstractColumnDefinition
@@ -49,10 +49,8 @@ public class PriceType extends AbstractColumnDefinition
     @Override
     public void buildValidators()
     {
-        this.validators.add(new CellValidatorRegexFormat(new String[] {
-                            ValidatorUtils.PRICE_TYPE_VALUES_REGEX,
-                            ValidatorUtils.EMPTY_STRING_REGEX}, // this field is required but this error will be caught in the row validator to prevent duplicate errors
-                            false,
+        this.validators.add(new CellValidatorEnumeratedValues(ValidatorUtils.PRICE_TYPE_VALUES,
+                            true, // this field is required but this error will be caught in the row validator to prevent duplicate errors
                             ErrorLevel.ERROR,
                             CellErrorSpecificValueFormat.SPECIFIC_VALUES_ONLY_ERROR,
                             PriceType.PriceTypeValues.getValueNames()));
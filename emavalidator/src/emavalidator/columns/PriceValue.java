@@ -17,6 +17,7 @@ package emavalidator.columns;
 
 import emavalidator.AbstractColumnDefinition;
 import emavalidator.AbstractErrorEntry.ErrorLevel;
+import emavalidator.CellValue;
 import emavalidator.errors.CellErrorPriceValue;
 import emavalidator.errors.CellErrorSpecificValueFormat;
 import emavalidator.validators.CellValidatorRegexFormat;
@@ -24,6 +25,9 @@ import emavalidator.validators.ValidatorUtils;
 
 public class PriceValue extends AbstractColumnDefinition
 {
+    @Override
+    public CellValue.ValueType getValueType() { return CellValue.ValueType.DECIMAL; }
+
     @Override
     public void buildValidators()
     {
@@ -16,10 +16,7 @@ limitations under the License.
 package emavalidator.columns;
 
 import emavalidator.AbstractColumnDefinition;
-import emavalidator.AbstractErrorEntry.ErrorLevel;
-import emavalidator.errors.CellErrorTotalRunTime;
-import emavalidator.validators.CellValidatorRegexFormat;
-import emavalidator.validators.ValidatorUtils;
+import emavalidator.validators.CellValidatorRunTime;
 
 public class TotalRunTime extends AbstractColumnDefinition
 {
@@ -27,13 +24,6 @@ public class TotalRunTime extends AbstractColumnDefinition
     @Override
     public void buildValidators()
     {
-        this.validators.add(new CellValidatorRegexFormat(new String[] {
-                            ValidatorUtils.DECIMAL_FORMAT_REGEX,
-                            ValidatorUtils.TIME_FORMAT_REGEX,
-                            ValidatorUtils.EMPTY_STRING_REGEX},
-                            false,
-                            ErrorLevel.ERROR,
-                            CellErrorTotalRunTime.TOTAL_RUN_TIME_ERROR,
-                            CellErrorTotalRunTime.EXPECTED_TOTAL_RUN_TIME));
+        this.validators.add(new CellValidatorRunTime());
     }
 }
@@ -19,7 +19,7 @@ import emavalidator.AbstractColumnDefinition;
 import emavalidator.AbstractErrorEntry.ErrorLevel;
 import emavalidator.errors.CellErrorSpecificValueFormat;
 import emavalidator.errors.CellErrorWorkType;
-import emavalidator.validators.CellValidatorRegexFormat;
+import emavalidator.validators.CellValidatorEnumeratedValues;
 import emavalidator.validators.ValidatorUtils;
 
 public class WorkType extends AbstractColumnDefinition
@@ -27,8 +27,7 @@ public class WorkType extends AbstractColumnDefinition
     @Override
     public void buildValidators()
     {
-        this.validators.add(new CellValidatorRegexFormat(new String[] {
-                            ValidatorUtils.WORK_TYPE_VALUES_REGEX},
+        this.validators.add(new CellValidatorEnumeratedValues(ValidatorUtils.WORK_TYPE_VALUES,
                             false,
                             ErrorLevel.ERROR,
                             CellErrorSpecificValueFormat.SPECIFIC_VALUES_ONLY_ERROR,
@@ -0,0 +1,51 @@
+/* Copyright 2015 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package emavalidator.notifications;
+
+import java.util.ArrayList;
+
+import org.apache.commons.lang3.StringUtils;
+
+import emavalidator.AbstractNotificationEntry;
+
+public class RowNotificationSkippedValidator extends AbstractNotificationEntry
+{
+    public static final String SKIPPED_VALIDATOR_NOTIFICATION_MESSAGE = "Row checks were SKIPPED because the column(s) they need are missing";
+    public static final String SKIPPED_VALIDATOR_NOTIFICATION_DETAILS = "These checks compare values across the columns of each row and can't run without all of their columns. Add the missing column(s) to have every row checked.";
+
+    /**
+     * Reports every row check skipped for a column header row at once, naming each check and the columns it's missing, since the value isn't part of the log output.
+     * @param rowNumber The row number of the column headers
+     * @param skippedChecks Each skipped check, as made by describeSkippedCheck()
+     */
+    public RowNotificationSkippedValidator(int rowNumber, ArrayList<String> skippedChecks)
+    {
+        super(rowNumber,
+              RowNotificationSkippedValidator.SKIPPED_VALIDATOR_NOTIFICATION_MESSAGE + ": " + StringUtils.join(skippedChecks, "; "),
+              "",
+              RowNotificationSkippedValidator.SKIPPED_VALIDATOR_NOTIFICATION_DETAILS);
+    }
+
+    /**
+     * @param validatorName The class name of the row validator that was skipped
+     * @param missingColumns The names of the columns that the row validator needs and the input source doesn't have
+     * @return The check's name along with the columns it's missing. E.G. "EntryType needs End"
+     */
+    public static String describeSkippedCheck(String validatorName, ArrayList<String> missingColumns)
+    {
+        return StringUtils.removeStart(validatorName, "RowValidator") + " needs " + StringUtils.join(missingColumns, ", ");
+    }
+}
@@ -0,0 +1,40 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package emavalidator.notifications;
+
+import emavalidator.AbstractEMASpec;
+import emavalidator.AbstractNotificationEntry;
+
+public class RowNotificationWorkTypeMismatch extends AbstractNotificationEntry
+{
+    public static final String WORK_TYPE_MISMATCH_NOTIFICATION_MESSAGE = "WorkType doesn't match the EMA spec picked for the document in the above row(s)";
+    public static final String WORK_TYPE_MISSING_NOTIFICATION_MESSAGE = "WorkType is MISSING from the first Avail, so the document was validated against a movie spec";
+    public static final String WORK_TYPE_NOTIFICATION_DETAILS = "The EMA spec of an XML document is picked from the WorkType of its first Avail, and every Avail is checked against the columns of ";
+
+    /**
+     * Reports an Avail of an XML document that was validated against the spec picked for a different kind of WorkType
+     * @param rowNumber The row number that the Avail was mapped onto
+     * @param workType The Avail's WorkType. Null if the Avail doesn't have one.
+     * @param emaVersion The EMA spec that the document is validated against
+     */
+    public RowNotificationWorkTypeMismatch(int rowNumber, String workType, AbstractEMASpec.EMAVersion emaVersion)
+    {
+        super(rowNumber,
+              workType == null ? RowNotificationWorkTypeMismatch.WORK_TYPE_MISSING_NOTIFICATION_MESSAGE : RowNotificationWorkTypeMismatch.WORK_TYPE_MISMATCH_NOTIFICATION_MESSAGE,
+              workType == null ? "" : workType,
+              RowNotificationWorkTypeMismatch.WORK_TYPE_NOTIFICATION_DETAILS + emaVersion + ". Put movie and TV Avails in separate documents to have each checked against its own spec.");
+    }
+}
@@ -6,6 +6,8 @@ import java.io.InputStream;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
@@ -73,6 +75,38 @@ public class EMAVersionParser
 
     }
     
+    /**
+     * Reads the avails version number from the xmlns of the root AvailList element without parsing
+     * the rest of the document. The reader is left on the root element so that the same stream can
+     * be handed straight on to the schema validator.
+     * @param xmlStreamReader A reader that hasn't yet moved past the root element of the XML
+     * @return The avails version number, e.g. v1.6. Defaults to v1.6.
+     * @throws XMLStreamException If the XML is malformed before the end of the root element's start tag
+     */
+    public static String readVersion(XMLStreamReader xmlStreamReader) throws XMLStreamException
+    {
+        String version = "v1.6"; // Default to v1.6
+        while ( !xmlStreamReader.isStartElement() && xmlStreamReader.hasNext() )
+            xmlStreamReader.next();
+
+        String prefix = xmlStreamReader.isStartElement() ? xmlStreamReader.getPrefix() : null;
+        if ( xmlStreamReader.isStartElement() && xmlStreamReader.getLocalName().equals("AvailList") && ( prefix == null || prefix.isEmpty() ) ) {
+            for( int i = 0; i < xmlStreamReader.getNamespaceCount(); i++ ) {
+                String namespacePrefix = xmlStreamReader.getNamespacePrefix(i);
+                if ( namespacePrefix == null || namespacePrefix.isEmpty() ) {
+                    /** 
+                     * Tokenize the URL: http://www.movielabs.com/schema/avails/v1.6/avails
+                     * Take the 5th token (v1.6) as the version number.
+                     */
+                    String[] tokens = xmlStreamReader.getNamespaceURI(i).split("/");
+
+                    version = tokens[5];
+                }
+            }
+        }
+        return version;
+    }
+
     public String process() throws ParserConfigurationException, SAXException 
     {
         
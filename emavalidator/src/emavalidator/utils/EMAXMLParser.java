@@ -1,695 +1,610 @@
-package emavalidator.utils;
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
 
-import java.io.IOException;
+    http://www.apache.org/licenses/LICENSE-2.0
 
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
 
-import org.xml.sax.Attributes;
-import org.xml.sax.SAXException;
-import org.xml.sax.helpers.DefaultHandler;
+package emavalidator.utils;
 
-public class EMAXMLParser
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+
+import emavalidator.AbstractEMASpec;
+import emavalidator.ErrorLog;
+import emavalidator.RowView;
+import emavalidator.StreamingSheetValidator;
+import emavalidator.ValidationContext;
+import emavalidator.notifications.RowNotificationWorkTypeMismatch;
+
+/**
+ * Maps the Avails of an XML avails document onto EMA spreadsheet rows while the document is being read, so that XML avails
+ * are held to the same cell and row validators as CSV and workbook input.
+ * The parser sits in front of the XMLStreamReader that is handed to the schema validator and watches every event the validator pulls through it,
+ * so the document is still only read once. Each Avail becomes one row; the row is validated and thrown away as soon as the Avail's end tag is read.
+ * Leaf elements are dispatched to their column through a hash table keyed by "Parent/Element", falling back to the bare element name.
+ * The children of a Term are keyed by the Term's termName instead, as "Term@termName/Element".
+ * The EMA spec is picked from the avails version and the WorkType of the first Avail: movie specs for movies and shorts, TV specs for everything else.
+ * Avails whose WorkType belongs to the other kind of spec, and a first Avail without a WorkType, are still validated against that spec but get a notification.
+ */
+public class EMAXMLParser extends StreamReaderDelegate
 {
-    String fileName;
-    
-    public EMAXMLParser(String fileName) {
-        this.fileName = fileName;
+    /**
+     * How an element's text is translated into the value the matching spreadsheet column expects
+     */
+    private static enum ValueFormat
+    {
+        /** Copied across as is */
+        TEXT,
+        /** xs:boolean translated into Yes or No */
+        YES_NO,
+        /** xs:gYear, xs:gYearMonth or xs:date cut down to the year */
+        YEAR,
+        /** xs:dateTime without a time zone cut down to its date. Anything else is copied across as is. */
+        DATE,
+        /** xs:duration translated into a whole number of hours */
+        HOURS,
+        /** xs:duration translated into hours:minutes:seconds */
+        RUN_TIME,
+        /** The ReleaseType of a ReleaseHistory, which decides the column that the ReleaseHistory's Date goes in */
+        RELEASE_TYPE,
+        /** The Date of a ReleaseHistory. Goes into the first column for original releases, the second column for physical home video releases. */
+        RELEASE_DATE
     }
-    
-    class MyXMLHandler extends DefaultHandler {
-        
-        boolean vIsOpen, isCountryType, isNumberType, isIdentifierType, isDisplayStringType;
-        boolean isTerritory;
-        boolean isEpisodeNumber, isSeasonNumber;
-        boolean isEpisodeAltID, isSeasonAltID, isSeriesAltID;
-        boolean isEpisodeMetadata, isSeasonMetadata, isSeriesMetadata;
-        boolean isCompanyDisplayCredit;
-        
-        // Array of values holding all the contents of a row.
-        String[] rowContents = new String[58];
-        
-        /*
-        boolean isDisplayName, isStoreLanguage, isTerritory, isWorkType, isEntryType, 
-                isSeriesTitleInternalAlias, isSeriesTitleDisplayUnlimited, isSeasonNumber, isEpisodeNumber,
-                isLocalizationType, isEpisodeTitleInternalAlias, isEpisodeTitleDisplayUnlimited,
-                isSeasonTitleInternalAlias, isSeasonTitleDisplayUnlimited, isEpisodeCount, isSeasonCount,
-                isSeriesAltID, isSeasonAltID, isEpisodeAltID, isCompanyDisplayCredit, isLicenseType,
-                isLicenseRightsDescription, isFormatProfile, isStart, isEnd, isSpecialPreOrderFulfillDate,
-                isPriceType, isPriceValue, isSRP, isDescription, isOtherTerms, isOtherInstructions,
-                isSeriesContentID, isSeasonContentID, isEpisodeContentID, isEpisodeProductID, isEncodeID,
-                isAvailID, isMetadata, isSuppressionLiftDate, isReleaseYear, isReleaseHistoryOriginal,
-                isReleaseHistoryPhysicalHV, isExceptionsFlag, isRatingSystem, isRatingValue, isRatingReason,
-                isRentalDuration, isWatchDuration, isFixedEndDate, isCaptionIncluded, isCaptionException,
-                isAny, isContractID, isServiceProvider, isTotalRunTime, isHoldbackLanguage, isHoldbackExclusionLanguage;
-        */
-        
-        public MyXMLHandler() {
-            
-        }
-        
-        public void startElement(String uri, String localName, String name,
-                Attributes attributes) throws SAXException {
-            
-//            String msg = String.format("Name: %s, Attributes: %s", name, attributes.toString());
-        
-//            System.out.println("Start Element: " + msg);
-            
-            // get attributes.
-//            int length = attributes.getLength();
-//            for( int i = 0; i < length; i++ ) {
-//                String n = attributes.getQName(i);
-//                System.out.println(n);
-//            }
-            
-            // <md:Number> tags used by EpisodeNumber and SeasonNumber
-            if ( name.equals(EMAXMLTVConstants.MD_NUMBER) ) {
-                if (isEpisodeNumber | isSeasonNumber) {
-                    isNumberType = true;
-                    vIsOpen = true;
-                }
-            } else if ( name.equals(EMAXMLTVConstants.MD_IDENTIFIER) ) {
-                if (isEpisodeAltID || isSeasonAltID || isSeriesAltID) {
-                    isIdentifierType = true;
-                    vIsOpen = true;
-                }
-            } else if ( name.equals(EMAXMLTVConstants.MD_DISPLAY_STRING) ) {
-                if (isCompanyDisplayCredit) {
-                    isDisplayStringType = true;
-                    vIsOpen = true;
-                }
-            } else if ( name.equals(EMAXMLTVConstants.MD_COUNTRY) ) {
-                if (isTerritory) {
-                    isCountryType = true;
-                    vIsOpen = true;
-                }
-            } else if ( name.equals(EMAXMLTVConstants.TERM) ) {
-                // get attributes.
-                int length = attributes.getLength();
-                for( int i = 0; i < length; i++ ) {
-//                    String n = attributes.getQName(i);
-                    String v = attributes.getValue(i);
-//                    System.out.println(n + "=" + v);
-                    // PriceType depends on specific termName terms
-                    if ( v.equals(EMAXMLTVConstants.TERM_PRICE_TYPE_SEASONWSP) ) {
-                        System.out.println(EMAXMLTVConstants.PRICE_TYPE_EXCEL);
-                        System.out.println(v);
-                    } else if ( v.equals(EMAXMLTVConstants.TERM_PRICE_TYPE_EPISODEWSP) ) {
-                        System.out.println(EMAXMLTVConstants.PRICE_TYPE_EXCEL);
-                        System.out.println(v);
-                    } else if ( v.equals(EMAXMLTVConstants.SRP_XML) ) {
-                        
-                    } else if ( v.equals(EMAXMLTVConstants.HOLDBACK_LANGUAGE_XML) ) {
-                        System.out.println(EMAXMLTVConstants.HOLDBACK_LANGUAGE_EXCEL);
-
-                    } else if ( v.equals(EMAXMLTVConstants.HOLDBACK_EXCLUSION_LANGUAGE_XML) ) {
-                        System.out.println(EMAXMLTVConstants.HOLDBACK_EXCLUSION_LANGUAGE_EXCEL);
-
-                    } else if ( v.equals(EMAXMLTVConstants.RENTAL_DURATION_XML) ) {
-                        
-                    } else if ( v.equals(EMAXMLTVConstants.WATCH_DURATION_XML) ) {
-                        
-                    } else if ( v.equals(EMAXMLTVConstants.FIXED_END_DATE_XML) ) {
-                        
-                    }
-                }
-            }
-            
-            if ( name.equals(EMAXMLTVConstants.DISPLAY_NAME_XML) ) {
-                System.out.println(EMAXMLTVConstants.DISPLAY_NAME_EXCEL);
-                vIsOpen = true;
-            } else if ( name.equals(EMAXMLTVConstants.STORE_LANGUAGE_XML) ) {
-                System.out.println(EMAXMLTVConstants.STORE_LANGUAGE_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.TERRITORY_XML) ) {
-                System.out.println(EMAXMLTVConstants.TERRITORY_EXCEL);
-                isTerritory = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.WORKTYPE_XML) ) {
-                System.out.println(EMAXMLTVConstants.WORKTYPE_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.ENTRY_TYPE_XML) ) {
-                System.out.println(EMAXMLTVConstants.ENTRY_TYPE_EXCEL);
-                vIsOpen = true;
-            } else if ( name.equals(EMAXMLTVConstants.SERIES_TITLE_INTERNAL_ALIAS_XML) ) {
-                System.out.println(EMAXMLTVConstants.SERIES_TITLE_INTERNAL_ALIAS_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.SERIES_TITLE_DISPLAY_UNLIMITED_XML) ) {
-                System.out.println(EMAXMLTVConstants.SERIES_TITLE_DISPLAY_UNLIMITED_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.SEASON_NUMBER_XML) ) {
-                System.out.println(EMAXMLTVConstants.SEASON_NUMBER_EXCEL);
-                isSeasonNumber = true;
-            } else if ( name.equals(EMAXMLTVConstants.EPISODE_NUMBER_XML) ) {
-                System.out.println(EMAXMLTVConstants.EPISODE_NUMBER_EXCEL);
-                isEpisodeNumber = true;
-            } else if ( name.equals(EMAXMLTVConstants.LOCALIZATION_TYPE_XML) ) {
-                System.out.println(EMAXMLTVConstants.LOCALIZATION_TYPE_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.EPISODE_TITLE_INTERNAL_ALIAS_XML) ) {
-                System.out.println(EMAXMLTVConstants.EPISODE_TITLE_INTERNAL_ALIAS_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.EPISODE_TITLE_DISPLAY_UNLIMITED_XML) ) {
-                System.out.println(EMAXMLTVConstants.EPISODE_TITLE_DISPLAY_UNLIMITED_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.SEASON_TITLE_INTERNAL_ALIAS_XML) ) {
-                System.out.println(EMAXMLTVConstants.SEASON_TITLE_INTERNAL_ALIAS_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.SEASON_TITLE_DISPLAY_UNLIMITED_XML) ) {
-                System.out.println(EMAXMLTVConstants.SEASON_TITLE_DISPLAY_UNLIMITED_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.EPISODE_COUNT_XML) ) {
-                System.out.println(EMAXMLTVConstants.EPISODE_COUNT_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.SEASON_COUNT_XML) ) {
-                System.out.println(EMAXMLTVConstants.SEASON_COUNT_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.SERIES_ALT_ID_XML) ) {
-                System.out.println(EMAXMLTVConstants.SERIES_ALT_ID_EXCEL);
-                isSeriesAltID = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.SEASON_ALT_ID_XML) ) {
-                System.out.println(EMAXMLTVConstants.SEASON_ALT_ID_EXCEL);
-                isSeasonAltID = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.EPISODE_ALT_ID_XML) ) {
-                System.out.println(EMAXMLTVConstants.EPISODE_ALT_ID_EXCEL);
-//                vIsOpen = true;
-                isEpisodeAltID = true;
-            } 
-
-            
-            else if ( name.equals(EMAXMLTVConstants.COMPANY_DISPLAY_CREDIT_XML) ) {
-                System.out.println(EMAXMLTVConstants.COMPANY_DISPLAY_CREDIT_EXCEL);
-                isCompanyDisplayCredit = true;
-            } else if ( name.equals(EMAXMLTVConstants.LICENSE_TYPE_XML) ) {
-                System.out.println(EMAXMLTVConstants.LICENSE_TYPE_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.LICENSE_RIGHTS_DESCRIPTION_XML) ) {
-                System.out.println(EMAXMLTVConstants.LICENSE_RIGHTS_DESCRIPTION_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.FORMAT_PROFILE_XML) ) {
-                System.out.println(EMAXMLTVConstants.FORMAT_PROFILE_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.START_XML) ) {
-                System.out.println(EMAXMLTVConstants.START_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.END_XML) ) {
-                System.out.println(EMAXMLTVConstants.END_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.SPECIAL_PREORDER_FULFILL_DATE_XML) ) {
-                System.out.println(EMAXMLTVConstants.SPECIAL_PREORDER_FULFILL_DATE_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.PRICE_TYPE_XML) ) {
-                System.out.println(EMAXMLTVConstants.PRICE_TYPE_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.PRICE_VALUE_XML) ) {
-                System.out.println(EMAXMLTVConstants.PRICE_VALUE_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.SRP_XML) ) {
-                System.out.println(EMAXMLTVConstants.SRP_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.DESCRIPTION_XML) ) {
-                System.out.println(EMAXMLTVConstants.DESCRIPTION_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.OTHER_TERMS_XML) ) {
-                System.out.println(EMAXMLTVConstants.OTHER_TERMS_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.OTHER_INSTRUCTIONS_XML) ) {
-                System.out.println(EMAXMLTVConstants.OTHER_INSTRUCTIONS_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.SERIES_CONTENT_ID_XML) ) {
-                System.out.println(EMAXMLTVConstants.SERIES_CONTENT_ID_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.SEASON_CONTENT_ID_XML) ) {
-                System.out.println(EMAXMLTVConstants.SEASON_CONTENT_ID_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.EPISODE_CONTENT_ID_XML) ) {
-                System.out.println(EMAXMLTVConstants.EPISODE_CONTENT_ID_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.EPISODE_PRODUCT_ID_XML) ) {
-                System.out.println(EMAXMLTVConstants.EPISODE_PRODUCT_ID_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.ENCODE_ID_XML) ) {
-                System.out.println(EMAXMLTVConstants.ENCODE_ID_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.AVAIL_ID_XML) ) {
-                System.out.println(EMAXMLTVConstants.AVAIL_ID_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.METADATA_XML) ) {
-                System.out.println(EMAXMLTVConstants.METADATA_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.SUPPRESSION_LIFT_DATE_XML) ) {
-                System.out.println(EMAXMLTVConstants.SUPPRESSION_LIFT_DATE_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.RELEASE_YEAR_XML) ) {
-                System.out.println(EMAXMLTVConstants.RELEASE_YEAR_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.RELEASE_HISTORY_ORIGINAL_XML) ) {
-                System.out.println(EMAXMLTVConstants.RELEASE_HISTORY_ORIGINAL_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.RELEASE_HISTORY_PHYSICAL_HV_XML) ) {
-                System.out.println(EMAXMLTVConstants.RELEASE_HISTORY_PHYSICAL_HV_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.EXCEPTIONS_FLAG_XML) ) {
-                System.out.println(EMAXMLTVConstants.EXCEPTIONS_FLAG_EXCEL);
 
-            } else if ( name.equals(EMAXMLTVConstants.RATING_SYSTEM_XML) ) {
-                System.out.println(EMAXMLTVConstants.RATING_SYSTEM_EXCEL);
-                vIsOpen = true;
+    /**
+     * The columns that an element's text is copied into, and how it gets there
+     */
+    private static final class ColumnMapping
+    {
+        private final int[] columnSlots;
+        private final ValueFormat valueFormat;
 
-            } else if ( name.equals(EMAXMLTVConstants.RATING_VALUE_XML) ) {
-                System.out.println(EMAXMLTVConstants.RATING_VALUE_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.RATING_REASON_XML) ) {
-                System.out.println(EMAXMLTVConstants.RATING_REASON_EXCEL);
-                vIsOpen = true;
-
-            } else if ( name.equals(EMAXMLTVConstants.RENTAL_DURATION_XML) ) {
-                System.out.println(EMAXMLTVConstants.RENTAL_DURATION_EXCEL);
-                vIsOpen = true;
+        private ColumnMapping(int[] columnSlots, ValueFormat valueFormat) { this.columnSlots = columnSlots; this.valueFormat = valueFormat; }
+    }
 
-            } else if ( name.equals(EMAXMLTVConstants.WATCH_DURATION_XML) ) {
-                System.out.println(EMAXMLTVConstants.WATCH_DURATION_EXCEL);
-                vIsOpen = true;
+    /**
+     * The names of every column that an Avail can be mapped onto, in the order of their slots in a mapped row
+     */
+    private static final ArrayList<String> COLUMN_NAMES = new ArrayList<String>();
+
+    /**
+     * The slot of each column name in COLUMN_NAMES
+     */
+    private static final HashMap<String, Integer> COLUMN_SLOTS = new HashMap<String, Integer>();
+
+    /**
+     * The columns that hold every value of a repeated element, separated by commas. Every other column keeps only the first value found.
+     */
+    private static final ArrayList<String> MULTIPLE_VALUE_COLUMNS = new ArrayList<String>(Arrays.asList("RatingReason", "HoldbackLanguage", "HoldbackExclusionLanguage"));
+
+    /**
+     * The element dispatch table. Keyed by "Parent/Element", "Term@termName/Element", or just "Element" for elements whose name alone is unambiguous.
+     */
+    private static final HashMap<String, ColumnMapping> ELEMENT_MAPPINGS = new HashMap<String, ColumnMapping>();
+
+    /**
+     * The Term termNames that describe a price, and the PriceType that each of them stands for
+     */
+    private static final HashMap<String, String> PRICE_TYPE_TERMS = new HashMap<String, String>();
+
+    /**
+     * The ReleaseTypes of a ReleaseHistory that are mapped, and the slot of the ReleaseHistory's Date in a RELEASE_DATE mapping for each of them
+     */
+    private static final HashMap<String, Integer> RELEASE_TYPES = new HashMap<String, Integer>();
+
+    /**
+     * Matches the days and time parts of an xs:duration. Years and months can't be turned into a fixed number of hours and aren't matched.
+     */
+    private static final Pattern DURATION_PATTERN = Pattern.compile("P(?:(\\d+)D)?(?:T(?:(\\d+)H)?(?:(\\d+)M)?(?:(\\d+)(?:\\.\\d+)?S)?)?");
+
+    static
+    {
+        EMAXMLParser.addMapping("Licensor/DisplayName",                       ValueFormat.TEXT,    "DisplayName");
+        EMAXMLParser.addMapping("ServiceProvider/DisplayName",                ValueFormat.TEXT,    "ServiceProvider");
+        EMAXMLParser.addMapping("Disposition/EntryType",                      ValueFormat.TEXT,    "EntryType");
+        EMAXMLParser.addMapping("Avail/ExceptionFlag",                        ValueFormat.YES_NO,  "ExceptionFlag");
+
+        EMAXMLParser.addMapping("Asset/WorkType",                             ValueFormat.TEXT,    "WorkType");
+        EMAXMLParser.addMapping("Metadata/TitleInternalAlias",                ValueFormat.TEXT,    "TitleInternalAlias");
+        EMAXMLParser.addMapping("Metadata/TitleDisplayUnlimited",             ValueFormat.TEXT,    "TitleDisplayUnlimited");
+        EMAXMLParser.addMapping("Metadata/ProductID",                         ValueFormat.TEXT,    "ProductID");
+        EMAXMLParser.addMapping("EpisodeMetadata/TitleInternalAlias",         ValueFormat.TEXT,    "EpisodeTitleInternalAlias");
+        EMAXMLParser.addMapping("EpisodeMetadata/TitleDisplayUnlimited",      ValueFormat.TEXT,    "EpisodeTitleDisplayUnlimited");
+        EMAXMLParser.addMapping("EpisodeMetadata/ProductID",                  ValueFormat.TEXT,    "EpisodeProductID");
+        EMAXMLParser.addMapping("AltIdentifier/Identifier",                   ValueFormat.TEXT,    "AltID", "EpisodeAltID");
+        EMAXMLParser.addMapping("SeasonAltIdentifier/Identifier",             ValueFormat.TEXT,    "SeasonAltID");
+        EMAXMLParser.addMapping("SeriesAltIdentifier/Identifier",             ValueFormat.TEXT,    "SeriesAltID");
+        EMAXMLParser.addMapping("EpisodeNumber/Number",                       ValueFormat.TEXT,    "EpisodeNumber");
+        EMAXMLParser.addMapping("SeasonNumber/Number",                        ValueFormat.TEXT,    "SeasonNumber");
+        EMAXMLParser.addMapping("SeasonTitleInternalAlias",                   ValueFormat.TEXT,    "SeasonTitleInternalAlias");
+        EMAXMLParser.addMapping("SeasonTitleDisplayUnlimited",                ValueFormat.TEXT,    "SeasonTitleDisplayUnlimited");
+        EMAXMLParser.addMapping("SeriesTitleInternalAlias",                   ValueFormat.TEXT,    "SeriesTitleInternalAlias");
+        EMAXMLParser.addMapping("SeriesTitleDisplayUnlimited",                ValueFormat.TEXT,    "SeriesTitleDisplayUnlimited");
+        EMAXMLParser.addMapping("NumberOfEpisodes",                           ValueFormat.TEXT,    "EpisodeCount");
+        EMAXMLParser.addMapping("NumberOfSeasons",                            ValueFormat.TEXT,    "SeasonCount");
+        EMAXMLParser.addMapping("SeasonContentID",                            ValueFormat.TEXT,    "SeasonContentID");
+        EMAXMLParser.addMapping("SeriesContentID",                            ValueFormat.TEXT,    "SeriesContentID");
+        EMAXMLParser.addMapping("CompanyDisplayCredit/DisplayString",         ValueFormat.TEXT,    "CompanyDisplayCredit");
+        EMAXMLParser.addMapping("LocalizationOffering",                       ValueFormat.TEXT,    "LocalizationType");
+        EMAXMLParser.addMapping("EncodeID",                                   ValueFormat.TEXT,    "EncodeID");
+        EMAXMLParser.addMapping("ReleaseDate",                                ValueFormat.YEAR,    "ReleaseYear");
+        EMAXMLParser.addMapping("RunLength",                                  ValueFormat.RUN_TIME, "TotalRunTime");
+        EMAXMLParser.addMapping("ReleaseHistory/ReleaseType",                 ValueFormat.RELEASE_TYPE);
+        EMAXMLParser.addMapping("ReleaseHistory/Date",                        ValueFormat.RELEASE_DATE, "ReleaseHistoryOriginal", "ReleaseHistoryPhysicalHV");
+        EMAXMLParser.addMapping("Rating/System",                              ValueFormat.TEXT,    "RatingSystem");
+        EMAXMLParser.addMapping("Rating/Value",                               ValueFormat.TEXT,    "RatingValue");
+        EMAXMLParser.addMapping("Rating/Reason",                              ValueFormat.TEXT,    "RatingReason");
+        EMAXMLParser.addMapping("USACaptionsExemptionReason",                 ValueFormat.TEXT,    "CaptionExemption");
+        EMAXMLParser.addMapping("CaptionIncluded",                            ValueFormat.YES_NO,  "CaptionIncluded");
+        EMAXMLParser.addMapping("CaptionRequired",                            ValueFormat.YES_NO,  "CaptionRequired");
+
+        EMAXMLParser.addMapping("Transaction/LicenseType",                    ValueFormat.TEXT,    "LicenseType");
+        EMAXMLParser.addMapping("Transaction/Description",                    ValueFormat.TEXT,    "Description");
+        EMAXMLParser.addMapping("Territory/country",                          ValueFormat.TEXT,    "Territory");
+        EMAXMLParser.addMapping("Transaction/Start",                          ValueFormat.DATE,    "Start");
+        EMAXMLParser.addMapping("Transaction/End",                            ValueFormat.DATE,    "End");
+        EMAXMLParser.addMapping("Transaction/StoreLanguage",                  ValueFormat.TEXT,    "StoreLanguage");
+        EMAXMLParser.addMapping("Transaction/LicenseRightsDescription",       ValueFormat.TEXT,    "LicenseRightsDescription");
+        EMAXMLParser.addMapping("Transaction/FormatProfile",                  ValueFormat.TEXT,    "FormatProfile");
+        EMAXMLParser.addMapping("Transaction/ContractID",                     ValueFormat.TEXT,    "ContractID");
+        EMAXMLParser.addMapping("Transaction/OtherInstructions",              ValueFormat.TEXT,    "OtherInstructions");
+
+        EMAXMLParser.addMapping("Term@Tier/Text",                             ValueFormat.TEXT,    "PriceValue");
+        EMAXMLParser.addMapping("Term@Category/Text",                         ValueFormat.TEXT,    "PriceValue");
+        EMAXMLParser.addMapping("Term@WSP/Money",                             ValueFormat.TEXT,    "PriceValue");
+        EMAXMLParser.addMapping("Term@EpisodeWSP/Money",                      ValueFormat.TEXT,    "PriceValue");
+        EMAXMLParser.addMapping("Term@SeasonWSP/Money",                       ValueFormat.TEXT,    "PriceValue");
+        EMAXMLParser.addMapping("Term@SRP/Money",                             ValueFormat.TEXT,    "SRP");
+        EMAXMLParser.addMapping("Term@AnnounceDate/Event",                    ValueFormat.DATE,    "SuppressionLiftDate");
+        EMAXMLParser.addMapping("Term@PreOrderFulfillDate/Event",             ValueFormat.DATE,    "SpecialPreOrderFulfillDate");
+        EMAXMLParser.addMapping("Term@FixedEndDate/Event",                    ValueFormat.DATE,    "FixedEndDate");
+        EMAXMLParser.addMapping("Term@RentalDuration/Duration",               ValueFormat.HOURS,   "RentalDuration");
+        EMAXMLParser.addMapping("Term@WatchDuration/Duration",                ValueFormat.HOURS,   "WatchDuration");
+        EMAXMLParser.addMapping("Term@HoldbackLanguage/Language",             ValueFormat.TEXT,    "HoldbackLanguage");
+        EMAXMLParser.addMapping("Term@HoldbackExclusionLanguage/Language",    ValueFormat.TEXT,    "HoldbackExclusionLanguage");
+
+        EMAXMLParser.addColumn("AvailID");
+        EMAXMLParser.addColumn("PriceType");
+        EMAXMLParser.addColumn("ContentID");
+        EMAXMLParser.addColumn("EpisodeContentID");
+
+        PRICE_TYPE_TERMS.put("Tier", "Tier");
+        PRICE_TYPE_TERMS.put("Category", "Category");
+        PRICE_TYPE_TERMS.put("WSP", "WSP");
+        PRICE_TYPE_TERMS.put("EpisodeWSP", "WSP");
+        PRICE_TYPE_TERMS.put("SeasonWSP", "WSP");
+
+        RELEASE_TYPES.put("original", 0);
+        RELEASE_TYPES.put("DVD", 1);
+    }
 
-            } else if ( name.equals(EMAXMLTVConstants.FIXED_END_DATE_XML) ) {
-                System.out.println(EMAXMLTVConstants.FIXED_END_DATE_EXCEL);
-                vIsOpen = true;
+    /**
+     * The validation the mapped rows belong to
+     */
+    private final ValidationContext validationContext;
+
+    /**
+     * The name of the file being validated. Reported back to the user in the error log.
+     */
+    private final String fileName;
+
+    /**
+     * The avails version taken from the AvailList namespace. Decides between the EMA 1.6 and EMA 1.7 specs.
+     */
+    private final String availsVersion;
+
+    /**
+     * The values of the Avail currently being read, indexed by column slot. Null for columns that haven't been found yet.
+     */
+    private final String[] availValues = new String[COLUMN_NAMES.size()];
+
+    /**
+     * The local names of the currently open elements, outermost first. Terms are recorded as "Term@termName".
+     */
+    private final ArrayList<String> openElements = new ArrayList<String>();
+
+    /**
+     * Collects the text of the element currently being mapped
+     */
+    private final StringBuilder elementText = new StringBuilder();
+
+    /**
+     * Reused for every row handed to the validator
+     */
+    private final RowView rowView = new RowView();
+
+    /**
+     * The mapping of the element whose text is currently being collected, or null if the current element isn't mapped
+     */
+    private ColumnMapping currentMapping = null;
+
+    /**
+     * The number of elements open when the mapped element was started
+     */
+    private int currentMappingDepth = -1;
+
+    /**
+     * The ReleaseType of the ReleaseHistory being read, or null if it isn't one of RELEASE_TYPES
+     */
+    private String currentReleaseType = null;
+
+    /**
+     * The contentID of the current Avail's Asset. Where it goes depends on the WorkType, which comes after it.
+     */
+    private String assetContentID = null;
+
+    /**
+     * Validates the mapped rows. Created once the first Avail has been read and its WorkType is known.
+     */
+    private StreamingSheetValidator sheetValidator = null;
+
+    /**
+     * The slot in availValues of each column of the chosen spec, in spec order. -1 for spec columns that XML avails have no value for.
+     */
+    private int[] specColumnSlots = null;
+
+    /**
+     * The EMA spec picked for the document, or null until the first Avail has been read
+     */
+    private AbstractEMASpec.EMAVersion emaVersion = null;
+
+    /**
+     * True if the spec picked for the document is a movie spec
+     */
+    private boolean specIsMovie = true;
+
+    /**
+     * The number of Avails mapped and validated so far
+     */
+    private int availCount = 0;
+
+    /**
+     * @param validationContext The validation the mapped rows belong to
+     * @param xmlStreamReader A reader positioned on the root element, or the start, of the document
+     * @param fileName The name of the file being validated
+     * @param availsVersion The avails version taken from the AvailList namespace, see EMAVersionParser.readVersion
+     */
+    public EMAXMLParser(ValidationContext validationContext, XMLStreamReader xmlStreamReader, String fileName, String availsVersion)
+    {
+        super(xmlStreamReader);
+        this.validationContext = validationContext;
+        this.fileName = fileName;
+        this.availsVersion = availsVersion;
+        if(xmlStreamReader.getEventType() == XMLStreamConstants.START_ELEMENT) // the root element has already been read
+            this.handleEvent(XMLStreamConstants.START_ELEMENT);
+    }
 
-            } else if ( name.equals(EMAXMLTVConstants.CAPTION_INCLUDED_XML) ) {
-                System.out.println(EMAXMLTVConstants.CAPTION_INCLUDED_EXCEL);
-                vIsOpen = true;
+    @Override
+    public int next() throws XMLStreamException
+    {
+        int eventType = super.next();
+        this.handleEvent(eventType);
+        return eventType;
+    }
 
-            } else if ( name.equals(EMAXMLTVConstants.CAPTION_EXEMPTION_XML) ) {
-                System.out.println(EMAXMLTVConstants.CAPTION_EXEMPTION_EXCEL);
-                vIsOpen = true;
+    /**
+     * Skips whitespace, comments and processing instructions through next() so that every event still gets mapped
+     */
+    @Override
+    public int nextTag() throws XMLStreamException
+    {
+        int eventType = this.next();
+        while((eventType == XMLStreamConstants.CHARACTERS && this.isWhiteSpace()) ||
+              (eventType == XMLStreamConstants.CDATA && this.isWhiteSpace()) ||
+              eventType == XMLStreamConstants.SPACE ||
+              eventType == XMLStreamConstants.PROCESSING_INSTRUCTION ||
+              eventType == XMLStreamConstants.COMMENT)
+            eventType = this.next();
+        if(eventType != XMLStreamConstants.START_ELEMENT && eventType != XMLStreamConstants.END_ELEMENT)
+            throw new XMLStreamException("expected start or end tag", this.getLocation());
+        return eventType;
+    }
 
-            } else if ( name.equals(EMAXMLTVConstants.ANY_XML) ) {
-                System.out.println(EMAXMLTVConstants.ANY_EXCEL);
-                vIsOpen = true;
+    /**
+     * Reads the element's text through next() so that every event still gets mapped
+     */
+    @Override
+    public String getElementText() throws XMLStreamException
+    {
+        StringBuilder text = new StringBuilder();
+        int eventType = this.next();
+        while(eventType != XMLStreamConstants.END_ELEMENT)
+        {
+            if(eventType == XMLStreamConstants.CHARACTERS || eventType == XMLStreamConstants.CDATA || eventType == XMLStreamConstants.SPACE || eventType == XMLStreamConstants.ENTITY_REFERENCE)
+                text.append(this.getText());
+            else if(eventType == XMLStreamConstants.START_ELEMENT)
+                throw new XMLStreamException("element text content may not contain START_ELEMENT", this.getLocation());
+            else if(eventType == XMLStreamConstants.END_DOCUMENT)
+                throw new XMLStreamException("unexpected end of document when reading element text content", this.getLocation());
+            eventType = this.next();
+        }
+        return text.toString();
+    }
 
-            } else if ( name.equals(EMAXMLTVConstants.CONTRACT_ID_XML) ) {
-                System.out.println(EMAXMLTVConstants.CONTRACT_ID_EXCEL);
-                vIsOpen = true;
+    /**
+     * @return The number of Avails that have been mapped and validated
+     */
+    public int getAvailCount() { return this.availCount; }
+
+    /**
+     * Wait for the mapped Avails to finish validating. Every Avail's errors are in the ErrorLog once this returns.
+     */
+    public void finish()
+    {
+        if(this.sheetValidator != null)
+            this.sheetValidator.finish();
+    }
 
-            } else if ( name.equals(EMAXMLTVConstants.SERVICE_PROVIDER_XML) ) {
-                System.out.println(EMAXMLTVConstants.SERVICE_PROVIDER_EXCEL);
-                vIsOpen = true;
+    /**
+     * Map a single event pulled from the underlying reader
+     * @param eventType The type of event that the reader is positioned on
+     */
+    private void handleEvent(int eventType)
+    {
+        switch(eventType)
+        {
+            case XMLStreamConstants.START_ELEMENT:
+                this.startElement();
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                this.endElement();
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+                if(this.currentMapping != null)
+                    this.elementText.append(this.getTextCharacters(), this.getTextStart(), this.getTextLength());
+                break;
+            case XMLStreamConstants.ENTITY_REFERENCE:
+                if(this.currentMapping != null)
+                    this.elementText.append(this.getText());
+                break;
+            default:
+                break;
+        }
+    }
 
-            } else if ( name.equals(EMAXMLTVConstants.TOTAL_RUN_TIME_XML) ) {
-                System.out.println(EMAXMLTVConstants.TOTAL_RUN_TIME_EXCEL);
-                vIsOpen = true;
+    private void startElement()
+    {
+        String localName = this.getLocalName();
+        String parentName = this.openElements.isEmpty() ? "" : this.openElements.get(this.openElements.size() - 1);
+        if(localName.equals("Avail"))
+            this.setValue(COLUMN_SLOTS.get("AvailID"), this.getAttributeValue(null, "AvailID"));
+        else if(localName.equals("Asset") && this.assetContentID == null)
+            this.assetContentID = this.getAttributeValue(null, "contentID");
+        else if(localName.equals("Term"))
+        {
+            String termName = this.getAttributeValue(null, "termName");
+            String priceType = PRICE_TYPE_TERMS.get(termName);
+            if(priceType != null)
+                this.setValue(COLUMN_SLOTS.get("PriceType"), priceType);
+            localName = "Term@" + termName; // the children of a term are told apart by the term's name
+        }
 
+        if(this.currentMapping == null) // mapped elements only ever hold text
+        {
+            ColumnMapping elementMapping = ELEMENT_MAPPINGS.get(parentName + "/" + localName);
+            if(elementMapping == null)
+                elementMapping = ELEMENT_MAPPINGS.get(localName);
+            if(elementMapping != null)
+            {
+                this.currentMapping = elementMapping;
+                this.currentMappingDepth = this.openElements.size();
+                this.elementText.setLength(0);
             }
-        } // end startElement()
-        
-        public void endElement(String uri, String localName, String name)
-                throws SAXException {
-            if ( name.equals(EMAXMLTVConstants.MD_NUMBER) ) {
-                vIsOpen = false;
-            } else if ( name.equals(EMAXMLTVConstants.MD_IDENTIFIER) ) {
-                isIdentifierType = false;
-                vIsOpen = false;
-            } else if ( name.equals(EMAXMLTVConstants.MD_DISPLAY_STRING) ) {
-                if (isCompanyDisplayCredit) {
-                    isDisplayStringType = false;
-                }
-                vIsOpen = false;
-            } else if ( name.equals(EMAXMLTVConstants.MD_COUNTRY) ) {
-                isCountryType = false;
-                vIsOpen = false;
-            } else if ( name.equals(EMAXMLTVConstants.TERM) ) {
-                vIsOpen = false;
-            }
-            
-            if ( name.equals(EMAXMLTVConstants.DISPLAY_NAME_XML) ) {
-                vIsOpen = false;
-            } else if ( name.equals(EMAXMLTVConstants.STORE_LANGUAGE_XML) ) {
-                vIsOpen = false;
-            } else if ( name.equals(EMAXMLTVConstants.TERRITORY_XML) ) {
-                isTerritory = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.WORKTYPE_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.ENTRY_TYPE_XML) ) {
-                vIsOpen = false;
-            } else if ( name.equals(EMAXMLTVConstants.SERIES_TITLE_INTERNAL_ALIAS_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.SERIES_TITLE_DISPLAY_UNLIMITED_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.SEASON_NUMBER_XML) ) {
-                isSeasonNumber = false;
-            } else if ( name.equals(EMAXMLTVConstants.EPISODE_NUMBER_XML) ) {
-                isEpisodeNumber = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.LOCALIZATION_TYPE_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.EPISODE_TITLE_INTERNAL_ALIAS_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.EPISODE_TITLE_DISPLAY_UNLIMITED_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.SEASON_TITLE_INTERNAL_ALIAS_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.SEASON_TITLE_DISPLAY_UNLIMITED_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.EPISODE_COUNT_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.SEASON_COUNT_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.SERIES_ALT_ID_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.SEASON_ALT_ID_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.EPISODE_ALT_ID_XML) ) {
-                isEpisodeAltID = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.COMPANY_DISPLAY_CREDIT_XML) ) {
-                isCompanyDisplayCredit = true;
-                
-            } else if ( name.equals(EMAXMLTVConstants.LICENSE_TYPE_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.LICENSE_RIGHTS_DESCRIPTION_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.FORMAT_PROFILE_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.START_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.END_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.SPECIAL_PREORDER_FULFILL_DATE_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.PRICE_TYPE_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.PRICE_VALUE_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.SRP_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.DESCRIPTION_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.OTHER_TERMS_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.OTHER_INSTRUCTIONS_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.SERIES_CONTENT_ID_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.SEASON_CONTENT_ID_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.EPISODE_CONTENT_ID_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.EPISODE_PRODUCT_ID_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.ENCODE_ID_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.AVAIL_ID_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.METADATA_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.SUPPRESSION_LIFT_DATE_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.RELEASE_YEAR_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.RELEASE_HISTORY_ORIGINAL_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.RELEASE_HISTORY_PHYSICAL_HV_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.EXCEPTIONS_FLAG_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.RATING_SYSTEM_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.RATING_VALUE_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.RATING_REASON_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.RENTAL_DURATION_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.WATCH_DURATION_XML) ) {
-                vIsOpen = false;
-
-            } else if ( name.equals(EMAXMLTVConstants.FIXED_END_DATE_XML) ) {
-                vIsOpen = false;
+        }
+        this.openElements.add(localName);
+    }
 
-            } else if ( name.equals(EMAXMLTVConstants.CAPTION_INCLUDED_XML) ) {
-                vIsOpen = false;
+    private void endElement()
+    {
+        this.openElements.remove(this.openElements.size() - 1);
+        if(this.currentMapping != null && this.currentMappingDepth == this.openElements.size())
+        {
+            this.mapValue(this.currentMapping, this.elementText.toString().trim());
+            this.currentMapping = null;
+        }
+        if(this.getLocalName().equals("Avail"))
+            this.finishAvail();
+    }
 
-            } else if ( name.equals(EMAXMLTVConstants.CAPTION_EXEMPTION_XML) ) {
-                vIsOpen = false;
+    /**
+     * Translates an element's text and stores it into the columns of its mapping
+     * @param columnMapping The mapping of the element that just ended
+     * @param elementValue The element's text content
+     */
+    private void mapValue(ColumnMapping columnMapping, String elementValue)
+    {
+        switch(columnMapping.valueFormat)
+        {
+            case RELEASE_TYPE:
+                this.currentReleaseType = RELEASE_TYPES.containsKey(elementValue) ? elementValue : null;
+                return;
+            case RELEASE_DATE:
+                if(this.currentReleaseType != null)
+                    this.setValue(columnMapping.columnSlots[RELEASE_TYPES.get(this.currentReleaseType)], elementValue);
+                return;
+            case YES_NO:
+                if(elementValue.equals("true") || elementValue.equals("1"))
+                    elementValue = "Yes";
+                else if(elementValue.equals("false") || elementValue.equals("0"))
+                    elementValue = "No";
+                break;
+            case YEAR:
+                if(elementValue.length() > 4)
+                    elementValue = elementValue.substring(0, 4);
+                break;
+            case DATE:
+                if(elementValue.length() > 10 && elementValue.indexOf('T') == 10 && !EMAXMLParser.hasTimeZone(elementValue))
+                    elementValue = elementValue.substring(0, 10);
+                break;
+            case HOURS:
+                elementValue = EMAXMLParser.getDurationHours(elementValue);
+                break;
+            case RUN_TIME:
+                elementValue = EMAXMLParser.getDurationRunTime(elementValue);
+                break;
+            default:
+                break;
+        }
+        for(int currentSlot : columnMapping.columnSlots)
+            this.setValue(currentSlot, elementValue);
+    }
 
-            } else if ( name.equals(EMAXMLTVConstants.ANY_XML) ) {
-                vIsOpen = false;
+    /**
+     * @param columnSlot The slot of the column in availValues
+     * @param value The value to store. Ignored if it's null, or if the column already has a value and only holds one.
+     */
+    private void setValue(int columnSlot, String value)
+    {
+        if(value == null)
+            return;
+        if(this.availValues[columnSlot] == null)
+            this.availValues[columnSlot] = value;
+        else if(MULTIPLE_VALUE_COLUMNS.contains(COLUMN_NAMES.get(columnSlot)))
+            this.availValues[columnSlot] = this.availValues[columnSlot] + "," + value;
+    }
 
-            } else if ( name.equals(EMAXMLTVConstants.CONTRACT_ID_XML) ) {
-                vIsOpen = false;
+    /**
+     * Hands the Avail that just ended to the validator as one row, then clears it out for the next Avail
+     */
+    private void finishAvail()
+    {
+        String workType = this.availValues[COLUMN_SLOTS.get("WorkType")];
+        boolean isMovie;
+        if(workType == null) // the Avail follows the document's spec. The WorkType column reports the missing value.
+            isMovie = this.specIsMovie;
+        else
+            isMovie = workType.equalsIgnoreCase("Movie") || workType.equalsIgnoreCase("Short");
+        if(isMovie)
+            this.setValue(COLUMN_SLOTS.get("ContentID"), this.assetContentID);
+        else if(workType != null && workType.toLowerCase(Locale.ENGLISH).startsWith("season"))
+            this.setValue(COLUMN_SLOTS.get("SeasonContentID"), this.assetContentID);
+        else
+            this.setValue(COLUMN_SLOTS.get("EpisodeContentID"), this.assetContentID);
+
+        if(this.sheetValidator == null)
+            this.prepareSheetValidator(isMovie);
+        if(workType == null ? this.availCount == 0 : isMovie != this.specIsMovie)
+            ErrorLog.appendNotification(new RowNotificationWorkTypeMismatch(this.availCount, workType, this.emaVersion));
+
+        this.rowView.clear();
+        for(int x = 0; x < this.specColumnSlots.length; x++)
+            if(this.specColumnSlots[x] != -1 && this.availValues[this.specColumnSlots[x]] != null)
+                this.rowView.setCell(x, this.availValues[this.specColumnSlots[x]]);
+        this.sheetValidator.acceptRow(this.rowView, this.availCount++);
+
+        Arrays.fill(this.availValues, null);
+        this.assetContentID = null;
+        this.currentReleaseType = null;
+    }
 
-            } else if ( name.equals(EMAXMLTVConstants.SERVICE_PROVIDER_XML) ) {
-                vIsOpen = false;
+    /**
+     * Pick the EMA spec for the document and line its columns up with the mapped column slots
+     * @param isMovie True if the first Avail in the document is for a movie or a short, or has no WorkType
+     */
+    private void prepareSheetValidator(boolean isMovie)
+    {
+        if(this.availsVersion.contains("v1.6"))
+            this.emaVersion = isMovie ? AbstractEMASpec.EMAVersion.EMASpec16 : AbstractEMASpec.EMAVersion.EMASpec16TV;
+        else
+            this.emaVersion = isMovie ? AbstractEMASpec.EMAVersion.EMASpec17 : AbstractEMASpec.EMAVersion.EMASpec17TV;
+        this.specIsMovie = isMovie;
+
+        ArrayList<String> columnHeaderDefinitions = new ArrayList<String>(AbstractEMASpec.getColumnNames(this.emaVersion));
+        this.specColumnSlots = new int[columnHeaderDefinitions.size()];
+        for(int x = 0; x < this.specColumnSlots.length; x++)
+        {
+            Integer columnSlot = COLUMN_SLOTS.get(columnHeaderDefinitions.get(x));
+            this.specColumnSlots[x] = columnSlot == null ? -1 : columnSlot;
+        }
+        this.sheetValidator = new StreamingSheetValidator(this.validationContext, this.fileName, 0, this.emaVersion, columnHeaderDefinitions);
+    }
 
-            } else if ( name.equals(EMAXMLTVConstants.TOTAL_RUN_TIME_XML) ) {
-                vIsOpen = false;
+    /**
+     * @param dateTime An xs:dateTime value
+     * @return True if the value ends in a time zone
+     */
+    private static boolean hasTimeZone(String dateTime)
+    {
+        return dateTime.endsWith("Z") || dateTime.lastIndexOf('+') > 10 || dateTime.lastIndexOf('-') > 10;
+    }
 
-            } else if ( name.equals(EMAXMLTVConstants.HOLDBACK_LANGUAGE_XML) ) {
-                vIsOpen = false;
+    /**
+     * @param duration An xs:duration value
+     * @return The duration as a whole number of hours, or the duration itself if it can't be expressed that way
+     */
+    private static String getDurationHours(String duration)
+    {
+        Matcher durationMatcher = DURATION_PATTERN.matcher(duration);
+        if(!durationMatcher.matches() || durationMatcher.group(3) != null || durationMatcher.group(4) != null)
+            return duration;
+        return Long.toString(EMAXMLParser.getGroupValue(durationMatcher, 1) * 24 + EMAXMLParser.getGroupValue(durationMatcher, 2));
+    }
 
-            } else if ( name.equals(EMAXMLTVConstants.HOLDBACK_EXCLUSION_LANGUAGE_XML) ) {
-                vIsOpen = false;
+    /**
+     * @param duration An xs:duration value
+     * @return The duration as hours:minutes:seconds, or the duration itself if it can't be expressed that way
+     */
+    private static String getDurationRunTime(String duration)
+    {
+        Matcher durationMatcher = DURATION_PATTERN.matcher(duration);
+        if(!durationMatcher.matches())
+            return duration;
+        long hours = EMAXMLParser.getGroupValue(durationMatcher, 1) * 24 + EMAXMLParser.getGroupValue(durationMatcher, 2);
+        return String.format("%d:%02d:%02d", hours, EMAXMLParser.getGroupValue(durationMatcher, 3), EMAXMLParser.getGroupValue(durationMatcher, 4));
+    }
 
-            } 
-        } // end endElement()
-        
-        public void characters(char ch[], int start, int length) throws SAXException {
-//            String msg = String.format("ch: %s, start %d, length %d", new String(ch, start, length), start, length);
-            String value = new String(ch, start, length);
-            
-            // Get value of <EpisodeNumber><md:Number>
-            if (vIsOpen && isEpisodeNumber && isNumberType) {
-                System.out.println(value);
-            }
-            // Get value of <SeasonNumber><md:Number>
-            else if (vIsOpen && isSeasonNumber && isNumberType) {
-                System.out.println(value);
-            }
-            // Get value of <AltIdentifier><md:Identifier>
-            else if (vIsOpen && isEpisodeAltID && isIdentifierType) {
-                System.out.println(value);
-            }
-            // Get all other values from a <Tag>
-            else if (vIsOpen) {
-                System.out.println(value);
-            }
-            
-            
-            /*
-            if (isDisplayName) {
-                System.out.println(value);
-            } else if (isStoreLanguage) {
-                
-            } else if (isTerritory) {
-                
-            } else if (isWorkType) {
-                
-            } else if (isEntryType) {
-                
-            } else if (isSeriesTitleInternalAlias) {
-                
-            } else if (isSeriesTitleDisplayUnlimited) {
-                
-            } else if (isSeasonNumber) {
-                
-            } else if (isEpisodeNumber) {
-                
-            } else if (isLocalizationType) {
-                
-            } else if (isEpisodeTitleInternalAlias) {
-                
-            } else if (isEpisodeTitleDisplayUnlimited) {
-                
-            } else if (isSeasonTitleDisplayUnlimited) {
-                
-            } else if (isEpisodeCount) {
-                
-            } else if (isSeasonCount) {
-                
-            } else if (isSeriesAltID) {
-                
-            } else if (isSeasonAltID) {
-                
-            } else if (isEpisodeAltID) {
-                
-            } else if (isCompanyDisplayCredit) {
-                
-            } else if (isLicenseType) {
-                
-            } else if (isLicenseRightsDescription) {
-                
-            } else if (isFormatProfile) {
-                
-            } else if (isStart) {
-                
-            } else if (isEnd) {
-                
-            } else if (isSpecialPreOrderFulfillDate) {
-                
-            } else if (isPriceType) {
-                
-            } else if (isPriceValue) {
-                
-            } else if (isSRP) {
-                
-            } else if (isDescription) {
-                
-            } else if (isOtherTerms) {
-                
-            } else if (isOtherInstructions) {
-                
-            } else if (isSeriesContentID) {
-                
-            } else if (isSeasonContentID) {
-                
-            } else if (isEpisodeContentID) {
-                
-            } else if (isEpisodeProductID) {
-                
-            } else if (isEncodeID) {
-                
-            } else if (isAvailID) {
-                
-            } else if (isMetadata) {
-                
-            } else if (isSuppressionLiftDate) {
-                
-            } else if (isReleaseYear) {
-                
-            } else if (isReleaseHistoryOriginal) {
-                
-            } else if (isReleaseHistoryPhysicalHV) {
-                
-            } else if (isExceptionsFlag) {
-                
-            } else if (isRatingSystem) {
-                
-            } else if (isRatingValue) {
-                
-            } else if (isRatingReason) {
-                
-            } else if (isRentalDuration) {
-                
-            } else if (isWatchDuration) {
-                
-            } else if (isFixedEndDate) {
-                
-            } else if (isCaptionIncluded) {
-                
-            } else if (isCaptionException) {
-                
-            } else if (isAny) {
-                
-            } else if (isContractID) {
-                
-            } else if (isServiceProvider) {
-                
-            } else if (isTotalRunTime) {
-                
-            } else if (isHoldbackLanguage) {
-                
-            } else if (isHoldbackExclusionLanguage) {
-                
-            } else {
-                
-            }*/
-
-        } // end characters()
+    private static long getGroupValue(Matcher durationMatcher, int group)
+    {
+        return durationMatcher.group(group) == null ? 0 : Long.parseLong(durationMatcher.group(group));
+    }
 
+    /**
+     * Add an entry to the element dispatch table
+     * @param elementKey "Parent/Element", "Term@termName/Element", or just "Element"
+     * @param valueFormat How the element's text is translated
+     * @param columnNames The columns the element's text is copied into
+     */
+    private static void addMapping(String elementKey, ValueFormat valueFormat, String... columnNames)
+    {
+        int[] columnSlots = new int[columnNames.length];
+        for(int x = 0; x < columnNames.length; x++)
+            columnSlots[x] = EMAXMLParser.addColumn(columnNames[x]);
+        ELEMENT_MAPPINGS.put(elementKey, new ColumnMapping(columnSlots, valueFormat));
     }
-    
-    public void process() throws ParserConfigurationException, SAXException {
-        
-        SAXParserFactory factory = SAXParserFactory.newInstance();
-        
-        try {
-            SAXParser parser = factory.newSAXParser();
-
-            parser.parse(this.fileName, new MyXMLHandler());            
-        } catch (SAXException se) {
-            
-        } catch (IOException ioe) {
-            
-        }
 
+    /**
+     * @param columnName The name of a column that mapped values can be stored in
+     * @return The column's slot in a mapped row
+     */
+    private static int addColumn(String columnName)
+    {
+        Integer columnSlot = COLUMN_SLOTS.get(columnName);
+        if(columnSlot == null)
+        {
+            columnSlot = COLUMN_NAMES.size();
+            COLUMN_NAMES.add(columnName);
+            COLUMN_SLOTS.put(columnName, columnSlot);
+        }
+        return columnSlot;
     }
 }
@@ -25,7 +25,7 @@ public class Input implements LSInput {
     }
     
     public InputStream getByteStream() {
-        return null;
+        return inputStream;
     }
     
     public boolean getCertifiedText() {
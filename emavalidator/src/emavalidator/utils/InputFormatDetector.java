@@ -0,0 +1,227 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package emavalidator.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Works out what kind of avails an input stream holds from its first bytes instead of trusting the file's extension.
+ * Gzip compressed input is decompressed on the fly and the decompressed contents are sniffed in turn, so a .csv.gz or .xml.gz
+ * extract is validated in a single pass without ever being expanded to disk.
+ * ZIP (OPC) containers are XLSX workbooks, OLE2 compound documents are XLS workbooks, text starting with '<' is XML, and any other text is CSV.
+ * Text that isn't valid UTF-8, such as a CSV file exported from Excel in a Windows code page, is read in the platform charset.
+ * Input that isn't text, because its first bytes hold a NUL, is UNKNOWN.
+ */
+public class InputFormatDetector
+{
+    /**
+     * The input formats that the validator can read
+     */
+    public static enum InputFormat { CSV, XLS, XLSX, XML, UNKNOWN };
+
+    /**
+     * The number of leading bytes looked at to decide the format. Enough to get past a byte order mark and some leading whitespace.
+     */
+    private static final int SNIFF_LENGTH = 64;
+
+    /**
+     * The size of the buffer that gzip compressed input is inflated through
+     */
+    private static final int DECOMPRESSION_BUFFER_SIZE = 1 << 16;
+
+    private static final byte[] GZIP_MAGIC = { (byte) 0x1F, (byte) 0x8B };
+    private static final byte[] ZSTD_MAGIC = { (byte) 0x28, (byte) 0xB5, (byte) 0x2F, (byte) 0xFD };
+    private static final byte[] ZIP_MAGIC = { (byte) 0x50, (byte) 0x4B, (byte) 0x03, (byte) 0x04 };
+    private static final byte[] OLE2_MAGIC = { (byte) 0xD0, (byte) 0xCF, (byte) 0x11, (byte) 0xE0, (byte) 0xA1, (byte) 0xB1, (byte) 0x1A, (byte) 0xE1 };
+    private static final byte[] UTF8_BOM = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
+    private static final byte[] UTF16BE_BOM = { (byte) 0xFE, (byte) 0xFF };
+    private static final byte[] UTF16LE_BOM = { (byte) 0xFF, (byte) 0xFE };
+
+    /**
+     * The result of sniffing an input stream
+     */
+    public static final class DetectedInput
+    {
+        private final InputStream inputStream;
+        private final InputFormat inputFormat;
+        private final Charset charset;
+        private final boolean compressed;
+
+        private DetectedInput(InputStream inputStream, InputFormat inputFormat, Charset charset, boolean compressed)
+        {
+            this.inputStream = inputStream;
+            this.inputFormat = inputFormat;
+            this.charset = charset;
+            this.compressed = compressed;
+        }
+
+        /**
+         * @return The stream to read the input from, positioned at its very first (decompressed) byte
+         */
+        public InputStream getInputStream() { return this.inputStream; }
+
+        /**
+         * @return The format of the input
+         */
+        public InputFormat getInputFormat() { return this.inputFormat; }
+
+        /**
+         * @return The character encoding of text input, taken from its byte order mark. UTF-8 when there isn't one, or the platform charset if the text isn't valid UTF-8.
+         */
+        public Charset getCharset() { return this.charset; }
+
+        /**
+         * @return True if the input was compressed and is being decompressed as it's read
+         */
+        public boolean isCompressed() { return this.compressed; }
+
+        /**
+         * @return A reader over text input, decoded with its charset, with any byte order mark already skipped
+         * @throws IOException If the input can't be read
+         */
+        public BufferedReader openReader() throws IOException
+        {
+            return InputFormatDetector.skipByteOrderMark(new BufferedReader(new InputStreamReader(this.inputStream, this.charset)));
+        }
+    }
+
+    /**
+     * Sniff the format of the input. Nothing is consumed from the input; the returned stream still starts at the first byte.
+     * @param inputStream The raw input, possibly compressed
+     * @return The input's format along with the stream to read it from
+     * @throws IOException If the input can't be read, or is compressed with a codec that isn't supported
+     */
+    public static DetectedInput detect(InputStream inputStream) throws IOException
+    {
+        return InputFormatDetector.detect(inputStream, false);
+    }
+
+    /**
+     * @param bufferedReader A freshly opened reader over text input
+     * @return The same reader, moved past the byte order mark if the text starts with one
+     * @throws IOException If the input can't be read
+     */
+    public static BufferedReader skipByteOrderMark(BufferedReader bufferedReader) throws IOException
+    {
+        bufferedReader.mark(1);
+        if(bufferedReader.read() != '\uFEFF')
+            bufferedReader.reset();
+        return bufferedReader;
+    }
+
+    private static DetectedInput detect(InputStream inputStream, boolean compressed) throws IOException
+    {
+        if(!inputStream.markSupported())
+            inputStream = new BufferedInputStream(inputStream);
+        byte[] leadingBytes = new byte[SNIFF_LENGTH];
+        inputStream.mark(SNIFF_LENGTH);
+        int leadingByteCount = 0;
+        int bytesRead;
+        while(leadingByteCount < SNIFF_LENGTH && (bytesRead = inputStream.read(leadingBytes, leadingByteCount, SNIFF_LENGTH - leadingByteCount)) != -1)
+            leadingByteCount += bytesRead;
+        inputStream.reset();
+
+        if(InputFormatDetector.startsWith(leadingBytes, leadingByteCount, GZIP_MAGIC))
+            return InputFormatDetector.detect(new BufferedInputStream(new GZIPInputStream(inputStream, DECOMPRESSION_BUFFER_SIZE), DECOMPRESSION_BUFFER_SIZE), true);
+        if(InputFormatDetector.startsWith(leadingBytes, leadingByteCount, ZSTD_MAGIC))
+            throw new IOException("Zstandard compressed input is not supported. Please decompress the file or compress it with gzip instead and try again.");
+        if(InputFormatDetector.startsWith(leadingBytes, leadingByteCount, ZIP_MAGIC))
+            return new DetectedInput(inputStream, InputFormat.XLSX, StandardCharsets.UTF_8, compressed);
+        if(InputFormatDetector.startsWith(leadingBytes, leadingByteCount, OLE2_MAGIC))
+            return new DetectedInput(inputStream, InputFormat.XLS, StandardCharsets.UTF_8, compressed);
+
+        // text input. find its encoding and the width of each character so the first character that isn't whitespace can be found
+        Charset charset = StandardCharsets.UTF_8;
+        int textStart = 0;
+        int characterWidth = 1;
+        int characterOffset = 0; // where the low order byte sits inside each character
+        if(InputFormatDetector.startsWith(leadingBytes, leadingByteCount, UTF8_BOM))
+            textStart = UTF8_BOM.length;
+        else if(InputFormatDetector.startsWith(leadingBytes, leadingByteCount, UTF16BE_BOM))
+        {
+            charset = StandardCharsets.UTF_16;
+            textStart = UTF16BE_BOM.length;
+            characterWidth = 2;
+            characterOffset = 1;
+        }
+        else if(InputFormatDetector.startsWith(leadingBytes, leadingByteCount, UTF16LE_BOM))
+        {
+            charset = StandardCharsets.UTF_16;
+            textStart = UTF16LE_BOM.length;
+            characterWidth = 2;
+        }
+
+        if(characterWidth == 1)
+        {
+            for(int x = textStart; x < leadingByteCount; x++)
+                if(leadingBytes[x] == 0)
+                    return new DetectedInput(inputStream, InputFormat.UNKNOWN, charset, compressed);
+            if(!InputFormatDetector.isUTF8(leadingBytes, textStart, leadingByteCount, leadingByteCount < SNIFF_LENGTH))
+                charset = Charset.defaultCharset();
+        }
+
+        InputFormat inputFormat = InputFormat.CSV;
+        for(int x = textStart; x + characterWidth <= leadingByteCount; x += characterWidth)
+        {
+            if(characterWidth == 2 && leadingBytes[x + 1 - characterOffset] != 0) // not an ASCII character
+                break;
+            byte character = leadingBytes[x + characterOffset];
+            if(character == ' ' || character == '\t' || character == '\r' || character == '\n')
+                continue;
+            if(character == '<') // an XML prolog or root element
+                inputFormat = InputFormat.XML;
+            break;
+        }
+        return new DetectedInput(inputStream, inputFormat, charset, compressed);
+    }
+
+    /**
+     * @param leadingBytes The first bytes of the input
+     * @param textStart Where the text starts, past any byte order mark
+     * @param leadingByteCount The number of leading bytes read
+     * @param wholeInput True if the leading bytes are the whole input. Otherwise a character cut off at the end of them is allowed.
+     * @return True if the bytes are valid UTF-8
+     */
+    private static boolean isUTF8(byte[] leadingBytes, int textStart, int leadingByteCount, boolean wholeInput)
+    {
+        CharBuffer decoded = CharBuffer.allocate(SNIFF_LENGTH);
+        return !StandardCharsets.UTF_8.newDecoder()
+                                      .onMalformedInput(CodingErrorAction.REPORT)
+                                      .onUnmappableCharacter(CodingErrorAction.REPORT)
+                                      .decode(ByteBuffer.wrap(leadingBytes, textStart, leadingByteCount - textStart), decoded, wholeInput)
+                                      .isError();
+    }
+
+    private static boolean startsWith(byte[] leadingBytes, int leadingByteCount, byte[] magicBytes)
+    {
+        if(leadingByteCount < magicBytes.length)
+            return false;
+        for(int x = 0; x < magicBytes.length; x++)
+            if(leadingBytes[x] != magicBytes[x])
+                return false;
+        return true;
+    }
+}
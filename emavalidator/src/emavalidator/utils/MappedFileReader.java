@@ -0,0 +1,184 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package emavalidator.utils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A Reader over a text file that decodes characters straight out of the memory mapped pages of the file.
+ * The file's bytes are never copied onto the Java heap; only the decoded characters are written into the caller's buffer.
+ * Used for the CSV files on disk that ParallelCSVParser doesn't tokenize itself because they aren't UTF-8, such as UTF-16 exports.
+ * A single mapping is limited to 2 GB, so larger files are mapped one segment at a time as the reader moves through them.
+ * A character whose bytes straddle two segments is picked up again at the start of the next segment.
+ */
+public class MappedFileReader extends Reader
+{
+    /**
+     * The largest number of bytes mapped at once. Kept well under Integer.MAX_VALUE so that only one segment is ever mapped at a time.
+     */
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    /**
+     * The channel of the file being read. Closed along with this reader.
+     */
+    private final FileChannel fileChannel;
+
+    /**
+     * The total length of the file in bytes
+     */
+    private final long fileSize;
+
+    /**
+     * The largest number of bytes mapped at once by this reader
+     */
+    private final long segmentSize;
+
+    /**
+     * Decodes the mapped bytes. Malformed input is replaced rather than reported, the same as an InputStreamReader would.
+     */
+    private final CharsetDecoder decoder;
+
+    /**
+     * The currently mapped segment of the file
+     */
+    private MappedByteBuffer segment;
+
+    /**
+     * The offset in the file where the current segment starts
+     */
+    private long segmentStart = 0;
+
+    /**
+     * The low surrogate of a supplementary character that didn't fit into the caller's buffer on the last read. -1 when there is none.
+     */
+    private int pendingLowSurrogate = -1;
+
+    /**
+     * True once the decoder has been flushed after the last segment
+     */
+    private boolean endOfFile = false;
+
+    /**
+     * @param inputFile The UTF-8 encoded file to read
+     * @throws IOException If the file can't be opened or mapped
+     */
+    public MappedFileReader(File inputFile) throws IOException { this(inputFile, StandardCharsets.UTF_8, MappedFileReader.SEGMENT_SIZE); }
+
+    /**
+     * @param inputFile The file to read
+     * @param charset The character encoding of the file
+     * @throws IOException If the file can't be opened or mapped
+     */
+    public MappedFileReader(File inputFile, Charset charset) throws IOException { this(inputFile, charset, MappedFileReader.SEGMENT_SIZE); }
+
+    /**
+     * @param inputFile The file to read
+     * @param charset The character encoding of the file
+     * @param segmentSize The largest number of bytes to map at once. Must be larger than the longest encoded character.
+     * @throws IOException If the file can't be opened or mapped
+     */
+    public MappedFileReader(File inputFile, Charset charset, long segmentSize) throws IOException
+    {
+        this.segmentSize = segmentSize;
+        this.decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.fileChannel = new FileInputStream(inputFile).getChannel();
+        this.fileSize = this.fileChannel.size();
+        this.mapSegment(0);
+    }
+
+    @Override
+    public int read(char[] charBuffer, int offset, int length) throws IOException
+    {
+        if(this.segment == null)
+            throw new IOException("Stream closed");
+        if(length == 0)
+            return 0;
+        if(this.pendingLowSurrogate != -1)
+        {
+            charBuffer[offset] = (char) this.pendingLowSurrogate;
+            this.pendingLowSurrogate = -1;
+            return 1;
+        }
+        if(this.endOfFile)
+            return -1;
+
+        CharBuffer output = CharBuffer.wrap(charBuffer, offset, length);
+        while(output.position() == offset)
+        {
+            boolean lastSegment = this.segmentStart + this.segment.limit() >= this.fileSize;
+            CoderResult result = this.decoder.decode(this.segment, output, lastSegment);
+            if(output.position() > offset)
+                break;
+            if(result.isOverflow()) // a surrogate pair doesn't fit into a single character buffer
+                return this.readSplitSurrogatePair(charBuffer, offset, lastSegment);
+            if(!lastSegment)
+                this.mapSegment(this.segmentStart + this.segment.position()); // remap from the first byte that hasn't been decoded yet
+            else
+            {
+                this.decoder.flush(output);
+                this.endOfFile = true;
+                break;
+            }
+        }
+        int charsRead = output.position() - offset;
+        return charsRead == 0 ? -1 : charsRead;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        this.segment = null; // the mapping itself is released once the buffer is garbage collected
+        this.fileChannel.close();
+    }
+
+    /**
+     * Decodes the next supplementary character on its own, hands back its high surrogate, and holds on to its low surrogate for the next read.
+     * @param charBuffer The caller's buffer
+     * @param offset The position in the caller's buffer to write the high surrogate to
+     * @param lastSegment True if the current segment is the last one in the file
+     * @return 1, the number of characters written
+     */
+    private int readSplitSurrogatePair(char[] charBuffer, int offset, boolean lastSegment)
+    {
+        CharBuffer surrogatePair = CharBuffer.allocate(2);
+        this.decoder.decode(this.segment, surrogatePair, lastSegment);
+        charBuffer[offset] = surrogatePair.get(0);
+        this.pendingLowSurrogate = surrogatePair.get(1);
+        return 1;
+    }
+
+    /**
+     * Maps the next segment of the file, starting at the given offset
+     * @param startOffset The offset in the file of the first byte to map
+     * @throws IOException If the segment can't be mapped
+     */
+    private void mapSegment(long startOffset) throws IOException
+    {
+        this.segmentStart = startOffset;
+        this.segment = this.fileChannel.map(FileChannel.MapMode.READ_ONLY, startOffset, Math.min(this.segmentSize, this.fileSize - startOffset));
+    }
+}
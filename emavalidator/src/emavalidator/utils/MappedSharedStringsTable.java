@@ -0,0 +1,458 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package emavalidator.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.usermodel.XSSFRelation;
+import org.xml.sax.SAXException;
+
+/**
+ * A read only shared strings table for XLSX workbooks that keeps the strings themselves out of the Java heap.
+ * sharedStrings.xml is copied to a temporary file and memory mapped. Only the byte offsets of each string item (si) are kept on the heap,
+ * and an item is decoded only when a cell asks for it. The most recently used strings are kept decoded in a small LRU cache since avails
+ * repeat the same handful of values (Territory, LicenseType, etc.) on every row.
+ * Returns the same text as POI's ReadOnlySharedStringsTable: every text (t) element of the item joined together, entities resolved.
+ * Where temporary files can't be written, such as on App Engine, the strings are read into POI's ReadOnlySharedStringsTable on the heap instead.
+ * Safe to share between the threads validating each sheet of the workbook.
+ */
+public class MappedSharedStringsTable
+{
+    /**
+     * The number of decoded strings kept in the LRU cache
+     */
+    private static final int CACHE_SIZE = 1024;
+
+    /**
+     * The temporary copy of sharedStrings.xml. Null if the workbook has no shared strings or they're kept in memory.
+     */
+    private File sharedStringsFile;
+
+    /**
+     * The mapped contents of the temporary copy of sharedStrings.xml
+     */
+    private MappedByteBuffer sharedStrings;
+
+    /**
+     * The shared strings, read into memory because sharedStrings.xml couldn't be copied to a temporary file. Null while the strings are mapped.
+     */
+    private ReadOnlySharedStringsTable inMemoryStrings;
+
+    /**
+     * The start and end byte offsets of each string item's contents, two entries per item
+     */
+    private int[] itemOffsets = new int[1024];
+
+    /**
+     * The number of string items in the table
+     */
+    private int itemCount = 0;
+
+    /**
+     * The most recently used decoded strings, keyed by their index in the table. Guarded by its own lock.
+     */
+    private final LinkedHashMap<Integer, String> recentStrings = new LinkedHashMap<Integer, String>(CACHE_SIZE, 0.75f, true)
+    {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) { return this.size() > CACHE_SIZE; }
+    };
+
+    /**
+     * @param pkg The XLSX package to read the shared strings of
+     * @throws IOException If sharedStrings.xml can't be read or indexed
+     * @throws SAXException If sharedStrings.xml had to be read into memory and isn't well formed
+     */
+    public MappedSharedStringsTable(OPCPackage pkg) throws IOException, SAXException { this(pkg, null); }
+
+    /**
+     * @param pkg The XLSX package to read the shared strings of
+     * @param tempDirectory Where the copy of sharedStrings.xml is written. Null for the default temporary file directory.
+     * @throws IOException If sharedStrings.xml can't be read or indexed
+     * @throws SAXException If sharedStrings.xml had to be read into memory and isn't well formed
+     */
+    public MappedSharedStringsTable(OPCPackage pkg, File tempDirectory) throws IOException, SAXException
+    {
+        ArrayList<PackagePart> parts = pkg.getPartsByContentType(XSSFRelation.SHARED_STRINGS.getContentType());
+        if(parts.isEmpty()) // some workbooks have no shared strings at all
+            return;
+
+        if(this.mapSharedStrings(parts.get(0), tempDirectory))
+        {
+            try
+            {
+                this.indexItems();
+            }
+            catch (IOException e) // nobody will close a table that was never made
+            {
+                this.close();
+                throw e;
+            }
+        }
+        else
+            this.inMemoryStrings = new ReadOnlySharedStringsTable(pkg);
+    }
+
+    /**
+     * Copies sharedStrings.xml to a temporary file and maps it
+     * @param part The shared strings part of the package
+     * @param tempDirectory Where the copy is written. Null for the default temporary file directory.
+     * @return False if the temporary file couldn't be created, written, or mapped. Nothing is left behind then.
+     */
+    private boolean mapSharedStrings(PackagePart part, File tempDirectory)
+    {
+        try
+        {
+            this.sharedStringsFile = File.createTempFile("sharedStrings", ".xml", tempDirectory);
+        }
+        catch (IOException | SecurityException e) // temporary files aren't allowed here
+        {
+            return false;
+        }
+
+        try
+        {
+            InputStream partStream = part.getInputStream();
+            OutputStream fileStream = new FileOutputStream(this.sharedStringsFile);
+            try
+            {
+                byte[] buffer = new byte[64 * 1024];
+                int bytesRead;
+                while((bytesRead = partStream.read(buffer)) != -1)
+                    fileStream.write(buffer, 0, bytesRead);
+            }
+            finally
+            {
+                fileStream.close();
+                partStream.close();
+            }
+
+            RandomAccessFile mappedFile = new RandomAccessFile(this.sharedStringsFile, "r");
+            try
+            {
+                if(mappedFile.length() > Integer.MAX_VALUE)
+                    throw new IOException("sharedStrings.xml is larger than 2 GB and can't be mapped");
+                this.sharedStrings = mappedFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, mappedFile.length());
+            }
+            finally
+            {
+                mappedFile.close(); // the mapping stays valid after the channel is closed
+            }
+            return true;
+        }
+        catch (IOException | SecurityException e) // out of disk space, or the file can't be mapped
+        {
+            this.sharedStrings = null;
+            this.sharedStringsFile.delete();
+            this.sharedStringsFile = null;
+            return false;
+        }
+    }
+
+    /**
+     * @return True if the strings are read from a memory mapped copy of sharedStrings.xml, false if they're kept in memory or there aren't any
+     */
+    public boolean isMapped() { return this.sharedStrings != null; }
+
+    /**
+     * @return The number of strings in the table
+     */
+    public int getCount() { return this.inMemoryStrings != null ? this.inMemoryStrings.getItems().size() : this.itemCount; }
+
+    /**
+     * @param idx The 0th based index of the string in the table
+     * @return The text of the string, decoded from the mapped file if it isn't in the cache
+     */
+    public String getEntryAt(int idx)
+    {
+        if(this.inMemoryStrings != null)
+            return this.inMemoryStrings.getEntryAt(idx);
+        if(idx < 0 || idx >= this.itemCount)
+            throw new IndexOutOfBoundsException("Shared string index " + idx + " is out of range. Table size: " + this.itemCount);
+        Integer cacheKey = Integer.valueOf(idx);
+        synchronized(this.recentStrings)
+        {
+            String cachedString = this.recentStrings.get(cacheKey);
+            if(cachedString != null)
+                return cachedString;
+        }
+        String decodedString = this.decodeItem(this.itemOffsets[2 * idx], this.itemOffsets[2 * idx + 1]);
+        synchronized(this.recentStrings)
+        {
+            this.recentStrings.put(cacheKey, decodedString);
+        }
+        return decodedString;
+    }
+
+    /**
+     * Drops the mapping and deletes the temporary copy of sharedStrings.xml.
+     * deleteOnExit() isn't used as a backup, since the JVM keeps every file registered with it until exit and a server validates workbooks for as long as it runs.
+     */
+    public void close()
+    {
+        this.sharedStrings = null;
+        this.inMemoryStrings = null;
+        synchronized(this.recentStrings)
+        {
+            this.recentStrings.clear();
+        }
+        if(this.sharedStringsFile != null)
+        {
+            this.sharedStringsFile.delete();
+            this.sharedStringsFile = null;
+        }
+    }
+
+    /**
+     * Walks the mapped file once, recording where the contents of each string item start and end.
+     * @throws IOException If an item is never closed
+     */
+    private void indexItems() throws IOException
+    {
+        int limit = this.sharedStrings.limit();
+        int itemStart = -1;
+        for(int position = this.indexOf('<', 0, limit); position != -1; position = this.indexOf('<', position + 1, limit))
+        {
+            int tagEnd = this.indexOf('>', position, limit);
+            if(tagEnd == -1)
+                break;
+            boolean closingTag = this.sharedStrings.get(position + 1) == '/';
+            if(!this.isElement(position + (closingTag ? 2 : 1), tagEnd, "si"))
+                continue;
+            if(closingTag)
+            {
+                this.addItem(itemStart, position);
+                itemStart = -1;
+            }
+            else if(this.sharedStrings.get(tagEnd - 1) == '/') // <si/>
+                this.addItem(tagEnd + 1, tagEnd + 1);
+            else
+                itemStart = tagEnd + 1;
+            position = tagEnd;
+        }
+        if(itemStart != -1)
+            throw new IOException("sharedStrings.xml ended in the middle of string item " + this.itemCount);
+    }
+
+    /**
+     * @param start The offset of the first byte of the item's contents
+     * @param end The offset one past the last byte of the item's contents
+     */
+    private void addItem(int start, int end)
+    {
+        if(2 * this.itemCount + 1 >= this.itemOffsets.length)
+            this.itemOffsets = Arrays.copyOf(this.itemOffsets, this.itemOffsets.length * 2);
+        this.itemOffsets[2 * this.itemCount] = start;
+        this.itemOffsets[2 * this.itemCount + 1] = end;
+        this.itemCount++;
+    }
+
+    /**
+     * Joins the text of every text (t) element between the given offsets, the same as ReadOnlySharedStringsTable does.
+     * @param start The offset of the first byte of the item's contents
+     * @param end The offset one past the last byte of the item's contents
+     * @return The item's text
+     */
+    private String decodeItem(int start, int end)
+    {
+        StringBuilder itemText = new StringBuilder();
+        boolean inText = false;
+        int textStart = start;
+        int position = start;
+        while(position < end)
+        {
+            if(this.sharedStrings.get(position) != '<')
+            {
+                position++;
+                continue;
+            }
+            if(inText)
+                this.appendText(itemText, textStart, position);
+            if(this.startsWith(position, "<![CDATA["))
+            {
+                int cdataEnd = this.indexOf("]]>", position + 9, end);
+                if(inText)
+                    itemText.append(this.decodeUTF8(position + 9, cdataEnd));
+                position = cdataEnd + 3;
+                textStart = position;
+                continue;
+            }
+            int tagEnd = this.indexOf('>', position, end);
+            boolean closingTag = this.sharedStrings.get(position + 1) == '/';
+            boolean selfClosing = this.sharedStrings.get(tagEnd - 1) == '/';
+            if(this.isElement(position + (closingTag ? 2 : 1), tagEnd, "t"))
+                inText = !closingTag && !selfClosing;
+            position = tagEnd + 1;
+            textStart = position;
+        }
+        return itemText.toString();
+    }
+
+    /**
+     * Appends element text, resolving the XML entity and character references in it
+     * @param output Where the resolved text is appended to
+     * @param start The offset of the first byte of the text
+     * @param end The offset one past the last byte of the text
+     */
+    private void appendText(StringBuilder output, int start, int end)
+    {
+        String rawText = this.decodeUTF8(start, end);
+        int ampersand = rawText.indexOf('&');
+        if(ampersand == -1)
+        {
+            output.append(rawText);
+            return;
+        }
+        int copiedUpTo = 0;
+        while(ampersand != -1)
+        {
+            int semicolon = rawText.indexOf(';', ampersand);
+            if(semicolon == -1)
+                break;
+            output.append(rawText, copiedUpTo, ampersand);
+            String entity = rawText.substring(ampersand + 1, semicolon);
+            if(entity.equals("amp"))
+                output.append('&');
+            else if(entity.equals("lt"))
+                output.append('<');
+            else if(entity.equals("gt"))
+                output.append('>');
+            else if(entity.equals("quot"))
+                output.append('"');
+            else if(entity.equals("apos"))
+                output.append('\'');
+            else
+            {
+                int codePoint = MappedSharedStringsTable.getCodePoint(entity);
+                if(codePoint != -1)
+                    output.appendCodePoint(codePoint);
+                else // not a predefined entity or a well formed character reference. keep it as is
+                    output.append('&').append(entity).append(';');
+            }
+            copiedUpTo = semicolon + 1;
+            ampersand = rawText.indexOf('&', copiedUpTo);
+        }
+        output.append(rawText, copiedUpTo, rawText.length());
+    }
+
+    /**
+     * @param entity The text between the ampersand and the semicolon of a reference
+     * @return The code point of a decimal (#65) or hexadecimal (#x41) character reference, or -1 if the entity isn't one or doesn't name a valid code point
+     */
+    private static int getCodePoint(String entity)
+    {
+        boolean hexadecimal = entity.startsWith("#x");
+        String digits = entity.startsWith("#") ? entity.substring(hexadecimal ? 2 : 1) : "";
+        if(digits.isEmpty() || digits.length() > 8)
+            return -1;
+        for(int x = 0; x < digits.length(); x++)
+        {
+            char currentChar = digits.charAt(x);
+            boolean isDigit = (currentChar >= '0' && currentChar <= '9') || (hexadecimal && ((currentChar >= 'a' && currentChar <= 'f') || (currentChar >= 'A' && currentChar <= 'F')));
+            if(!isDigit)
+                return -1;
+        }
+        long codePoint = Long.parseLong(digits, hexadecimal ? 16 : 10);
+        return codePoint <= Character.MAX_CODE_POINT ? (int) codePoint : -1;
+    }
+
+    /**
+     * @param start The offset of the first byte
+     * @param end The offset one past the last byte
+     * @return The UTF-8 bytes between the offsets as a string
+     */
+    private String decodeUTF8(int start, int end)
+    {
+        byte[] bytes = new byte[end - start];
+        for(int x = 0; x < bytes.length; x++)
+            bytes[x] = this.sharedStrings.get(start + x); // absolute gets leave the shared buffer's position alone
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param nameStart The offset of the first byte of the tag's name, just past the opening bracket and slash
+     * @param tagEnd The offset of the tag's closing bracket
+     * @param localName The element name to compare against, without any namespace prefix
+     * @return True if the tag is for the given element
+     */
+    private boolean isElement(int nameStart, int tagEnd, String localName)
+    {
+        int nameEnd = nameStart;
+        while(nameEnd < tagEnd)
+        {
+            byte currentByte = this.sharedStrings.get(nameEnd);
+            if(currentByte == ' ' || currentByte == '/' || currentByte == '\t' || currentByte == '\r' || currentByte == '\n')
+                break;
+            if(currentByte == ':') // skip the namespace prefix
+                nameStart = nameEnd + 1;
+            nameEnd++;
+        }
+        return nameEnd - nameStart == localName.length() && this.startsWith(nameStart, localName);
+    }
+
+    /**
+     * @param position The offset to start comparing at
+     * @param prefix The ASCII text to look for
+     * @return True if the mapped bytes at the given offset match the text
+     */
+    private boolean startsWith(int position, String prefix)
+    {
+        if(position + prefix.length() > this.sharedStrings.limit())
+            return false;
+        for(int x = 0; x < prefix.length(); x++)
+            if(this.sharedStrings.get(position + x) != prefix.charAt(x))
+                return false;
+        return true;
+    }
+
+    /**
+     * @return The offset of the first matching byte at or after start and before end, or -1 if there isn't one
+     */
+    private int indexOf(char target, int start, int end)
+    {
+        for(int position = start; position < end; position++)
+            if(this.sharedStrings.get(position) == target)
+                return position;
+        return -1;
+    }
+
+    /**
+     * @return The offset of the first occurrence of the ASCII text at or after start and before end, or end if there isn't one
+     */
+    private int indexOf(String target, int start, int end)
+    {
+        for(int position = start; position < end; position++)
+            if(this.startsWith(position, target))
+                return position;
+        return end;
+    }
+}
@@ -0,0 +1,814 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package emavalidator.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import emavalidator.RowView;
+
+/**
+ * Tokenizes a UTF-8 CSV file on every core at once while still handing its records back one at a time, in file order.
+ * The file is cut into fixed size byte ranges (chunks) that are tokenized straight out of memory mapped pages on a ForkJoinPool.
+ * Values are found by searching the raw UTF-8 bytes eight at a time for delimiters, quotes, and line breaks. Tokenizing a chunk only records
+ * the byte offsets of its values; each value is decoded from those offsets as its record is handed back to be validated.
+ * A chunk can't know whether its first line break sits inside a quoted value, so it speculatively starts at that line break.
+ * Chunks are then re-sequenced in order: each one must start exactly where the records of the chunk before it ended, and is tokenized
+ * again from that real record boundary when it doesn't. Every record is therefore split exactly the way a single sequential pass would
+ * split it, quoted line breaks included, and row numbers stay exact.
+ * Parsing follows commons-csv's CSVFormat.EXCEL, which is what validateEMACSVFile used before, down to the messages of its parse errors.
+ * Only a bounded number of chunks are tokenized ahead of the reader, so memory use doesn't grow with the size of the file.
+ */
+public class ParallelCSVParser implements Closeable
+{
+    /**
+     * The number of bytes in each chunk. Big enough to amortize the scheduling of a chunk, small enough to keep every core busy on modest files.
+     */
+    private static final int DEFAULT_CHUNK_SIZE = 1 << 22;
+
+    /**
+     * How far past the end of its chunk a window is first mapped, so the chunk's last record can be finished without remapping.
+     */
+    private static final int WINDOW_OVERHANG = 1 << 16;
+
+    /**
+     * The largest number of bytes a single record may span. Keeps every value offset inside a chunk within the range of an int.
+     */
+    private static final long MAX_WINDOW_SIZE = 1 << 30;
+
+    /**
+     * Returned by parseRecord() when the record runs past the end of the mapped window
+     */
+    private static final int NEED_MORE_INPUT = -1;
+
+    /**
+     * Returned by parseRecord() when the record is malformed. The details are saved into the chunk.
+     */
+    private static final int MALFORMED_RECORD = -2;
+
+    private static final byte DELIMITER = ',';
+    private static final byte QUOTE = '"';
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    private static final long LOW_BITS = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+    private static final long DELIMITER_BYTES = LOW_BITS * DELIMITER;
+    private static final long QUOTE_BYTES = LOW_BITS * QUOTE;
+    private static final long CR_BYTES = LOW_BITS * CR;
+    private static final long LF_BYTES = LOW_BITS * LF;
+    private static final byte[] UTF8_BOM = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
+
+    /**
+     * The channel of the file being read. Shared by every chunk; mapping is thread safe.
+     */
+    private final FileChannel fileChannel;
+
+    /**
+     * The total length of the file in bytes
+     */
+    private final long fileSize;
+
+    /**
+     * The offset of the first byte after the byte order mark, if there is one
+     */
+    private final long dataStart;
+
+    /**
+     * The number of bytes in each chunk
+     */
+    private final int chunkSize;
+
+    /**
+     * The total number of chunks the file is cut into
+     */
+    private final int chunkCount;
+
+    /**
+     * The most chunks that can be tokenized ahead of the reader at once
+     */
+    private final int maxChunksInFlight;
+
+    /**
+     * Tokenizes the chunks. Null when the whole file fits into a single chunk, which is then tokenized on the calling thread.
+     */
+    private final ForkJoinPool tokenizerPool;
+
+    /**
+     * True if the pool was started by this parser and has to be shut down when it's closed, rather than handed in by the caller
+     */
+    private final boolean ownsTokenizerPool;
+
+    /**
+     * Set once the parser is closed, so that chunks that haven't started yet aren't tokenized
+     */
+    private volatile boolean closed = false;
+
+    /**
+     * The chunks that have been handed to the pool but not yet read back, in file order
+     */
+    private final ArrayDeque<ChunkTask> chunksInFlight = new ArrayDeque<ChunkTask>();
+
+    /**
+     * The index of the next chunk to hand to the pool
+     */
+    private int nextChunkToSubmit = 0;
+
+    /**
+     * The index of the next chunk to read back from the pool
+     */
+    private int nextChunkToRead = 0;
+
+    /**
+     * Where the next chunk's first record must start: the offset just past the last record read back so far
+     */
+    private long expectedRecordStart;
+
+    /**
+     * The chunk whose records are currently being handed back
+     */
+    private Chunk currentChunk = null;
+
+    /**
+     * The index of the next record to hand back out of the current chunk
+     */
+    private int currentRecordIndex = 0;
+
+    /**
+     * Decodes the values of the records as they're handed back
+     */
+    private final ValueDecoder valueDecoder = new ValueDecoder();
+
+    /**
+     * @param inputFile The UTF-8 encoded CSV file to parse
+     * @throws IOException If the file can't be opened
+     */
+    public ParallelCSVParser(File inputFile) throws IOException
+    {
+        this(inputFile, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param inputFile The UTF-8 encoded CSV file to parse
+     * @param parallelism The number of threads to tokenize the file with
+     * @param chunkSize The number of bytes in each chunk. No more than 1 GB.
+     * @throws IOException If the file can't be opened
+     */
+    public ParallelCSVParser(File inputFile, int parallelism, int chunkSize) throws IOException
+    {
+        this(inputFile, null, parallelism, chunkSize);
+    }
+
+    /**
+     * @param inputFile The UTF-8 encoded CSV file to parse
+     * @param tokenizerPool The pool to tokenize the file on, shared with the rest of the validation. It's left running when the parser is closed.
+     * @throws IOException If the file can't be opened
+     */
+    public ParallelCSVParser(File inputFile, ForkJoinPool tokenizerPool) throws IOException
+    {
+        this(inputFile, tokenizerPool, tokenizerPool.getParallelism(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param inputFile The UTF-8 encoded CSV file to parse
+     * @param tokenizerPool The pool to tokenize the file on, or null to start one of its own that's shut down when the parser is closed
+     * @param parallelism The number of threads to tokenize the file with
+     * @param chunkSize The number of bytes in each chunk. No more than 1 GB.
+     * @throws IOException If the file can't be opened
+     */
+    private ParallelCSVParser(File inputFile, ForkJoinPool tokenizerPool, int parallelism, int chunkSize) throws IOException
+    {
+        if(chunkSize <= 0 || chunkSize > MAX_WINDOW_SIZE)
+            throw new IllegalArgumentException("The chunk size must be between 1 and " + MAX_WINDOW_SIZE + " bytes");
+        this.fileChannel = new FileInputStream(inputFile).getChannel();
+        this.fileSize = this.fileChannel.size();
+        this.dataStart = this.startsWithByteOrderMark() ? UTF8_BOM.length : 0;
+        this.chunkSize = chunkSize;
+        this.chunkCount = (int) Math.max(1, (this.fileSize - this.dataStart + chunkSize - 1) / chunkSize);
+        this.maxChunksInFlight = Math.max(1, parallelism) * 2;
+        this.ownsTokenizerPool = this.chunkCount > 1 && tokenizerPool == null;
+        if(this.chunkCount == 1)
+            this.tokenizerPool = null;
+        else
+            this.tokenizerPool = this.ownsTokenizerPool ? new ForkJoinPool(Math.max(1, parallelism)) : tokenizerPool;
+        this.expectedRecordStart = this.dataStart;
+    }
+
+    /**
+     * Fill the row view with the values of the next record in the file. The values are only decoded now, right before the record is validated,
+     * so they're short lived garbage rather than millions of strings held on to while the chunks ahead are tokenized.
+     * @param rowView The reusable row view to fill. Any values from the previous record are cleared first.
+     * @return True if a record was read, false once the end of the file has been reached
+     * @throws IOException If the file can't be read, or the record is malformed
+     */
+    public boolean nextRecord(RowView rowView) throws IOException
+    {
+        while(this.currentChunk == null || this.currentRecordIndex == this.currentChunk.recordCount)
+        {
+            if(this.currentChunk != null && this.currentChunk.hasFailed()) // every record before the failure has been handed back
+                throw this.currentChunk.getFailure(this);
+            if(this.nextChunkToRead == this.chunkCount)
+                return false;
+            this.currentChunk = this.readNextChunk();
+            this.currentRecordIndex = 0;
+        }
+
+        Chunk chunk = this.currentChunk;
+        int firstValue = this.currentRecordIndex == 0 ? 0 : chunk.recordEnds[this.currentRecordIndex - 1];
+        int lastValue = chunk.recordEnds[this.currentRecordIndex++];
+        rowView.clear();
+        for(int x = firstValue; x < lastValue; x++)
+            rowView.setCell(x - firstValue, this.valueDecoder.decode(chunk.bytes, chunk.valueBounds[x * 2], chunk.valueBounds[x * 2 + 1]));
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        this.closed = true; // chunks that haven't started are dropped. chunks already running are left to finish
+        for(ChunkTask chunkTask : this.chunksInFlight)
+            chunkTask.quietlyJoin(); // no chunk may touch the mapped file after it's closed
+        this.chunksInFlight.clear();
+        if(this.ownsTokenizerPool)
+            this.tokenizerPool.shutdown();
+        this.fileChannel.close();
+    }
+
+    /**
+     * Read back the next chunk in file order, topping the pool back up with chunks further along the file first.
+     * If the chunk didn't start on the record boundary where the chunk before it ended, it's tokenized again from that boundary.
+     * @return The next chunk, with its bytes mapped so its values can be decoded
+     * @throws IOException If the chunk's bytes can't be mapped
+     */
+    private Chunk readNextChunk() throws IOException
+    {
+        Chunk chunk;
+        if(this.tokenizerPool == null)
+            chunk = this.tokenize(this.expectedRecordStart, this.getChunkEnd(this.nextChunkToRead));
+        else
+        {
+            while(this.nextChunkToSubmit < this.chunkCount && this.chunksInFlight.size() < this.maxChunksInFlight)
+            {
+                ChunkTask chunkTask = new ChunkTask(this.nextChunkToSubmit++);
+                this.chunksInFlight.addLast(chunkTask);
+                this.tokenizerPool.execute(chunkTask);
+            }
+            chunk = this.chunksInFlight.removeFirst().join();
+            if(chunk.recordsStart != this.expectedRecordStart) // the speculative start was inside a quoted value, or inside the last record of the chunk before
+                chunk = this.tokenize(this.expectedRecordStart, this.getChunkEnd(this.nextChunkToRead));
+        }
+        this.nextChunkToRead++;
+        this.expectedRecordStart = chunk.recordsEnd;
+        chunk.bytes = this.fileChannel.map(FileChannel.MapMode.READ_ONLY, chunk.recordsStart, chunk.recordsEnd - chunk.recordsStart);
+        return chunk;
+    }
+
+    /**
+     * @param chunkIndex The index of the chunk
+     * @return The offset in the file where the chunk's byte range starts
+     */
+    private long getChunkStart(int chunkIndex) { return this.dataStart + (long) chunkIndex * this.chunkSize; }
+
+    /**
+     * @param chunkIndex The index of the chunk
+     * @return The offset in the file just past the end of the chunk's byte range
+     */
+    private long getChunkEnd(int chunkIndex) { return Math.min(this.fileSize, this.getChunkStart(chunkIndex + 1)); }
+
+    /**
+     * Tokenizes one chunk of the file on the pool, starting at the first line break inside its byte range
+     */
+    private final class ChunkTask extends RecursiveTask<Chunk>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int chunkIndex;
+
+        private ChunkTask(int chunkIndex) { this.chunkIndex = chunkIndex; }
+
+        @Override
+        protected Chunk compute()
+        {
+            long chunkStart = ParallelCSVParser.this.getChunkStart(this.chunkIndex);
+            long chunkEnd = ParallelCSVParser.this.getChunkEnd(this.chunkIndex);
+            if(ParallelCSVParser.this.closed)
+                return null;
+            if(this.chunkIndex == 0) // the first chunk always starts on a record boundary
+                return ParallelCSVParser.this.tokenize(chunkStart, chunkEnd);
+            try
+            {
+                return ParallelCSVParser.this.tokenize(ParallelCSVParser.this.findLineStart(chunkStart), chunkEnd);
+            }
+            catch (IOException IOE)
+            {
+                return new Chunk(chunkStart, IOE);
+            }
+        }
+    }
+
+    /**
+     * Tokenize every record that starts inside a chunk's byte range
+     * @param recordsStart The offset of the chunk's first record
+     * @param chunkEnd The offset just past the end of the chunk's byte range. The last record that starts before this is finished, however far it runs.
+     * @return The offsets of the chunk's values, along with where the next record after them starts
+     */
+    private Chunk tokenize(long recordsStart, long chunkEnd)
+    {
+        Chunk chunk = new Chunk(recordsStart);
+        long recordStart = recordsStart;
+        try
+        {
+            MappedWindow window = new MappedWindow(recordStart, Math.max(chunkEnd - recordStart, 0) + WINDOW_OVERHANG);
+            while(recordStart < chunkEnd && recordStart < this.fileSize)
+            {
+                int nextRecord = this.parseRecord(window, (int) (recordStart - window.start), chunk);
+                if(nextRecord == NEED_MORE_INPUT || nextRecord == MALFORMED_RECORD)
+                    chunk.discardRecord(); // drop whatever values of the record were saved
+                if(nextRecord == NEED_MORE_INPUT)
+                {
+                    window = window.grow(recordStart);
+                    continue;
+                }
+                if(nextRecord == MALFORMED_RECORD)
+                    break;
+                chunk.endRecord();
+                recordStart = window.start + nextRecord;
+            }
+        }
+        catch (IOException IOE)
+        {
+            chunk.readFailure = IOE;
+        }
+        chunk.recordsEnd = recordStart;
+        return chunk;
+    }
+
+    /**
+     * Parse a single record, saving the offsets of its values into the chunk. Mirrors the rules of commons-csv's Lexer for CSVFormat.EXCEL:
+     * a quote is only special at the very start of a value, a doubled quote inside a quoted value is a literal quote,
+     * whitespace between a closing quote and the next delimiter or line break is dropped, and any of CRLF, LF, or a lone CR ends a record.
+     * @param window The mapped bytes the record starts in
+     * @param position The position of the record's first byte inside the window
+     * @param chunk The chunk to save the record's value offsets into. The details of a malformed record are saved here as well.
+     * @return The position inside the window where the next record starts. NEED_MORE_INPUT if the record runs past the end of the window, MALFORMED_RECORD if it's malformed.
+     */
+    private int parseRecord(MappedWindow window, int position, Chunk chunk)
+    {
+        ByteBuffer bytes = window.bytes;
+        int limit = window.limit;
+        boolean windowReachesEndOfFile = window.start + limit == this.fileSize;
+        int chunkOffset = (int) (window.start - chunk.recordsStart); // converts positions inside the window into offsets inside the chunk
+        while(true) // one value per pass
+        {
+            if(position == limit)
+            {
+                if(!windowReachesEndOfFile)
+                    return NEED_MORE_INPUT;
+                chunk.addValue(chunkOffset + position, chunkOffset + position, false); // the file ends straight after a delimiter
+                return position;
+            }
+
+            if(bytes.get(position) != QUOTE) // a plain value. runs up to the next delimiter or line break, quotes included
+            {
+                int valueEnd = ParallelCSVParser.findValueEnd(bytes, position, limit);
+                if(valueEnd == limit && !windowReachesEndOfFile)
+                    return NEED_MORE_INPUT;
+                chunk.addValue(chunkOffset + position, chunkOffset + valueEnd, false);
+                if(valueEnd == limit) // the file ends without a final line break
+                    return valueEnd;
+                if(bytes.get(valueEnd) != DELIMITER)
+                    return this.skipLineBreak(bytes, valueEnd, limit, windowReachesEndOfFile);
+                position = valueEnd + 1; // past the delimiter
+                continue;
+            }
+
+            int quotePosition = position++;
+            boolean hasEscapedQuotes = false;
+            while(true) // a quoted value. runs up to the closing quote, line breaks and delimiters included
+            {
+                int nextQuote = ParallelCSVParser.findQuote(bytes, position, limit);
+                if(nextQuote == limit)
+                {
+                    if(!windowReachesEndOfFile)
+                        return NEED_MORE_INPUT;
+                    chunk.setMalformedRecord(window.start + quotePosition, true);
+                    return MALFORMED_RECORD;
+                }
+                position = nextQuote + 1;
+                if(position == limit && !windowReachesEndOfFile)
+                    return NEED_MORE_INPUT; // can't tell an escaped quote from a closing one yet
+                if(position == limit || bytes.get(position) != QUOTE)
+                    break;
+                hasEscapedQuotes = true;
+                position++;
+            }
+            chunk.addValue(chunkOffset + quotePosition + 1, chunkOffset + position - 1, hasEscapedQuotes);
+
+            while(true) // only whitespace may follow the closing quote
+            {
+                if(position == limit)
+                    return windowReachesEndOfFile ? position : NEED_MORE_INPUT;
+                byte currentByte = bytes.get(position);
+                if(currentByte == DELIMITER)
+                    break;
+                if(currentByte == LF || currentByte == CR)
+                    return this.skipLineBreak(bytes, position, limit, windowReachesEndOfFile);
+                int whitespaceLength = ParallelCSVParser.getWhitespaceLength(bytes, position, limit);
+                if(whitespaceLength == 0)
+                {
+                    if(position + 4 > limit && !windowReachesEndOfFile) // a multi-byte character might be cut off
+                        return NEED_MORE_INPUT;
+                    chunk.setMalformedRecord(window.start + position, false);
+                    return MALFORMED_RECORD;
+                }
+                position += whitespaceLength;
+            }
+            position++; // past the delimiter
+        }
+    }
+
+    /**
+     * @param bytes The mapped bytes
+     * @param position The position of the CR or LF that ends a record
+     * @param limit The number of mapped bytes
+     * @param windowReachesEndOfFile True if the mapped bytes run up to the end of the file
+     * @return The position just past the line break, or NEED_MORE_INPUT if a CR is the last mapped byte and the file goes on
+     */
+    private int skipLineBreak(ByteBuffer bytes, int position, int limit, boolean windowReachesEndOfFile)
+    {
+        if(bytes.get(position) == LF)
+            return position + 1;
+        if(position + 1 < limit)
+            return bytes.get(position + 1) == LF ? position + 2 : position + 1;
+        return windowReachesEndOfFile ? position + 1 : NEED_MORE_INPUT;
+    }
+
+    /**
+     * Find the end of a plain value: the next delimiter, CR, or LF. The bytes are checked eight at a time with SWAR (SIMD within a register)
+     * arithmetic on little endian longs, so runs of ordinary bytes are skipped without looking at each one separately.
+     * @param bytes The mapped bytes, in little endian order
+     * @param position The position to start searching from
+     * @param limit The number of mapped bytes
+     * @return The position of the first delimiter, CR, or LF at or after position. limit if there isn't one.
+     */
+    private static int findValueEnd(ByteBuffer bytes, int position, int limit)
+    {
+        for(; position + 8 <= limit; position += 8)
+        {
+            long word = bytes.getLong(position);
+            long matches = ParallelCSVParser.matchBytes(word, DELIMITER_BYTES) | ParallelCSVParser.matchBytes(word, CR_BYTES) | ParallelCSVParser.matchBytes(word, LF_BYTES);
+            if(matches != 0)
+                return position + (Long.numberOfTrailingZeros(matches) >>> 3);
+        }
+        for(; position < limit; position++)
+        {
+            byte currentByte = bytes.get(position);
+            if(currentByte == DELIMITER || currentByte == CR || currentByte == LF)
+                return position;
+        }
+        return limit;
+    }
+
+    /**
+     * Find the next quote inside a quoted value, eight bytes at a time. See findValueEnd().
+     * @param bytes The mapped bytes, in little endian order
+     * @param position The position to start searching from
+     * @param limit The number of mapped bytes
+     * @return The position of the first quote at or after position. limit if there isn't one.
+     */
+    private static int findQuote(ByteBuffer bytes, int position, int limit)
+    {
+        for(; position + 8 <= limit; position += 8)
+        {
+            long matches = ParallelCSVParser.matchBytes(bytes.getLong(position), QUOTE_BYTES);
+            if(matches != 0)
+                return position + (Long.numberOfTrailingZeros(matches) >>> 3);
+        }
+        for(; position < limit; position++)
+            if(bytes.get(position) == QUOTE)
+                return position;
+        return limit;
+    }
+
+    /**
+     * Find the next CR or LF, eight bytes at a time. See findValueEnd().
+     * @param bytes The mapped bytes, in little endian order
+     * @param position The position to start searching from
+     * @param limit The number of mapped bytes
+     * @return The position of the first CR or LF at or after position. limit if there isn't one.
+     */
+    private static int findLineBreak(ByteBuffer bytes, int position, int limit)
+    {
+        for(; position + 8 <= limit; position += 8)
+        {
+            long word = bytes.getLong(position);
+            long matches = ParallelCSVParser.matchBytes(word, CR_BYTES) | ParallelCSVParser.matchBytes(word, LF_BYTES);
+            if(matches != 0)
+                return position + (Long.numberOfTrailingZeros(matches) >>> 3);
+        }
+        for(; position < limit; position++)
+        {
+            byte currentByte = bytes.get(position);
+            if(currentByte == CR || currentByte == LF)
+                return position;
+        }
+        return limit;
+    }
+
+    /**
+     * @param word Eight bytes of input, the first of them in the lowest byte
+     * @param pattern The byte being searched for, repeated in all eight bytes
+     * @return The high bit of each byte of word that equals the pattern byte is set. Bytes above the lowest match can also be flagged
+     *         through borrows, so only the lowest flagged byte can be trusted, which is all the callers use.
+     */
+    private static long matchBytes(long word, long pattern)
+    {
+        long difference = word ^ pattern;
+        return (difference - LOW_BITS) & ~difference & HIGH_BITS;
+    }
+
+    /**
+     * @param bytes The mapped bytes
+     * @param position The position of the first byte of a character
+     * @param limit The number of mapped bytes
+     * @return The number of bytes in the character if it's whitespace, the way Character.isWhitespace sees it. 0 if it isn't.
+     */
+    private static int getWhitespaceLength(ByteBuffer bytes, int position, int limit)
+    {
+        int firstByte = bytes.get(position) & 0xFF;
+        if(firstByte < 0x80)
+            return Character.isWhitespace((char) firstByte) ? 1 : 0;
+        int characterLength = firstByte >= 0xE0 ? (firstByte >= 0xF0 ? 4 : 3) : 2;
+        if(characterLength != 3 || position + characterLength > limit) // every non-ASCII whitespace character in the BMP encodes to 3 bytes
+            return 0;
+        char decodedCharacter = (char) (((firstByte & 0x0F) << 12) | ((bytes.get(position + 1) & 0x3F) << 6) | (bytes.get(position + 2) & 0x3F));
+        return Character.isWhitespace(decodedCharacter) ? characterLength : 0;
+    }
+
+    /**
+     * Find where the first line that starts inside a chunk's byte range starts. This is only a guess at a record boundary,
+     * since the line break before it may belong to a quoted value.
+     * @param chunkStart The offset of the chunk's first byte
+     * @return The offset just past the first line break at or after chunkStart - 1, or the end of the file if there isn't one
+     * @throws IOException If the file can't be mapped
+     */
+    private long findLineStart(long chunkStart) throws IOException
+    {
+        MappedWindow window = new MappedWindow(chunkStart - 1, this.chunkSize + WINDOW_OVERHANG);
+        int position = 0;
+        while(true)
+        {
+            position = ParallelCSVParser.findLineBreak(window.bytes, position, window.limit);
+            boolean windowReachesEndOfFile = window.start + window.limit == this.fileSize;
+            if(position == window.limit && windowReachesEndOfFile)
+                return this.fileSize;
+            int lineStart = position == window.limit ? NEED_MORE_INPUT : this.skipLineBreak(window.bytes, position, window.limit, windowReachesEndOfFile);
+            if(lineStart != NEED_MORE_INPUT)
+                return window.start + lineStart;
+            window = window.grow(window.start + position);
+            position = 0;
+        }
+    }
+
+    /**
+     * Counts line breaks the way commons-csv does for its error messages: every CR, and every LF that doesn't follow a CR
+     * @param endOffset The offset to count up to, exclusive
+     * @return The number of line breaks between the start of the data and endOffset
+     * @throws IOException If the file can't be mapped
+     */
+    private long countLineBreaks(long endOffset) throws IOException
+    {
+        long lineBreaks = 0;
+        byte previousByte = 0;
+        for(long segmentStart = this.dataStart; segmentStart < endOffset; segmentStart += MAX_WINDOW_SIZE)
+        {
+            MappedByteBuffer segment = this.fileChannel.map(FileChannel.MapMode.READ_ONLY, segmentStart, Math.min(MAX_WINDOW_SIZE, endOffset - segmentStart));
+            while(segment.hasRemaining())
+            {
+                byte currentByte = segment.get();
+                if(currentByte == CR || (currentByte == LF && previousByte != CR))
+                    lineBreaks++;
+                previousByte = currentByte;
+            }
+        }
+        return lineBreaks;
+    }
+
+    /**
+     * @return True if the file starts with a UTF-8 byte order mark
+     * @throws IOException If the file can't be mapped
+     */
+    private boolean startsWithByteOrderMark() throws IOException
+    {
+        if(this.fileSize < UTF8_BOM.length)
+            return false;
+        MappedByteBuffer leadingBytes = this.fileChannel.map(FileChannel.MapMode.READ_ONLY, 0, UTF8_BOM.length);
+        for(int x = 0; x < UTF8_BOM.length; x++)
+            if(leadingBytes.get(x) != UTF8_BOM[x])
+                return false;
+        return true;
+    }
+
+    /**
+     * A mapped range of the file. Grown and remapped whenever a record runs past its end.
+     */
+    private final class MappedWindow
+    {
+        private final long start;
+        private final int limit;
+
+        /**
+         * The mapped bytes, read eight at a time as little endian longs by the SWAR searches
+         */
+        private final ByteBuffer bytes;
+
+        private MappedWindow(long start, long length) throws IOException
+        {
+            this.start = start;
+            this.limit = (int) Math.min(Math.min(length, MAX_WINDOW_SIZE), ParallelCSVParser.this.fileSize - start);
+            this.bytes = ParallelCSVParser.this.fileChannel.map(FileChannel.MapMode.READ_ONLY, start, this.limit).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        /**
+         * @param newStart Where the new window should start. Must be inside this window.
+         * @return A window twice the size of this one
+         * @throws IOException If a single record would need a window larger than 2 GB, or the file can't be mapped
+         */
+        private MappedWindow grow(long newStart) throws IOException
+        {
+            if(this.limit == MAX_WINDOW_SIZE && newStart == this.start)
+                throw new IOException("A single CSV record starting at byte " + newStart + " is larger than " + MAX_WINDOW_SIZE + " bytes");
+            return new MappedWindow(newStart, Math.min(MAX_WINDOW_SIZE, this.limit * 2L));
+        }
+    }
+
+    /**
+     * Decodes single values out of a chunk's mapped bytes. Belongs to the reading thread.
+     */
+    private static final class ValueDecoder
+    {
+        private byte[] valueBytes = new byte[256];
+
+        /**
+         * @param bytes The chunk's mapped bytes
+         * @param valueStart The offset of the value's first byte inside the chunk
+         * @param valueEnd The offset just past the value's last byte inside the chunk, or its complement if the value has escaped quotes
+         * @return The decoded value
+         */
+        private String decode(ByteBuffer bytes, int valueStart, int valueEnd)
+        {
+            boolean hasEscapedQuotes = valueEnd < 0;
+            if(hasEscapedQuotes)
+                valueEnd = ~valueEnd;
+            int length = valueEnd - valueStart;
+            if(length == 0)
+                return "";
+            if(length > this.valueBytes.length)
+                this.valueBytes = new byte[Math.max(length, this.valueBytes.length * 2)];
+            bytes.position(valueStart);
+            bytes.get(this.valueBytes, 0, length);
+            if(hasEscapedQuotes) // collapse each doubled quote into one
+            {
+                int unescapedLength = 0;
+                for(int x = 0; x < length; x++)
+                {
+                    this.valueBytes[unescapedLength++] = this.valueBytes[x];
+                    if(this.valueBytes[x] == QUOTE)
+                        x++;
+                }
+                length = unescapedLength;
+            }
+            return new String(this.valueBytes, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * The offsets of the values tokenized out of one chunk, and where its records start and end in the file.
+     * Only offsets are kept; a handful of int arrays per chunk no matter how many values it has.
+     */
+    private static final class Chunk
+    {
+        /**
+         * The offset of the first record. Compared against where the chunk before this one actually ended.
+         */
+        private final long recordsStart;
+
+        /**
+         * The offset just past the last record, which is where the next chunk's first record starts
+         */
+        private long recordsEnd;
+
+        /**
+         * The start and end offset of each value, relative to recordsStart. The end offset is complemented when the value has escaped quotes.
+         */
+        private int[] valueBounds = new int[1 << 12];
+
+        private int valueCount = 0;
+
+        /**
+         * The number of values up to and including each record
+         */
+        private int[] recordEnds = new int[1 << 8];
+
+        private int recordCount = 0;
+
+        /**
+         * The chunk's bytes from recordsStart to recordsEnd. Mapped once the chunk is read back in order.
+         */
+        private ByteBuffer bytes = null;
+
+        /**
+         * The offset of the offending character of a malformed record, or of the opening quote that was never closed. -1 if every record is well formed.
+         */
+        private long malformedOffset = -1;
+
+        /**
+         * True if the malformed record has a quoted value that's never closed
+         */
+        private boolean unterminatedQuote;
+
+        /**
+         * Set if the chunk couldn't be read
+         */
+        private IOException readFailure = null;
+
+        private Chunk(long recordsStart) { this.recordsStart = recordsStart; }
+
+        private Chunk(long recordsStart, IOException readFailure)
+        {
+            this(recordsStart);
+            this.readFailure = readFailure;
+            this.recordsEnd = recordsStart;
+        }
+
+        private void addValue(int valueStart, int valueEnd, boolean hasEscapedQuotes)
+        {
+            if(this.valueCount * 2 == this.valueBounds.length)
+                this.valueBounds = Arrays.copyOf(this.valueBounds, this.valueBounds.length * 2);
+            this.valueBounds[this.valueCount * 2] = valueStart;
+            this.valueBounds[this.valueCount * 2 + 1] = hasEscapedQuotes ? ~valueEnd : valueEnd;
+            this.valueCount++;
+        }
+
+        private void endRecord()
+        {
+            if(this.recordCount == this.recordEnds.length)
+                this.recordEnds = Arrays.copyOf(this.recordEnds, this.recordEnds.length * 2);
+            this.recordEnds[this.recordCount++] = this.valueCount;
+        }
+
+        private void discardRecord() { this.valueCount = this.recordCount == 0 ? 0 : this.recordEnds[this.recordCount - 1]; }
+
+        private void setMalformedRecord(long malformedOffset, boolean unterminatedQuote)
+        {
+            this.malformedOffset = malformedOffset;
+            this.unterminatedQuote = unterminatedQuote;
+        }
+
+        private boolean hasFailed() { return this.readFailure != null || this.malformedOffset != -1; }
+
+        /**
+         * @param parser The parser the chunk belongs to, used to find the line number of a malformed record
+         * @return The exception to report the failure with, worded the same as commons-csv's
+         */
+        private IOException getFailure(ParallelCSVParser parser)
+        {
+            if(this.readFailure != null)
+                return this.readFailure;
+            try
+            {
+                long lineNumber = parser.countLineBreaks(this.malformedOffset) + 1;
+                if(this.unterminatedQuote)
+                    return new IOException("(startline " + lineNumber + ") EOF reached before encapsulated token finished");
+                return new IOException("(line " + lineNumber + ") invalid char between encapsulated token and delimiter");
+            }
+            catch (IOException IOE)
+            {
+                return IOE;
+            }
+        }
+    }
+}
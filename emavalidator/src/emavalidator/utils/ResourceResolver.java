@@ -1,12 +1,35 @@
 package emavalidator.utils;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.HashMap;
 
 import org.w3c.dom.ls.LSInput;
 import org.w3c.dom.ls.LSResourceResolver;
 
+/**
+ * Resolves the schemas imported by the avails XSD templates out of an in-memory catalog of the templates bundled with the validator.
+ * The catalog is read off of the classpath once per process. Imports that aren't bundled are left to the schema parser to resolve itself.
+ */
 public class ResourceResolver implements LSResourceResolver
 {
+    /**
+     * The classpath location of the bundled XSD templates
+     */
+    public static final String SCHEMA_RESOURCE_PATH = "emavalidator/resources/ema_xsd_template/";
+
+    /**
+     * The file names of every resource bundled under SCHEMA_RESOURCE_PATH
+     */
+    private static final String[] BUNDLED_RESOURCES = { "avails-v1.6a.xsd", "avails-v2.0.xsd", "avails-v2.1.xsd",
+                                                        "md-v2.3.xsd", "md-v2.4.xsd", "mdmec-v2.3.xsd", "mdmec-v2.4.xsd", "datatypes.dtd" };
+
+    /**
+     * The contents of each bundled resource, keyed by file name
+     */
+    private static final HashMap<String, byte[]> CATALOG = ResourceResolver.loadCatalog();
 
     public ResourceResolver() 
     {
@@ -16,14 +39,49 @@ public class ResourceResolver implements LSResourceResolver
     public LSInput resolveResource(String type, String namespaceURI,
             String publicId, String systemId, String baseURI) 
     {
-        InputStream resourceAsStream;
-        System.out.println("Resolving: " + type + ", " + namespaceURI + ", " +  publicId  + ", " + systemId + ", " + baseURI);
+        byte[] bundledResource = ResourceResolver.getBundledResource(systemId);
+        if(bundledResource == null) // not bundled. let the parser resolve it on its own
+            return null;
+        return new Input(publicId, systemId, new ByteArrayInputStream(bundledResource));
+    }
 
-         // note: in this sample, the XSD's are expected to be in the root of the classpath
-        resourceAsStream = this.getClass().getClassLoader().getResourceAsStream(systemId);
+    /**
+     * @param systemId The system ID of the resource. Only the file name at the end of it is looked at, so absolute URLs and relative paths both resolve.
+     * @return The contents of the bundled resource, or null if the resource isn't bundled
+     */
+    public static byte[] getBundledResource(String systemId)
+    {
+        if(systemId == null)
+            return null;
+        return CATALOG.get(systemId.substring(systemId.lastIndexOf('/') + 1));
+    }
 
-        return new Input(publicId, systemId, resourceAsStream);
+    /**
+     * @return The contents of every bundled resource that could be read off of the classpath, keyed by file name
+     */
+    private static HashMap<String, byte[]> loadCatalog()
+    {
+        HashMap<String, byte[]> catalog = new HashMap<String, byte[]>();
+        for(String currentResource : BUNDLED_RESOURCES)
+        {
+            InputStream resourceAsStream = ResourceResolver.class.getClassLoader().getResourceAsStream(SCHEMA_RESOURCE_PATH + currentResource);
+            if(resourceAsStream == null)
+                continue;
+            try
+            {
+                ByteArrayOutputStream resourceContents = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int bytesRead;
+                while((bytesRead = resourceAsStream.read(buffer)) != -1)
+                    resourceContents.write(buffer, 0, bytesRead);
+                catalog.put(currentResource, resourceContents.toByteArray());
+            }
+            catch (IOException IOE) { } // leave it out of the catalog. the parser will try to resolve it on its own
+            finally
+            {
+                try { resourceAsStream.close(); } catch (IOException IOE) { }
+            }
+        }
+        return catalog;
     }
-    
 }
-
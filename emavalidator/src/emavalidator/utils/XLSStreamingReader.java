@@ -0,0 +1,352 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package emavalidator.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.apache.poi.hssf.eventusermodel.EventWorkbookBuilder.SheetRecordCollectingListener;
+import org.apache.poi.hssf.eventusermodel.FormatTrackingHSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFListener;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.model.HSSFFormulaParser;
+import org.apache.poi.hssf.record.BOFRecord;
+import org.apache.poi.hssf.record.BlankRecord;
+import org.apache.poi.hssf.record.BoolErrRecord;
+import org.apache.poi.hssf.record.BoundSheetRecord;
+import org.apache.poi.hssf.record.CellValueRecordInterface;
+import org.apache.poi.hssf.record.DateWindow1904Record;
+import org.apache.poi.hssf.record.EOFRecord;
+import org.apache.poi.hssf.record.FormulaRecord;
+import org.apache.poi.hssf.record.LabelRecord;
+import org.apache.poi.hssf.record.LabelSSTRecord;
+import org.apache.poi.hssf.record.NumberRecord;
+import org.apache.poi.hssf.record.Record;
+import org.apache.poi.hssf.record.RowRecord;
+import org.apache.poi.hssf.record.SSTRecord;
+import org.apache.poi.hssf.usermodel.HSSFDateUtil;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+import org.apache.poi.ss.formula.eval.ErrorEval;
+
+import emavalidator.AbstractEMASpec;
+import emavalidator.EMAResourceValidator;
+import emavalidator.RowView;
+import emavalidator.StreamingSheetValidator;
+import emavalidator.ValidationContext;
+
+/**
+ * Reads a legacy .xls workbook with the Apache POI HSSF event model and pushes each row of every data sheet straight into validation.
+ * No HSSFWorkbook object model is ever built; records are handed to this listener one at a time as they're read from the workbook stream.
+ * Each cell is turned into the same string that EMAResourceValidator.getCellContentsAsString gives for the usermodel cell, and rows are
+ * numbered by their actual row number in the sheet, so the results match validating the same workbook through validateEMAWorkbook.
+ */
+public class XLSStreamingReader implements HSSFListener
+{
+    /**
+     * The values stored in dateFormatCache
+     */
+    private static final byte FORMAT_UNKNOWN = 0, FORMAT_DATE = 1, FORMAT_NOT_DATE = 2;
+
+    /**
+     * Collects the workbook level records so that formulas can be turned back into their text
+     */
+    private final SheetRecordCollectingListener workbookBuildingListener;
+
+    /**
+     * Tracks the number format of every cell. Every record passes through this listener before reaching this class.
+     */
+    private final FormatTrackingHSSFListener formatListener;
+
+    /**
+     * Whether each number format index is a date format, indexed by number format index. See FORMAT_UNKNOWN, FORMAT_DATE, and FORMAT_NOT_DATE.
+     * Looked up once per format index since HSSFDateUtil.isADateFormat has to parse the format string.
+     */
+    private byte[] dateFormatCache = new byte[256];
+
+    /**
+     * A stand in workbook built from the workbook level records. Only used to turn formulas back into their text. Built on the first formula.
+     */
+    private HSSFWorkbook stubWorkbook;
+
+    /**
+     * The workbook's sheets, in the order their contents appear in the workbook stream
+     */
+    private BoundSheetRecord[] orderedSheets;
+
+    /**
+     * The sheets' names as they're read from the workbook. Ordered once the first sheet begins.
+     */
+    private final ArrayList<BoundSheetRecord> boundSheetRecords = new ArrayList<BoundSheetRecord>();
+
+    /**
+     * The shared string table of the workbook
+     */
+    private SSTRecord sstRecord;
+
+    /**
+     * True if the workbook dates are based on 1904 instead of 1900
+     */
+    private boolean date1904 = false;
+
+    /**
+     * The 0th based index of the sheet currently being read. -1 while the workbook globals are being read.
+     */
+    private int sheetIndex = -1;
+
+    /**
+     * How many BOF records are currently open. Charts embedded in a sheet open their own BOF / EOF pair inside of the sheet's.
+     */
+    private int substreamDepth = 0;
+
+    /**
+     * The validator for the sheet currently being read. Null between sheets and for sheets that are not validated.
+     */
+    private StreamingSheetValidator sheetValidator;
+
+    /**
+     * The values of the row currently being read. Reused for every row.
+     */
+    private final RowView rowView = new RowView();
+
+    /**
+     * The row number of the row currently being read. -1 if no cells have been read yet in the current sheet.
+     */
+    private int currentRowNumber = -1;
+
+    /**
+     * One past the highest column of the current row, the same as Row.getLastCellNum()
+     */
+    private int currentRowLastCellNum = 0;
+
+    /**
+     * The row numbers of row records that have been seen but whose cells haven't been read yet. Row records come ahead of their block of cells.
+     */
+    private final ArrayDeque<Integer> pendingRowNumbers = new ArrayDeque<Integer>();
+
+    /**
+     * The validation the workbook's sheets belong to
+     */
+    private final ValidationContext validationContext;
+
+    /**
+     * @param validationContext The validation the workbook's sheets belong to
+     */
+    public XLSStreamingReader(ValidationContext validationContext)
+    {
+        this.validationContext = validationContext;
+        this.formatListener = new FormatTrackingHSSFListener(this);
+        this.workbookBuildingListener = new SheetRecordCollectingListener(this.formatListener);
+    }
+
+    /**
+     * Reads and validates every data sheet of the workbook. Sheets whose names are rejected by EMAResourceValidator.isValidSheetName are skipped.
+     * @param inputStream The stream of the .xls file opened for reading
+     * @throws IOException If the workbook can't be read
+     */
+    public void process(InputStream inputStream) throws IOException
+    {
+        POIFSFileSystem fileSystem = new POIFSFileSystem(inputStream);
+        HSSFRequest request = new HSSFRequest();
+        request.addListenerForAllRecords(this.workbookBuildingListener);
+        new HSSFEventFactory().processWorkbookEvents(request, fileSystem);
+        this.finishSheet();
+    }
+
+    @Override
+    public void processRecord(Record record)
+    {
+        switch(record.getSid())
+        {
+            case BoundSheetRecord.sid:
+                this.boundSheetRecords.add((BoundSheetRecord) record);
+                break;
+            case DateWindow1904Record.sid:
+                this.date1904 = ((DateWindow1904Record) record).getWindowing() == 1;
+                break;
+            case SSTRecord.sid:
+                this.sstRecord = (SSTRecord) record;
+                break;
+            case BOFRecord.sid:
+                this.substreamDepth++;
+                int substreamType = ((BOFRecord) record).getType();
+                if(this.substreamDepth == 1 && substreamType != BOFRecord.TYPE_WORKBOOK) // every top level substream after the workbook globals is one of the bound sheets
+                    this.startSheet(substreamType == BOFRecord.TYPE_WORKSHEET);
+                break;
+            case EOFRecord.sid:
+                this.substreamDepth--;
+                if(this.substreamDepth == 0)
+                    this.finishSheet();
+                break;
+            case RowRecord.sid:
+                if(this.sheetValidator != null)
+                    this.pendingRowNumbers.add(((RowRecord) record).getRowNumber());
+                break;
+            case BlankRecord.sid:
+                this.acceptCell((BlankRecord) record, "");
+                break;
+            case BoolErrRecord.sid:
+                BoolErrRecord boolErrRecord = (BoolErrRecord) record;
+                this.acceptCell(boolErrRecord, boolErrRecord.isBoolean() ? String.valueOf(boolErrRecord.getBooleanValue()) : ErrorEval.getText(boolErrRecord.getErrorValue()));
+                break;
+            case FormulaRecord.sid:
+                if(this.sheetValidator != null) // the usermodel reads formula cells back as their formula text
+                {
+                    FormulaRecord formulaRecord = (FormulaRecord) record;
+                    this.acceptCell(formulaRecord, HSSFFormulaParser.toFormulaString(this.getStubWorkbook(), formulaRecord.getParsedExpression()));
+                }
+                break;
+            case LabelRecord.sid:
+                LabelRecord labelRecord = (LabelRecord) record;
+                this.acceptCell(labelRecord, labelRecord.getValue());
+                break;
+            case LabelSSTRecord.sid:
+                LabelSSTRecord labelSSTRecord = (LabelSSTRecord) record;
+                this.acceptCell(labelSSTRecord, this.sstRecord.getString(labelSSTRecord.getSSTIndex()).getString());
+                break;
+            case NumberRecord.sid:
+                if(this.sheetValidator != null)
+                    this.acceptCell((NumberRecord) record, this.getNumberCellContents((NumberRecord) record));
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Begins reading the next sheet of the workbook and decides whether it should be validated
+     * @param isWorksheet False for chart and macro sheets, which are never validated
+     */
+    private void startSheet(boolean isWorksheet)
+    {
+        if(this.orderedSheets == null)
+            this.orderedSheets = BoundSheetRecord.orderByBofPosition(this.boundSheetRecords);
+        this.sheetIndex++;
+        String sheetName = this.orderedSheets[this.sheetIndex].getSheetname();
+        if(isWorksheet && EMAResourceValidator.isValidSheetName(sheetName)) // do not process sheets with invalid names
+            this.sheetValidator = new StreamingSheetValidator(this.validationContext, sheetName, this.sheetIndex, false, true);
+        this.currentRowNumber = -1;
+        this.pendingRowNumbers.clear();
+    }
+
+    /**
+     * Pushes the remaining rows of the current sheet into validation and finishes validating it
+     */
+    private void finishSheet()
+    {
+        if(this.sheetValidator == null)
+            return;
+        this.acceptRowsBefore(Integer.MAX_VALUE);
+        this.sheetValidator.finish();
+        this.sheetValidator = null;
+    }
+
+    /**
+     * Adds a cell to the row that it belongs to, first pushing every earlier row into validation
+     * @param cellRecord The record of the cell
+     * @param cellContents The cell's contents as a string
+     */
+    private void acceptCell(CellValueRecordInterface cellRecord, String cellContents)
+    {
+        if(this.sheetValidator == null)
+            return;
+        if(cellRecord.getRow() != this.currentRowNumber)
+        {
+            this.acceptRowsBefore(cellRecord.getRow());
+            this.startRow(cellRecord.getRow());
+        }
+        int columnNumber = cellRecord.getColumn();
+        this.currentRowLastCellNum = Math.max(this.currentRowLastCellNum, columnNumber + 1);
+        if(columnNumber < AbstractEMASpec.MAX_REASONABLE_COLUMN_COUNT)
+            this.rowView.setCell(columnNumber, cellContents);
+    }
+
+    /**
+     * Pushes the current row, and then every row that has a row record but no cells, into validation up until the given row number
+     * @param rowNumber The row number to stop at, exclusive
+     */
+    private void acceptRowsBefore(int rowNumber)
+    {
+        if(this.currentRowNumber != -1)
+        {
+            int lastCellNum = Math.min(AbstractEMASpec.MAX_REASONABLE_COLUMN_COUNT, this.currentRowLastCellNum);
+            if(this.rowView.size() < lastCellNum) // blank cells past the last value still count towards the row's length
+                this.rowView.setCell(lastCellNum - 1, "");
+            this.sheetValidator.acceptRow(this.rowView, this.currentRowNumber);
+            this.currentRowNumber = -1;
+        }
+        while(!this.pendingRowNumbers.isEmpty() && this.pendingRowNumbers.peek() < rowNumber)
+        {
+            this.rowView.clear();
+            this.sheetValidator.acceptRow(this.rowView, this.pendingRowNumbers.poll());
+        }
+    }
+
+    /**
+     * Starts gathering the cells of a new row
+     * @param rowNumber The row number of the new row
+     */
+    private void startRow(int rowNumber)
+    {
+        if(!this.pendingRowNumbers.isEmpty() && this.pendingRowNumbers.peek() == rowNumber) // every earlier row record was already pushed by acceptRowsBefore
+            this.pendingRowNumbers.poll();
+        this.rowView.clear();
+        this.currentRowNumber = rowNumber;
+        this.currentRowLastCellNum = 0;
+    }
+
+    /**
+     * @return The stand in workbook used to turn formulas back into their text
+     */
+    private HSSFWorkbook getStubWorkbook()
+    {
+        if(this.stubWorkbook == null)
+            this.stubWorkbook = this.workbookBuildingListener.getStubHSSFWorkbook();
+        return this.stubWorkbook;
+    }
+
+    /**
+     * @param numberRecord A numeric cell
+     * @return The cell's contents as a string, formatted as a date if the cell has a date format
+     */
+    private String getNumberCellContents(NumberRecord numberRecord)
+    {
+        double cellValue = numberRecord.getValue();
+        if(HSSFDateUtil.isValidExcelDate(cellValue) && this.isDateFormatted(numberRecord))
+            return EMAResourceValidator.getDateCellContents(HSSFDateUtil.getJavaDate(cellValue, this.date1904));
+        return EMAResourceValidator.getNumericCellContents(cellValue);
+    }
+
+    /**
+     * @param numberRecord A numeric cell
+     * @return True if the cell's number format is a date format
+     */
+    private boolean isDateFormatted(NumberRecord numberRecord)
+    {
+        int formatIndex = this.formatListener.getFormatIndex(numberRecord);
+        if(formatIndex < 0)
+            return false;
+        if(formatIndex >= this.dateFormatCache.length)
+            this.dateFormatCache = Arrays.copyOf(this.dateFormatCache, Math.max(formatIndex + 1, this.dateFormatCache.length * 2));
+        if(this.dateFormatCache[formatIndex] == FORMAT_UNKNOWN)
+            this.dateFormatCache[formatIndex] = HSSFDateUtil.isADateFormat(formatIndex, this.formatListener.getFormatString(formatIndex)) ? FORMAT_DATE : FORMAT_NOT_DATE;
+        return this.dateFormatCache[formatIndex] == FORMAT_DATE;
+    }
+}
@@ -20,18 +20,24 @@ package emavalidator.utils;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PrintStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
-import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
 import org.apache.poi.openxml4j.opc.OPCPackage;
 import org.apache.poi.ss.usermodel.BuiltinFormats;
 import org.apache.poi.ss.usermodel.DataFormatter;
-import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
 import org.apache.poi.xssf.eventusermodel.XSSFReader;
 import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
 import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
@@ -46,6 +52,12 @@ import org.xml.sax.SAXException;
 import org.xml.sax.XMLReader;
 import org.xml.sax.helpers.DefaultHandler;
 
+import emavalidator.EMAResourceValidator;
+import emavalidator.ErrorLog;
+import emavalidator.RowView;
+import emavalidator.StreamingSheetValidator;
+import emavalidator.ValidationContext;
+
 /**
 * A rudimentary XLSX -> CSV processor modeled on the
 * POI sample program XLS2CSVmra by Nick Burch from the
@@ -55,12 +67,14 @@ import org.xml.sax.helpers.DefaultHandler;
 * <p/>
 * Data sheets are read using a SAX parser to keep the
 * memory footprint relatively small, so this should be
-* able to read enormous workbooks.  The styles table and
-* the shared-string table must be kept in memory.  The
-* standard POI styles table class is used, but a custom
-* (read-only) class is used for the shared string table
-* because the standard POI SharedStringsTable grows very
-* quickly with the number of unique strings.
+* able to read enormous workbooks.  The styles table must
+* be kept in memory.  The standard POI styles table class
+* is used, but a custom {@link MappedSharedStringsTable}
+* is used for the shared string table: it keeps only an
+* offset index into a memory mapped copy of the table and
+* decodes each string when a cell first refers to it. Where
+* temporary files can't be written it reads the table into
+* POI's ReadOnlySharedStringsTable instead.
 * <p/>
 * For a more advanced implementation of SAX event parsing
 * of XLSX files, see {@link XSSFEventBasedExcelExtractor}
@@ -68,6 +82,11 @@ import org.xml.sax.helpers.DefaultHandler;
 * it may be possible to simply use those with a custom 
 * {@link SheetContentsHandler} and no SAX code needed of
 * your own!
+* <p/>
+* Rather than printing CSV, each row is gathered into a
+* {@link RowView} and handed straight to a
+* {@link StreamingSheetValidator} as soon as its closing
+* tag is seen, so no intermediate CSV text is produced.
 */
 public class XLSX2CSV {
 
@@ -103,17 +122,25 @@ public class XLSX2CSV {
      /**
       * Table with unique strings
       */
-     private ReadOnlySharedStringsTable sharedStringsTable;
+     private MappedSharedStringsTable sharedStringsTable;
 
      /**
       * Destination for data
       */
-     private final PrintStream output;
+     private final StreamingSheetValidator output;
 
      /**
-      * Number of columns to read starting with leftmost
+      * The values of the row currently being read. Reused for every row.
       */
-     private final int minColumnCount;
+     private final RowView rowView;
+
+     /**
+      * Number format index and string for each cell style index, looked up
+      * from the styles table the first time each style is seen.
+      */
+     private short[] styleFormatIndexes;
+     private String[] styleFormatStrings;
+     private boolean[] styleFormatLookedUp;
 
      // Set when V start element is seen
      private boolean vIsOpen;
@@ -128,8 +155,6 @@ public class XLSX2CSV {
      private final DataFormatter formatter;
 
      private int thisColumn = -1;
-     // The last column printed to the output stream
-     private int lastColumnNumber = -1;
 
      // Gathers characters as they are seen.
      private StringBuffer value;
@@ -139,18 +164,21 @@ public class XLSX2CSV {
       *
       * @param styles  Table of styles
       * @param strings Table of shared strings
-      * @param cols    Minimum number of columns to show
       * @param target  Sink for output
       */
      public MyXSSFSheetHandler(
              StylesTable styles,
-             ReadOnlySharedStringsTable strings,
-             int cols,
-             PrintStream target) {
+             MappedSharedStringsTable strings,
+             StreamingSheetValidator target) {
          this.stylesTable = styles;
          this.sharedStringsTable = strings;
-         this.minColumnCount = cols;
          this.output = target;
+         this.rowView = new RowView();
+         // Workbooks written without a styles part have no styles table
+         int styleCount = styles == null ? 0 : styles.getNumCellStyles();
+         this.styleFormatIndexes = new short[styleCount];
+         this.styleFormatStrings = new String[styleCount];
+         this.styleFormatLookedUp = new boolean[styleCount];
          this.value = new StringBuffer();
          this.nextDataType = xssfDataType.NUMBER;
          this.formatter = new DataFormatter();
@@ -168,6 +196,10 @@ public class XLSX2CSV {
              // Clear contents cache
              value.setLength(0);
          }
+         // row => start of a new row
+         else if ("row".equals(name)) {
+             rowView.clear();
+         }
          // c => cell
          else if ("c".equals(name)) {
              // Get the cell reference
@@ -200,15 +232,10 @@ public class XLSX2CSV {
              else if (cellStyleStr != null) {
                  // It's a number, but almost certainly one
                  //  with a special style or format 
-                 XSSFCellStyle style = null;
                  int styleIndex = Integer.parseInt(cellStyleStr);
-                 style = stylesTable.getStyleAt(styleIndex);
-                 if (style != null) {
-                     this.formatIndex = style.getDataFormat();
-                     this.formatString = style.getDataFormatString();
-                     if (this.formatString == null)
-                         this.formatString = BuiltinFormats.getBuiltinFormat(this.formatIndex);
-                 }
+                 lookUpStyleFormat(styleIndex);
+                 this.formatIndex = styleFormatIndexes[styleIndex];
+                 this.formatString = styleFormatStrings[styleIndex];
              }
          }
 
@@ -235,19 +262,19 @@ public class XLSX2CSV {
                      break;
 
                  case ERROR:
-                     thisStr = "\"ERROR:" + value.toString() + '"';
+                     thisStr = "ERROR:" + value.toString();
                      break;
 
                  case FORMULA:
                      // A formula could result in a string value,
-                     // so always add double-quote characters.
-                     thisStr = '"' + value.toString() + '"';
+                     // so keep it exactly as it was cached.
+                     thisStr = value.toString();
                      break;
 
                  case INLINESTR:
                      // TODO: have seen an example of this, so it's untested.
                      XSSFRichTextString rtsi = new XSSFRichTextString(value.toString());
-                     thisStr = '"' + rtsi.toString() + '"';
+                     thisStr = rtsi.toString();
                      break;
 
                  case SSTINDEX:
@@ -255,10 +282,10 @@ public class XLSX2CSV {
                      try {
                          int idx = Integer.parseInt(sstIndex);
                          XSSFRichTextString rtss = new XSSFRichTextString(sharedStringsTable.getEntryAt(idx));
-                         thisStr = StringEscapeUtils.escapeCsv(rtss.toString());
+                         thisStr = rtss.toString();
                      }
                      catch (NumberFormatException ex) {
-                         output.println("Failed to parse SST index '" + sstIndex + "': " + ex.toString());
+                         thisStr = "Failed to parse SST index '" + sstIndex + "': " + ex.toString();
                      }
                      break;
 
@@ -275,41 +302,46 @@ public class XLSX2CSV {
                      break;
              }
 
-             // Output after we've seen the string contents
-             // Emit commas for any fields that were missing on this row
-             if (lastColumnNumber == -1) {
-                 lastColumnNumber = 0;
-             }
-             for (int i = lastColumnNumber; i < thisColumn; ++i)
-                 output.print(',');
-
-             // Might be the empty string.
-             output.print(thisStr);
-
-             // Update column
+             // Missing cells between this one and the last are left unset
+             // and read back as empty strings.
              if (thisColumn > -1)
-                 lastColumnNumber = thisColumn;
+                 rowView.setCell(thisColumn, thisStr);
 
          } else if ("row".equals(name)) {
 
-             // Print out any missing commas if needed
-             if (minColumns > 0) {
-                 // Columns are 0 based
-                 if (lastColumnNumber == -1) {
-                     lastColumnNumber = 0;
-                 }
-                 for (int i = lastColumnNumber; i < (this.minColumnCount); i++) {
-                     output.print(',');
-                 }
-             }
-
              // We're onto a new row
-             output.println();
-             lastColumnNumber = -1;
+             output.acceptRow(rowView);
          }
 
      }
 
+     /**
+      * Looks up the number format of a cell style the first time the
+      * style is seen so that every following cell sharing the style
+      * skips the styles table and builtin format lookups.
+      *
+      * @param styleIndex Index of the style in the styles table
+      */
+     private void lookUpStyleFormat(int styleIndex) {
+         if (styleIndex >= styleFormatLookedUp.length) {
+             int newLength = Math.max(styleIndex + 1, styleFormatLookedUp.length * 2);
+             styleFormatIndexes = Arrays.copyOf(styleFormatIndexes, newLength);
+             styleFormatStrings = Arrays.copyOf(styleFormatStrings, newLength);
+             styleFormatLookedUp = Arrays.copyOf(styleFormatLookedUp, newLength);
+         }
+         if (styleFormatLookedUp[styleIndex])
+             return;
+         styleFormatIndexes[styleIndex] = -1;
+         XSSFCellStyle style = stylesTable == null ? null : stylesTable.getStyleAt(styleIndex);
+         if (style != null) {
+             styleFormatIndexes[styleIndex] = style.getDataFormat();
+             styleFormatStrings[styleIndex] = style.getDataFormatString();
+             if (styleFormatStrings[styleIndex] == null)
+                 styleFormatStrings[styleIndex] = BuiltinFormats.getBuiltinFormat(styleFormatIndexes[styleIndex]);
+         }
+         styleFormatLookedUp[styleIndex] = true;
+     }
+
      /**
       * Captures characters only if a suitable element is open.
       * Originally was just "v"; extended for inlineStr also.
@@ -339,72 +371,161 @@ public class XLSX2CSV {
 
  ///////////////////////////////////////
 
+ /**
+  * Validates one sheet of the workbook on a worker thread.
+  */
+ private class SheetValidationTask implements Callable<Void> {
+
+     private final StylesTable styles;
+     private final MappedSharedStringsTable strings;
+     private final InputStream sheetInputStream;
+     private final StreamingSheetValidator sheetValidator;
+
+     public SheetValidationTask(
+             StylesTable styles,
+             MappedSharedStringsTable strings,
+             InputStream sheetInputStream,
+             StreamingSheetValidator sheetValidator) {
+         this.styles = styles;
+         this.strings = strings;
+         this.sheetInputStream = sheetInputStream;
+         this.sheetValidator = sheetValidator;
+     }
+
+     @Override
+     public Void call() throws IOException, ParserConfigurationException, SAXException {
+         try {
+             processSheet(styles, strings, sheetInputStream, sheetValidator);
+             sheetValidator.finish();
+         } finally {
+             ErrorLog.unbindCurrentThread(); // the sheet's summary was bound to this thread when its header rows were found
+             sheetInputStream.close();
+         }
+         return null;
+     }
+ }
+
+ ///////////////////////////////////////
+
  private OPCPackage xlsxPackage;
- private int minColumns;
- private PrintStream output;
+
+ private final ValidationContext validationContext;
 
  /**
-  * Creates a new XLSX -> CSV converter
+  * Creates a new XLSX -> validator pipeline
   *
   * @param pkg        The XLSX package to process
-  * @param output     The PrintStream to output the CSV to
-  * @param minColumns The minimum number of columns to output, or -1 for no minimum
+  * @param validationContext The validation the workbook's sheets belong to
   */
- public XLSX2CSV(OPCPackage pkg, PrintStream output, int minColumns) {
+ public XLSX2CSV(OPCPackage pkg, ValidationContext validationContext) {
      this.xlsxPackage = pkg;
-     this.output = output;
-     this.minColumns = minColumns;
+     this.validationContext = validationContext;
  }
 
  /**
-  * Parses and shows the content of one sheet
+  * Parses and validates the content of one sheet
   * using the specified styles and shared-strings tables.
   *
   * @param styles
   * @param strings
   * @param sheetInputStream
+  * @param sheetValidator   Sink for the sheet's rows
   */
  public void processSheet(
          StylesTable styles,
-         ReadOnlySharedStringsTable strings,
-         InputStream sheetInputStream)
+         MappedSharedStringsTable strings,
+         InputStream sheetInputStream,
+         StreamingSheetValidator sheetValidator)
          throws IOException, ParserConfigurationException, SAXException {
 
      InputSource sheetSource = new InputSource(sheetInputStream);
      SAXParserFactory saxFactory = SAXParserFactory.newInstance();
      SAXParser saxParser = saxFactory.newSAXParser();
      XMLReader sheetParser = saxParser.getXMLReader();
-     ContentHandler handler = new MyXSSFSheetHandler(styles, strings, this.minColumns, this.output);
+     ContentHandler handler = new MyXSSFSheetHandler(styles, strings, sheetValidator);
      sheetParser.setContentHandler(handler);
      sheetParser.parse(sheetSource);
  }
 
  /**
-  * Initiates the processing of the XLS workbook file to CSV.
+  * Initiates the processing of the XLS workbook file, validating
+  * every data sheet as it is read. Sheets are validated at the same
+  * time on a pool bounded by the number of available processors and
+  * all share the one styles table and shared-strings table. Each
+  * sheet reports into its own SheetErrorSummary, and the summaries
+  * are put back into workbook order once every sheet is done.
   *
   * @throws IOException
   * @throws OpenXML4JException
   * @throws ParserConfigurationException
   * @throws SAXException
   */
- public String process()
+ public void process()
          throws IOException, OpenXML4JException, ParserConfigurationException, SAXException {
 
-     ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(this.xlsxPackage);
-     XSSFReader xssfReader = new XSSFReader(this.xlsxPackage);
-     StylesTable styles = xssfReader.getStylesTable();
-     XSSFReader.SheetIterator iter = (XSSFReader.SheetIterator) xssfReader.getSheetsData();
-     
-     // TODO(ckha): Limitation when converting .xlsx Workbook into CSV, we ONLY process the first sheet.
-//     int index = 0;
-//     while (iter.hasNext()) {
+     MappedSharedStringsTable strings = new MappedSharedStringsTable(this.xlsxPackage);
+     try {
+         XSSFReader xssfReader = new XSSFReader(this.xlsxPackage);
+         processSheets(xssfReader.getStylesTable(), strings, (XSSFReader.SheetIterator) xssfReader.getSheetsData());
+     } finally {
+         strings.close();
+     }
+ }
+
+ /**
+  * Validates every data sheet, in parallel when there's more than one.
+  *
+  * @param styles
+  * @param strings
+  * @param iter    Iterator over every sheet of the workbook
+  */
+ private void processSheets(
+         StylesTable styles,
+         MappedSharedStringsTable strings,
+         XSSFReader.SheetIterator iter)
+         throws IOException, ParserConfigurationException, SAXException {
+
+     ArrayList<SheetValidationTask> sheetTasks = new ArrayList<SheetValidationTask>();
+     int index = 0;
+     while (iter.hasNext()) {
          InputStream stream = iter.next();
          String sheetName = iter.getSheetName();
-         processSheet(styles, strings, stream);
-         stream.close();
-//         ++index;
-//     }
-         return sheetName;
+         if (EMAResourceValidator.isValidSheetName(sheetName)) // do not process sheets with invalid names
+             sheetTasks.add(new SheetValidationTask(styles, strings, stream, new StreamingSheetValidator(this.validationContext, sheetName, index, true)));
+         else
+             stream.close();
+         ++index;
+     }
+
+     if (sheetTasks.size() == 1) { // nothing to run alongside, so skip the pool
+         sheetTasks.get(0).call();
+         return;
+     }
+
+     int poolSize = Math.max(1, Math.min(sheetTasks.size(), Runtime.getRuntime().availableProcessors()));
+     ExecutorService sheetPool = Executors.newFixedThreadPool(poolSize);
+     try {
+         List<Future<Void>> sheetResults = sheetPool.invokeAll(sheetTasks);
+         for (Future<Void> sheetResult : sheetResults) // report the first failure in sheet order
+             sheetResult.get();
+     } catch (InterruptedException ex) {
+         Thread.currentThread().interrupt();
+         throw new InterruptedIOException("Interrupted while validating the workbook's sheets");
+     } catch (ExecutionException ex) {
+         Throwable cause = ex.getCause();
+         if (cause instanceof IOException)
+             throw (IOException) cause;
+         if (cause instanceof SAXException)
+             throw (SAXException) cause;
+         if (cause instanceof ParserConfigurationException)
+             throw (ParserConfigurationException) cause;
+         if (cause instanceof RuntimeException)
+             throw (RuntimeException) cause;
+         throw new IllegalStateException(cause);
+     } finally {
+         sheetPool.shutdownNow();
+     }
+     this.validationContext.getErrorLog().sortSheetErrorSummaries();
  }
 
 // public static void main(String[] args) throws Exception {
@@ -426,7 +547,7 @@ public class XLSX2CSV {
 //
 //     // The package open is instantaneous, as it should be.
 //     OPCPackage p = OPCPackage.open(xlsxFile.getPath(), PackageAccess.READ);
-//     XLSX2CSV xlsx2csv = new XLSX2CSV(p, System.out, minColumns);
+//     XLSX2CSV xlsx2csv = new XLSX2CSV(p);
 //     xlsx2csv.process();
 // }
 
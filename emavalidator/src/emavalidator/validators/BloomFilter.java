@@ -0,0 +1,78 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package emavalidator.validators;
+
+/**
+ * A Bloom filter over 128-bit fingerprints, for skipping lookups of fingerprints that were definitely never added.
+ * Fingerprints are already well mixed, so the bit positions are derived straight from their two halves by double hashing.
+ */
+public final class BloomFilter
+{
+    /**
+     * About 1% false positives with HASH_COUNT bit positions per fingerprint
+     */
+    private static final int BITS_PER_FINGERPRINT = 10;
+
+    private static final int HASH_COUNT = 7;
+
+    private final long[] bits;
+
+    private final long bitCount;
+
+    /**
+     * @param expectedFingerprints The number of fingerprints the filter is sized for. More can be added at the cost of more false positives.
+     */
+    public BloomFilter(long expectedFingerprints)
+    {
+        long wordCount = Math.max(1, (Math.max(1, expectedFingerprints) * BloomFilter.BITS_PER_FINGERPRINT + 63) / 64);
+        this.bits = new long[(int) Math.min(wordCount, Integer.MAX_VALUE - 8)];
+        this.bitCount = (long) this.bits.length * 64;
+    }
+
+    /**
+     * @param high The high 64 bits of the fingerprint
+     * @param low The low 64 bits of the fingerprint
+     */
+    public void add(long high, long low)
+    {
+        long combinedHash = low;
+        for(int x = 0; x < BloomFilter.HASH_COUNT; x++)
+        {
+            long bit = (combinedHash & Long.MAX_VALUE) % this.bitCount;
+            this.bits[(int) (bit >>> 6)] |= 1L << bit;
+            combinedHash += high;
+        }
+    }
+
+    /**
+     * @param high The high 64 bits of the fingerprint
+     * @param low The low 64 bits of the fingerprint
+     * @return False if the fingerprint was never added. True if it probably was.
+     */
+    public boolean mightContain(long high, long low)
+    {
+        long combinedHash = low;
+        for(int x = 0; x < BloomFilter.HASH_COUNT; x++)
+        {
+            long bit = (combinedHash & Long.MAX_VALUE) % this.bitCount;
+            if((this.bits[(int) (bit >>> 6)] & (1L << bit)) == 0)
+                return false;
+            combinedHash += high;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,230 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package emavalidator.validators;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+
+import emavalidator.AbstractCellValidator;
+import emavalidator.AbstractErrorEntry.ErrorLevel;
+import emavalidator.ErrorLog;
+import emavalidator.errors.CellErrorSpecificValueFormat;
+
+/**
+ * Validates a cell against a fixed set of values compared without case, the same as a "(?i)^(value|value|...)$" regex.
+ * A minimal perfect hash is built over the ASCII case folded values once, when the column is built, so every lookup hashes the
+ * cell value, looks at exactly one candidate and compares it in place. Nothing is allocated per value.
+ * Only ASCII letters are folded, which is also all that a case insensitive regex folds by default.
+ */
+public class CellValidatorEnumeratedValues extends AbstractCellValidator
+{
+    /**
+     * The most seeds tried for a single bucket before giving up. A handful is normally enough.
+     */
+    private static final int MAX_BUCKET_SEED = 1 << 24;
+
+    private static final int FNV_OFFSET_BASIS = 0x811C9DC5;
+    private static final int FNV_PRIME = 0x01000193;
+
+    /**
+     * The accepted values, folded to lower case, each one sitting in the slot that it hashes to
+     */
+    private final char[][] slotValues;
+
+    /**
+     * The seed of the second hash for each first level bucket
+     */
+    private final int[] bucketSeeds;
+
+    private final int shortestValueLength;
+    private final int longestValueLength;
+    private final boolean blankAllowed;
+    private final String errorMessage;
+    private final String expectedValues;
+    private final ErrorLevel errorLevel;
+
+    /**
+     * @param acceptedValues The values accepted in the cell, compared without case. Normally one of the ValidatorUtils value sets.
+     * @param blankAllowed Whether an empty value, or one made up of only spaces and tabs, is also accepted
+     * @param errorLevel WARNING or CRITICAL error level.
+     * @param errorMessage The error message to add to the ErrorLog when the value isn't accepted
+     * @param expectedValues The list of acceptable values to print back to the user when validation fails
+     */
+    public CellValidatorEnumeratedValues(List<String> acceptedValues, boolean blankAllowed, ErrorLevel errorLevel, String errorMessage, String expectedValues)
+    {
+        if(acceptedValues.isEmpty())
+            throw new IllegalArgumentException("Can't validate against an empty set of values");
+
+        int valueCount = acceptedValues.size();
+        this.slotValues = new char[valueCount][];
+        this.bucketSeeds = new int[valueCount];
+        this.blankAllowed = blankAllowed;
+        this.errorMessage = errorMessage;
+        this.expectedValues = expectedValues;
+        this.errorLevel = errorLevel;
+
+        // spread the folded values over the first level buckets
+        int shortestLength = Integer.MAX_VALUE;
+        int longestLength = 0;
+        ArrayList<ArrayList<char[]>> buckets = new ArrayList<ArrayList<char[]>>(valueCount);
+        for(int x = 0; x < valueCount; x++)
+            buckets.add(new ArrayList<char[]>());
+        for(String acceptedValue : acceptedValues)
+        {
+            char[] foldedValue = new char[acceptedValue.length()];
+            for(int x = 0; x < foldedValue.length; x++)
+                foldedValue[x] = CellValidatorEnumeratedValues.foldCase(acceptedValue.charAt(x));
+            shortestLength = Math.min(shortestLength, foldedValue.length);
+            longestLength = Math.max(longestLength, foldedValue.length);
+            ArrayList<char[]> bucketValues = buckets.get(CellValidatorEnumeratedValues.indexOf(CellValidatorEnumeratedValues.hash(foldedValue, 0), valueCount));
+            for(char[] bucketValue : bucketValues) // equal values always share a bucket, and could never be moved into separate slots
+                if(Arrays.equals(bucketValue, foldedValue))
+                    throw new IllegalArgumentException("The accepted values aren't distinct without case: " + acceptedValues);
+            bucketValues.add(foldedValue);
+        }
+        this.shortestValueLength = shortestLength;
+        this.longestValueLength = longestLength;
+
+        // place the fullest buckets first while there are still plenty of free slots, finding a seed for each that moves all of its values into free slots
+        ArrayList<Integer> bucketOrder = new ArrayList<Integer>(valueCount);
+        for(int x = 0; x < valueCount; x++)
+            bucketOrder.add(x);
+        final ArrayList<ArrayList<char[]>> sortedBuckets = buckets;
+        Collections.sort(bucketOrder, new Comparator<Integer>()
+        {
+            @Override
+            public int compare(Integer firstBucket, Integer secondBucket) { return sortedBuckets.get(secondBucket).size() - sortedBuckets.get(firstBucket).size(); }
+        });
+        int[] bucketSlots = new int[valueCount];
+        for(int bucket : bucketOrder)
+        {
+            ArrayList<char[]> bucketValues = buckets.get(bucket);
+            if(bucketValues.isEmpty())
+                break;
+            int seed = 1;
+            while(!this.placeBucket(bucketValues, seed, bucketSlots))
+                if(++seed > MAX_BUCKET_SEED)
+                    throw new IllegalStateException("Couldn't build a perfect hash over the accepted values: " + acceptedValues);
+            this.bucketSeeds[bucket] = seed;
+        }
+    }
+
+    @Override
+    public boolean validate(String inputString, int rowNumber, int columnNumber)
+    {
+        if(this.isAccepted(inputString) || (this.blankAllowed && CellValidatorEnumeratedValues.isBlank(inputString)))
+            return true;
+        ErrorLog.appendError(new CellErrorSpecificValueFormat(rowNumber, columnNumber, this.errorMessage, this.errorLevel, StringEscapeUtils.escapeJava(inputString), this.expectedValues));
+        return false;
+    }
+
+    /**
+     * @param inputString The value to look up. Can be any value
+     * @return True if the value is one of the accepted values, ignoring case
+     */
+    public boolean isAccepted(String inputString)
+    {
+        int inputLength = inputString.length();
+        if(inputLength < this.shortestValueLength || inputLength > this.longestValueLength)
+            return false;
+        int valueCount = this.slotValues.length;
+        int bucket = CellValidatorEnumeratedValues.indexOf(CellValidatorEnumeratedValues.hash(inputString, 0), valueCount);
+        char[] candidateValue = this.slotValues[CellValidatorEnumeratedValues.indexOf(CellValidatorEnumeratedValues.hash(inputString, this.bucketSeeds[bucket]), valueCount)];
+        if(candidateValue.length != inputLength)
+            return false;
+        for(int x = 0; x < inputLength; x++)
+            if(CellValidatorEnumeratedValues.foldCase(inputString.charAt(x)) != candidateValue[x])
+                return false;
+        return true;
+    }
+
+    /**
+     * Try to move every value of a bucket into a free slot with the given seed. Nothing is placed unless all of them fit.
+     * @return True if the bucket was placed
+     */
+    private boolean placeBucket(ArrayList<char[]> bucketValues, int seed, int[] bucketSlots)
+    {
+        int valueCount = this.slotValues.length;
+        for(int x = 0; x < bucketValues.size(); x++)
+        {
+            int slot = CellValidatorEnumeratedValues.indexOf(CellValidatorEnumeratedValues.hash(bucketValues.get(x), seed), valueCount);
+            if(this.slotValues[slot] != null)
+                return false;
+            for(int y = 0; y < x; y++)
+                if(bucketSlots[y] == slot)
+                    return false;
+            bucketSlots[x] = slot;
+        }
+        for(int x = 0; x < bucketValues.size(); x++)
+            this.slotValues[bucketSlots[x]] = bucketValues.get(x);
+        return true;
+    }
+
+    /**
+     * @return True if the value is empty or made up of only spaces and tabs. The same result as matching ValidatorUtils.EMPTY_STRING_REGEX
+     */
+    private static boolean isBlank(String inputString)
+    {
+        for(int x = 0; x < inputString.length(); x++)
+            if(inputString.charAt(x) != ' ' && inputString.charAt(x) != '\t')
+                return false;
+        return true;
+    }
+
+    private static char foldCase(char character)
+    {
+        return character >= 'A' && character <= 'Z' ? (char) (character + ('a' - 'A')) : character;
+    }
+
+    /**
+     * FNV-1a over the case folded characters, finished with the murmur3 mix so that every seed spreads the values differently
+     */
+    private static int hash(CharSequence value, int seed)
+    {
+        int hash = FNV_OFFSET_BASIS ^ seed;
+        for(int x = 0; x < value.length(); x++)
+            hash = (hash ^ CellValidatorEnumeratedValues.foldCase(value.charAt(x))) * FNV_PRIME;
+        return CellValidatorEnumeratedValues.mix(hash);
+    }
+
+    private static int hash(char[] foldedValue, int seed)
+    {
+        int hash = FNV_OFFSET_BASIS ^ seed;
+        for(char character : foldedValue)
+            hash = (hash ^ character) * FNV_PRIME;
+        return CellValidatorEnumeratedValues.mix(hash);
+    }
+
+    private static int mix(int hash)
+    {
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    private static int indexOf(int hash, int slotCount)
+    {
+        return (int) ((hash & 0xFFFFFFFFL) % slotCount);
+    }
+}
@@ -21,11 +21,12 @@ import emavalidator.errors.CellErrorEmptyValue;
 
 public class CellValidatorNotEmpty extends AbstractCellValidator
 {
+    private static final CompiledRegex EMPTY_STRING = CompiledRegex.get(ValidatorUtils.EMPTY_STRING_REGEX);
     public static final String NON_BLANK_VALUES_EXPECTED = "A non blank value is expected here";
     @Override
     public boolean validate(String inputString, int rowNumber, int columnNumber)
     {
-        if(!inputString.matches(ValidatorUtils.EMPTY_STRING_REGEX))
+        if(!CellValidatorNotEmpty.EMPTY_STRING.matches(inputString))
             return true;
 
         ErrorLog.appendError(new CellErrorEmptyValue(rowNumber, columnNumber, CellErrorEmptyValue.VALUE_IS_REQUIRED, inputString, CellValidatorNotEmpty.NON_BLANK_VALUES_EXPECTED));
@@ -24,7 +24,7 @@ import emavalidator.errors.CellErrorSpecificValueFormat;
 
 public class CellValidatorRegexFormat extends AbstractCellValidator
 {
-    private String[] regexPatterns;
+    private CompiledRegex[] regexPatterns;
     private String errorMessage;
     boolean matchAll;
     private String expectedValues;
@@ -40,7 +40,9 @@ public class CellValidatorRegexFormat extends AbstractCellValidator
      */
     public CellValidatorRegexFormat(String[] regexPatterns, boolean matchAll, ErrorLevel errorLevel, String errorMessage, String expectedValues)
     {
-        this.regexPatterns = regexPatterns;
+        this.regexPatterns = new CompiledRegex[regexPatterns.length];
+        for(int x = 0; x < regexPatterns.length; x++) // compiled once here rather than on every validated value
+            this.regexPatterns[x] = CompiledRegex.get(regexPatterns[x]);
         this.errorMessage = errorMessage;
         this.matchAll = matchAll;
         this.expectedValues = expectedValues;
@@ -55,8 +57,8 @@ public class CellValidatorRegexFormat extends AbstractCellValidator
     {
         if(matchAll && regexPatterns.length > 1)
         {
-            for(String currentPattern : regexPatterns)
-                if(!inputString.matches(currentPattern))
+            for(CompiledRegex currentPattern : regexPatterns)
+                if(!currentPattern.matches(inputString))
                 {
                     ErrorLog.appendError(new CellErrorSpecificValueFormat(rowNumber, columnNumber, this.errorMessage, this.errorLevel, StringEscapeUtils.escapeJava(inputString), expectedValues));
                     return false;
@@ -65,8 +67,8 @@ public class CellValidatorRegexFormat extends AbstractCellValidator
         }
         else
         {
-            for(String currentPattern : regexPatterns)
-                if(inputString.matches(currentPattern))
+            for(CompiledRegex currentPattern : regexPatterns)
+                if(currentPattern.matches(inputString))
                     return true;
             ErrorLog.appendError(new CellErrorSpecificValueFormat(rowNumber, columnNumber, this.errorMessage, this.errorLevel, StringEscapeUtils.escapeJava(inputString), expectedValues));
             return false;
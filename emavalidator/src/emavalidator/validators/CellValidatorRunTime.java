@@ -0,0 +1,46 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package emavalidator.validators;
+
+import org.apache.commons.lang3.StringEscapeUtils;
+
+import emavalidator.AbstractCellValidator;
+import emavalidator.AbstractErrorEntry.ErrorLevel;
+import emavalidator.ErrorLog;
+import emavalidator.errors.CellErrorSpecificValueFormat;
+import emavalidator.errors.CellErrorTotalRunTime;
+
+/**
+ * Validates a run time, either as a fraction of a day (DECIMAL_FORMAT_REGEX) or as hours, minutes and seconds (TIME_FORMAT_REGEX).
+ * Empty values are accepted.
+ */
+public class CellValidatorRunTime extends AbstractCellValidator
+{
+    private static final CompiledRegex DECIMAL_FORMAT = CompiledRegex.get(ValidatorUtils.DECIMAL_FORMAT_REGEX);
+    private static final CompiledRegex EMPTY_STRING = CompiledRegex.get(ValidatorUtils.EMPTY_STRING_REGEX);
+
+    @Override
+    public boolean validate(String inputString, int rowNumber, int columnNumber)
+    {
+        if(DateParser.parseRunTime(inputString) != DateParser.INVALID ||
+           CellValidatorRunTime.DECIMAL_FORMAT.matches(inputString) ||
+           CellValidatorRunTime.EMPTY_STRING.matches(inputString))
+            return true;
+
+        ErrorLog.appendError(new CellErrorSpecificValueFormat(rowNumber, columnNumber, CellErrorTotalRunTime.TOTAL_RUN_TIME_ERROR, ErrorLevel.ERROR, StringEscapeUtils.escapeJava(inputString), CellErrorTotalRunTime.EXPECTED_TOTAL_RUN_TIME));
+        return false;
+    }
+}
@@ -17,10 +17,12 @@ package emavalidator.validators;
 
 import emavalidator.ErrorLog;
 import emavalidator.AbstractCellValidator;
+import emavalidator.CellValue;
 import emavalidator.errors.CellErrorDateValue;
 
 public class CellValidatorValidDate extends AbstractCellValidator
 {
+    private static final CompiledRegex EMPTY_STRING = CompiledRegex.get(ValidatorUtils.EMPTY_STRING_REGEX);
     private boolean allowsEmptyValues;
     private String dateClassName = "";
 
@@ -28,9 +30,15 @@ public class CellValidatorValidDate extends AbstractCellValidator
 
     @Override
     public boolean validate(String inputString, int rowNumber, int columnNumber)
+    {
+        return this.validate(inputString, null, rowNumber, columnNumber);
+    }
+
+    @Override
+    public boolean validate(String inputString, CellValue cellValue, int rowNumber, int columnNumber)
     {
         if(allowsEmptyValues)
-            if(inputString.matches(ValidatorUtils.EMPTY_STRING_REGEX))
+            if(CellValidatorValidDate.EMPTY_STRING.matches(inputString))
                 return true;
         
         // Allow "N/A" for SuppressionLiftDate
@@ -42,7 +50,7 @@ public class CellValidatorValidDate extends AbstractCellValidator
             }
         }
 
-        if(ValidatorUtils.isValidStartEndDate(this.dateClassName, inputString))
+        if(cellValue != null ? ValidatorUtils.isValidStartEndDate(this.dateClassName, cellValue) : ValidatorUtils.isValidStartEndDate(this.dateClassName, inputString))
             return true;
 
         ErrorLog.appendError(new CellErrorDateValue(rowNumber, columnNumber, CellErrorDateValue.DATE_FORMAT_ERROR, inputString, CellErrorDateValue.EXPECTED_VALUES));
@@ -0,0 +1,70 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package emavalidator.validators;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A validator regex that's compiled once for the whole process, along with a Matcher per thread that's reset and reused for every value.
+ * String.matches compiles the regex again on every single call, which made pattern compilation the largest cost of validating a sheet.
+ * Instances are shared through a central registry keyed by the regex, so every validator using one of the ValidatorUtils constants
+ * shares the same compiled Pattern no matter how many columns or specs it appears in.
+ */
+public final class CompiledRegex
+{
+    /**
+     * Every regex compiled so far, keyed by the regex itself
+     */
+    private static final ConcurrentHashMap<String, CompiledRegex> REGISTRY = new ConcurrentHashMap<String, CompiledRegex>();
+
+    private final Pattern pattern;
+
+    /**
+     * Matchers aren't thread safe, so each thread keeps its own
+     */
+    private final ThreadLocal<Matcher> threadMatcher = new ThreadLocal<Matcher>()
+    {
+        @Override
+        protected Matcher initialValue() { return CompiledRegex.this.pattern.matcher(""); }
+    };
+
+    private CompiledRegex(String regex) { this.pattern = Pattern.compile(regex); }
+
+    /**
+     * @param regex The regex to match values against. Normally one of the ValidatorUtils constants.
+     * @return The shared compiled form of the regex. Compiled on first use only.
+     */
+    public static CompiledRegex get(String regex)
+    {
+        CompiledRegex compiledRegex = REGISTRY.get(regex);
+        if(compiledRegex == null)
+        {
+            CompiledRegex newlyCompiledRegex = new CompiledRegex(regex);
+            compiledRegex = REGISTRY.putIfAbsent(regex, newlyCompiledRegex);
+            if(compiledRegex == null)
+                compiledRegex = newlyCompiledRegex;
+        }
+        return compiledRegex;
+    }
+
+    /**
+     * @param inputValue The value to match. Can be any value
+     * @return True if the entire value matches the regex. The same result as inputValue.matches(regex).
+     */
+    public boolean matches(CharSequence inputValue) { return this.threadMatcher.get().reset(inputValue).matches(); }
+}
@@ -0,0 +1,329 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package emavalidator.validators;
+
+/**
+ * Parses the date and time values found in avails straight into primitive values, without creating any objects or throwing on bad input.
+ * Every method returns INVALID when the value can't be parsed, so it's safe to call from any number of threads at once.
+ * The whole value has to be parsed. Dates follow the same calendar as java.util.GregorianCalendar: Julian before 1582-10-15 and Gregorian on and after it.
+ */
+public final class DateParser
+{
+    /**
+     * Returned by every parse method when the value isn't valid
+     */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    /**
+     * Julian date values are returned in hundred thousandths of a day, the finest precision that JULIAN_DATE_FORMAT_REGEX allows
+     */
+    public static final long JULIAN_DATE_SCALE = 100000;
+
+    private static final int MAX_YEAR = 99999;
+    private static final int MAX_JULIAN_DAY_DIGITS = 6;
+    private static final int MAX_JULIAN_FRACTION_DIGITS = 5;
+    private static final long MAX_RUN_TIME_HOURS = 1000000000000L;
+    private static final int SECONDS_PER_DAY = 86400;
+
+    /**
+     * The widest offsets that java.util.Calendar allows, -13:00 to +14:00
+     */
+    private static final int MIN_OFFSET_SECONDS = -13 * 3600;
+    private static final int MAX_OFFSET_SECONDS = 14 * 3600;
+
+    /**
+     * The Julian day number of 1970-01-01
+     */
+    private static final long EPOCH_JULIAN_DAY = 2440588;
+
+    /**
+     * The Julian day number of 1582-10-15, the first day of the Gregorian calendar
+     */
+    private static final long GREGORIAN_JULIAN_DAY = 2299161;
+
+    private static final int[] DAYS_IN_MONTH = { 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 };
+
+    private DateParser() { }
+
+    /**
+     * @param inputString A date in yyyy-MM-dd format. Each field can have any number of digits, so 2014-1-5 is also accepted.
+     * @return The number of days since 1970-01-01, or INVALID if the value isn't a date that exists
+     */
+    public static long parseDate(CharSequence inputString)
+    {
+        long packedDate = DateParser.parseDateFields(inputString, 0, inputString.length());
+        return packedDate == INVALID ? INVALID : DateParser.toEpochDay(packedDate);
+    }
+
+    /**
+     * @param inputString A date in yyyy-MM-dd format. Each field can have any number of digits, so 2014-1-5 is also accepted.
+     * @return The date as the decimal number yyyyMMdd, or INVALID if the value isn't a date that exists
+     */
+    public static long parseCompactDate(CharSequence inputString)
+    {
+        long packedDate = DateParser.parseDateFields(inputString, 0, inputString.length());
+        if(packedDate == INVALID)
+            return INVALID;
+        return DateParser.yearOf(packedDate) * 10000L + DateParser.monthOf(packedDate) * 100L + DateParser.dayOf(packedDate);
+    }
+
+    /**
+     * @param inputString An ISO-8601 date time in yyyy-MM-dd'T'HH:mm:ssXXX format, where the offset is either Z or -13:00 to +14:00
+     * @return The number of seconds since 1970-01-01T00:00:00Z, or INVALID if the value isn't a valid date time
+     */
+    public static long parseDateTime(CharSequence inputString)
+    {
+        int length = inputString.length();
+        int timeSeparator = DateParser.indexOf(inputString, 'T', 0, length);
+        if(timeSeparator == -1)
+            return INVALID;
+        long packedDate = DateParser.parseDateFields(inputString, 0, timeSeparator);
+        if(packedDate == INVALID)
+            return INVALID;
+
+        // HH:mm:ss, each with any number of digits
+        int position = timeSeparator + 1;
+        int hourEnd = DateParser.indexOf(inputString, ':', position, length);
+        int hour = DateParser.parseDigits(inputString, position, hourEnd);
+        if(hour < 0 || hour > 23)
+            return INVALID;
+        position = hourEnd + 1;
+        int minuteEnd = DateParser.indexOf(inputString, ':', position, length);
+        int minute = DateParser.parseDigits(inputString, position, minuteEnd);
+        if(minute < 0 || minute > 59)
+            return INVALID;
+        position = minuteEnd + 1;
+        int secondEnd = position;
+        while(secondEnd < length && DateParser.isDigit(inputString.charAt(secondEnd)))
+            secondEnd++;
+        int second = DateParser.parseDigits(inputString, position, secondEnd);
+        if(second < 0 || second > 59)
+            return INVALID;
+
+        int offsetSeconds = DateParser.parseOffset(inputString, secondEnd, length);
+        if(offsetSeconds == Integer.MIN_VALUE)
+            return INVALID;
+        return DateParser.toEpochDay(packedDate) * SECONDS_PER_DAY + hour * 3600 + minute * 60 + second - offsetSeconds;
+    }
+
+    /**
+     * @param inputString A Julian (serial day) date value like 45381 or 45381.42832, as matched by JULIAN_DATE_FORMAT_REGEX
+     * @return The date value in JULIAN_DATE_SCALE units, or INVALID if the value isn't a Julian date. Compares exactly as the decimal values do.
+     */
+    public static long parseJulianDate(CharSequence inputString)
+    {
+        int length = inputString.length();
+        int position = 0;
+        long julianDate = 0;
+        while(position < length && DateParser.isDigit(inputString.charAt(position)))
+            julianDate = julianDate * 10 + (inputString.charAt(position++) - '0');
+        if(position == 0 || position > MAX_JULIAN_DAY_DIGITS)
+            return INVALID;
+        julianDate *= JULIAN_DATE_SCALE;
+        if(position == length)
+            return julianDate;
+
+        if(inputString.charAt(position++) != '.')
+            return INVALID;
+        int fractionDigits = length - position;
+        if(fractionDigits == 0 || fractionDigits > MAX_JULIAN_FRACTION_DIGITS)
+            return INVALID;
+        long fractionScale = JULIAN_DATE_SCALE;
+        for(; position < length; position++)
+        {
+            if(!DateParser.isDigit(inputString.charAt(position)))
+                return INVALID;
+            fractionScale /= 10;
+            julianDate += (inputString.charAt(position) - '0') * fractionScale;
+        }
+        return julianDate;
+    }
+
+    /**
+     * @param inputString A total run time like 12:34:56, 34:56 or 3456, as matched by TIME_FORMAT_REGEX: optional hours followed by a colon,
+     * then two digit minutes and two digit seconds with an optional colon between them
+     * @return The run time in seconds, or INVALID if the value isn't a run time
+     */
+    public static long parseRunTime(CharSequence inputString)
+    {
+        int length = inputString.length();
+        int secondStart = length - 2;
+        int minuteEnd = secondStart;
+        if(minuteEnd > 0 && inputString.charAt(minuteEnd - 1) == ':')
+            minuteEnd--;
+        int minuteStart = minuteEnd - 2;
+        if(minuteStart < 0)
+            return INVALID;
+        int seconds = DateParser.parseDigits(inputString, secondStart, length);
+        int minutes = DateParser.parseDigits(inputString, minuteStart, minuteEnd);
+        if(seconds < 0 || minutes < 0)
+            return INVALID;
+        if(minuteStart == 0)
+            return minutes * 60L + seconds;
+
+        // any number of hour digits, then a colon
+        if(inputString.charAt(minuteStart - 1) != ':' || minuteStart == 1)
+            return INVALID;
+        long hours = 0;
+        for(int position = 0; position < minuteStart - 1; position++)
+        {
+            if(!DateParser.isDigit(inputString.charAt(position)) || hours >= MAX_RUN_TIME_HOURS)
+                return INVALID;
+            hours = hours * 10 + (inputString.charAt(position) - '0');
+        }
+        return hours * 3600 + minutes * 60L + seconds;
+    }
+
+    /**
+     * @param epochDay A date returned by parseDate
+     * @return The same date as a yyyyMMdd number, the same as parseCompactDate would return for it
+     */
+    public static long toCompactDate(long epochDay)
+    {
+        long julianDay = epochDay + EPOCH_JULIAN_DAY;
+        long shiftedDay = julianDay + 1401;
+        if(julianDay >= GREGORIAN_JULIAN_DAY)
+            shiftedDay += (((4 * julianDay + 274277) / 146097) * 3) / 4 - 38;
+        long cycleDay = 4 * shiftedDay + 3;
+        long dayOfYear = 5 * ((cycleDay % 1461) / 4) + 2;
+        long day = (dayOfYear % 153) / 5 + 1;
+        long month = ((dayOfYear / 153 + 2) % 12) + 1;
+        long year = cycleDay / 1461 - 4716 + (14 - month) / 12;
+        return year * 10000 + month * 100 + day;
+    }
+
+    /**
+     * @param inputString Any value
+     * @return True if the value has the exact shape of CHRONOLOGICAL_DATE_FORMAT_REGEX: yyyy-MM-dd with four, two and two digits. The date itself isn't checked.
+     */
+    public static boolean isChronologicalDateFormat(CharSequence inputString)
+    {
+        if(inputString.length() != 10 || inputString.charAt(4) != '-' || inputString.charAt(7) != '-')
+            return false;
+        for(int position = 0; position < 10; position++)
+            if(position != 4 && position != 7 && !DateParser.isDigit(inputString.charAt(position)))
+                return false;
+        return true;
+    }
+
+    /**
+     * @return The year, month and day packed as year << 16 | month << 8 | day, or INVALID if the range doesn't hold a date that exists
+     */
+    private static long parseDateFields(CharSequence inputString, int start, int end)
+    {
+        int yearEnd = DateParser.indexOf(inputString, '-', start, end);
+        int year = DateParser.parseDigits(inputString, start, yearEnd);
+        if(year < 1 || year > MAX_YEAR)
+            return INVALID;
+        int monthEnd = DateParser.indexOf(inputString, '-', yearEnd + 1, end);
+        int month = DateParser.parseDigits(inputString, yearEnd + 1, monthEnd);
+        if(month < 1 || month > 12)
+            return INVALID;
+        int day = DateParser.parseDigits(inputString, monthEnd + 1, end);
+        if(day < 1 || day > DateParser.daysInMonth(year, month))
+            return INVALID;
+        if(year == 1582 && month == 10 && day > 4 && day < 15) // skipped by the switch to the Gregorian calendar
+            return INVALID;
+        return ((long) year << 16) | (month << 8) | day;
+    }
+
+    /**
+     * @return The offset in seconds, or Integer.MIN_VALUE if the rest of the value isn't Z or an offset from -13:00 to +14:00
+     */
+    private static int parseOffset(CharSequence inputString, int start, int end)
+    {
+        if(end - start == 1 && inputString.charAt(start) == 'Z')
+            return 0;
+        if(end - start != 6 || inputString.charAt(start + 3) != ':')
+            return Integer.MIN_VALUE;
+        int sign;
+        if(inputString.charAt(start) == '+')
+            sign = 1;
+        else if(inputString.charAt(start) == '-')
+            sign = -1;
+        else
+            return Integer.MIN_VALUE;
+        int hours = DateParser.parseDigits(inputString, start + 1, start + 3);
+        int minutes = DateParser.parseDigits(inputString, start + 4, end);
+        if(hours < 0 || minutes < 0 || minutes > 59)
+            return Integer.MIN_VALUE;
+        int offsetSeconds = sign * (hours * 3600 + minutes * 60);
+        return offsetSeconds < MIN_OFFSET_SECONDS || offsetSeconds > MAX_OFFSET_SECONDS ? Integer.MIN_VALUE : offsetSeconds;
+    }
+
+    /**
+     * @return The non negative value of the ASCII digits in the range, or -1 if the range is empty, holds anything else, or doesn't fit in an int
+     */
+    private static int parseDigits(CharSequence inputString, int start, int end)
+    {
+        if(start < 0 || start >= end)
+            return -1;
+        int value = 0;
+        for(int position = start; position < end; position++)
+        {
+            char character = inputString.charAt(position);
+            if(!DateParser.isDigit(character) || value > (Integer.MAX_VALUE - 9) / 10)
+                return -1;
+            value = value * 10 + (character - '0');
+        }
+        return value;
+    }
+
+    /**
+     * @return The position of the character within the range, or the end of the range if it isn't found. -1 if start is already past the end.
+     */
+    private static int indexOf(CharSequence inputString, char character, int start, int end)
+    {
+        if(start > end)
+            return -1;
+        for(int position = start; position < end; position++)
+            if(inputString.charAt(position) == character)
+                return position;
+        return end;
+    }
+
+    private static boolean isDigit(char character) { return character >= '0' && character <= '9'; }
+
+    private static int daysInMonth(int year, int month)
+    {
+        if(month != 2)
+            return DAYS_IN_MONTH[month - 1];
+        boolean leapYear = year < 1582 ? year % 4 == 0 : (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+        return leapYear ? 29 : 28;
+    }
+
+    private static int yearOf(long packedDate) { return (int) (packedDate >>> 16); }
+    private static int monthOf(long packedDate) { return (int) (packedDate >>> 8) & 0xFF; }
+    private static int dayOf(long packedDate) { return (int) packedDate & 0xFF; }
+
+    /**
+     * @return The number of days between 1970-01-01 and the packed date, counted across the switch from the Julian to the Gregorian calendar
+     */
+    private static long toEpochDay(long packedDate)
+    {
+        int year = DateParser.yearOf(packedDate);
+        int month = DateParser.monthOf(packedDate);
+        int day = DateParser.dayOf(packedDate);
+        long adjustedYear = year + 4800 - (14 - month) / 12;
+        long adjustedMonth = month + 12 * ((14 - month) / 12) - 3;
+        long julianDay = day + (153 * adjustedMonth + 2) / 5 + 365 * adjustedYear + adjustedYear / 4;
+        if(packedDate >= (((long) 1582 << 16) | (10 << 8) | 15))
+            julianDay += -adjustedYear / 100 + adjustedYear / 400 - 32045;
+        else
+            julianDay -= 32083;
+        return julianDay - EPOCH_JULIAN_DAY;
+    }
+}
@@ -0,0 +1,390 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package emavalidator.validators;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Maps 128-bit row fingerprints to the last row number they were seen on.
+ * Fingerprints are kept in an open addressing hash table of primitive arrays until it outgrows its memory budget. The table is then sorted
+ * and spilled to a run file on local disk, and emptied. Each run is fronted by a Bloom filter, so only fingerprints that were probably spilled
+ * are looked up on disk, with a binary search through the run. That keeps the memory used per spilled fingerprint to a little over a byte,
+ * so sheets with more rows than fit in the heap can still be checked.
+ * Run files are deleted by release() once the validation is over, or when the JVM exits at the latest.
+ * Where temporary files can't be written, such as on App Engine, the table keeps growing in memory past its budget instead.
+ */
+public final class FingerprintTable
+{
+    /**
+     * Returned when a fingerprint hasn't been seen before. Row numbers have to be greater than this.
+     */
+    public static final int NOT_FOUND = 0;
+
+    /**
+     * The default memory budget for the in memory table, in bytes
+     */
+    public static final long DEFAULT_MEMORY_BUDGET = 32L * 1024 * 1024;
+
+    /**
+     * Two longs and an int per slot, in memory and in the run files
+     */
+    private static final int BYTES_PER_FINGERPRINT = 20;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * The most slots the table can grow to within its memory budget. Always a power of two.
+     */
+    private final int maxCapacity;
+
+    private long[] highs;
+    private long[] lows;
+
+    /**
+     * The row number in each slot, or NOT_FOUND if the slot is empty
+     */
+    private int[] rows;
+
+    private int size = 0;
+
+    /**
+     * Every run spilled so far, oldest first
+     */
+    private final ArrayList<SpilledRun> spilledRuns = new ArrayList<SpilledRun>();
+
+    /**
+     * False once a run file couldn't be written, after which the table is only ever grown
+     */
+    private boolean spillable = true;
+
+    /**
+     * Where run files are written. Null for the default temporary file directory.
+     */
+    private final File spillDirectory;
+
+    public FingerprintTable() { this(FingerprintTable.DEFAULT_MEMORY_BUDGET); }
+
+    /**
+     * @param memoryBudget The most memory the in memory table can use before it's spilled to disk, in bytes
+     */
+    public FingerprintTable(long memoryBudget) { this(memoryBudget, null); }
+
+    /**
+     * @param memoryBudget The most memory the in memory table can use before it's spilled to disk, in bytes
+     * @param spillDirectory The directory to write run files to, or null for the default temporary file directory
+     */
+    public FingerprintTable(long memoryBudget, File spillDirectory)
+    {
+        this.spillDirectory = spillDirectory;
+        long budgetedCapacity = Long.highestOneBit(Math.max(2, Math.min(memoryBudget / FingerprintTable.BYTES_PER_FINGERPRINT, 1 << 30)));
+        this.maxCapacity = (int) budgetedCapacity;
+        this.allocate(Math.min(FingerprintTable.INITIAL_CAPACITY, this.maxCapacity));
+    }
+
+    /**
+     * Record that a fingerprint was seen on a row
+     * @param high The high 64 bits of the fingerprint
+     * @param low The low 64 bits of the fingerprint
+     * @param row The row number the fingerprint was seen on. Has to be greater than NOT_FOUND.
+     * @return The row number the fingerprint was last seen on before this, or NOT_FOUND if it's new
+     */
+    public int put(long high, long low, int row)
+    {
+        int slot = this.findSlot(high, low);
+        int previousRow = this.rows[slot];
+        if(previousRow != FingerprintTable.NOT_FOUND)
+        {
+            this.rows[slot] = row;
+            return previousRow;
+        }
+
+        previousRow = this.findSpilled(high, low);
+        this.highs[slot] = high;
+        this.lows[slot] = low;
+        this.rows[slot] = row;
+        this.size++;
+        if(this.size * 2 > this.rows.length) // keep the table at most half full
+        {
+            if(this.rows.length < this.maxCapacity || !this.spill())
+                this.grow();
+        }
+        return previousRow;
+    }
+
+    /**
+     * @return The number of runs spilled to disk so far
+     */
+    public int getSpilledRunCount() { return this.spilledRuns.size(); }
+
+    /**
+     * Delete every run file and forget every fingerprint. The table can be filled again afterwards.
+     */
+    public void release()
+    {
+        for(SpilledRun currentRun : this.spilledRuns)
+            currentRun.runFile.delete();
+        this.spilledRuns.clear();
+        this.allocate(Math.min(FingerprintTable.INITIAL_CAPACITY, this.maxCapacity));
+        this.size = 0;
+    }
+
+    private void allocate(int capacity)
+    {
+        this.highs = new long[capacity];
+        this.lows = new long[capacity];
+        this.rows = new int[capacity];
+    }
+
+    /**
+     * @return The slot holding the fingerprint, or the empty slot where it belongs
+     */
+    private int findSlot(long high, long low)
+    {
+        int mask = this.rows.length - 1;
+        int slot = (int) low & mask;
+        while(this.rows[slot] != FingerprintTable.NOT_FOUND && (this.highs[slot] != high || this.lows[slot] != low))
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    /**
+     * @return The row number from the newest run holding the fingerprint, or NOT_FOUND
+     */
+    private int findSpilled(long high, long low)
+    {
+        for(int x = this.spilledRuns.size() - 1; x >= 0; x--)
+        {
+            int row = this.spilledRuns.get(x).find(high, low);
+            if(row != FingerprintTable.NOT_FOUND)
+                return row;
+        }
+        return FingerprintTable.NOT_FOUND;
+    }
+
+    private void grow() { this.rehash(this.rows.length * 2); }
+
+    /**
+     * Move every fingerprint into a new table with the given number of slots
+     */
+    private void rehash(int capacity)
+    {
+        long[] oldHighs = this.highs;
+        long[] oldLows = this.lows;
+        int[] oldRows = this.rows;
+        this.allocate(capacity);
+        for(int x = 0; x < oldRows.length; x++)
+        {
+            if(oldRows[x] == FingerprintTable.NOT_FOUND)
+                continue;
+            int slot = this.findSlot(oldHighs[x], oldLows[x]);
+            this.highs[slot] = oldHighs[x];
+            this.lows[slot] = oldLows[x];
+            this.rows[slot] = oldRows[x];
+        }
+    }
+
+    /**
+     * Write every fingerprint in the table to a new run file, sorted, and empty the table
+     * @return False if no run file could be written. The table is left as it was.
+     */
+    private boolean spill()
+    {
+        if(!this.spillable)
+            return false;
+        File runFile;
+        try
+        {
+            runFile = File.createTempFile("emavalidator-fingerprints", ".run", this.spillDirectory);
+            runFile.deleteOnExit();
+        }
+        catch (IOException | SecurityException e) // temporary files aren't allowed here
+        {
+            this.spillable = false;
+            return false;
+        }
+
+        int count = 0;
+        for(int x = 0; x < this.rows.length; x++) // pack the fingerprints to the front of the table
+        {
+            if(this.rows[x] == FingerprintTable.NOT_FOUND)
+                continue;
+            this.highs[count] = this.highs[x];
+            this.lows[count] = this.lows[x];
+            this.rows[count] = this.rows[x];
+            count++;
+        }
+        this.sort(0, count - 1);
+
+        BloomFilter bloomFilter = new BloomFilter(count);
+        try
+        {
+            DataOutputStream runOutput = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(runFile), 1 << 16));
+            try
+            {
+                for(int x = 0; x < count; x++)
+                {
+                    runOutput.writeLong(this.highs[x]);
+                    runOutput.writeLong(this.lows[x]);
+                    runOutput.writeInt(this.rows[x]);
+                    bloomFilter.add(this.highs[x], this.lows[x]);
+                }
+            }
+            finally
+            {
+                runOutput.close();
+            }
+        }
+        catch (IOException IOE) // out of disk space, most likely. hash the packed fingerprints back into place and keep going in memory
+        {
+            runFile.delete();
+            this.spillable = false;
+            Arrays.fill(this.rows, count, this.rows.length, FingerprintTable.NOT_FOUND);
+            this.rehash(this.rows.length);
+            return false;
+        }
+        this.spilledRuns.add(new SpilledRun(runFile, count, bloomFilter));
+
+        Arrays.fill(this.rows, FingerprintTable.NOT_FOUND);
+        this.size = 0;
+        return true;
+    }
+
+    /**
+     * Sort the packed fingerprints between the two indexes, inclusive, by their high and then low halves
+     */
+    private void sort(int first, int last)
+    {
+        while(last - first > 16)
+        {
+            int middle = (first + last) >>> 1;
+            long pivotHigh = this.highs[middle];
+            long pivotLow = this.lows[middle];
+            int left = first;
+            int right = last;
+            while(left <= right)
+            {
+                while(FingerprintTable.compare(this.highs[left], this.lows[left], pivotHigh, pivotLow) < 0)
+                    left++;
+                while(FingerprintTable.compare(this.highs[right], this.lows[right], pivotHigh, pivotLow) > 0)
+                    right--;
+                if(left <= right)
+                    this.swap(left++, right--);
+            }
+            // recurse into the smaller side so the stack stays shallow
+            if(right - first < last - left)
+            {
+                this.sort(first, right);
+                first = left;
+            }
+            else
+            {
+                this.sort(left, last);
+                last = right;
+            }
+        }
+        for(int x = first + 1; x <= last; x++)
+            for(int y = x; y > first && FingerprintTable.compare(this.highs[y - 1], this.lows[y - 1], this.highs[y], this.lows[y]) > 0; y--)
+                this.swap(y - 1, y);
+    }
+
+    private void swap(int x, int y)
+    {
+        long high = this.highs[x];
+        long low = this.lows[x];
+        int row = this.rows[x];
+        this.highs[x] = this.highs[y];
+        this.lows[x] = this.lows[y];
+        this.rows[x] = this.rows[y];
+        this.highs[y] = high;
+        this.lows[y] = low;
+        this.rows[y] = row;
+    }
+
+    private static int compare(long high, long low, long otherHigh, long otherLow)
+    {
+        if(high != otherHigh)
+            return high < otherHigh ? -1 : 1;
+        if(low != otherLow)
+            return low < otherLow ? -1 : 1;
+        return 0;
+    }
+
+    /**
+     * A run file of fingerprints sorted by their high and then low halves, each followed by its row number
+     */
+    private static final class SpilledRun
+    {
+        private final File runFile;
+
+        private final int count;
+
+        private final BloomFilter bloomFilter;
+
+        private SpilledRun(File runFile, int count, BloomFilter bloomFilter)
+        {
+            this.runFile = runFile;
+            this.count = count;
+            this.bloomFilter = bloomFilter;
+        }
+
+        /**
+         * @return The row number stored with the fingerprint, or NOT_FOUND if it isn't in this run
+         */
+        private int find(long high, long low)
+        {
+            if(!this.bloomFilter.mightContain(high, low))
+                return FingerprintTable.NOT_FOUND;
+            try
+            {
+                RandomAccessFile runInput = new RandomAccessFile(this.runFile, "r");
+                try
+                {
+                    int first = 0;
+                    int last = this.count - 1;
+                    while(first <= last)
+                    {
+                        int middle = (first + last) >>> 1;
+                        runInput.seek((long) middle * FingerprintTable.BYTES_PER_FINGERPRINT);
+                        int comparison = FingerprintTable.compare(runInput.readLong(), runInput.readLong(), high, low);
+                        if(comparison == 0)
+                            return runInput.readInt();
+                        if(comparison < 0)
+                            first = middle + 1;
+                        else
+                            last = middle - 1;
+                    }
+                    return FingerprintTable.NOT_FOUND;
+                }
+                finally
+                {
+                    runInput.close();
+                }
+            }
+            catch (IOException IOE)
+            {
+                throw new RuntimeException("Could not read spilled row fingerprints from disk", IOE);
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+
+package emavalidator.validators;
+
+/**
+ * Builds a 128-bit fingerprint out of a sequence of values, using the MurmurHash3 x64 128-bit mix over their UTF-16 chars.
+ * Each value is preceded by its length, with null kept apart from the empty string, so values that only differ in where one ends and
+ * the next begins ("ab", "c" and "a", "bc") still get different fingerprints.
+ * Instances are reset and reused for every row, so nothing is allocated per value.
+ */
+public final class RowFingerprint
+{
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private long h1;
+    private long h2;
+
+    /**
+     * The block of 8 chars being filled, 4 chars in each half
+     */
+    private long k1;
+    private long k2;
+
+    /**
+     * The number of chars added so far, including the length of each value
+     */
+    private long charCount;
+
+    public RowFingerprint() { this.reset(); }
+
+    /**
+     * Start a new fingerprint
+     * @return This fingerprint
+     */
+    public RowFingerprint reset()
+    {
+        this.h1 = 0;
+        this.h2 = 0;
+        this.k1 = 0;
+        this.k2 = 0;
+        this.charCount = 0;
+        return this;
+    }
+
+    /**
+     * @param value The next value to fingerprint. Can be null.
+     * @return This fingerprint
+     */
+    public RowFingerprint add(String value)
+    {
+        int length = value == null ? 0 : value.length() + 1;
+        this.addChar((char) (length >>> 16));
+        this.addChar((char) length);
+        for(int position = 0; position < length - 1; position++)
+            this.addChar(value.charAt(position));
+        return this;
+    }
+
+    /**
+     * Mix in everything added since the last reset. Call once, after the last value has been added.
+     * @return This fingerprint
+     */
+    public RowFingerprint finish()
+    {
+        int blockPosition = (int) (this.charCount & 7);
+        if(blockPosition > 4)
+        {
+            this.k2 *= RowFingerprint.C2;
+            this.k2 = Long.rotateLeft(this.k2, 33);
+            this.k2 *= RowFingerprint.C1;
+            this.h2 ^= this.k2;
+        }
+        if(blockPosition > 0)
+        {
+            this.k1 *= RowFingerprint.C1;
+            this.k1 = Long.rotateLeft(this.k1, 31);
+            this.k1 *= RowFingerprint.C2;
+            this.h1 ^= this.k1;
+        }
+
+        this.h1 ^= this.charCount * 2; // the length in bytes
+        this.h2 ^= this.charCount * 2;
+        this.h1 += this.h2;
+        this.h2 += this.h1;
+        this.h1 = RowFingerprint.mix(this.h1);
+        this.h2 = RowFingerprint.mix(this.h2);
+        this.h1 += this.h2;
+        this.h2 += this.h1;
+        return this;
+    }
+
+    /**
+     * @return The high 64 bits of the fingerprint. Only meaningful after finish().
+     */
+    public long getHigh() { return this.h1; }
+
+    /**
+     * @return The low 64 bits of the fingerprint. Only meaningful after finish().
+     */
+    public long getLow() { return this.h2; }
+
+    private void addChar(char character)
+    {
+        int blockPosition = (int) (this.charCount++ & 7);
+        if(blockPosition < 4)
+            this.k1 |= (long) character << (blockPosition * 16);
+        else
+            this.k2 |= (long) character << ((blockPosition - 4) * 16);
+        if(blockPosition == 7)
+            this.mixBlock();
+    }
+
+    private void mixBlock()
+    {
+        this.k1 *= RowFingerprint.C1;
+        this.k1 = Long.rotateLeft(this.k1, 31);
+        this.k1 *= RowFingerprint.C2;
+        this.h1 ^= this.k1;
+        this.h1 = Long.rotateLeft(this.h1, 27);
+        this.h1 += this.h2;
+        this.h1 = this.h1 * 5 + 0x52dce729;
+
+        this.k2 *= RowFingerprint.C2;
+        this.k2 = Long.rotateLeft(this.k2, 33);
+        this.k2 *= RowFingerprint.C1;
+        this.h2 ^= this.k2;
+        this.h2 = Long.rotateLeft(this.h2, 31);
+        this.h2 += this.h1;
+        this.h2 = this.h2 * 5 + 0x38495ab5;
+
+        this.k1 = 0;
+        this.k2 = 0;
+    }
+
+    /**
+     * The MurmurHash3 64-bit finalizer
+     */
+    private static long mix(long hash)
+    {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
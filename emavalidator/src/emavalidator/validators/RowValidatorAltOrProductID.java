@@ -15,10 +15,10 @@ limitations under the License.
 
 package emavalidator.validators;
 
-import java.util.HashMap;
-
 import emavalidator.AbstractRowValidator;
+import emavalidator.ColumnSlot;
 import emavalidator.ErrorLog;
+import emavalidator.RowValues;
 import emavalidator.columns.AltID;
 import emavalidator.columns.ProductID;
 import emavalidator.errors.RowErrorEIDRValueCheck;
@@ -28,24 +28,21 @@ import emavalidator.errors.RowErrorEIDRValueCheck;
  */
 public class RowValidatorAltOrProductID extends AbstractRowValidator
 {
+    private final ColumnSlot productIDColumn = this.column(ProductID.class);
+    private final ColumnSlot altIDColumn = this.column(AltID.class);
+
 
     @Override
-    public boolean validate(HashMap<String, String> rowValues, int rowNumber)
+    public boolean validate(RowValues rowValues, int rowNumber)
     {
-
-        try {
-            String productId = rowValues.get(ProductID.class.getSimpleName());
-            String altId = rowValues.get(AltID.class.getSimpleName());
-            
-            if (productId.isEmpty() && altId.isEmpty()) {
-                ErrorLog.appendError(new RowErrorEIDRValueCheck(rowNumber, 
-                                                                RowErrorEIDRValueCheck.ERROR_NO_EIDR_OR_ID,
-                                                                "ProductID and AltID are empty.",
-                                                                RowErrorEIDRValueCheck.EXPECTED_EIDR_OR_ID));
-            }
+        String productId = rowValues.get(this.productIDColumn);
+        String altId = rowValues.get(this.altIDColumn);
         
-        } catch (NullPointerException NPE) {
-            return true;
+        if (productId.isEmpty() && altId.isEmpty()) {
+            ErrorLog.appendError(new RowErrorEIDRValueCheck(rowNumber, 
+                                                            RowErrorEIDRValueCheck.ERROR_NO_EIDR_OR_ID,
+                                                            "ProductID and AltID are empty.",
+                                                            RowErrorEIDRValueCheck.EXPECTED_EIDR_OR_ID));
         }
         return true;
     }
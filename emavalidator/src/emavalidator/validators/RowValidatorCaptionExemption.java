@@ -15,11 +15,11 @@ limitations under the License.
 
 package emavalidator.validators;
 
-import java.util.HashMap;
-
 import emavalidator.AbstractEMASpec;
 import emavalidator.ErrorLog;
+import emavalidator.RowValues;
 import emavalidator.AbstractRowValidator;
+import emavalidator.ColumnSlot;
 import emavalidator.AbstractErrorEntry.ErrorLevel;
 import emavalidator.columns.CaptionExemption;
 import emavalidator.columns.CaptionIncluded;
@@ -29,35 +29,44 @@ import emavalidator.errors.RowErrorCaptions;
 
 public class RowValidatorCaptionExemption extends AbstractRowValidator
 {
+    private final ColumnSlot territoryColumn = this.column(Territory.class);
+    private final ColumnSlot captionIncludedColumn = this.column(CaptionIncluded.class);
+    private final ColumnSlot captionExemptionColumn = this.column(CaptionExemption.class);
+    private ColumnSlot workTypeColumn;
+
+    private static final CompiledRegex UNITED_STATES_COUNTRY_CODE_VALUE = CompiledRegex.get(ValidatorUtils.UNITED_STATES_COUNTRY_CODE_VALUE_REGEX);
+    private static final CompiledRegex NO = CompiledRegex.get(ValidatorUtils.NO_REGEX);
+    private static final CompiledRegex CAPTION_EXEMPTION_VALUES = CompiledRegex.get(ValidatorUtils.CAPTION_EXEMPTION_VALUES_REGEX);
     private AbstractEMASpec.EMAVersion emaVersion;
 
     @SuppressWarnings("unused")
     private RowValidatorCaptionExemption() {}
 
-    public RowValidatorCaptionExemption(AbstractEMASpec.EMAVersion emaVersion) { this.emaVersion = emaVersion; }
+    public RowValidatorCaptionExemption(AbstractEMASpec.EMAVersion emaVersion)
+    {
+        this.emaVersion = emaVersion;
+        if(this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec16TV) // seasons don't need caption information
+            this.workTypeColumn = this.column(WorkType.class);
+    }
 
     @Override
-    public boolean validate(HashMap<String, String> rowValues, int rowNumber)
+    public boolean validate(RowValues rowValues, int rowNumber)
     {
-        try
+        String countryCode = rowValues.get(this.territoryColumn);
+        String captionIncluded = rowValues.get(this.captionIncludedColumn);
+        String captionExemption = rowValues.get(this.captionExemptionColumn);
+
+        if(this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec16TV) // if we're validating a TV Spec
         {
-            String countryCode = rowValues.get(Territory.class.getSimpleName());
-            String captionIncluded = rowValues.get(CaptionIncluded.class.getSimpleName());
-            String captionExemption = rowValues.get(CaptionExemption.class.getSimpleName());
-
-            if(this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec16TV) // if we're validating a TV Spec
-            {
-                String workType = rowValues.get(WorkType.class.getSimpleName()); // if the current value is a Season identifier, no caption information is required
-                if(workType.contains("season"))
-                    return true;
-            }
-
-            if(countryCode.matches(ValidatorUtils.UNITED_STATES_COUNTRY_CODE_VALUE_REGEX)) // if U.S. line item
-                if(captionIncluded.matches(ValidatorUtils.NO_REGEX)) // if captions are not included
-                    if(!captionExemption.matches(ValidatorUtils.CAPTION_EXEMPTION_VALUES_REGEX))
-                        ErrorLog.appendError(new RowErrorCaptions(rowNumber, RowErrorCaptions.CAPTION_EXEMPTION_ERROR, ErrorLevel.ERROR, captionExemption, RowErrorCaptions.CAPTION_EXEMPTION_EXPECTED));
-            return false;
+            String workType = rowValues.get(this.workTypeColumn); // if the current value is a Season identifier, no caption information is required
+            if(workType.contains("season"))
+                return true;
         }
-        catch (NullPointerException NPE) { return true; } // do not need to throw an error as missing country will already
+
+        if(RowValidatorCaptionExemption.UNITED_STATES_COUNTRY_CODE_VALUE.matches(countryCode)) // if U.S. line item
+            if(RowValidatorCaptionExemption.NO.matches(captionIncluded)) // if captions are not included
+                if(!RowValidatorCaptionExemption.CAPTION_EXEMPTION_VALUES.matches(captionExemption))
+                    ErrorLog.appendError(new RowErrorCaptions(rowNumber, RowErrorCaptions.CAPTION_EXEMPTION_ERROR, ErrorLevel.ERROR, captionExemption, RowErrorCaptions.CAPTION_EXEMPTION_EXPECTED));
+        return false;
     }
 }
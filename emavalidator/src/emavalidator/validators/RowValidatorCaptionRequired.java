@@ -15,11 +15,12 @@ limitations under the License.
 
 package emavalidator.validators;
 
-import java.util.HashMap;
-
 import emavalidator.AbstractEMASpec;
+import emavalidator.CellValue;
 import emavalidator.ErrorLog;
+import emavalidator.RowValues;
 import emavalidator.AbstractRowValidator;
+import emavalidator.ColumnSlot;
 import emavalidator.AbstractErrorEntry.ErrorLevel;
 import emavalidator.columns.CaptionRequired;
 import emavalidator.columns.Territory;
@@ -28,33 +29,39 @@ import emavalidator.errors.RowErrorCaptions;
 
 public class RowValidatorCaptionRequired extends AbstractRowValidator
 {
+    private final ColumnSlot territoryColumn = this.column(Territory.class);
+    private final ColumnSlot captionRequiredColumn = this.column(CaptionRequired.class);
+    private ColumnSlot workTypeColumn;
+
+    private static final CompiledRegex UNITED_STATES_COUNTRY_CODE_VALUE = CompiledRegex.get(ValidatorUtils.UNITED_STATES_COUNTRY_CODE_VALUE_REGEX);
     private AbstractEMASpec.EMAVersion emaVersion;
 
     @SuppressWarnings("unused")
     private RowValidatorCaptionRequired() {}
 
-    public RowValidatorCaptionRequired(AbstractEMASpec.EMAVersion emaVersion) { this.emaVersion = emaVersion; }
+    public RowValidatorCaptionRequired(AbstractEMASpec.EMAVersion emaVersion)
+    {
+        this.emaVersion = emaVersion;
+        if(this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec16TV) // seasons don't need caption information
+            this.workTypeColumn = this.column(WorkType.class);
+    }
 
     @Override
-    public boolean validate(HashMap<String, String> rowValues, int rowNumber)
+    public boolean validate(RowValues rowValues, int rowNumber)
     {
-        try
+        String countryCode = rowValues.get(this.territoryColumn);
+        String captionRequired = rowValues.get(this.captionRequiredColumn);
+
+        if(this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec16TV) // if we're validating a TV Spec
         {
-            String countryCode = rowValues.get(Territory.class.getSimpleName());
-            String captionRequired = rowValues.get(CaptionRequired.class.getSimpleName());
-
-            if(this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec16TV) // if we're validating a TV Spec
-            {
-                String workType = rowValues.get(WorkType.class.getSimpleName()); // if the current value is a Season identifier, no caption information is required
-                if(workType.contains("season"))
-                    return true;
-            }
-
-            if(countryCode.matches(ValidatorUtils.UNITED_STATES_COUNTRY_CODE_VALUE_REGEX))
-                if(!captionRequired.matches(ValidatorUtils.YES_OR_NO_ONLY_REGEX))
-                    ErrorLog.appendError(new RowErrorCaptions(rowNumber, RowErrorCaptions.CAPTION_REQUIRED_ERROR, ErrorLevel.ERROR, captionRequired, RowErrorCaptions.CAPTION_REQUIRED_EXPECTED));
-            return false;
+            String workType = rowValues.get(this.workTypeColumn); // if the current value is a Season identifier, no caption information is required
+            if(workType.contains("season"))
+                return true;
         }
-        catch (NullPointerException NPE) { return true; } // do not need to throw an error as missing country will already
+
+        if(RowValidatorCaptionRequired.UNITED_STATES_COUNTRY_CODE_VALUE.matches(countryCode))
+            if(rowValues.getCellValue(this.captionRequiredColumn).getKind() != CellValue.Kind.BOOLEAN)
+                ErrorLog.appendError(new RowErrorCaptions(rowNumber, RowErrorCaptions.CAPTION_REQUIRED_ERROR, ErrorLevel.ERROR, captionRequired, RowErrorCaptions.CAPTION_REQUIRED_EXPECTED));
+        return false;
     }
 }
@@ -15,12 +15,11 @@ limitations under the License.
 
 package emavalidator.validators;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-
 import emavalidator.AbstractEMASpec;
 import emavalidator.AbstractRowValidator;
+import emavalidator.ColumnSlot;
 import emavalidator.ErrorLog;
+import emavalidator.RowValues;
 import emavalidator.columns.AltID;
 import emavalidator.columns.ContentID;
 import emavalidator.columns.EncodeID;
@@ -52,120 +51,154 @@ import emavalidator.columns.WorkType;
 import emavalidator.notifications.RowNotificationDuplicateFound;
 
 /**
- * This Row Validator is used to find duplicate row entries (defined by a concatenation of 
- * specific column values to create a Unique ID String).
+ * This Row Validator is used to find duplicate row entries (defined by a 128-bit fingerprint of
+ * specific column values, standing in for a Unique ID String).
  * @author ckha
  *
  */
 public class RowValidatorDuplicate extends AbstractRowValidator
 {
+    private final ColumnSlot storeLanguageColumn = this.optionalColumn(StoreLanguage.class);
+    private final ColumnSlot territoryColumn = this.optionalColumn(Territory.class);
+    private final ColumnSlot entryTypeColumn = this.optionalColumn(EntryType.class);
+    private final ColumnSlot titleInternalAliasColumn = this.optionalColumn(TitleInternalAlias.class);
+    private final ColumnSlot localizationTypeColumn = this.optionalColumn(LocalizationType.class);
+    private final ColumnSlot licenseTypeColumn = this.optionalColumn(LicenseType.class);
+    private final ColumnSlot formatProfileColumn = this.optionalColumn(FormatProfile.class);
+    private final ColumnSlot startColumn = this.optionalColumn(Start.class);
+    private final ColumnSlot endColumn = this.optionalColumn(End.class);
+    private final ColumnSlot priceTypeColumn = this.optionalColumn(PriceType.class);
+    private final ColumnSlot priceValueColumn = this.optionalColumn(PriceValue.class);
+    private final ColumnSlot contentIDColumn = this.optionalColumn(ContentID.class);
+    private final ColumnSlot productIDColumn = this.optionalColumn(ProductID.class);
+    private final ColumnSlot encodeIDColumn = this.optionalColumn(EncodeID.class);
+    private final ColumnSlot altIDColumn = this.optionalColumn(AltID.class);
+    private final ColumnSlot suppressionLiftDateColumn = this.optionalColumn(SuppressionLiftDate.class);
+    private final ColumnSlot specialPreOrderFulfillDateColumn = this.optionalColumn(SpecialPreOrderFulfillDate.class);
+    private final ColumnSlot workTypeColumn = this.optionalColumn(WorkType.class);
+    private final ColumnSlot seriesTitleInternalAliasColumn = this.optionalColumn(SeriesTitleInternalAlias.class);
+    private final ColumnSlot seasonNumberColumn = this.optionalColumn(SeasonNumber.class);
+    private final ColumnSlot episodeNumberColumn = this.optionalColumn(EpisodeNumber.class);
+    private final ColumnSlot seriesAltIDColumn = this.optionalColumn(SeriesAltID.class);
+    private final ColumnSlot seasonAltIDColumn = this.optionalColumn(SeasonAltID.class);
+    private final ColumnSlot episodeAltIDColumn = this.optionalColumn(EpisodeAltID.class);
+    private final ColumnSlot seriesContentIDColumn = this.optionalColumn(SeriesContentID.class);
+    private final ColumnSlot seasonContentIDColumn = this.optionalColumn(SeasonContentID.class);
+    private final ColumnSlot episodeContentIDColumn = this.optionalColumn(EpisodeContentID.class);
+    private final ColumnSlot episodeProductIDColumn = this.optionalColumn(EpisodeProductID.class);
+
     private AbstractEMASpec.EMAVersion emaVersion;
 
-    private HashMap<String, Integer> map = new HashMap<String, Integer>();
+    private FingerprintTable fingerprints = new FingerprintTable();
+
+    private RowFingerprint rowFingerprint = new RowFingerprint();
     
     public RowValidatorDuplicate(AbstractEMASpec.EMAVersion emaVersion) { this.emaVersion = emaVersion; }
 
     @Override
-    public boolean validate(HashMap<String, String> rowValues, int rowNumber)
+    public boolean isCrossRow() { return true; } // every row is compared against the rows before it
+
+    @Override
+    public void release() { this.fingerprints.release(); } // delete the fingerprints spilled to disk
+
+    @Override
+    public boolean validate(RowValues rowValues, int rowNumber)
     {
-        try
-        {
-            int actualRowNumber = rowNumber+1;
-            String concatString = "";
-            ArrayList<String> uniqueColumnsArray = new ArrayList<String>();
+        int actualRowNumber = rowNumber+1;
+        String[] uniqueColumnsArray = null;
 
-            // EMA Version 1.6 Movies
-            if(emaVersion == AbstractEMASpec.EMAVersion.EMASpec16)
-            {
-                // Get all the necessary values from the row to concatenate a UID for Movie.
-                String storeLanguage = rowValues.get(StoreLanguage.class.getSimpleName());
-                String territory = rowValues.get(Territory.class.getSimpleName());
-                String entryType = rowValues.get(EntryType.class.getSimpleName());
-                String title = rowValues.get(TitleInternalAlias.class.getSimpleName());
-                String localizationType = rowValues.get(LocalizationType.class.getSimpleName());
-                String licenseType = rowValues.get(LicenseType.class.getSimpleName());
-                String formatProfile = rowValues.get(FormatProfile.class.getSimpleName());
-                String start = rowValues.get(Start.class.getSimpleName());
-                String end = rowValues.get(End.class.getSimpleName());
-                String priceType = rowValues.get(PriceType.class.getSimpleName());
-                String priceValue = rowValues.get(PriceValue.class.getSimpleName());
-                String contentID = rowValues.get(ContentID.class.getSimpleName());
-                String productID = rowValues.get(ProductID.class.getSimpleName());
-                String encodeID = rowValues.get(EncodeID.class.getSimpleName());
-                String altID = rowValues.get(AltID.class.getSimpleName());
-                String suppressionLiftDate = rowValues.get(SuppressionLiftDate.class.getSimpleName());
-                String preorderDate = rowValues.get(SpecialPreOrderFulfillDate.class.getSimpleName());
-                
-                String[] array = {storeLanguage, territory, entryType, title, localizationType,
-                                  licenseType, formatProfile, start, end, priceType,
-                                  priceValue, contentID, productID, encodeID, altID,
-                                  suppressionLiftDate, preorderDate};
-                
-                for(int i = 0; i < array.length; i++) {
-                    uniqueColumnsArray.add(array[i]);
-                }
-            }
-            // EMA Version 1.6 TV
-            else if (this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec16TV) 
-            {
-                // Get all the necessary values from the row to concatenate a UID for Movie.
-                String storeLanguage = rowValues.get(StoreLanguage.class.getSimpleName());
-                String territory = rowValues.get(Territory.class.getSimpleName());
-                String workType = rowValues.get(WorkType.class.getSimpleName());
-                String entryType = rowValues.get(EntryType.class.getSimpleName());
-                String title = rowValues.get(SeriesTitleInternalAlias.class.getSimpleName());
-                String seasonNumber = rowValues.get(SeasonNumber.class.getSimpleName());
-                String episodeNumber = rowValues.get(EpisodeNumber.class.getSimpleName());
-                String localizationType = rowValues.get(LocalizationType.class.getSimpleName());
-                String seriesAltID = rowValues.get(SeriesAltID.class.getSimpleName());
-                String seasonAltID = rowValues.get(SeasonAltID.class.getSimpleName());
-                String episodeAltID = rowValues.get(EpisodeAltID.class.getSimpleName());
-                String licenseType = rowValues.get(LicenseType.class.getSimpleName());
-                String formatProfile = rowValues.get(FormatProfile.class.getSimpleName());
-                String start = rowValues.get(Start.class.getSimpleName());
-                String end = rowValues.get(End.class.getSimpleName());
-                String preorderDate = rowValues.get(SpecialPreOrderFulfillDate.class.getSimpleName());
-                String priceType = rowValues.get(PriceType.class.getSimpleName());
-                String priceValue = rowValues.get(PriceValue.class.getSimpleName());
-                String seriesContentID = rowValues.get(SeriesContentID.class.getSimpleName());
-                String seasonContentID = rowValues.get(SeasonContentID.class.getSimpleName());
-                String episodeContentID = rowValues.get(EpisodeContentID.class.getSimpleName());
-                String episodeProductID = rowValues.get(EpisodeProductID.class.getSimpleName());
-                String encodeID = rowValues.get(EncodeID.class.getSimpleName());
-                String suppressionLiftDate = rowValues.get(SuppressionLiftDate.class.getSimpleName());
-                
-                String[] array = {storeLanguage, territory, workType, entryType, title,
-                                  seasonNumber, episodeNumber, localizationType, seriesAltID, seasonAltID,
-                                  episodeAltID, licenseType, formatProfile, start, end,
-                                  preorderDate, priceType, priceValue, seriesContentID, seasonContentID,
-                                  episodeContentID, episodeProductID, encodeID, suppressionLiftDate};
-                
-                for(int i = 0; i < array.length; i++) {
-                    uniqueColumnsArray.add(array[i]);
-                }
-            }
+        // EMA Version 1.6 Movies
+        if(emaVersion == AbstractEMASpec.EMAVersion.EMASpec16)
+        {
+            // Get all the necessary values from the row to concatenate a UID for Movie.
+            String storeLanguage = rowValues.get(this.storeLanguageColumn);
+            String territory = rowValues.get(this.territoryColumn);
+            String entryType = rowValues.get(this.entryTypeColumn);
+            String title = rowValues.get(this.titleInternalAliasColumn);
+            String localizationType = rowValues.get(this.localizationTypeColumn);
+            String licenseType = rowValues.get(this.licenseTypeColumn);
+            String formatProfile = rowValues.get(this.formatProfileColumn);
+            String start = rowValues.get(this.startColumn);
+            String end = rowValues.get(this.endColumn);
+            String priceType = rowValues.get(this.priceTypeColumn);
+            String priceValue = rowValues.get(this.priceValueColumn);
+            String contentID = rowValues.get(this.contentIDColumn);
+            String productID = rowValues.get(this.productIDColumn);
+            String encodeID = rowValues.get(this.encodeIDColumn);
+            String altID = rowValues.get(this.altIDColumn);
+            String suppressionLiftDate = rowValues.get(this.suppressionLiftDateColumn);
+            String preorderDate = rowValues.get(this.specialPreOrderFulfillDateColumn);
             
-            // Concatenate all values into a Unique ID String
-            concatString = ValidatorUtils.concatUIDString(uniqueColumnsArray);
+            String[] array = {storeLanguage, territory, entryType, title, localizationType,
+                              licenseType, formatProfile, start, end, priceType,
+                              priceValue, contentID, productID, encodeID, altID,
+                              suppressionLiftDate, preorderDate};
             
-            // Check to make sure the UID String is not already in the static hashmap.
-            if(map.get(concatString) != null) {
-                //If found, notify that a duplicate was found.
-                Integer otherRowNumber = this.map.get(concatString);
-
-                ErrorLog.appendNotification(new RowNotificationDuplicateFound(rowNumber, 
-                                            RowNotificationDuplicateFound.DUPLICATE_ITEM_FOUND_NOTIFICATION_MESSAGE,
-                                            otherRowNumber.toString(),
-                                            RowNotificationDuplicateFound.DUPLICATE_ITEM_FOUND_NOTIFICATION_DETAILS));
-            }
+            uniqueColumnsArray = array;
+        }
+        // EMA Version 1.6 TV
+        else if (this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec16TV) 
+        {
+            // Get all the necessary values from the row to concatenate a UID for Movie.
+            String storeLanguage = rowValues.get(this.storeLanguageColumn);
+            String territory = rowValues.get(this.territoryColumn);
+            String workType = rowValues.get(this.workTypeColumn);
+            String entryType = rowValues.get(this.entryTypeColumn);
+            String title = rowValues.get(this.seriesTitleInternalAliasColumn);
+            String seasonNumber = rowValues.get(this.seasonNumberColumn);
+            String episodeNumber = rowValues.get(this.episodeNumberColumn);
+            String localizationType = rowValues.get(this.localizationTypeColumn);
+            String seriesAltID = rowValues.get(this.seriesAltIDColumn);
+            String seasonAltID = rowValues.get(this.seasonAltIDColumn);
+            String episodeAltID = rowValues.get(this.episodeAltIDColumn);
+            String licenseType = rowValues.get(this.licenseTypeColumn);
+            String formatProfile = rowValues.get(this.formatProfileColumn);
+            String start = rowValues.get(this.startColumn);
+            String end = rowValues.get(this.endColumn);
+            String preorderDate = rowValues.get(this.specialPreOrderFulfillDateColumn);
+            String priceType = rowValues.get(this.priceTypeColumn);
+            String priceValue = rowValues.get(this.priceValueColumn);
+            String seriesContentID = rowValues.get(this.seriesContentIDColumn);
+            String seasonContentID = rowValues.get(this.seasonContentIDColumn);
+            String episodeContentID = rowValues.get(this.episodeContentIDColumn);
+            String episodeProductID = rowValues.get(this.episodeProductIDColumn);
+            String encodeID = rowValues.get(this.encodeIDColumn);
+            String suppressionLiftDate = rowValues.get(this.suppressionLiftDateColumn);
             
-            // Insert the UID String into the hashmap.
-            if(concatString.length() > 0) {
-                this.map.put(concatString, actualRowNumber);                
-            }
+            String[] array = {storeLanguage, territory, workType, entryType, title,
+                              seasonNumber, episodeNumber, localizationType, seriesAltID, seasonAltID,
+                              episodeAltID, licenseType, formatProfile, start, end,
+                              preorderDate, priceType, priceValue, seriesContentID, seasonContentID,
+                              episodeContentID, episodeProductID, encodeID, suppressionLiftDate};
+            
+            uniqueColumnsArray = array;
+        }
+        
+        if(uniqueColumnsArray == null) {
+            return false;
+        }
+
+        // Fingerprint all values in place of a Unique ID String. Rows with nothing but empty values have no Unique ID.
+        boolean hasUniqueID = false;
+        this.rowFingerprint.reset();
+        for(int i = 0; i < uniqueColumnsArray.length; i++) {
+            this.rowFingerprint.add(uniqueColumnsArray[i]);
+            hasUniqueID |= uniqueColumnsArray[i] == null || uniqueColumnsArray[i].length() > 0;
+        }
+        if(!hasUniqueID) {
             return false;
-        } 
-        catch (NullPointerException NPE) { return true; }
+        }
+        this.rowFingerprint.finish();
 
+        // Record the fingerprint, checking to make sure it wasn't already seen on an earlier row.
+        int otherRowNumber = this.fingerprints.put(this.rowFingerprint.getHigh(), this.rowFingerprint.getLow(), actualRowNumber);
+        if(otherRowNumber != FingerprintTable.NOT_FOUND) {
+            //If found, notify that a duplicate was found.
+            ErrorLog.appendNotification(new RowNotificationDuplicateFound(rowNumber, 
+                                        RowNotificationDuplicateFound.DUPLICATE_ITEM_FOUND_NOTIFICATION_MESSAGE,
+                                        String.valueOf(otherRowNumber),
+                                        RowNotificationDuplicateFound.DUPLICATE_ITEM_FOUND_NOTIFICATION_DETAILS));
+        }
+        return false;
     }
 }
@@ -5,7 +5,9 @@ import java.util.HashMap;
 
 import emavalidator.AbstractEMASpec;
 import emavalidator.AbstractRowValidator;
+import emavalidator.ColumnSlot;
 import emavalidator.ErrorLog;
+import emavalidator.RowValues;
 import emavalidator.columns.End;
 import emavalidator.columns.EpisodeNumber;
 import emavalidator.columns.FormatProfile;
@@ -20,6 +22,17 @@ import emavalidator.errors.RowErrorDuplicateEpisodeNumber;
 
 public class RowValidatorDuplicateEpisodeNumber extends AbstractRowValidator
 {
+    private final ColumnSlot workTypeColumn = this.column(WorkType.class);
+    private final ColumnSlot territoryColumn = this.optionalColumn(Territory.class);
+    private final ColumnSlot seriesTitleInternalAliasColumn = this.optionalColumn(SeriesTitleInternalAlias.class);
+    private final ColumnSlot seasonNumberColumn = this.optionalColumn(SeasonNumber.class);
+    private final ColumnSlot episodeNumberColumn = this.optionalColumn(EpisodeNumber.class);
+    private final ColumnSlot localizationTypeColumn = this.optionalColumn(LocalizationType.class);
+    private final ColumnSlot licenseTypeColumn = this.optionalColumn(LicenseType.class);
+    private final ColumnSlot formatProfileColumn = this.optionalColumn(FormatProfile.class);
+    private final ColumnSlot startColumn = this.optionalColumn(Start.class);
+    private final ColumnSlot endColumn = this.optionalColumn(End.class);
+
     private AbstractEMASpec.EMAVersion emaVersion;
 
     private HashMap<String, String> map = new HashMap<String, String>();
@@ -27,65 +40,62 @@ public class RowValidatorDuplicateEpisodeNumber extends AbstractRowValidator
     public RowValidatorDuplicateEpisodeNumber(AbstractEMASpec.EMAVersion emaVersion) { this.emaVersion = emaVersion; }
 
     @Override
-    public boolean validate(HashMap<String, String> rowValues, int rowNumber)
+    public boolean isCrossRow() { return true; } // every row is compared against the rows before it
+
+    @Override
+    public boolean validate(RowValues rowValues, int rowNumber)
     {
-        try
-        {
-            
-            String workType = rowValues.get(WorkType.class.getSimpleName());
+        String workType = rowValues.get(this.workTypeColumn);
            
-            // Only check for duplicate episode number for WorkType: "Episode".
-            if (WorkType.isEpisode(workType)) {
-                String episodeNumber = "";
-                String concatString = "";
-                ArrayList<String> uniqueColumnsArray = new ArrayList<String>();
+        // Only check for duplicate episode number for WorkType: "Episode".
+        if (WorkType.isEpisode(workType)) {
+            String episodeNumber = "";
+            String concatString = "";
+            ArrayList<String> uniqueColumnsArray = new ArrayList<String>();
 
-                // This RowValidator is only used for TV.
-                // EMA Version 1.6 TV
-                if (this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec16TV ||
-                        this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec17TV) 
-                {
-                    // Get all the necessary values from the row to concatenate a UID for Movie.
-                    String territory = rowValues.get(Territory.class.getSimpleName());
-                    String title = rowValues.get(SeriesTitleInternalAlias.class.getSimpleName());
-                    String seasonNumber = rowValues.get(SeasonNumber.class.getSimpleName());
-                    episodeNumber = rowValues.get(EpisodeNumber.class.getSimpleName());
-                    String localizationType = rowValues.get(LocalizationType.class.getSimpleName());
-                    String licenseType = rowValues.get(LicenseType.class.getSimpleName());
-                    String formatProfile = rowValues.get(FormatProfile.class.getSimpleName());
-                    String start = rowValues.get(Start.class.getSimpleName());
-                    String end = rowValues.get(End.class.getSimpleName());
-                    
-                    String[] array = {territory, title, seasonNumber, episodeNumber, localizationType, licenseType, formatProfile, start, end};
-                    
-                    for(int i = 0; i < array.length; i++) {
-                        uniqueColumnsArray.add(array[i]);
-                    }
-                }
-                
-                // Concatenate all values into a Unique ID String
-                concatString = ValidatorUtils.concatUIDString(uniqueColumnsArray);
+            // This RowValidator is only used for TV.
+            // EMA Version 1.6 TV
+            if (this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec16TV ||
+                    this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec17TV) 
+            {
+                // Get all the necessary values from the row to concatenate a UID for Movie.
+                String territory = rowValues.get(this.territoryColumn);
+                String title = rowValues.get(this.seriesTitleInternalAliasColumn);
+                String seasonNumber = rowValues.get(this.seasonNumberColumn);
+                episodeNumber = rowValues.get(this.episodeNumberColumn);
+                String localizationType = rowValues.get(this.localizationTypeColumn);
+                String licenseType = rowValues.get(this.licenseTypeColumn);
+                String formatProfile = rowValues.get(this.formatProfileColumn);
+                String start = rowValues.get(this.startColumn);
+                String end = rowValues.get(this.endColumn);
                 
-                // Check to make sure the UID String is not already in the static hashmap.
-                if(map.get(concatString) != null) {
-                    //If found, notify that a duplicate was found.
-                    //String episodeNumber = this.map.get(concatString);
-
-                    ErrorLog.appendError(new RowErrorDuplicateEpisodeNumber(rowNumber, 
-                                                RowErrorDuplicateEpisodeNumber.DUPLICATE_EPISODE_FOUND_ERROR_MESSAGE,
-                                                episodeNumber,
-                                                RowErrorDuplicateEpisodeNumber.DUPLICATE_EPISODE_FOUND_ERROR_DETAILS));
-                }
+                String[] array = {territory, title, seasonNumber, episodeNumber, localizationType, licenseType, formatProfile, start, end};
                 
-                // Insert the UID String into the hashmap.
-                if(concatString.length() > 0) {
-                    this.map.put(concatString, episodeNumber);
+                for(int i = 0; i < array.length; i++) {
+                    uniqueColumnsArray.add(array[i]);
                 }
             }
             
-            return false;
-        } 
-        catch (NullPointerException NPE) { return true; }
+            // Concatenate all values into a Unique ID String
+            concatString = ValidatorUtils.concatUIDString(uniqueColumnsArray);
+            
+            // Check to make sure the UID String is not already in the static hashmap.
+            if(map.get(concatString) != null) {
+                //If found, notify that a duplicate was found.
+                //String episodeNumber = this.map.get(concatString);
 
+                ErrorLog.appendError(new RowErrorDuplicateEpisodeNumber(rowNumber, 
+                                            RowErrorDuplicateEpisodeNumber.DUPLICATE_EPISODE_FOUND_ERROR_MESSAGE,
+                                            episodeNumber,
+                                            RowErrorDuplicateEpisodeNumber.DUPLICATE_EPISODE_FOUND_ERROR_DETAILS));
+            }
+            
+            // Insert the UID String into the hashmap.
+            if(concatString.length() > 0) {
+                this.map.put(concatString, episodeNumber);
+            }
+        }
+        
+        return false;
     }
 }
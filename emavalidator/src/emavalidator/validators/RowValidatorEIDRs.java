@@ -15,11 +15,11 @@ limitations under the License.
 
 package emavalidator.validators;
 
-import java.util.HashMap;
-
 import emavalidator.AbstractEMASpec;
 import emavalidator.AbstractRowValidator;
+import emavalidator.ColumnSlot;
 import emavalidator.ErrorLog;
+import emavalidator.RowValues;
 import emavalidator.columns.EpisodeAltID;
 import emavalidator.columns.EpisodeContentID;
 import emavalidator.columns.EpisodeID;
@@ -33,107 +33,134 @@ import emavalidator.errors.RowErrorEIDRValueCheck;
 
 public class RowValidatorEIDRs extends AbstractRowValidator
 {
+    private ColumnSlot workTypeColumn;
+    private ColumnSlot episodeIDColumn;
+    private ColumnSlot episodeContentIDColumn;
+    private ColumnSlot seasonIDColumn;
+    private ColumnSlot seasonContentIDColumn;
+    private ColumnSlot seriesAltIDColumn;
+    private ColumnSlot seasonAltIDColumn;
+    private ColumnSlot episodeAltIDColumn;
+    private ColumnSlot seriesContentIDColumn;
+
     private AbstractEMASpec.EMAVersion emaVersion;
     
-    public RowValidatorEIDRs(AbstractEMASpec.EMAVersion emaVersion) { this.emaVersion = emaVersion; }
+    public RowValidatorEIDRs(AbstractEMASpec.EMAVersion emaVersion)
+    {
+        this.emaVersion = emaVersion;
+        if(this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec17TV)
+        {
+            this.workTypeColumn = this.column(WorkType.class);
+            this.episodeIDColumn = this.optionalColumn(EpisodeID.class);
+            this.episodeContentIDColumn = this.optionalColumn(EpisodeContentID.class);
+            this.seasonIDColumn = this.optionalColumn(SeasonID.class);
+            this.seasonContentIDColumn = this.optionalColumn(SeasonContentID.class);
+        }
+        else // each pair is only checked when both of its columns are there
+        {
+            this.workTypeColumn = this.optionalColumn(WorkType.class);
+            this.seriesAltIDColumn = this.optionalColumn(SeriesAltID.class);
+            this.seasonAltIDColumn = this.optionalColumn(SeasonAltID.class);
+            this.episodeAltIDColumn = this.optionalColumn(EpisodeAltID.class);
+            this.seriesContentIDColumn = this.optionalColumn(SeriesContentID.class);
+            this.seasonContentIDColumn = this.optionalColumn(SeasonContentID.class);
+            this.episodeContentIDColumn = this.optionalColumn(EpisodeContentID.class);
+        }
+    }
 
     @Override
-    public boolean validate(HashMap<String, String> rowValues, int rowNumber)
+    public boolean validate(RowValues rowValues, int rowNumber)
     {
-        try
-        {
-            String workType = rowValues.get(WorkType.class.getSimpleName()); // to figure out if we're validating a Season or Episode
+        String workType = rowValues.get(this.workTypeColumn); // to figure out if we're validating a Season or Episode
 
-            boolean validateSuccessfully = true;
+        boolean validateSuccessfully = true;
+        
+        if(this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec17TV)
+        {
+            String episodeID     = rowValues.get(this.episodeIDColumn);     // required if episode EIDR not provided
+            String episodeContentID = rowValues.get(this.episodeContentIDColumn);  // v1.7 EIDR Episode ID
+//            String alid          = rowValues.get(ALID.class.getSimpleName());
+            String seasonID      = rowValues.get(this.seasonIDColumn);
+            String seasonContentID  = rowValues.get(this.seasonContentIDColumn);
             
-            if(this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec17TV)
-            {
-                String episodeID     = rowValues.get(EpisodeID.class.getSimpleName());     // required if episode EIDR not provided
-                String episodeContentID = rowValues.get(EpisodeContentID.class.getSimpleName());  // v1.7 EIDR Episode ID
-//                String alid          = rowValues.get(ALID.class.getSimpleName());
-                String seasonID      = rowValues.get(SeasonID.class.getSimpleName());
-                String seasonContentID  = rowValues.get(SeasonContentID.class.getSimpleName());
-                
-                if (WorkType.isEpisode(workType)) {
-                    // Fail if both EpisodeID and EpisodeContentID are empty.
-                    if (episodeID.isEmpty() && episodeContentID.isEmpty()) {
-                        ErrorLog.appendError(new RowErrorEIDRValueCheck(rowNumber,
-                                                                        RowErrorEIDRValueCheck.ERROR_BOTH_EPISODE_IDS_EMPTY,
-                                                                        "",
-                                                                        RowErrorEIDRValueCheck.EXPECTED_EIDR_OR_ID));
-                        validateSuccessfully = false;
-                    }
-                    
-                    // Allow pass if either one of the IDs are available.
-                }
-                
-                if (WorkType.isSeason(workType)) {
-                    // Fail if both SeasonID and SeasonContentID are empty.
-                    if (seasonID.isEmpty() && seasonContentID.isEmpty()) {
-                        ErrorLog.appendError(new RowErrorEIDRValueCheck(rowNumber,
-                                                                        RowErrorEIDRValueCheck.ERROR_BOTH_SEASON_IDS_EMPTY,
-                                                                        "",
-                                                                        RowErrorEIDRValueCheck.EXPECTED_EIDR_OR_ID));
-                        validateSuccessfully = false;
-                    }
-                    if (!episodeID.isEmpty()) {
-                        ErrorLog.appendError(new RowErrorEIDRValueCheck(rowNumber,
-                                                                        RowErrorEIDRValueCheck.ERROR_EPISODE_ID_CANNOT_HAVE_VALUE,
-                                                                        episodeID,
-                                                                        RowErrorEIDRValueCheck.EXPECTED_BLANK));
-                    }
-                    if (!episodeContentID.isEmpty()) {
-                        ErrorLog.appendError(new RowErrorEIDRValueCheck(rowNumber, 
-                                                                        RowErrorEIDRValueCheck.ERROR_EPISODE_CONTENT_ID_CANNOT_HAVE_VALUE, 
-                                                                        episodeContentID, 
-                                                                        RowErrorEIDRValueCheck.EXPECTED_BLANK));
-                    }                    
-                }
-            }
-            else if (this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec17) 
-            {
-                
-            }
-            // All other EMA Spec falls through here.
-            // 1.4, 1.5, 1.6, 1.6TV
-            else 
-            {
-                String seriesAltID      = rowValues.get(SeriesAltID.class.getSimpleName());      // required if series EIDR not provided
-                String seasonAltID      = rowValues.get(SeasonAltID.class.getSimpleName());      // required if season EIDR not provided
-                String episodeAltID     = rowValues.get(EpisodeAltID.class.getSimpleName());     // required if episode EIDR not provided
-                String seriesContentID  = rowValues.get(SeriesContentID.class.getSimpleName());  // EIDR series ID
-                String seasonContentID  = rowValues.get(SeasonContentID.class.getSimpleName());  // EIDR season ID
-                String episodeContentID = rowValues.get(EpisodeContentID.class.getSimpleName()); // EIDR for the episode
-    
-                if(seriesContentID != null && seriesAltID != null && seriesContentID.isEmpty() && seriesAltID.isEmpty())
-                {
+            if (WorkType.isEpisode(workType)) {
+                // Fail if both EpisodeID and EpisodeContentID are empty.
+                if (episodeID != null && episodeContentID != null && episodeID.isEmpty() && episodeContentID.isEmpty()) {
                     ErrorLog.appendError(new RowErrorEIDRValueCheck(rowNumber,
-                                                                    RowErrorEIDRValueCheck.ERROR_NO_EIDR_OR_ID,
-                                                                    "SeriesContentID and SeriesAltID are empty", 
+                                                                    RowErrorEIDRValueCheck.ERROR_BOTH_EPISODE_IDS_EMPTY,
+                                                                    "",
                                                                     RowErrorEIDRValueCheck.EXPECTED_EIDR_OR_ID));
                     validateSuccessfully = false;
                 }
-    
-                if(seasonContentID != null && seasonAltID != null && seasonContentID.isEmpty() && seasonAltID.isEmpty() && WorkType.isSeason(workType))
-                {
+                
+                // Allow pass if either one of the IDs are available.
+            }
+            
+            if (WorkType.isSeason(workType)) {
+                // Fail if both SeasonID and SeasonContentID are empty.
+                if (seasonID != null && seasonContentID != null && seasonID.isEmpty() && seasonContentID.isEmpty()) {
                     ErrorLog.appendError(new RowErrorEIDRValueCheck(rowNumber,
-                                                                    RowErrorEIDRValueCheck.ERROR_NO_EIDR_OR_ID,
-                                                                    "SeasonContentID and SeasonAltID are empty", 
+                                                                    RowErrorEIDRValueCheck.ERROR_BOTH_SEASON_IDS_EMPTY,
+                                                                    "",
                                                                     RowErrorEIDRValueCheck.EXPECTED_EIDR_OR_ID));
                     validateSuccessfully = false;
                 }
-    
-                if(episodeContentID != null && episodeAltID != null && episodeContentID.isEmpty() && episodeAltID.isEmpty() && WorkType.isEpisode(workType))
-                {
+                if (episodeID != null && !episodeID.isEmpty()) {
                     ErrorLog.appendError(new RowErrorEIDRValueCheck(rowNumber,
-                                                                    RowErrorEIDRValueCheck.ERROR_NO_EIDR_OR_ID,
-                                                                    "EpisodeContentID and EpisodeAltID are empty", 
-                                                                    RowErrorEIDRValueCheck.EXPECTED_EIDR_OR_ID));
-                    validateSuccessfully = false;
+                                                                    RowErrorEIDRValueCheck.ERROR_EPISODE_ID_CANNOT_HAVE_VALUE,
+                                                                    episodeID,
+                                                                    RowErrorEIDRValueCheck.EXPECTED_BLANK));
                 }
+                if (episodeContentID != null && !episodeContentID.isEmpty()) {
+                    ErrorLog.appendError(new RowErrorEIDRValueCheck(rowNumber, 
+                                                                    RowErrorEIDRValueCheck.ERROR_EPISODE_CONTENT_ID_CANNOT_HAVE_VALUE, 
+                                                                    episodeContentID, 
+                                                                    RowErrorEIDRValueCheck.EXPECTED_BLANK));
+                }                    
+            }
+        }
+        else if (this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec17) 
+        {
+            
+        }
+        // All other EMA Spec falls through here.
+        // 1.4, 1.5, 1.6, 1.6TV
+        else 
+        {
+            String seriesAltID      = rowValues.get(this.seriesAltIDColumn);      // required if series EIDR not provided
+            String seasonAltID      = rowValues.get(this.seasonAltIDColumn);      // required if season EIDR not provided
+            String episodeAltID     = rowValues.get(this.episodeAltIDColumn);     // required if episode EIDR not provided
+            String seriesContentID  = rowValues.get(this.seriesContentIDColumn);  // EIDR series ID
+            String seasonContentID  = rowValues.get(this.seasonContentIDColumn);  // EIDR season ID
+            String episodeContentID = rowValues.get(this.episodeContentIDColumn); // EIDR for the episode
+    
+            if(seriesContentID != null && seriesAltID != null && seriesContentID.isEmpty() && seriesAltID.isEmpty())
+            {
+                ErrorLog.appendError(new RowErrorEIDRValueCheck(rowNumber,
+                                                                RowErrorEIDRValueCheck.ERROR_NO_EIDR_OR_ID,
+                                                                "SeriesContentID and SeriesAltID are empty", 
+                                                                RowErrorEIDRValueCheck.EXPECTED_EIDR_OR_ID));
+                validateSuccessfully = false;
+            }
+    
+            if(seasonContentID != null && seasonAltID != null && seasonContentID.isEmpty() && seasonAltID.isEmpty() && workType != null && WorkType.isSeason(workType))
+            {
+                ErrorLog.appendError(new RowErrorEIDRValueCheck(rowNumber,
+                                                                RowErrorEIDRValueCheck.ERROR_NO_EIDR_OR_ID,
+                                                                "SeasonContentID and SeasonAltID are empty", 
+                                                                RowErrorEIDRValueCheck.EXPECTED_EIDR_OR_ID));
+                validateSuccessfully = false;
+            }
+    
+            if(episodeContentID != null && episodeAltID != null && episodeContentID.isEmpty() && episodeAltID.isEmpty() && workType != null && WorkType.isEpisode(workType))
+            {
+                ErrorLog.appendError(new RowErrorEIDRValueCheck(rowNumber,
+                                                                RowErrorEIDRValueCheck.ERROR_NO_EIDR_OR_ID,
+                                                                "EpisodeContentID and EpisodeAltID are empty", 
+                                                                RowErrorEIDRValueCheck.EXPECTED_EIDR_OR_ID));
+                validateSuccessfully = false;
             }
-            return validateSuccessfully;
         }
-        catch(NullPointerException NPE) { return true; } // do not validate when column values are missing
+        return validateSuccessfully;
     }
 }
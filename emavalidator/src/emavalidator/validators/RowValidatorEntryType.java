@@ -15,12 +15,12 @@ limitations under the License.
 
 package emavalidator.validators;
 
-import java.util.HashMap;
-
 import emavalidator.AbstractEMASpec;
 import emavalidator.AbstractErrorEntry.ErrorLevel;
 import emavalidator.AbstractRowValidator;
+import emavalidator.ColumnSlot;
 import emavalidator.ErrorLog;
+import emavalidator.RowValues;
 import emavalidator.columns.End;
 import emavalidator.columns.EntryType;
 import emavalidator.columns.FormatProfile;
@@ -38,76 +38,78 @@ import emavalidator.notifications.RowNotificationEntryType;
  */
 public class RowValidatorEntryType extends AbstractRowValidator
 {
+    private final ColumnSlot entryTypeColumn = this.column(EntryType.class);
+    private final ColumnSlot licenseTypeColumn = this.column(LicenseType.class);
+    private final ColumnSlot formatProfileColumn = this.optionalColumn(FormatProfile.class);
+    private final ColumnSlot startColumn = this.optionalColumn(Start.class);
+    private final ColumnSlot endColumn = this.optionalColumn(End.class);
+    private final ColumnSlot titleInternalAliasColumn = this.optionalColumn(TitleInternalAlias.class);
+
     private AbstractEMASpec.EMAVersion emaVersion;
 
     public RowValidatorEntryType(AbstractEMASpec.EMAVersion emaVersion) { this.emaVersion = emaVersion; }
 
     @Override
-    public boolean validate(HashMap<String, String> rowValues, int rowNumber)
+    public boolean validate(RowValues rowValues, int rowNumber)
     {
+        String entryType = rowValues.get(this.entryTypeColumn);
+        String licenseType = rowValues.get(this.licenseTypeColumn);
+        String formatProfile = rowValues.get(this.formatProfileColumn);
+        String startDate = rowValues.get(this.startColumn);
+        String endDate = rowValues.get(this.endColumn);
+        String title = rowValues.get(this.titleInternalAliasColumn);
+        // PriceType and PriceValue are checked in their own RowValidator.
+        //String priceType = rowValues.get(PriceType.class.getSimpleName());
+        //String priceValue = rowValues.get(PriceValue.class.getSimpleName());
 
-        try {
-            String entryType = rowValues.get(EntryType.class.getSimpleName());
-            String licenseType = rowValues.get(LicenseType.class.getSimpleName());
-            String formatProfile = rowValues.get(FormatProfile.class.getSimpleName());
-            String startDate = rowValues.get(Start.class.getSimpleName());
-            String endDate = rowValues.get(End.class.getSimpleName());
-            String title = rowValues.get(TitleInternalAlias.class.getSimpleName());
-            // PriceType and PriceValue are checked in their own RowValidator.
-            //String priceType = rowValues.get(PriceType.class.getSimpleName());
-            //String priceValue = rowValues.get(PriceValue.class.getSimpleName());
 
+        if (entryType.equals(EntryType.FULL_DELETE)) {
+            // Full Delete ignores the following columns: 
+            // License Type, Format Profile, Start, End, Price Type, Price Value
+            // Skip validating. 
+            
+            // Notify that the EntryType is FullDelete in case that the FullDelete entry is accidental.
+            ErrorLog.appendNotification(new RowNotificationEntryType(rowNumber, 
+                                        RowNotificationEntryType.FULL_DELETE_NOTIFICATION_MESSAGE, 
+                                        title,
+                                        RowNotificationEntryType.FULL_DELETE_NOTIFICATION_DETAILS));
 
-            if (entryType.equals(EntryType.FULL_DELETE)) {
-                // Full Delete ignores the following columns: 
-                // License Type, Format Profile, Start, End, Price Type, Price Value
-                // Skip validating. 
-                
-                // Notify that the EntryType is FullDelete in case that the FullDelete entry is accidental.
-                ErrorLog.appendNotification(new RowNotificationEntryType(rowNumber, 
-                                            RowNotificationEntryType.FULL_DELETE_NOTIFICATION_MESSAGE, 
-                                            title,
-                                            RowNotificationEntryType.FULL_DELETE_NOTIFICATION_DETAILS));
-
-            } else if (entryType.equals(EntryType.FULL_EXTRACT)) {
-                // For Full Extract, make sure values are available. If any values are empty, error out.
-                if(licenseType.isEmpty()) {
-                    // There are different accepted value messages based on EMA Spec version. 
-                    if(this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec15) {
-                        ErrorLog.appendError(new RowErrorEntryType(rowNumber, CellErrorLicenseType.LICENSE_TYPE_EMPTY_ERROR_MESSAGE,
-                                licenseType, CellErrorLicenseType.VALUES_ACCEPTED_14_15, ErrorLevel.ERROR));                        
-                    } else if(this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec16 || 
-                              this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec16TV) {
-                        ErrorLog.appendError(new RowErrorEntryType(rowNumber, CellErrorLicenseType.LICENSE_TYPE_EMPTY_ERROR_MESSAGE,
-                                licenseType, CellErrorLicenseType.VALUES_ACCEPTED_16, ErrorLevel.ERROR));
-                    }
-                    return false;
-                } else if (formatProfile.isEmpty()) {
-                    ErrorLog.appendError(new RowErrorEntryType(rowNumber, CellErrorFormatProfile.FORMAT_PROFILE_EMPTY_ERROR_MESSAGE,
-                                                               formatProfile, CellErrorFormatProfile.EXPECTED_FORMAT_PROFILE_VALUES, ErrorLevel.ERROR));
-                    return false;
-                } else if (startDate.isEmpty()) {
-                    ErrorLog.appendError(new RowErrorEntryType(rowNumber, CellErrorDateValue.START_DATE_EMPTY_ERROR, 
-                                                               startDate, CellErrorDateValue.EXPECTED_VALUES, ErrorLevel.CRITICAL));
-                    return false;
-                } else if (endDate.isEmpty()) {
-                    ErrorLog.appendError(new RowErrorEntryType(rowNumber, CellErrorDateValue.END_DATE_EMPTY_ERROR, 
-                                                               endDate, CellErrorDateValue.EXPECTED_VALUES, ErrorLevel.CRITICAL));
-                    return false;
-                } 
-                // PriceType and PriceValue are checked in their own RowValidator.
-//                else if (priceType.isEmpty()) {
-//                    ErrorLog.appendError(new RowErrorTierOrPrice(rowNumber, RowErrorTierOrPrice.EMPTY_PRICE_TYPE,
-//                                                                 priceValue, RowValidatorTierOrPrice.PRICE_TYPE_PRICE_VALUE));
-//                    return false;
-//                } else if (priceValue.isEmpty()) {
-//                    ErrorLog.appendError(new RowErrorTierOrPrice(rowNumber, RowErrorTierOrPrice.EMPTY_PRICE_TYPE,
-//                                                                 priceValue, RowValidatorTierOrPrice.PRICE_TYPE_PRICE_VALUE));
-//                    return false;
-//                }
-            }
-        } catch (NullPointerException NPE) {
-            return true;
+        } else if (entryType.equals(EntryType.FULL_EXTRACT)) {
+            // For Full Extract, make sure values are available. If any values are empty, error out.
+            if(licenseType.isEmpty()) {
+                // There are different accepted value messages based on EMA Spec version. 
+                if(this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec15) {
+                    ErrorLog.appendError(new RowErrorEntryType(rowNumber, CellErrorLicenseType.LICENSE_TYPE_EMPTY_ERROR_MESSAGE,
+                            licenseType, CellErrorLicenseType.VALUES_ACCEPTED_14_15, ErrorLevel.ERROR));                        
+                } else if(this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec16 || 
+                          this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec16TV) {
+                    ErrorLog.appendError(new RowErrorEntryType(rowNumber, CellErrorLicenseType.LICENSE_TYPE_EMPTY_ERROR_MESSAGE,
+                            licenseType, CellErrorLicenseType.VALUES_ACCEPTED_16, ErrorLevel.ERROR));
+                }
+                return false;
+            } else if (formatProfile != null && formatProfile.isEmpty()) {
+                ErrorLog.appendError(new RowErrorEntryType(rowNumber, CellErrorFormatProfile.FORMAT_PROFILE_EMPTY_ERROR_MESSAGE,
+                                                           formatProfile, CellErrorFormatProfile.EXPECTED_FORMAT_PROFILE_VALUES, ErrorLevel.ERROR));
+                return false;
+            } else if (startDate != null && startDate.isEmpty()) {
+                ErrorLog.appendError(new RowErrorEntryType(rowNumber, CellErrorDateValue.START_DATE_EMPTY_ERROR, 
+                                                           startDate, CellErrorDateValue.EXPECTED_VALUES, ErrorLevel.CRITICAL));
+                return false;
+            } else if (endDate != null && endDate.isEmpty()) {
+                ErrorLog.appendError(new RowErrorEntryType(rowNumber, CellErrorDateValue.END_DATE_EMPTY_ERROR, 
+                                                           endDate, CellErrorDateValue.EXPECTED_VALUES, ErrorLevel.CRITICAL));
+                return false;
+            } 
+            // PriceType and PriceValue are checked in their own RowValidator.
+//            else if (priceType.isEmpty()) {
+//                ErrorLog.appendError(new RowErrorTierOrPrice(rowNumber, RowErrorTierOrPrice.EMPTY_PRICE_TYPE,
+//                                                             priceValue, RowValidatorTierOrPrice.PRICE_TYPE_PRICE_VALUE));
+//                return false;
+//            } else if (priceValue.isEmpty()) {
+//                ErrorLog.appendError(new RowErrorTierOrPrice(rowNumber, RowErrorTierOrPrice.EMPTY_PRICE_TYPE,
+//                                                             priceValue, RowValidatorTierOrPrice.PRICE_TYPE_PRICE_VALUE));
+//                return false;
+//            }
         }
         return true;
     }
@@ -15,36 +15,33 @@ limitations under the License.
 
 package emavalidator.validators;
 
-import java.util.HashMap;
-
+import emavalidator.CellValue;
 import emavalidator.ErrorLog;
+import emavalidator.RowValues;
 import emavalidator.AbstractRowValidator;
+import emavalidator.ColumnSlot;
 import emavalidator.columns.EpisodeNumber;
 import emavalidator.columns.WorkType;
 import emavalidator.errors.RowErrorEpisodeNumber;
 
 public class RowValidatorEpisodeNumber extends AbstractRowValidator
 {
+    private final ColumnSlot workTypeColumn = this.column(WorkType.class);
+    private final ColumnSlot episodeNumberColumn = this.column(EpisodeNumber.class);
+
     @Override
-    public boolean validate(HashMap<String, String> rowValues, int rowNumber)
+    public boolean validate(RowValues rowValues, int rowNumber)
     {
-        try
-        {
-            String workType = rowValues.get(WorkType.class.getSimpleName());
-            String episodeNumber = rowValues.get(EpisodeNumber.class.getSimpleName());
+        String workType = rowValues.get(this.workTypeColumn);
+        String episodeNumber = rowValues.get(this.episodeNumberColumn);
 
-            if(workType == null || episodeNumber == null)
-                return true;
-
-            if(workType.toLowerCase().compareToIgnoreCase("episode") == 0) // if it's an episode
-            {
-                if(!episodeNumber.matches(ValidatorUtils.NUMBER_FORMAT_REGEX)) // and it's not an episode number
-                    ErrorLog.appendError(new RowErrorEpisodeNumber(rowNumber, "WorkType: " + workType + " " + "EpisodeNumber: " + episodeNumber));
+        if(workType.toLowerCase().compareToIgnoreCase("episode") == 0) // if it's an episode
+        {
+            if(rowValues.getCellValue(this.episodeNumberColumn).getKind() != CellValue.Kind.INTEGER) // and it's not an episode number
+                ErrorLog.appendError(new RowErrorEpisodeNumber(rowNumber, "WorkType: " + workType + " " + "EpisodeNumber: " + episodeNumber));
 
-                return false;
-            }
-            return true;
+            return false;
         }
-        catch (NullPointerException NPE) { return true; } // do not attempt to validate when values are missing from the row
+        return true;
     }
 }
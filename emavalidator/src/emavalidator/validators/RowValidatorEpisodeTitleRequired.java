@@ -15,36 +15,33 @@ limitations under the License.
 
 package emavalidator.validators;
 
-import java.util.HashMap;
-
 import emavalidator.AbstractRowValidator;
+import emavalidator.ColumnSlot;
 import emavalidator.ErrorLog;
+import emavalidator.RowValues;
 import emavalidator.columns.EpisodeTitleInternalAlias;
 import emavalidator.columns.WorkType;
 import emavalidator.errors.RowErrorEpisodeTitleRequired;
 
 public class RowValidatorEpisodeTitleRequired extends AbstractRowValidator
 {
+    private final ColumnSlot workTypeColumn = this.column(WorkType.class);
+    private final ColumnSlot episodeTitleInternalAliasColumn = this.column(EpisodeTitleInternalAlias.class);
+
+    private static final CompiledRegex EMPTY_STRING = CompiledRegex.get(ValidatorUtils.EMPTY_STRING_REGEX);
     @Override
-    public boolean validate(HashMap<String, String> rowValues, int rowNumber)
+    public boolean validate(RowValues rowValues, int rowNumber)
     {
-        try
+        String workType = rowValues.get(this.workTypeColumn);
+        String episodeTitle = rowValues.get(this.episodeTitleInternalAliasColumn);
+
+        if(workType.toLowerCase().compareToIgnoreCase("episode") == 0) // if it's an episode
         {
-            String workType = rowValues.get(WorkType.class.getSimpleName());
-            String episodeTitle = rowValues.get(EpisodeTitleInternalAlias.class.getSimpleName());
-
-            if(workType == null || episodeTitle == null)
-                return true;
-
-            if(workType.toLowerCase().compareToIgnoreCase("episode") == 0) // if it's an episode
-            {
-                if(episodeTitle.matches(ValidatorUtils.EMPTY_STRING_REGEX)) {
-                    ErrorLog.appendError(new RowErrorEpisodeTitleRequired(rowNumber, episodeTitle));
-                    return false;
-                }
+            if(RowValidatorEpisodeTitleRequired.EMPTY_STRING.matches(episodeTitle)) {
+                ErrorLog.appendError(new RowErrorEpisodeTitleRequired(rowNumber, episodeTitle));
+                return false;
             }
-            return true;
         }
-        catch (NullPointerException NPE) { return true; } // do not attempt to validate when values are missing from the row
+        return true;
     }
 }
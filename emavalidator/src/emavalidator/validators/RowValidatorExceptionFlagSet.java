@@ -16,12 +16,13 @@ limitations under the License.
 package emavalidator.validators;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 
 import org.apache.commons.lang3.StringUtils;
 
 import emavalidator.ErrorLog;
+import emavalidator.RowValues;
 import emavalidator.AbstractRowValidator;
+import emavalidator.ColumnSlot;
 import emavalidator.columns.Any;
 import emavalidator.columns.Description;
 import emavalidator.columns.ExceptionFlag;
@@ -32,43 +33,41 @@ import emavalidator.errors.RowErrorExceptionFlagSet;
 
 public class RowValidatorExceptionFlagSet extends AbstractRowValidator
 {
-    private ArrayList<Class<?>> freeformClasses = new ArrayList<Class<?>>();
+    private final ColumnSlot exceptionFlagColumn = this.column(ExceptionFlag.class);
+
+    private ArrayList<ColumnSlot> freeformColumns = new ArrayList<ColumnSlot>();
 
     public RowValidatorExceptionFlagSet()
     {
         super();
-        freeformClasses.add(Description.class);       // 1.6, 1.5, 1.4
-        freeformClasses.add(OtherTerms.class);        // 1.6, 1.5, 1.4
-        freeformClasses.add(OtherInstructions.class); // 1.6, 1.5, 1.4
-        freeformClasses.add(Metadata.class);          // 1.6, 1.5, 1.4
-        freeformClasses.add(Any.class);               // 1.6, 1.5, 1.4
+        freeformColumns.add(this.optionalColumn(Description.class));      // 1.6, 1.5, 1.4
+        freeformColumns.add(this.optionalColumn(OtherTerms.class));       // 1.6, 1.5, 1.4
+        freeformColumns.add(this.optionalColumn(OtherInstructions.class)); // 1.6, 1.5, 1.4
+        freeformColumns.add(this.optionalColumn(Metadata.class));         // 1.6, 1.5, 1.4
+        freeformColumns.add(this.optionalColumn(Any.class));              // 1.6, 1.5, 1.4
     }
 
     @Override
-    public boolean validate(HashMap<String, String> rowValues, int rowNumber)
+    public boolean validate(RowValues rowValues, int rowNumber)
     {
-        try
-        {
-            boolean foundContent = false;
+        boolean foundContent = false;
 
-            for(Class<?> currentClass : this.freeformClasses)
-                    if(StringUtils.isNotBlank(rowValues.get(currentClass.getSimpleName()).toString()))
-                        foundContent =  true;
+        for(ColumnSlot currentColumn : this.freeformColumns)
+                if(StringUtils.isNotBlank(rowValues.get(currentColumn))) // a freeform column that isn't there has no content
+                    foundContent =  true;
 
-            if(foundContent)
+        if(foundContent)
+        {
+            if(!rowValues.getCellValue(this.exceptionFlagColumn).isYes())
             {
-                if(!rowValues.get(ExceptionFlag.class.getSimpleName()).matches(ValidatorUtils.YES_REGEX))
-                {
-                    ErrorLog.appendError(new RowErrorExceptionFlagSet(
-                                         rowNumber,
-                                         RowErrorExceptionFlagSet.EXCEPTION_FLAG_NOT_SET_ERROR,
-                                         rowValues.get(ExceptionFlag.class.getSimpleName()),
-                                         "Yes"));
-                    return false;
-                }
+                ErrorLog.appendError(new RowErrorExceptionFlagSet(
+                                     rowNumber,
+                                     RowErrorExceptionFlagSet.EXCEPTION_FLAG_NOT_SET_ERROR,
+                                     rowValues.get(this.exceptionFlagColumn),
+                                     "Yes"));
+                return false;
             }
         }
-        catch (NullPointerException npe) { }
         return true;
     }
 }
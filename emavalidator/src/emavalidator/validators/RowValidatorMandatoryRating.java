@@ -15,12 +15,13 @@ limitations under the License.
 
 package emavalidator.validators;
 
-import java.util.HashMap;
 
 import org.apache.commons.lang3.StringUtils;
 
 import emavalidator.ErrorLog;
+import emavalidator.RowValues;
 import emavalidator.AbstractRowValidator;
+import emavalidator.ColumnSlot;
 import emavalidator.columns.RatingSystem;
 import emavalidator.columns.RatingValue;
 import emavalidator.columns.Territory;
@@ -28,6 +29,10 @@ import emavalidator.errors.RowErrorMandatoryRating;
 
 public class RowValidatorMandatoryRating extends AbstractRowValidator
 {
+	private final ColumnSlot territoryColumn = this.column(Territory.class);
+	private final ColumnSlot ratingValueColumn = this.optionalColumn(RatingValue.class);
+	private final ColumnSlot ratingSystemColumn = this.optionalColumn(RatingSystem.class);
+
 	/**
 	*	Australia
 	*	New Zealand
@@ -41,29 +46,27 @@ public class RowValidatorMandatoryRating extends AbstractRowValidator
 	 */
 	public static final String MANDATORY_COUNTRIES_REGEX = "(?i)^(AU|NZ|FR|DE|IT|ES|KR|RU|BR)$";
 
+	private static final CompiledRegex MANDATORY_COUNTRIES = CompiledRegex.get(RowValidatorMandatoryRating.MANDATORY_COUNTRIES_REGEX);
+
 	@Override
-	public boolean validate(HashMap<String, String> rowValues, int rowNumber)
+	public boolean validate(RowValues rowValues, int rowNumber)
 	{
-	    try
-	    {
-    		String country = rowValues.get(Territory.class.getSimpleName());
-    		if(country.matches(RowValidatorMandatoryRating.MANDATORY_COUNTRIES_REGEX))
-    		{
-    			String ratingValue = rowValues.get(RatingValue.class.getSimpleName());
-    			String ratingSystem = rowValues.get(RatingSystem.class.getSimpleName());
+		String country = rowValues.get(this.territoryColumn);
+		if(RowValidatorMandatoryRating.MANDATORY_COUNTRIES.matches(country))
+		{
+			String ratingValue = rowValues.get(this.ratingValueColumn);
+			String ratingSystem = rowValues.get(this.ratingSystemColumn);
 
-    			if(StringUtils.isEmpty(ratingValue))
-    			{
-    				StringBuilder returnValue = new StringBuilder();
-    				returnValue.append("Country: '" + country + "' ");
-    				returnValue.append("RatingSystem: '" + ratingSystem + "' ");
-    				returnValue.append("RatingValue: '" + ratingValue + "'");
-    				ErrorLog.appendError(new RowErrorMandatoryRating(rowNumber, returnValue.toString()));
-    				return false;
-    			}
-    		}
-	    }
-	    catch (NullPointerException NPE) {}
+			if(StringUtils.isEmpty(ratingValue))
+			{
+				StringBuilder returnValue = new StringBuilder();
+				returnValue.append("Country: '" + country + "' ");
+				returnValue.append("RatingSystem: '" + ratingSystem + "' ");
+				returnValue.append("RatingValue: '" + ratingValue + "'");
+				ErrorLog.appendError(new RowErrorMandatoryRating(rowNumber, returnValue.toString()));
+				return false;
+			}
+		}
 		return true;
 	}
 }
@@ -20,8 +20,11 @@ import java.util.HashMap;
 
 import emavalidator.AbstractEMASpec;
 import emavalidator.AbstractRowValidator;
+import emavalidator.ColumnSlot;
+import emavalidator.CellValue;
 import emavalidator.ErrorLog;
-import emavalidator.Window;
+import emavalidator.RowValues;
+import emavalidator.WindowTree;
 import emavalidator.columns.AltID;
 import emavalidator.columns.ContentID;
 import emavalidator.columns.EncodeID;
@@ -58,138 +61,193 @@ import emavalidator.notifications.RowNotificationOverlappingWindow;
  */
 public class RowValidatorOverlappingWindow extends AbstractRowValidator
 {
+    private ColumnSlot storeLanguageColumn;
+    private ColumnSlot territoryColumn;
+    private ColumnSlot entryTypeColumn;
+    private ColumnSlot titleInternalAliasColumn;
+    private ColumnSlot localizationTypeColumn;
+    private ColumnSlot licenseTypeColumn;
+    private ColumnSlot formatProfileColumn;
+    private ColumnSlot priceTypeColumn;
+    private ColumnSlot contentIDColumn;
+    private ColumnSlot productIDColumn;
+    private ColumnSlot encodeIDColumn;
+    private ColumnSlot altIDColumn;
+    private ColumnSlot suppressionLiftDateColumn;
+    private ColumnSlot specialPreOrderFulfillDateColumn;
+    private ColumnSlot workTypeColumn;
+    private ColumnSlot seriesTitleInternalAliasColumn;
+    private ColumnSlot seasonNumberColumn;
+    private ColumnSlot episodeNumberColumn;
+    private ColumnSlot seriesAltIDColumn;
+    private ColumnSlot seasonAltIDColumn;
+    private ColumnSlot episodeAltIDColumn;
+    private ColumnSlot seriesContentIDColumn;
+    private ColumnSlot seasonContentIDColumn;
+    private ColumnSlot episodeContentIDColumn;
+    private ColumnSlot episodeProductIDColumn;
+    private ColumnSlot startColumn;
+    private ColumnSlot endColumn;
+
     private AbstractEMASpec.EMAVersion emaVersion;
 
-    private HashMap<String, ArrayList<Window>> map = new HashMap<String, ArrayList<Window>>();
+    private HashMap<String, WindowTree> map = new HashMap<String, WindowTree>();
     
-    public RowValidatorOverlappingWindow(AbstractEMASpec.EMAVersion emaVersion) { this.emaVersion = emaVersion; }
+    public RowValidatorOverlappingWindow(AbstractEMASpec.EMAVersion emaVersion)
+    {
+        this.emaVersion = emaVersion;
+        if(this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec16 ||
+           this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec16TV) // the window key is made out of whichever of its columns are there
+        {
+            this.licenseTypeColumn = this.column(LicenseType.class);
+            this.startColumn = this.column(Start.class);
+            this.endColumn = this.column(End.class);
+            this.storeLanguageColumn = this.optionalColumn(StoreLanguage.class);
+            this.territoryColumn = this.optionalColumn(Territory.class);
+            this.entryTypeColumn = this.optionalColumn(EntryType.class);
+            this.titleInternalAliasColumn = this.optionalColumn(TitleInternalAlias.class);
+            this.localizationTypeColumn = this.optionalColumn(LocalizationType.class);
+            this.formatProfileColumn = this.optionalColumn(FormatProfile.class);
+            this.priceTypeColumn = this.optionalColumn(PriceType.class);
+            this.contentIDColumn = this.optionalColumn(ContentID.class);
+            this.productIDColumn = this.optionalColumn(ProductID.class);
+            this.encodeIDColumn = this.optionalColumn(EncodeID.class);
+            this.altIDColumn = this.optionalColumn(AltID.class);
+            this.suppressionLiftDateColumn = this.optionalColumn(SuppressionLiftDate.class);
+            this.specialPreOrderFulfillDateColumn = this.optionalColumn(SpecialPreOrderFulfillDate.class);
+            this.workTypeColumn = this.optionalColumn(WorkType.class);
+            this.seriesTitleInternalAliasColumn = this.optionalColumn(SeriesTitleInternalAlias.class);
+            this.seasonNumberColumn = this.optionalColumn(SeasonNumber.class);
+            this.episodeNumberColumn = this.optionalColumn(EpisodeNumber.class);
+            this.seriesAltIDColumn = this.optionalColumn(SeriesAltID.class);
+            this.seasonAltIDColumn = this.optionalColumn(SeasonAltID.class);
+            this.episodeAltIDColumn = this.optionalColumn(EpisodeAltID.class);
+            this.seriesContentIDColumn = this.optionalColumn(SeriesContentID.class);
+            this.seasonContentIDColumn = this.optionalColumn(SeasonContentID.class);
+            this.episodeContentIDColumn = this.optionalColumn(EpisodeContentID.class);
+            this.episodeProductIDColumn = this.optionalColumn(EpisodeProductID.class);
+        }
+    }
 
     @Override
-    public boolean validate(HashMap<String, String> rowValues, int rowNumber)
+    public boolean isCrossRow() { return true; } // every row is compared against the rows before it
+
+    @Override
+    public boolean validate(RowValues rowValues, int rowNumber)
     {
-        try
-        {
-            int actualRowNumber = rowNumber+1;
-            String concatString = "";
-            ArrayList<String> uniqueColumnsArray = new ArrayList<String>();
+        int actualRowNumber = rowNumber+1;
+        String concatString = "";
+        ArrayList<String> uniqueColumnsArray = new ArrayList<String>();
 
-            // EMA Version 1.6 Movies
-            if(emaVersion == AbstractEMASpec.EMAVersion.EMASpec16)
-            {
-                // Get all the necessary values from the row to concatenate a UID for Movie.
-                String storeLanguage = rowValues.get(StoreLanguage.class.getSimpleName());
-                String territory = rowValues.get(Territory.class.getSimpleName());
-                String entryType = rowValues.get(EntryType.class.getSimpleName());
-                String title = rowValues.get(TitleInternalAlias.class.getSimpleName());
-                String localizationType = rowValues.get(LocalizationType.class.getSimpleName());
-                String licenseType = rowValues.get(LicenseType.class.getSimpleName());
-                String formatProfile = rowValues.get(FormatProfile.class.getSimpleName());
-                String priceType = rowValues.get(PriceType.class.getSimpleName());
-                String contentID = rowValues.get(ContentID.class.getSimpleName());
-                String productID = rowValues.get(ProductID.class.getSimpleName());
-                String encodeID = rowValues.get(EncodeID.class.getSimpleName());
-                String altID = rowValues.get(AltID.class.getSimpleName());
-                String suppressionLiftDate = rowValues.get(SuppressionLiftDate.class.getSimpleName());
-                String preorderDate = rowValues.get(SpecialPreOrderFulfillDate.class.getSimpleName());
-                
-                String[] array = {storeLanguage, territory, entryType, title, localizationType,
-                                  licenseType, formatProfile, priceType, contentID, productID,
-                                  encodeID, altID, suppressionLiftDate, preorderDate};
-                
-                // Ignore POEST
-                if(!licenseType.equals("POEST")) {
-                    for(int i = 0; i < array.length; i++) {
-                        uniqueColumnsArray.add(array[i]);
-                    }                    
-                }
+        // EMA Version 1.6 Movies
+        if(emaVersion == AbstractEMASpec.EMAVersion.EMASpec16)
+        {
+            // Get all the necessary values from the row to concatenate a UID for Movie.
+            String storeLanguage = rowValues.get(this.storeLanguageColumn);
+            String territory = rowValues.get(this.territoryColumn);
+            String entryType = rowValues.get(this.entryTypeColumn);
+            String title = rowValues.get(this.titleInternalAliasColumn);
+            String localizationType = rowValues.get(this.localizationTypeColumn);
+            String licenseType = rowValues.get(this.licenseTypeColumn);
+            String formatProfile = rowValues.get(this.formatProfileColumn);
+            String priceType = rowValues.get(this.priceTypeColumn);
+            String contentID = rowValues.get(this.contentIDColumn);
+            String productID = rowValues.get(this.productIDColumn);
+            String encodeID = rowValues.get(this.encodeIDColumn);
+            String altID = rowValues.get(this.altIDColumn);
+            String suppressionLiftDate = rowValues.get(this.suppressionLiftDateColumn);
+            String preorderDate = rowValues.get(this.specialPreOrderFulfillDateColumn);
+            
+            String[] array = {storeLanguage, territory, entryType, title, localizationType,
+                              licenseType, formatProfile, priceType, contentID, productID,
+                              encodeID, altID, suppressionLiftDate, preorderDate};
+            
+            // Ignore POEST
+            if(!licenseType.equals("POEST")) {
+                for(int i = 0; i < array.length; i++) {
+                    uniqueColumnsArray.add(array[i]);
+                }                    
             }
-            // EMA Version 1.6 TV
-            else if (this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec16TV) 
-            {
-                // Get all the necessary values from the row to concatenate a UID for Movie.
-                String storeLanguage = rowValues.get(StoreLanguage.class.getSimpleName());
-                String territory = rowValues.get(Territory.class.getSimpleName());
-                String workType = rowValues.get(WorkType.class.getSimpleName());
-                String entryType = rowValues.get(EntryType.class.getSimpleName());
-                String title = rowValues.get(SeriesTitleInternalAlias.class.getSimpleName());
-                String seasonNumber = rowValues.get(SeasonNumber.class.getSimpleName());
-                String episodeNumber = rowValues.get(EpisodeNumber.class.getSimpleName());
-                String localizationType = rowValues.get(LocalizationType.class.getSimpleName());
-                String seriesAltID = rowValues.get(SeriesAltID.class.getSimpleName());
-                String seasonAltID = rowValues.get(SeasonAltID.class.getSimpleName());
-                String episodeAltID = rowValues.get(EpisodeAltID.class.getSimpleName());
-                String licenseType = rowValues.get(LicenseType.class.getSimpleName());
-                String formatProfile = rowValues.get(FormatProfile.class.getSimpleName());
-                String preorderDate = rowValues.get(SpecialPreOrderFulfillDate.class.getSimpleName());
-                String priceType = rowValues.get(PriceType.class.getSimpleName());
-                String seriesContentID = rowValues.get(SeriesContentID.class.getSimpleName());
-                String seasonContentID = rowValues.get(SeasonContentID.class.getSimpleName());
-                String episodeContentID = rowValues.get(EpisodeContentID.class.getSimpleName());
-                String episodeProductID = rowValues.get(EpisodeProductID.class.getSimpleName());
-                String encodeID = rowValues.get(EncodeID.class.getSimpleName());
-                String suppressionLiftDate = rowValues.get(SuppressionLiftDate.class.getSimpleName());
-                
-                String[] array = {storeLanguage, territory, workType, entryType, title,
-                                  seasonNumber, episodeNumber, localizationType, seriesAltID, seasonAltID,
-                                  episodeAltID, licenseType, formatProfile, preorderDate, priceType, 
-                                  seriesContentID, seasonContentID, episodeContentID, episodeProductID, encodeID,
-                                  suppressionLiftDate};
-                
-                // Ignore POEST
-                if(!licenseType.equals("POEST")) {
-                    for(int i = 0; i < array.length; i++) {
-                        uniqueColumnsArray.add(array[i]);
-                    }
+        }
+        // EMA Version 1.6 TV
+        else if (this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec16TV) 
+        {
+            // Get all the necessary values from the row to concatenate a UID for Movie.
+            String storeLanguage = rowValues.get(this.storeLanguageColumn);
+            String territory = rowValues.get(this.territoryColumn);
+            String workType = rowValues.get(this.workTypeColumn);
+            String entryType = rowValues.get(this.entryTypeColumn);
+            String title = rowValues.get(this.seriesTitleInternalAliasColumn);
+            String seasonNumber = rowValues.get(this.seasonNumberColumn);
+            String episodeNumber = rowValues.get(this.episodeNumberColumn);
+            String localizationType = rowValues.get(this.localizationTypeColumn);
+            String seriesAltID = rowValues.get(this.seriesAltIDColumn);
+            String seasonAltID = rowValues.get(this.seasonAltIDColumn);
+            String episodeAltID = rowValues.get(this.episodeAltIDColumn);
+            String licenseType = rowValues.get(this.licenseTypeColumn);
+            String formatProfile = rowValues.get(this.formatProfileColumn);
+            String preorderDate = rowValues.get(this.specialPreOrderFulfillDateColumn);
+            String priceType = rowValues.get(this.priceTypeColumn);
+            String seriesContentID = rowValues.get(this.seriesContentIDColumn);
+            String seasonContentID = rowValues.get(this.seasonContentIDColumn);
+            String episodeContentID = rowValues.get(this.episodeContentIDColumn);
+            String episodeProductID = rowValues.get(this.episodeProductIDColumn);
+            String encodeID = rowValues.get(this.encodeIDColumn);
+            String suppressionLiftDate = rowValues.get(this.suppressionLiftDateColumn);
+            
+            String[] array = {storeLanguage, territory, workType, entryType, title,
+                              seasonNumber, episodeNumber, localizationType, seriesAltID, seasonAltID,
+                              episodeAltID, licenseType, formatProfile, preorderDate, priceType, 
+                              seriesContentID, seasonContentID, episodeContentID, episodeProductID, encodeID,
+                              suppressionLiftDate};
+            
+            // Ignore POEST
+            if(!licenseType.equals("POEST")) {
+                for(int i = 0; i < array.length; i++) {
+                    uniqueColumnsArray.add(array[i]);
                 }
             }
+        }
+        
+        // Concatenate all values into a Unique ID String
+        concatString = ValidatorUtils.concatUIDString(uniqueColumnsArray);
+        
+        // Insert the UID String into the hashmap and build Window information
+        if(concatString.length() > 0) {
+            String start = rowValues.get(this.startColumn);
+            String end = rowValues.get(this.endColumn);
+            CellValue startValue = rowValues.getCellValue(this.startColumn);
+            CellValue endValue = rowValues.getCellValue(this.endColumn);
             
-            // Concatenate all values into a Unique ID String
-            concatString = ValidatorUtils.concatUIDString(uniqueColumnsArray);
-            
-            // Insert the UID String into the hashmap and build Window information
-            if(concatString.length() > 0) {
-                String start = rowValues.get(Start.class.getSimpleName());
-                String end = rowValues.get(End.class.getSimpleName());
-                
-                // Only try validate on valid start/end inputs.
-                if(ValidatorUtils.areValidStartEndDates(start, end)) {
-                    int startingDate = ValidatorUtils.convertDateStringToIntValue(start);
-                    int endingDate = ValidatorUtils.convertDateStringToIntValue(end);
+            // Only try validate on valid start/end inputs.
+            if(ValidatorUtils.areValidStartEndDates(startValue, endValue)) {
+                int startingDate = ValidatorUtils.convertDateStringToIntValue(start, startValue);
+                int endingDate = ValidatorUtils.convertDateStringToIntValue(end, endValue);
 
-                    // Ignore "ESTStart" End dates
-                    if(end.equals("ESTStart")) 
-                    {
-                        return false;
-                    }
-                    // Figure out case for "ESTStart". Ignore for now?
+                // Ignore "ESTStart" End dates
+                if(end.equals("ESTStart")) 
+                {
+                    return false;
+                }
+                // Figure out case for "ESTStart". Ignore for now?
 
-                    Window window = new Window(startingDate, endingDate, new Integer(actualRowNumber));
-                    ArrayList<Window> otherWindow = this.map.get(concatString);
-                    if (otherWindow == null) {
-                        otherWindow = new ArrayList<Window>();
-                    }
+                WindowTree otherWindows = this.map.get(concatString);
+                if (otherWindows == null) {
+                    otherWindows = new WindowTree();
+                    this.map.put(concatString, otherWindows);
+                }
 
-                    // Check this window with all windows in the array list.
-                    for(int i = 0; i < otherWindow.size(); i++) {
-                        // If current window's start date is before another window's end date, there may be overlap.
-                        if(startingDate < otherWindow.get(i).getEnd()) {
-                            // AND: If current window's end date is after another window's start date, there IS overlap.
-                            if (endingDate > otherWindow.get(i).getStart()) {
-                                ErrorLog.appendNotification(new RowNotificationOverlappingWindow(rowNumber,
-                                        RowNotificationOverlappingWindow.OVERLAPPING_WINDOW_FOUND_NOTIFICATION_MESSAGE,
-                                        otherWindow.get(i).getRow(),
-                                        RowNotificationOverlappingWindow.OVERLAPPING_WINDOW_FOUND_NOTIFICATION_DETAILS));
-                                // Break from the loop to only catch this overlap ONCE
-                                break;
-                            }
-                        }
-                    }
-                    otherWindow.add(window);
-                    this.map.put(concatString, otherWindow);
+                // Find the first earlier window that starts before this one ends and ends after this one starts, to only catch this overlap ONCE
+                int overlappingWindow = otherWindows.findEarliestOverlap(startingDate, endingDate);
+                if(overlappingWindow != WindowTree.NO_WINDOW) {
+                    ErrorLog.appendNotification(new RowNotificationOverlappingWindow(rowNumber,
+                            RowNotificationOverlappingWindow.OVERLAPPING_WINDOW_FOUND_NOTIFICATION_MESSAGE,
+                            String.valueOf(otherWindows.getRow(overlappingWindow)),
+                            RowNotificationOverlappingWindow.OVERLAPPING_WINDOW_FOUND_NOTIFICATION_DETAILS));
                 }
+                otherWindows.add(startingDate, endingDate, actualRowNumber);
             }
-            return false;
-        } 
-        catch (NullPointerException NPE) { return true; }
+        }
+        return false;
     }
 }
@@ -15,11 +15,12 @@ limitations under the License.
 
 package emavalidator.validators;
 
-import java.util.HashMap;
-
 import emavalidator.AbstractErrorEntry.ErrorLevel;
 import emavalidator.AbstractRowValidator;
+import emavalidator.ColumnSlot;
+import emavalidator.CellValue;
 import emavalidator.ErrorLog;
+import emavalidator.RowValues;
 import emavalidator.columns.LicenseType;
 import emavalidator.columns.ReleaseHistoryOriginal;
 import emavalidator.columns.ReleaseHistoryPhysicalHV;
@@ -29,40 +30,43 @@ import emavalidator.errors.RowErrorQuestionableStart;
 
 public class RowValidatorQuestionableStart extends AbstractRowValidator
 {
+    private final ColumnSlot startColumn = this.column(Start.class);
+    private final ColumnSlot releaseHistoryOriginalColumn = this.optionalColumn(ReleaseHistoryOriginal.class);
+    private final ColumnSlot releaseHistoryPhysicalHVColumn = this.optionalColumn(ReleaseHistoryPhysicalHV.class);
+    private final ColumnSlot licenseTypeColumn = this.column(LicenseType.class);
+
     @Override
-    public boolean validate(HashMap<String, String> rowValues, int rowNumber)
+    public boolean validate(RowValues rowValues, int rowNumber)
     {
-        try {
-            // start, release history original, release history physical hv
-            String startDate = rowValues.get(Start.class.getSimpleName());
-            String theatricalReleaseDate = rowValues.get(ReleaseHistoryOriginal.class.getSimpleName());
-            String physicalReleaseDate = rowValues.get(ReleaseHistoryPhysicalHV.class.getSimpleName());
-            String licenseType = rowValues.get(LicenseType.class.getSimpleName());
-            
-            if(licenseType.compareToIgnoreCase(ValidatorUtils.LICENSE_TYPE_PRE_ORDER_EST) == 0)
-                return true;
-    
-            if( ValidatorUtils.isQuestionableStartDate(startDate, theatricalReleaseDate) ) {
-                // Error
-                ErrorLog.appendError(new RowErrorQuestionableStart(
-                                     rowNumber,
-                                     RowErrorQuestionableStart.START_LESS_THEATRICAL_ERROR,
-                                     ErrorLevel.WARNING,
-                                     "Start: " + startDate + " ReleaseHistoryOriginal: " + theatricalReleaseDate,
-                                     RowErrorQuestionableStart.EXPECTED_VALUE_THEATRICAL));
-            }
-    
-            if( ValidatorUtils.isQuestionableStartDate(startDate, physicalReleaseDate) ) {
-                // Error
-                ErrorLog.appendError(new RowErrorQuestionableStart(
-                                     rowNumber,
-                                     RowErrorQuestionableStart.START_LESS_PHYSICAL_ERROR,
-                                     ErrorLevel.WARNING,
-                                     "Start: " + startDate + " ReleaseHistoryPhysicalHV: " + physicalReleaseDate,
-                                     RowErrorQuestionableStart.EXPECTED_VALUE_PHYSICAL));
-            }
-            return false;
-        } catch(NullPointerException NPE) { return true; } // do not validate when column values are missing
+        // start, release history original, release history physical hv
+        String startDate = rowValues.get(this.startColumn);
+        String theatricalReleaseDate = rowValues.get(this.releaseHistoryOriginalColumn);
+        String physicalReleaseDate = rowValues.get(this.releaseHistoryPhysicalHVColumn);
+        String licenseType = rowValues.get(this.licenseTypeColumn);
+        CellValue startValue = rowValues.getCellValue(this.startColumn);
+        
+        if(licenseType.compareToIgnoreCase(ValidatorUtils.LICENSE_TYPE_PRE_ORDER_EST) == 0)
+            return true;
+
+        if( theatricalReleaseDate != null && ValidatorUtils.isQuestionableStartDate(startValue, rowValues.getCellValue(this.releaseHistoryOriginalColumn)) ) {
+            // Error
+            ErrorLog.appendError(new RowErrorQuestionableStart(
+                                 rowNumber,
+                                 RowErrorQuestionableStart.START_LESS_THEATRICAL_ERROR,
+                                 ErrorLevel.WARNING,
+                                 "Start: " + startDate + " ReleaseHistoryOriginal: " + theatricalReleaseDate,
+                                 RowErrorQuestionableStart.EXPECTED_VALUE_THEATRICAL));
+        }
 
+        if( physicalReleaseDate != null && ValidatorUtils.isQuestionableStartDate(startValue, rowValues.getCellValue(this.releaseHistoryPhysicalHVColumn)) ) {
+            // Error
+            ErrorLog.appendError(new RowErrorQuestionableStart(
+                                 rowNumber,
+                                 RowErrorQuestionableStart.START_LESS_PHYSICAL_ERROR,
+                                 ErrorLevel.WARNING,
+                                 "Start: " + startDate + " ReleaseHistoryPhysicalHV: " + physicalReleaseDate,
+                                 RowErrorQuestionableStart.EXPECTED_VALUE_PHYSICAL));
+        }
+        return false;
     }
 }
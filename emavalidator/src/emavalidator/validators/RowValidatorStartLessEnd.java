@@ -15,10 +15,11 @@ limitations under the License.
 
 package emavalidator.validators;
 
-import java.util.HashMap;
-
 import emavalidator.AbstractRowValidator;
+import emavalidator.ColumnSlot;
+import emavalidator.CellValue;
 import emavalidator.ErrorLog;
+import emavalidator.RowValues;
 import emavalidator.columns.End;
 import emavalidator.columns.EntryType;
 import emavalidator.columns.Start;
@@ -26,52 +27,50 @@ import emavalidator.errors.RowErrorChronologicalDates;
 
 public class RowValidatorStartLessEnd extends AbstractRowValidator
 {
+    private final ColumnSlot entryTypeColumn = this.column(EntryType.class);
+    private final ColumnSlot startColumn = this.column(Start.class);
+    private final ColumnSlot endColumn = this.column(End.class);
+
     public static final String EXPECTED_CHRONOLOGICAL = "Please be completely sure that the avail's start date is before and not equal to or after the avail's end date. Also make sure that your start and end dates are in the accepted format and values.";
 
     @Override
-    public boolean validate(HashMap<String, String> rowValues, int rowNumber)
+    public boolean validate(RowValues rowValues, int rowNumber)
     {
-        try
-        {
-            String      entryType = rowValues.get(EntryType.class.getSimpleName());
-            String availStartDate = rowValues.get(Start.class.getSimpleName());
-            String   availEndDate = rowValues.get(  End.class.getSimpleName());
+        String      entryType = rowValues.get(this.entryTypeColumn);
+        String availStartDate = rowValues.get(this.startColumn);
+        String   availEndDate = rowValues.get(this.endColumn);
 
-            // Ignore validating Start and End if EntryType is "Full Delete"
-            if(!entryType.equals(EntryType.FULL_DELETE)) {
-                if(availStartDate == null ||
-                        availEndDate == null)
-                    return true; // do not validate start vs. end in the case where either field is missing. this only happens when input columns are improperly named
-                
-                // If Start and End dates are empty strings, 
-                if(availStartDate.isEmpty() || availEndDate.isEmpty()) {
+        // Ignore validating Start and End if EntryType is "Full Delete"
+        if(!entryType.equals(EntryType.FULL_DELETE)) {
+            // If Start and End dates are empty strings, 
+            if(availStartDate.isEmpty() || availEndDate.isEmpty()) {
+                return false;
+            }
+            
+            CellValue availStartValue = rowValues.getCellValue(this.startColumn);
+            CellValue   availEndValue = rowValues.getCellValue(this.endColumn);
+            if(ValidatorUtils.areValidStartEndDates(availStartValue, availEndValue))
+                return true;
+            else
+            {
+                // We know two possibilities:
+                // (1) either Start or End is invalid. Fine-tune the checks here to ignore error message.
+                if (!ValidatorUtils.isValidStartEndDate(Start.class.getSimpleName(), availStartValue) ||
+                        !ValidatorUtils.isValidStartEndDate(End.class.getSimpleName(), availEndValue))
+                {
                     return false;
                 }
                 
-                if(ValidatorUtils.areValidStartEndDates(availStartDate, availEndDate))
-                    return true;
-                else
-                {
-                    // We know two possibilities:
-                    // (1) either Start or End is invalid. Fine-tune the checks here to ignore error message.
-                    if (!ValidatorUtils.isValidStartEndDate(Start.class.getSimpleName(), availStartDate) ||
-                            !ValidatorUtils.isValidStartEndDate(End.class.getSimpleName(), availEndDate))
-                    {
-                        return false;
-                    }
-                    
-                    // (2) Start and End are valid, but they are not in chronological order.
-                    // If the error is not caught above, then we know we have a chronological order error.
-                    ErrorLog.appendError(new RowErrorChronologicalDates(
-                            rowNumber,
-                            RowErrorChronologicalDates.DATES_NOT_CHRONOLOGICAL,
-                            availStartDate + " vs. " + availEndDate,
-                            RowValidatorStartLessEnd.EXPECTED_CHRONOLOGICAL));
-                }
-                return false;                
+                // (2) Start and End are valid, but they are not in chronological order.
+                // If the error is not caught above, then we know we have a chronological order error.
+                ErrorLog.appendError(new RowErrorChronologicalDates(
+                        rowNumber,
+                        RowErrorChronologicalDates.DATES_NOT_CHRONOLOGICAL,
+                        availStartDate + " vs. " + availEndDate,
+                        RowValidatorStartLessEnd.EXPECTED_CHRONOLOGICAL));
             }
-            return true;
+            return false;                
         }
-        catch (NullPointerException NPE) { return true; } // do not attempt to validate when column values are missing
+        return true;
     }
 }
@@ -15,10 +15,11 @@ limitations under the License.
 
 package emavalidator.validators;
 
-import java.util.HashMap;
-
+import emavalidator.CellValue;
 import emavalidator.ErrorLog;
+import emavalidator.RowValues;
 import emavalidator.AbstractRowValidator;
+import emavalidator.ColumnSlot;
 import emavalidator.AbstractErrorEntry.ErrorLevel;
 import emavalidator.columns.LicenseRightsDescription;
 import emavalidator.columns.SuppressionLiftDate;
@@ -26,28 +27,30 @@ import emavalidator.errors.RowErrorSuppressionPreorder;
 
 public class RowValidatorSuppressionPreorder extends AbstractRowValidator
 {
+    private final ColumnSlot licenseRightsDescriptionColumn = this.column(LicenseRightsDescription.class);
+    private final ColumnSlot suppressionLiftDateColumn = this.column(SuppressionLiftDate.class);
+
     @Override
-    public boolean validate(HashMap<String, String> rowValues, int rowNumber)
+    public boolean validate(RowValues rowValues, int rowNumber)
     {
-        try
+        String licenseRightsDescription = rowValues.get(this.licenseRightsDescriptionColumn);
+        String suppressionLiftDate = rowValues.get(this.suppressionLiftDateColumn);
+
+        if(licenseRightsDescription.contains("preorder"))
         {
-            String licenseRightsDescription = rowValues.get(LicenseRightsDescription.class.getSimpleName());
-            String suppressionLiftDate = rowValues.get(SuppressionLiftDate.class.getSimpleName());
-
-            if(licenseRightsDescription.contains("preorder"))
-                if(!suppressionLiftDate.matches(ValidatorUtils.CHRONOLOGICAL_DATE_FORMAT_REGEX) &&
-                   !suppressionLiftDate.matches(ValidatorUtils.JULIAN_DATE_FORMAT_REGEX))
-                {
-                        ErrorLog.appendError(new RowErrorSuppressionPreorder(
-                                             rowNumber,
-                                             RowErrorSuppressionPreorder.SUPPRESSION_PREORDER_ERROR,
-                                             ErrorLevel.ERROR,
-                                             licenseRightsDescription + " : " + suppressionLiftDate,
-                                             RowErrorSuppressionPreorder.SUPPRESSION_PREORDER_EXPECTED));
-                        return false;
-                }
-            return true;
+            CellValue suppressionLiftValue = rowValues.getCellValue(this.suppressionLiftDateColumn);
+            if(!suppressionLiftValue.isChronologicalDateFormat() &&
+               suppressionLiftValue.getKind() != CellValue.Kind.JULIAN_DATE)
+            {
+                    ErrorLog.appendError(new RowErrorSuppressionPreorder(
+                                         rowNumber,
+                                         RowErrorSuppressionPreorder.SUPPRESSION_PREORDER_ERROR,
+                                         ErrorLevel.ERROR,
+                                         licenseRightsDescription + " : " + suppressionLiftDate,
+                                         RowErrorSuppressionPreorder.SUPPRESSION_PREORDER_EXPECTED));
+                    return false;
+            }
         }
-        catch (NullPointerException NPE) { return true; }
+        return true;
     }
 }
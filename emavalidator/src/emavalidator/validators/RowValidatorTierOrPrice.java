@@ -15,11 +15,12 @@ limitations under the License.
 
 package emavalidator.validators;
 
-import java.util.HashMap;
-
 import emavalidator.AbstractEMASpec;
 import emavalidator.AbstractRowValidator;
+import emavalidator.ColumnSlot;
+import emavalidator.CellValue;
 import emavalidator.ErrorLog;
+import emavalidator.RowValues;
 import emavalidator.columns.EntryType;
 import emavalidator.columns.PriceType;
 import emavalidator.columns.PriceValue;
@@ -30,53 +31,71 @@ import emavalidator.errors.RowErrorTierOrPrice;
 
 public class RowValidatorTierOrPrice extends AbstractRowValidator
 {
+    private ColumnSlot wspColumn;
+    private ColumnSlot srpColumn;
+    private ColumnSlot tierColumn;
+    private ColumnSlot entryTypeColumn;
+    private ColumnSlot priceTypeColumn;
+    private ColumnSlot priceValueColumn;
+
+    private static final CompiledRegex VALID_TIER_CATEGORY_VALUES = CompiledRegex.get(ValidatorUtils.VALID_TIER_CATEGORY_VALUES_REGEX);
     public static final String CATEGORY_EXPECTED_VALUES = "New Release, Library, Mega-Library, DD-Theatrical, Pre-Theatrical, Early EST, Preorder EST, Early VOD, Preorder VOD";
     public static final String PRICE_TYPE_PRICE_VALUE = "PriceType and PriceValue go hand in hand. Please be sure their values correspond correctly from the template";
 
     private AbstractEMASpec.EMAVersion emaVersion;
 
-    public RowValidatorTierOrPrice(AbstractEMASpec.EMAVersion emaVersion) { this.emaVersion = emaVersion; }
+    public RowValidatorTierOrPrice(AbstractEMASpec.EMAVersion emaVersion)
+    {
+        this.emaVersion = emaVersion;
+        if(this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec14)
+        {
+            this.wspColumn = this.column(WSP.class);
+            this.srpColumn = this.column(SRP.class);
+            this.tierColumn = this.column(Tier.class);
+        }
+        else
+        {
+            this.priceTypeColumn = this.column(PriceType.class);
+            this.priceValueColumn = this.column(PriceValue.class);
+            this.entryTypeColumn = this.optionalColumn(EntryType.class);
+        }
+    }
 
     @Override
-    public boolean validate(HashMap<String, String> rowValues, int rowNumber)
+    public boolean validate(RowValues rowValues, int rowNumber)
     {
         //TODO(canavan) make this prettier
         if(this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec14)
         {
-            try
-            {
-                String wholesalePrice = rowValues.get(WSP.class.getSimpleName());
-                String suggestedPrice = rowValues.get(SRP.class.getSimpleName());
-                String tier           = rowValues.get(Tier.class.getSimpleName());
+            String wholesalePrice = rowValues.get(this.wspColumn);
+            String suggestedPrice = rowValues.get(this.srpColumn);
+            String tier           = rowValues.get(this.tierColumn);
 
-                if(wholesalePrice.isEmpty() && suggestedPrice.isEmpty() && tier.isEmpty())
-                {
-                    ErrorLog.appendError(new RowErrorTierOrPrice(
-                                         rowNumber,
-                                         RowErrorTierOrPrice.TIER_OR_PRICE,
-                                         "WSP: " + wholesalePrice + " SRP: " + suggestedPrice + " Tier: " + tier, ""));
-                    return false;
-                }
-                if((!wholesalePrice.isEmpty()) && (!suggestedPrice.isEmpty()))
-                {
-                    ErrorLog.appendError(new RowErrorTierOrPrice(
-                                         rowNumber,
-                                         RowErrorTierOrPrice.WSP_AND_SRP,
-                                         "WSP: " + wholesalePrice + " SRP: " + suggestedPrice + " Tier: " + tier, ""));
-                    return false;
-                }
-                if(tier.length() != 0 && (wholesalePrice.length() != 0 || suggestedPrice.length() != 0))
-                {
-                    ErrorLog.appendError(new RowErrorTierOrPrice(
-                                         rowNumber,
-                                         RowErrorTierOrPrice.TIER_AND_PRICE,
-                                         "WSP: " + wholesalePrice + " SRP: " + suggestedPrice + " Tier: " + tier, ""));
-                    return false;
-                }
-                return true;
+            if(wholesalePrice.isEmpty() && suggestedPrice.isEmpty() && tier.isEmpty())
+            {
+                ErrorLog.appendError(new RowErrorTierOrPrice(
+                                     rowNumber,
+                                     RowErrorTierOrPrice.TIER_OR_PRICE,
+                                     "WSP: " + wholesalePrice + " SRP: " + suggestedPrice + " Tier: " + tier, ""));
+                return false;
             }
-            catch (NullPointerException NPE) { return true; } // do not validate against missing values. column structure cannot be guaranteed therefore these values cannot be guaranteed to exist
-
+            if((!wholesalePrice.isEmpty()) && (!suggestedPrice.isEmpty()))
+            {
+                ErrorLog.appendError(new RowErrorTierOrPrice(
+                                     rowNumber,
+                                     RowErrorTierOrPrice.WSP_AND_SRP,
+                                     "WSP: " + wholesalePrice + " SRP: " + suggestedPrice + " Tier: " + tier, ""));
+                return false;
+            }
+            if(tier.length() != 0 && (wholesalePrice.length() != 0 || suggestedPrice.length() != 0))
+            {
+                ErrorLog.appendError(new RowErrorTierOrPrice(
+                                     rowNumber,
+                                     RowErrorTierOrPrice.TIER_AND_PRICE,
+                                     "WSP: " + wholesalePrice + " SRP: " + suggestedPrice + " Tier: " + tier, ""));
+                return false;
+            }
+            return true;
         }
         else if(this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec15 ||
                 this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec16 ||
@@ -84,82 +103,82 @@ public class RowValidatorTierOrPrice extends AbstractRowValidator
                 this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec17 ||
                 this.emaVersion == AbstractEMASpec.EMAVersion.EMASpec17TV)
         {
-            try
+            String entryType  = rowValues.get(this.entryTypeColumn);
+            String priceType  = rowValues.get(this.priceTypeColumn).toLowerCase();
+            String priceValue = rowValues.get(this.priceValueColumn).toLowerCase();
+            
+            // Check for empty cells first.
+            if(priceType.isEmpty())
             {
-                String entryType  = rowValues.get( EntryType.class.getSimpleName());
-                String priceType  = rowValues.get( PriceType.class.getSimpleName()).toLowerCase();
-                String priceValue = rowValues.get(PriceValue.class.getSimpleName()).toLowerCase();
-                
-                // Check for empty cells first.
-                if(priceType.isEmpty())
-                {
-                    // Ignore PriceType if EntryType is "Full Delete"
-                    if(entryType.equals(EntryType.FULL_DELETE)) {
-                        
-                    } else {
-                        ErrorLog.appendError(new RowErrorTierOrPrice(
-                                rowNumber,
-                                RowErrorTierOrPrice.EMPTY_PRICE_TYPE,
-                                priceType,
-                                RowValidatorTierOrPrice.PRICE_TYPE_PRICE_VALUE));
-                        return false;
-                    }
+                // Ignore PriceType if EntryType is "Full Delete"
+                if(entryType == null) // can't tell whether it's a Full Delete without an EntryType
+                    return true;
+                if(entryType.equals(EntryType.FULL_DELETE)) {
+                    
+                } else {
+                    ErrorLog.appendError(new RowErrorTierOrPrice(
+                            rowNumber,
+                            RowErrorTierOrPrice.EMPTY_PRICE_TYPE,
+                            priceType,
+                            RowValidatorTierOrPrice.PRICE_TYPE_PRICE_VALUE));
+                    return false;
                 }
-                if(priceValue.isEmpty())
-                {
-                    if(entryType.equals(EntryType.FULL_DELETE)) {
-                        
-                    } else {
-                        ErrorLog.appendError(new RowErrorTierOrPrice(
-                                rowNumber,
-                                RowErrorTierOrPrice.EMPTY_PRICE_VALUE,
-                                priceValue,
-                                RowValidatorTierOrPrice.PRICE_TYPE_PRICE_VALUE));
-                        return false;
-                    }
+            }
+            if(priceValue.isEmpty())
+            {
+                if(entryType == null)
+                    return true;
+                if(entryType.equals(EntryType.FULL_DELETE)) {
+                    
+                } else {
+                    ErrorLog.appendError(new RowErrorTierOrPrice(
+                            rowNumber,
+                            RowErrorTierOrPrice.EMPTY_PRICE_VALUE,
+                            priceValue,
+                            RowValidatorTierOrPrice.PRICE_TYPE_PRICE_VALUE));
+                    return false;
                 }
+            }
 
-                // Cells are non-empty, now check their contents.
-                if(priceType.compareTo(PriceType.PriceTypeValues.Category.toLowerString()) == 0)
+            // Cells are non-empty, now check their contents.
+            if(priceType.compareTo(PriceType.PriceTypeValues.Category.toLowerString()) == 0)
+            {
+                if(!RowValidatorTierOrPrice.VALID_TIER_CATEGORY_VALUES.matches(priceValue))
                 {
-                    if(!priceValue.matches(ValidatorUtils.VALID_TIER_CATEGORY_VALUES_REGEX))
-                    {
-                        ErrorLog.appendError(new RowErrorTierOrPrice(
-                                             rowNumber,
-                                             RowErrorTierOrPrice.CATEGORY_VALUE,
-                                             priceValue,
-                                             RowValidatorTierOrPrice.PRICE_TYPE_PRICE_VALUE));
-                        return false;
-                    }
+                    ErrorLog.appendError(new RowErrorTierOrPrice(
+                                         rowNumber,
+                                         RowErrorTierOrPrice.CATEGORY_VALUE,
+                                         priceValue,
+                                         RowValidatorTierOrPrice.PRICE_TYPE_PRICE_VALUE));
+                    return false;
                 }
-                else if(priceType.compareTo(PriceType.PriceTypeValues.WSP.toLowerString()) == 0)
+            }
+            else if(priceType.compareTo(PriceType.PriceTypeValues.WSP.toLowerString()) == 0)
+            {
+                if(rowValues.getCellValue(this.priceValueColumn).getKind() != CellValue.Kind.DECIMAL)
                 {
-                    if(!priceValue.matches(ValidatorUtils.FLOAT_FORMAT_REGEX))
-                    {
-                        ErrorLog.appendError(new RowErrorTierOrPrice(
-                                             rowNumber,
-                                             RowErrorTierOrPrice.PRICE_VALUE,
-                                             priceValue,
-                                             RowValidatorTierOrPrice.PRICE_TYPE_PRICE_VALUE));
-                        return false;
-                    }
+                    ErrorLog.appendError(new RowErrorTierOrPrice(
+                                         rowNumber,
+                                         RowErrorTierOrPrice.PRICE_VALUE,
+                                         priceValue,
+                                         RowValidatorTierOrPrice.PRICE_TYPE_PRICE_VALUE));
+                    return false;
                 }
-                else if(priceType.compareTo(PriceType.PriceTypeValues.Tier.toString()) == 0)
+            }
+            else if(priceType.compareTo(PriceType.PriceTypeValues.Tier.toString()) == 0)
+            {
+                if(!RowValidatorTierOrPrice.VALID_TIER_CATEGORY_VALUES.matches(priceValue))
                 {
-                    if(!priceValue.matches(ValidatorUtils.VALID_TIER_CATEGORY_VALUES_REGEX))
-                    {
-                        ErrorLog.appendError(new RowErrorTierOrPrice(
-                                             rowNumber,
-                                             RowErrorTierOrPrice.TIER_VALUE,
-                                             priceValue,
-                                             RowValidatorTierOrPrice.PRICE_TYPE_PRICE_VALUE));
-                        return false;
-                    }
+                    ErrorLog.appendError(new RowErrorTierOrPrice(
+                                         rowNumber,
+                                         RowErrorTierOrPrice.TIER_VALUE,
+                                         priceValue,
+                                         RowValidatorTierOrPrice.PRICE_TYPE_PRICE_VALUE));
+                    return false;
                 }
-
-                return true; // do not validate against unknown values. cell level checking will catch that.
             }
-            catch (NullPointerException NPE) { return true; } // do not validate when the values are null because that means their column wasn't located correctly
+
+            return true; // do not validate against unknown values. cell level checking will catch that.
         }
         else
             throw new IllegalArgumentException("Unknown EMA version in RowValidatorTierOrPrice");
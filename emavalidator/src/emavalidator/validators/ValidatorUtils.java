@@ -15,38 +15,22 @@ limitations under the License.
 
 package emavalidator.validators;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
+import emavalidator.CellValue;
 import emavalidator.columns.End;
 import emavalidator.columns.Start;
 
 public class ValidatorUtils
 {
 
-    static
-    {
-        ValidatorUtils.CHRONOLOGICAL_DATE_FORMAT_VALIDATOR = new SimpleDateFormat("yyyy-MM-dd");
-        ValidatorUtils.CHRONOLOGICAL_DATE_FORMAT_VALIDATOR.setLenient(false); // force non lenient date validation
-        ValidatorUtils.ISO8601_DATETIME_FORMAT_VALIDATOR = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssXXX");
-    }
-    
     public static final int NUM_CHARACTERS_IN_ALPHABET = 26;
 
     public static final String[] alphaColumnMapping = {"","A","B","C","D","E","F","G","H","I","J","K","L","M","N","O","P","Q","R","S","T","U","V","W","X","Y","Z"};
 
-    /**
-     * Used to validate a chronological date format in YYYY-MM-DD format with respect to things like number of days in a month and leap years / days
-     */
-    public static SimpleDateFormat CHRONOLOGICAL_DATE_FORMAT_VALIDATOR;
-    
-    /**
-     * 
-     */
-    public static SimpleDateFormat ISO8601_DATETIME_FORMAT_VALIDATOR;
-
     /**
      * Regex to allow any String.
      */
@@ -182,12 +166,12 @@ public class ValidatorUtils
     /**
      * Movie, Short, Season, Episode
      */
-    public static final String WORK_TYPE_VALUES_REGEX = "(?i)^(movie|short|season|episode|collection|episode:collection member|season:collection member|series:miniseries)$";
+    public static final List<String> WORK_TYPE_VALUES = Collections.unmodifiableList(Arrays.asList("movie", "short", "season", "episode", "collection", "episode:collection member", "season:collection member", "series:miniseries"));
 
     /**
      * HD, SD, 3D, 3DHD, 3DSD, HFR, 3DHFR, 4K, 3D4K
      */
-    public static final String FORMAT_PROFILE_VALUES_REGEX = "(?i)^(SD|HD|UHD|3D|3DSD|3DHD|3DUHD)$";
+    public static final List<String> FORMAT_PROFILE_VALUES = Collections.unmodifiableList(Arrays.asList("SD", "HD", "UHD", "3D", "3DSD", "3DHD", "3DUHD"));
 
     /**
      * New Release, Library, Mega-Library, DD-Theatrical, Pre-Theatrical, Early EST, Preorder EST, Early VOD, Preorder VOD, DTV, DD-DVD, Next Day TV, POD
@@ -198,12 +182,12 @@ public class ValidatorUtils
     /**
      * EST, VOD, SVOD
      */
-    public static final String LICENSE_TYPE_VALUES_REGEX_14_15 = "(?i)^(EST|VOD|SVOD)$";
+    public static final List<String> LICENSE_TYPE_VALUES_14_15 = Collections.unmodifiableList(Arrays.asList("EST", "VOD", "SVOD"));
 
     /**
      * EST, VOD, SVOD, POEST
      */
-    public static final String LICENSE_TYPE_VALUES_REGEX_16 = "(?i)^(EST|VOD|SVOD|POEST)$";
+    public static final List<String> LICENSE_TYPE_VALUES_16 = Collections.unmodifiableList(Arrays.asList("EST", "VOD", "SVOD", "POEST"));
     
     /**
      * The value for pre order EST for the license type column in 1.6 EMA+
@@ -213,17 +197,17 @@ public class ValidatorUtils
     /**
      * Sub, Dub, Subdub, Any
      */
-    public static final String LOCALIZATION_TYPE_VALUES_REGEX = "(?i)^(SUB|SUBBED|DUB|DUBBED|SUBDUB|ANY)$";
+    public static final List<String> LOCALIZATION_TYPE_VALUES = Collections.unmodifiableList(Arrays.asList("SUB", "SUBBED", "DUB", "DUBBED", "SUBDUB", "ANY"));
 
     /**
      * "Full Extract", "Create", "Update", "Delete"
      */
-    public static final String ENTRY_TYPE_VALUES_REGEX_14 = "(?i)^(Create|Update|Delete|Full Extract)$";
+    public static final List<String> ENTRY_TYPE_VALUES_14 = Collections.unmodifiableList(Arrays.asList("Create", "Update", "Delete", "Full Extract"));
 
     /**
      * "Full Extract", "Full Delete"
      */
-    public static final String ENTRY_TYPE_VALUES_REGEX_15_16 = "(?i)^(Full Extract|Full Delete)$";
+    public static final List<String> ENTRY_TYPE_VALUES_15_16 = Collections.unmodifiableList(Arrays.asList("Full Extract", "Full Delete"));
 
     /**
      * Should match only the empty string and all white spaces
@@ -233,7 +217,7 @@ public class ValidatorUtils
     /**
      * Tier, WSP, SRP, or Category
      */
-    public static final String PRICE_TYPE_VALUES_REGEX = "(?i)^(Tier|WSP|SRP|Category)$";
+    public static final List<String> PRICE_TYPE_VALUES = Collections.unmodifiableList(Arrays.asList("Tier", "WSP", "SRP", "Category"));
 
     public static final String EXPECTED_EIDR_VALUES = "Examples: 10.5240/CB93-339B-33EA-F532-9428-X, 0F0D-F5BB-7583-3BB0-53D3-Q";
 
@@ -254,23 +238,23 @@ public class ValidatorUtils
     /**
      * True, False, DV, HDR10
      */
-    public static final String HDR_VALUES_REGEX = "(?i)^(True|False|DV|HDR10)$";
+    public static final List<String> HDR_VALUES = Collections.unmodifiableList(Arrays.asList("True", "False", "DV", "HDR10"));
     
     /**
      * True, False
      */
-    public static final String WCG_VALUES_REGEX = "(?i)^(True|False)$";
+    public static final List<String> WCG_VALUES = Collections.unmodifiableList(Arrays.asList("True", "False"));
     
     /**
      * True, False
      */
-    public static final String HFR_VALUES_REGEX = "(?i)^(True|False)$";
+    public static final List<String> HFR_VALUES = Collections.unmodifiableList(Arrays.asList("True", "False"));
     
     /**
      * True, False, Atmos, DTS:X, Auro3D
      */
-    public static final String NGAUDIO_VALUES_REGEX = "(?i)^(True|False|Atmos|DTS:X|Auro3D)$";
-    
+    public static final List<String> NGAUDIO_VALUES = Collections.unmodifiableList(Arrays.asList("True", "False", "Atmos", "DTS:X", "Auro3D"));
+
     public static boolean equals(final String s1, final String s2)
     {
         return s1 != null && s2 != null && s1.hashCode() == s2.hashCode() && s1.equals(s2);
@@ -283,33 +267,24 @@ public class ValidatorUtils
      */
     public static boolean isValidStartEndDate(String dateClassName, String inputString)
     {
-        if(inputString.matches(ValidatorUtils.JULIAN_DATE_FORMAT_REGEX))
-            return true;
-
-        if(dateClassName.compareTo(End.class.getSimpleName()) == 0 &&
-           inputString.matches(ValidatorUtils.ENDING_DATE_VALUES_REGEX))
-            return true;
+        return ValidatorUtils.isValidStartEndDate(dateClassName, new CellValue().parse(CellValue.ValueType.DATE, inputString));
+    }
 
-        if(dateClassName.compareTo(Start.class.getSimpleName()) == 0 &&
-           inputString.matches(ValidatorUtils.STARTING_DATE_VALUES_REGEX))
+    /**
+     * @param dateClassName The name of the class containing the date value. Examples are Start, End
+     * @param dateValue The date value to validate, already parsed as a DATE
+     * @return True if the start or end date is valid according to its parent column's rules, false otherwise.
+     */
+    public static boolean isValidStartEndDate(String dateClassName, CellValue dateValue)
+    {
+        if(dateValue.isDate())
             return true;
 
-        try
-        {
-            // Length greater than 10 means it may be in ISO-8601 format.
-            if (inputString.length() > 10) {
-                ValidatorUtils.ISO8601_DATETIME_FORMAT_VALIDATOR.parse(inputString);
-            }
-            // Otherwise, assume YYYY-mm-DD Date String.
-            else {
-                ValidatorUtils.CHRONOLOGICAL_DATE_FORMAT_VALIDATOR.parse(inputString);
-            }
-            return true;
-        }
-        catch (ParseException e) {
-            System.out.println(e);
-        }
+        if(dateValue.getKind() == CellValue.Kind.ENDING_DATE_SYMBOL)
+            return dateClassName.compareTo(End.class.getSimpleName()) == 0;
 
+        if(dateValue.getKind() == CellValue.Kind.STARTING_DATE_SYMBOL)
+            return dateClassName.compareTo(Start.class.getSimpleName()) == 0;
         return false;
     }
 
@@ -320,73 +295,80 @@ public class ValidatorUtils
      * @return True if the two dates can be correctly evaluated against each other, false otherwise.
      */
     public static boolean areValidStartEndDates(String startDate, String endDate)
+    {
+        return ValidatorUtils.areValidStartEndDates(new CellValue().parse(CellValue.ValueType.DATE, startDate), new CellValue().parse(CellValue.ValueType.DATE, endDate));
+    }
+
+    /**
+     * Specifically only validates avail Start VS. avail End.
+     * @param startDate The starting date value, already parsed as a DATE
+     * @param endDate The ending date value, already parsed as a DATE
+     * @return True if the two dates can be correctly evaluated against each other, false otherwise.
+     */
+    public static boolean areValidStartEndDates(CellValue startDate, CellValue endDate)
     {
         if(!ValidatorUtils.isValidStartEndDate(Start.class.getSimpleName(), startDate) ||
            !ValidatorUtils.isValidStartEndDate(End.class.getSimpleName(), endDate))
                return false; // if neither individual value is valid, return false before attempting to compare them to each other
 
-        if(startDate.matches(ValidatorUtils.JULIAN_DATE_FORMAT_REGEX) &&
-             endDate.matches(ValidatorUtils.JULIAN_DATE_FORMAT_REGEX))
-             return Double.valueOf(endDate) > Double.valueOf(startDate); // this should be type safe as the only values that should get matched here should not throw NumberFormatException
-
-        else if(startDate.matches(ValidatorUtils.CHRONOLOGICAL_DATE_FORMAT_REGEX) &&
-                  endDate.matches(ValidatorUtils.CHRONOLOGICAL_DATE_FORMAT_REGEX))
-        {
-            try
-            {
-                Date startingDate = ValidatorUtils.CHRONOLOGICAL_DATE_FORMAT_VALIDATOR.parse(startDate);
-                Date   endingDate = ValidatorUtils.CHRONOLOGICAL_DATE_FORMAT_VALIDATOR.parse(endDate);
-                return startingDate.compareTo(endingDate) < 0;
-            }
-            catch (ParseException e) { return false; }
-        }
+        if(startDate.getKind() == CellValue.Kind.JULIAN_DATE && endDate.getKind() == CellValue.Kind.JULIAN_DATE)
+             return endDate.getLong() > startDate.getLong();
+
+        else if(startDate.isChronologicalDateFormat() &&
+                endDate.isChronologicalDateFormat())
+            return startDate.getLong() < endDate.getLong(); // both already known to be valid dates
         return true;
     }
 
     public static boolean isQuestionableStartDate(String startDate, String releaseDate)
     {
-        if(releaseDate.isEmpty())
+        return ValidatorUtils.isQuestionableStartDate(new CellValue().parse(CellValue.ValueType.DATE, startDate), new CellValue().parse(CellValue.ValueType.DATE, releaseDate));
+    }
+
+    /**
+     * @param startDate The avail's start date, already parsed as a DATE
+     * @param releaseDate A release date of the title, already parsed as a DATE
+     * @return True if both are dates of the same format and the avail starts before the release date
+     */
+    public static boolean isQuestionableStartDate(CellValue startDate, CellValue releaseDate)
+    {
+        if(releaseDate.getKind() == CellValue.Kind.EMPTY)
             return false;
 
-        if(startDate.matches(ValidatorUtils.JULIAN_DATE_FORMAT_REGEX) &&
-                releaseDate.matches(ValidatorUtils.JULIAN_DATE_FORMAT_REGEX))
-            return Double.valueOf(startDate) < Double.valueOf(releaseDate);
-
-        else if(startDate.matches(ValidatorUtils.CHRONOLOGICAL_DATE_FORMAT_REGEX) &&
-                releaseDate.matches(ValidatorUtils.CHRONOLOGICAL_DATE_FORMAT_REGEX))
-        {
-            try
-            {
-                Date startingDate = ValidatorUtils.CHRONOLOGICAL_DATE_FORMAT_VALIDATOR.parse(startDate);
-                Date   releasingDate = ValidatorUtils.CHRONOLOGICAL_DATE_FORMAT_VALIDATOR.parse(releaseDate);
-                return startingDate.compareTo(releasingDate) < 0;
-            }
-            catch (ParseException e) { return false; }
-        }
+        if(startDate.getKind() == CellValue.Kind.JULIAN_DATE && releaseDate.getKind() == CellValue.Kind.JULIAN_DATE)
+            return startDate.getLong() < releaseDate.getLong();
+
+        else if(startDate.isChronologicalDateFormat() &&
+                releaseDate.isChronologicalDateFormat())
+            return startDate.getKind() == CellValue.Kind.CHRONOLOGICAL_DATE && releaseDate.getKind() == CellValue.Kind.CHRONOLOGICAL_DATE && startDate.getLong() < releaseDate.getLong();
         return false;
     }
     
-    public static Integer convertDateStringToIntValue(String dateString) {
-        int returnDate = -1;
-        
+    /**
+     * @param dateString A Start or End value
+     * @return The date as yyyyMMdd, the whole days of a julian date, 99999999 for Open, or -1 for any other value
+     */
+    public static int convertDateStringToIntValue(String dateString) {
+        return ValidatorUtils.convertDateStringToIntValue(dateString, new CellValue().parse(CellValue.ValueType.DATE, dateString));
+    }
+
+    /**
+     * @param dateString A Start or End value
+     * @param dateValue The same value, already parsed as a DATE
+     * @return The date as yyyyMMdd, the whole days of a julian date, 99999999 for Open, or -1 for any other value
+     */
+    public static int convertDateStringToIntValue(String dateString, CellValue dateValue) {
         // "Open" means no end. Set the date to something large for comparison.
         if(dateString.equals("Open")) {
-            return Integer.parseInt("99999999");
+            return 99999999;
         }
-        
-        try
-        {
-            if(dateString.matches(ValidatorUtils.JULIAN_DATE_FORMAT_REGEX)) 
-            {
-                returnDate = Integer.parseInt(dateString);
-            }
-            else if(dateString.matches(ValidatorUtils.CHRONOLOGICAL_DATE_FORMAT_REGEX))
-            {
-                Date date = new SimpleDateFormat("yyyy-MM-dd").parse(dateString);
-                returnDate = Integer.parseInt(new SimpleDateFormat("yyyyMMdd").format(date));
-            }
-        } catch (ParseException e) { return -1; }
-        return returnDate;
+
+        if(dateValue.getKind() == CellValue.Kind.JULIAN_DATE)
+            return (int) (dateValue.getLong() / DateParser.JULIAN_DATE_SCALE);
+
+        if(dateValue.getKind() == CellValue.Kind.CHRONOLOGICAL_DATE)
+            return (int) DateParser.toCompactDate(dateValue.getLong());
+        return -1;
     }
     
     /**
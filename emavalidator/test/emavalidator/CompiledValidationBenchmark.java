@@ -0,0 +1,120 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package emavalidator;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+/**
+ * Compares how long the data rows of a CSV file take to validate with the compiled validation of its EMA version against the interpreted way. See SpecCompiler.
+ * The file is read into memory up front and rows are validated on a single thread, so only the cell and row validation itself is timed.
+ * Lives with the tests rather than the shipped sources, and is run with the same classpath as them. Usage: CompiledValidationBenchmark file.csv [runs]
+ */
+public class CompiledValidationBenchmark
+{
+    private static final int WARM_UP_RUNS = 5;
+
+    public static void main(String[] args) throws IOException
+    {
+        if(args.length < 1)
+        {
+            System.out.println("Usage: CompiledValidationBenchmark file.csv [runs]");
+            return;
+        }
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        ArrayList<String[]> rows = CompiledValidationBenchmark.readRows(args[0]);
+
+        for(int x = 0; x < CompiledValidationBenchmark.WARM_UP_RUNS; x++)
+        {
+            CompiledValidationBenchmark.validate(rows, false);
+            CompiledValidationBenchmark.validate(rows, true);
+        }
+
+        long[] interpretedTimes = new long[runs];
+        long[] compiledTimes = new long[runs];
+        for(int x = 0; x < runs; x++) // alternate the two so that neither gets an unfair share of GC or JIT activity
+        {
+            interpretedTimes[x] = CompiledValidationBenchmark.validate(rows, false);
+            compiledTimes[x] = CompiledValidationBenchmark.validate(rows, true);
+        }
+        Arrays.sort(interpretedTimes);
+        Arrays.sort(compiledTimes);
+        long interpretedMedian = interpretedTimes[runs / 2];
+        long compiledMedian = compiledTimes[runs / 2];
+        System.out.println("Rows:        " + rows.size());
+        System.out.println("Interpreted: " + interpretedMedian / 1000000 + " ms (median of " + runs + ")");
+        System.out.println("Compiled:    " + compiledMedian / 1000000 + " ms (median of " + runs + ")");
+        System.out.println("Speedup:     " + String.format("%.2fx", (double) interpretedMedian / compiledMedian));
+    }
+
+    private static ArrayList<String[]> readRows(String fileName) throws IOException
+    {
+        ArrayList<String[]> rows = new ArrayList<String[]>();
+        CSVParser parser = new CSVParser(new BufferedReader(new InputStreamReader(new FileInputStream(fileName), "UTF-8")), CSVFormat.EXCEL);
+        try
+        {
+            for(CSVRecord currentRecord : parser)
+            {
+                String[] row = new String[currentRecord.size()];
+                for(int x = 0; x < row.length; x++)
+                    row[x] = currentRecord.get(x);
+                rows.add(row);
+            }
+        }
+        finally
+        {
+            parser.close();
+        }
+        return rows;
+    }
+
+    /**
+     * @return How long the data rows took to validate, in nanoseconds
+     */
+    private static long validate(ArrayList<String[]> rows, boolean compiled)
+    {
+        ValidationContext validationContext = new ValidationContext(ErrorLog.OUTPUT_LOG_TYPE.LOG);
+        ArrayList<String> columnHeaderRows = new ArrayList<String>();
+        for(int x = 0; x < Math.min(EMAResourceValidator.NUM_ROWS_FOR_HEADER_SEARCH, rows.size()); x++)
+            columnHeaderRows.add(EMAResourceValidator.getRowContents(rows.get(x)));
+        HeaderRowIndexes headerRowIndexes = validationContext.locateHeaderRows(columnHeaderRows, "benchmark");
+        AbstractEMASpec emaSpec = validationContext.prepareEMASpec(columnHeaderRows, headerRowIndexes, "benchmark", 0, false);
+        emaSpec.setRowValidationParallelism(1);
+        emaSpec.setCompiledValidation(compiled);
+        if(compiled && !emaSpec.isCompiledValidation())
+            throw new IllegalStateException(emaSpec.getEMAVersion() + " couldn't be compiled");
+
+        RowView rowView = new RowView();
+        long startTime = System.nanoTime();
+        for(int x = headerRowIndexes.getDataStartsRowIndex(); x < rows.size(); x++)
+        {
+            rowView.clear();
+            for(String currentCell : rows.get(x))
+                rowView.addCell(currentCell);
+            emaSpec.validate(rowView, x);
+        }
+        emaSpec.finishValidation();
+        return System.nanoTime() - startTime;
+    }
+}
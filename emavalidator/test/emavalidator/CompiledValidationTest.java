@@ -0,0 +1,148 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package emavalidator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Every EMA version has to give the same error log whether its rows are validated with the compiled validation made by SpecCompiler or the interpreted way.
+ * Rows are made up from the cell values of the CSV files under resources, most of which break at least one rule, laid out in the spec's own column order,
+ * in a shuffled order with a column the spec doesn't have, and with columns missing so that some row validators are skipped.
+ * SpecCompiler is told to throw rather than fall back, so a spec that can't be compiled fails the test.
+ */
+public class CompiledValidationTest
+{
+    private static final String[] FIXTURES = { "multisheet_16tv.csv", "multisheet_17tv.csv" };
+
+    private static final int ROW_COUNT = 400;
+
+    public static void main(String[] args) throws IOException
+    {
+        System.setProperty(SpecCompiler.COMPILED_VALIDATION_PROPERTY, SpecCompiler.COMPILED_VALIDATION_REQUIRED);
+        HashMap<String, ArrayList<String>> valuesByColumn = new HashMap<String, ArrayList<String>>();
+        ArrayList<String> allValues = new ArrayList<String>();
+        for(String currentFixture : CompiledValidationTest.FIXTURES)
+            CompiledValidationTest.collectValues(TestSupport.readCSVResource(currentFixture), valuesByColumn, allValues);
+
+        Random random = new Random(20141106L);
+        for(AbstractEMASpec.EMAVersion emaVersion : AbstractEMASpec.EMAVersion.values())
+        {
+            ArrayList<String> specColumns = new ArrayList<String>(AbstractEMASpec.getColumnNames(emaVersion));
+            ArrayList<String> shuffledColumns = new ArrayList<String>(specColumns);
+            Collections.shuffle(shuffledColumns, random);
+            shuffledColumns.add(shuffledColumns.size() / 2, "NotAColumn");
+            ArrayList<String> missingColumns = new ArrayList<String>(shuffledColumns);
+            for(int x = missingColumns.size() - 1; x >= 0; x -= 5)
+                missingColumns.remove(x);
+
+            CompiledValidationTest.checkSameErrorLog(emaVersion, specColumns, "spec columns", valuesByColumn, allValues, random);
+            CompiledValidationTest.checkSameErrorLog(emaVersion, shuffledColumns, "shuffled columns", valuesByColumn, allValues, random);
+            CompiledValidationTest.checkSameErrorLog(emaVersion, missingColumns, "missing columns", valuesByColumn, allValues, random);
+        }
+        TestSupport.finish("CompiledValidationTest");
+    }
+
+    /**
+     * Validates the same made up rows both ways, once as CSV rows and once as workbook rows, and compares the error logs
+     * @param columnHeaders The column layout of the rows
+     */
+    private static void checkSameErrorLog(AbstractEMASpec.EMAVersion emaVersion, ArrayList<String> columnHeaders, String description,
+                                          HashMap<String, ArrayList<String>> valuesByColumn, ArrayList<String> allValues, Random random)
+    {
+        ArrayList<String[]> rows = new ArrayList<String[]>();
+        for(int y = 0; y < CompiledValidationTest.ROW_COUNT; y++)
+        {
+            if(y > 0 && random.nextInt(10) == 0) // duplicate rows are reported by a row validator too
+            {
+                rows.add(rows.get(random.nextInt(rows.size())));
+                continue;
+            }
+            String[] row = new String[random.nextInt(8) == 0 ? random.nextInt(columnHeaders.size() + 1) : columnHeaders.size()]; // some rows end early
+            for(int x = 0; x < row.length; x++)
+            {
+                ArrayList<String> columnValues = valuesByColumn.get(columnHeaders.get(x));
+                if(columnValues == null || random.nextInt(10) == 0)
+                    columnValues = allValues;
+                row[x] = random.nextInt(8) == 0 ? "" : columnValues.get(random.nextInt(columnValues.size()));
+            }
+            rows.add(row);
+        }
+
+        for(boolean validateMissingCells : new boolean[] { false, true })
+        {
+            String interpretedLog = CompiledValidationTest.validate(emaVersion, columnHeaders, rows, validateMissingCells, false);
+            String compiledLog = CompiledValidationTest.validate(emaVersion, columnHeaders, rows, validateMissingCells, true);
+            TestSupport.check(interpretedLog.contains("Error count:"), emaVersion + " " + description + " has an error log");
+            TestSupport.checkEquals(interpretedLog, compiledLog, emaVersion + " " + description + (validateMissingCells ? " as workbook rows" : " as CSV rows") + " gives the same error log compiled");
+        }
+    }
+
+    /**
+     * @return The formatted error log of the rows, with the totals by error level in sorted order
+     */
+    private static String validate(AbstractEMASpec.EMAVersion emaVersion, ArrayList<String> columnHeaders, ArrayList<String[]> rows, boolean validateMissingCells, boolean compiled)
+    {
+        ValidationContext validationContext = new ValidationContext(ErrorLog.OUTPUT_LOG_TYPE.LOG);
+        try
+        {
+            AbstractEMASpec emaSpec = validationContext.prepareEMASpec(emaVersion, columnHeaders, 0, emaVersion.toString(), 0);
+            emaSpec.setRowValidationParallelism(1);
+            emaSpec.setCompiledValidation(compiled);
+            TestSupport.checkEquals(compiled, emaSpec.isCompiledValidation(), emaVersion + " validates " + (compiled ? "compiled" : "interpreted"));
+
+            RowView rowView = new RowView();
+            for(int y = 0; y < rows.size(); y++)
+            {
+                rowView.clear();
+                for(String currentCell : rows.get(y))
+                    rowView.addCell(currentCell);
+                emaSpec.validate(rowView, y + 1, validateMissingCells);
+            }
+            emaSpec.finishValidation();
+            return TestSupport.normalizeReport(validationContext.getErrorLog().getFormattedErrorLog());
+        }
+        finally
+        {
+            validationContext.release();
+        }
+    }
+
+    /**
+     * Gathers every cell value below the column header row of a fixture, by the column it's in
+     */
+    private static void collectValues(List<List<String>> fixtureRows, HashMap<String, ArrayList<String>> valuesByColumn, ArrayList<String> allValues)
+    {
+        int headerRow = 0;
+        while(!fixtureRows.get(headerRow).contains("Territory"))
+            headerRow++;
+        List<String> columnHeaders = fixtureRows.get(headerRow);
+        for(List<String> currentRow : fixtureRows.subList(headerRow + 1, fixtureRows.size()))
+        {
+            for(int x = 0; x < Math.min(currentRow.size(), columnHeaders.size()); x++)
+            {
+                if(!valuesByColumn.containsKey(columnHeaders.get(x)))
+                    valuesByColumn.put(columnHeaders.get(x), new ArrayList<String>());
+                valuesByColumn.get(columnHeaders.get(x)).add(currentRow.get(x));
+                allValues.add(currentRow.get(x));
+            }
+        }
+    }
+}
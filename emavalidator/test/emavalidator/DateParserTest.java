@@ -0,0 +1,225 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package emavalidator;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import emavalidator.validators.DateParser;
+
+/**
+ * DateParser replaced SimpleDateFormat, so its dates are checked against a strict SimpleDateFormat on the same GregorianCalendar:
+ * leap days, the ends of months and years, the switch from the Julian calendar in October 1582, and a few thousand random dates.
+ * Where DateParser is deliberately stricter than the SimpleDateFormat instances it replaced, the stricter result is checked on its own:
+ * trailing text, spaces inside a field, and ISO date times with hours, minutes, seconds or dates that don't exist, including 24:00:00.
+ */
+public class DateParserTest
+{
+    private static final long SECONDS_PER_DAY = 86400;
+
+    private static final int RANDOM_DATE_COUNT = 5000;
+
+    public static void main(String[] args)
+    {
+        DateParserTest.checkLeapDays();
+        DateParserTest.checkBoundaries();
+        DateParserTest.checkStricterDates();
+        DateParserTest.checkDateTimes();
+        DateParserTest.checkJulianDates();
+        DateParserTest.checkRunTimes();
+        DateParserTest.checkRandomDates();
+        TestSupport.finish("DateParserTest");
+    }
+
+    private static void checkLeapDays()
+    {
+        for(String leapDay : new String[] { "2016-02-29", "2000-02-29", "2400-02-29", "1904-02-29", "1500-02-29", "1200-02-29" }) // 1500 and 1200 are Julian leap years
+        {
+            DateParserTest.checkSameDate(leapDay);
+            TestSupport.check(DateParser.parseDate(leapDay) != DateParser.INVALID, leapDay + " exists");
+            TestSupport.checkEquals(DateParser.parseDate(leapDay) + 1, DateParser.parseDate(leapDay.substring(0, 5) + "03-01"), leapDay + " is followed by March 1st");
+        }
+        for(String missingLeapDay : new String[] { "2015-02-29", "1900-02-29", "2100-02-29", "1700-02-29", "2015-02-30", "2016-02-30", "1501-02-29" })
+        {
+            DateParserTest.checkSameDate(missingLeapDay);
+            TestSupport.checkEquals(DateParser.INVALID, DateParser.parseDate(missingLeapDay), missingLeapDay + " doesn't exist");
+        }
+        TestSupport.checkEquals(DateParser.parseDate("2015-02-28") + 1, DateParser.parseDate("2015-03-01"), "2015-02-28 is followed by March 1st");
+        TestSupport.checkEquals(366L, DateParser.parseDate("2017-01-01") - DateParser.parseDate("2016-01-01"), "2016 has 366 days");
+        TestSupport.checkEquals(365L, DateParser.parseDate("1901-01-01") - DateParser.parseDate("1900-01-01"), "1900 has 365 days");
+    }
+
+    private static void checkBoundaries()
+    {
+        TestSupport.checkEquals(0L, DateParser.parseDate("1970-01-01"), "1970-01-01 is epoch day 0");
+        TestSupport.checkEquals(-1L, DateParser.parseDate("1969-12-31"), "1969-12-31 is the day before the epoch");
+        TestSupport.checkEquals(DateParser.parseDate("2014-12-31") + 1, DateParser.parseDate("2015-01-01"), "years roll over");
+        int[] daysInMonth = { 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 };
+        for(int month = 1; month <= 12; month++)
+        {
+            String lastDay = String.format("2015-%02d-%02d", month, daysInMonth[month - 1]);
+            String pastLastDay = String.format("2015-%02d-%02d", month, daysInMonth[month - 1] + 1);
+            String nextMonth = month == 12 ? "2016-01-01" : String.format("2015-%02d-01", month + 1);
+            DateParserTest.checkSameDate(lastDay);
+            DateParserTest.checkSameDate(pastLastDay);
+            TestSupport.checkEquals(DateParser.INVALID, DateParser.parseDate(pastLastDay), pastLastDay + " doesn't exist");
+            TestSupport.checkEquals(DateParser.parseDate(lastDay) + 1, DateParser.parseDate(nextMonth), lastDay + " is followed by " + nextMonth);
+        }
+        for(String invalidDate : new String[] { "2015-00-10", "2015-13-01", "2015-01-00", "0000-01-01", "2015-01", "2015", "", "--", "2015--01", "100000-01-01" })
+            TestSupport.checkEquals(DateParser.INVALID, DateParser.parseDate(invalidDate), "\"" + invalidDate + "\" isn't a date");
+
+        // the Gregorian calendar starts the day after 1582-10-04
+        TestSupport.checkEquals(DateParser.parseDate("1582-10-04") + 1, DateParser.parseDate("1582-10-15"), "1582-10-04 is followed by 1582-10-15");
+        for(int day = 5; day <= 14; day++)
+            TestSupport.checkEquals(DateParser.INVALID, DateParser.parseDate("1582-10-" + day), "1582-10-" + day + " was skipped");
+        DateParserTest.checkSameDate("1582-10-04");
+        DateParserTest.checkSameDate("1582-10-15");
+
+        TestSupport.checkEquals(20140105L, DateParser.parseCompactDate("2014-1-5"), "fields can have fewer digits");
+        TestSupport.checkEquals(20140105L, DateParser.parseCompactDate("02014-001-05"), "fields can have more digits");
+        for(long epochDay = DateParser.parseDate("1500-01-01"); epochDay <= DateParser.parseDate("2100-12-31"); epochDay++)
+        {
+            long compactDate = DateParser.toCompactDate(epochDay);
+            String date = String.format("%04d-%02d-%02d", compactDate / 10000, compactDate / 100 % 100, compactDate % 100);
+            if(DateParser.parseDate(date) != epochDay)
+            {
+                TestSupport.checkEquals(epochDay, DateParser.parseDate(date), "toCompactDate(" + epochDay + ") is " + date);
+                break;
+            }
+        }
+
+        TestSupport.check(DateParser.isChronologicalDateFormat("2015-01-01"), "2015-01-01 is yyyy-MM-dd");
+        TestSupport.check(DateParser.isChronologicalDateFormat("2015-99-99"), "only the shape of yyyy-MM-dd is checked");
+        for(String otherShape : new String[] { "2015-1-01", "15-01-01", "2015/01/01", "2015-01-01 ", "２０１５-01-01" })
+            TestSupport.check(!DateParser.isChronologicalDateFormat(otherShape), "\"" + otherShape + "\" isn't yyyy-MM-dd");
+    }
+
+    /**
+     * SimpleDateFormat ignored whatever followed a date and skipped spaces before a number. DateParser rejects both.
+     */
+    private static void checkStricterDates()
+    {
+        for(String invalidDate : new String[] { "2015-01-01x", "2015-01-01 ", "2015-01-01T00:00:00Z", " 2015-01-01", "2015- 01-01", "2015-01- 1", "2015-+1-01", "2015-01-0١" })
+            TestSupport.checkEquals(DateParser.INVALID, DateParser.parseDate(invalidDate), "\"" + invalidDate + "\" is rejected");
+    }
+
+    private static void checkDateTimes()
+    {
+        TestSupport.checkEquals(0L, DateParser.parseDateTime("1970-01-01T00:00:00Z"), "the epoch");
+        TestSupport.checkEquals(0L, DateParser.parseDateTime("1970-01-01T05:30:00+05:30"), "a positive offset is subtracted");
+        TestSupport.checkEquals(0L, DateParser.parseDateTime("1969-12-31T19:00:00-05:00"), "a negative offset is added");
+        TestSupport.checkEquals(DateParser.parseDate("2016-03-01") * DateParserTest.SECONDS_PER_DAY - 1, DateParser.parseDateTime("2016-02-29T23:59:59Z"), "the last second of a leap day");
+        TestSupport.checkEquals(DateParser.parseDate("2016-01-01") * DateParserTest.SECONDS_PER_DAY, DateParser.parseDateTime("2015-12-31T23:00:00-01:00"), "an offset can move a date time into the next year");
+        for(String dateTime : new String[] { "2015-06-01T12:34:56Z", "2016-02-29T00:00:00+14:00", "2015-12-31T23:59:59-13:00", "1582-10-15T00:00:00Z" })
+            DateParserTest.checkSameDateTime(dateTime);
+
+        String[] invalidDateTimes = {
+            "2015-06-01T24:00:00Z", // 24:00 isn't a real hour, although the lenient format rolled it over into the next day
+            "2015-06-01T23:60:00Z",
+            "2015-06-01T23:59:60Z",
+            "2015-13-45T99:99:99Z",
+            "2015-02-29T00:00:00Z",
+            "2015-06-01T12:00:00",
+            "2015-06-01T12:00:00z",
+            "2015-06-01T12:00:00Zjunk",
+            "2015-06-01T12:00:00+14:01",
+            "2015-06-01T12:00:00-13:30",
+            "2015-06-01T12:00:00+05:60",
+            "2015-06-01T12:00:00+0530",
+            "2015-06-01T12:00Z",
+            "2015-06-01 12:00:00Z",
+            "2015-06-01T 12:00:00Z",
+            "T12:00:00Z" };
+        for(String invalidDateTime : invalidDateTimes)
+            TestSupport.checkEquals(DateParser.INVALID, DateParser.parseDateTime(invalidDateTime), "\"" + invalidDateTime + "\" is rejected");
+    }
+
+    private static void checkJulianDates()
+    {
+        TestSupport.checkEquals(45381L * DateParser.JULIAN_DATE_SCALE, DateParser.parseJulianDate("45381"), "a whole Julian date");
+        TestSupport.checkEquals(4538142832L, DateParser.parseJulianDate("45381.42832"), "a Julian date with a time");
+        TestSupport.checkEquals(4538150000L, DateParser.parseJulianDate("45381.5"), "a Julian date with one fraction digit");
+        TestSupport.check(DateParser.parseJulianDate("45381.1") > DateParser.parseJulianDate("45381.09999"), "Julian dates compare as decimals");
+        for(String invalidJulianDate : new String[] { "", ".5", "45381.", "45381.123456", "1234567", "-1", "45381.4a", "4538 1", "45381,5" })
+            TestSupport.checkEquals(DateParser.INVALID, DateParser.parseJulianDate(invalidJulianDate), "\"" + invalidJulianDate + "\" isn't a Julian date");
+    }
+
+    private static void checkRunTimes()
+    {
+        TestSupport.checkEquals(45296L, DateParser.parseRunTime("12:34:56"), "hours, minutes and seconds");
+        TestSupport.checkEquals(3900L, DateParser.parseRunTime("1:05:00"), "one hour digit");
+        TestSupport.checkEquals(363600L, DateParser.parseRunTime("101:00:00"), "more than 24 hours");
+        TestSupport.checkEquals(2096L, DateParser.parseRunTime("34:56"), "minutes and seconds");
+        TestSupport.checkEquals(2096L, DateParser.parseRunTime("3456"), "minutes and seconds without a colon");
+        TestSupport.checkEquals(45296L, DateParser.parseRunTime("12:3456"), "hours, then minutes and seconds without a colon");
+        for(String invalidRunTime : new String[] { "", "5", "456", "34:5", ":34:56", "1:5:00", "ab:cd", "12:34:5x", " 1:00:00", "1::00:00" })
+            TestSupport.checkEquals(DateParser.INVALID, DateParser.parseRunTime(invalidRunTime), "\"" + invalidRunTime + "\" isn't a run time");
+    }
+
+    /**
+     * Random dates, most of which exist, in every era the calendar has, compared with a strict SimpleDateFormat
+     */
+    private static void checkRandomDates()
+    {
+        Random random = new Random(20141106L);
+        for(int x = 0; x < DateParserTest.RANDOM_DATE_COUNT; x++)
+        {
+            int year = random.nextBoolean() ? 1 + random.nextInt(9999) : 1900 + random.nextInt(250);
+            String date = String.format("%04d-%02d-%02d", year, 1 + random.nextInt(13), 1 + random.nextInt(31));
+            DateParserTest.checkSameDate(date);
+            DateParserTest.checkSameDateTime(date + String.format("T%02d:%02d:%02dZ", random.nextInt(24), random.nextInt(60), random.nextInt(60)));
+        }
+    }
+
+    private static void checkSameDate(String date)
+    {
+        Date expectedDate = DateParserTest.strictParse("yyyy-MM-dd", date);
+        long expectedEpochDay = expectedDate == null ? DateParser.INVALID : DateParserTest.floorDivide(expectedDate.getTime(), DateParserTest.SECONDS_PER_DAY * 1000);
+        TestSupport.checkEquals(expectedEpochDay, DateParser.parseDate(date), "parseDate(\"" + date + "\") matches SimpleDateFormat");
+    }
+
+    private static void checkSameDateTime(String dateTime)
+    {
+        Date expectedDate = DateParserTest.strictParse("yyyy-MM-dd'T'HH:mm:ssXXX", dateTime);
+        long expectedSeconds = expectedDate == null ? DateParser.INVALID : DateParserTest.floorDivide(expectedDate.getTime(), 1000L);
+        TestSupport.checkEquals(expectedSeconds, DateParser.parseDateTime(dateTime), "parseDateTime(\"" + dateTime + "\") matches SimpleDateFormat");
+    }
+
+    /**
+     * @return The quotient rounded down, so that times before the epoch land on the right day and second
+     */
+    private static long floorDivide(long dividend, long divisor)
+    {
+        long quotient = dividend / divisor;
+        return dividend % divisor < 0 ? quotient - 1 : quotient;
+    }
+
+    /**
+     * @return The value parsed by a non lenient SimpleDateFormat in UTC, or null if it can't be parsed or has anything left over
+     */
+    private static Date strictParse(String pattern, String value)
+    {
+        SimpleDateFormat dateFormat = new SimpleDateFormat(pattern);
+        dateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+        dateFormat.setLenient(false);
+        ParsePosition position = new ParsePosition(0);
+        Date parsedDate = dateFormat.parse(value, position);
+        return position.getIndex() == value.length() ? parsedDate : null;
+    }
+}
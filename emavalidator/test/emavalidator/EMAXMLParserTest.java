@@ -0,0 +1,154 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package emavalidator;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
+
+import emavalidator.errors.CellErrorEmptyValue;
+import emavalidator.errors.CellErrorEntryType;
+import emavalidator.errors.CellErrorLicenseType;
+import emavalidator.errors.CellErrorSpecificValueFormat;
+import emavalidator.errors.RowErrorChronologicalDates;
+import emavalidator.errors.RowErrorEpisodeNumber;
+import emavalidator.notifications.RowNotificationWorkTypeMismatch;
+import emavalidator.utils.EMAVersionParser;
+import emavalidator.utils.EMAXMLParser;
+
+/**
+ * Avails in an XML document have to be mapped onto the rows and columns of the EMA spec picked from the avails version and the WorkType of the first Avail,
+ * with the errors of each Avail reported at its row. Uses the avails_*.xml documents under resources, which are v1.6, v2.0 and v2.1 documents
+ * whose Avails all match the spec picked, and documents with an Avail of another kind of WorkType or a first Avail without one.
+ * The documents are fed to EMAXMLParser directly, the way EMAResourceValidator does once the document has passed schema validation.
+ */
+public class EMAXMLParserTest
+{
+    public static void main(String[] args) throws Exception
+    {
+        // v1.6, TV: the first Avail is clean apart from its non EIDR content IDs, the second has a bad EntryType, EpisodeNumber and FormatProfile and ends before it starts
+        String report = EMAXMLParserTest.validate("avails_v1.6_episode.xml", 2);
+        TestSupport.check(report.contains("EMA Version: " + AbstractEMASpec.EMAVersion.EMASpec16TV), "v1.6 episodes are validated against EMASpec16TV");
+        EMAXMLParserTest.checkCellError(report, "SeriesContentID", CellErrorSpecificValueFormat.EIDR_FORMAT_ERROR, "md:cid:org:sr", 1);
+        EMAXMLParserTest.checkCellError(report, "SeasonContentID", CellErrorSpecificValueFormat.EIDR_FORMAT_ERROR, "md:cid:org:s1", 1);
+        EMAXMLParserTest.checkCellError(report, "EpisodeContentID", CellErrorSpecificValueFormat.EIDR_FORMAT_ERROR, "md:cid:org:e2", 2);
+        EMAXMLParserTest.checkCellError(report, "EntryType", CellErrorEntryType.VERSION_SPECIFIC_ERROR, "Bogus", 2);
+        EMAXMLParserTest.checkCellError(report, "EpisodeNumber", "whole numbers only", "x", 2);
+        EMAXMLParserTest.checkCellError(report, "FormatProfile", CellErrorSpecificValueFormat.SPECIFIC_VALUES_ONLY_ERROR, "8K", 2);
+        EMAXMLParserTest.checkCellError(report, "SeriesTitleInternalAlias", CellErrorEmptyValue.VALUE_IS_REQUIRED, "", 2);
+        TestSupport.checkEquals(Arrays.asList(2), TestSupport.reportedRows(report, RowErrorChronologicalDates.DATES_NOT_CHRONOLOGICAL), "v1.6 episode ending before it starts");
+        TestSupport.checkEquals(Arrays.asList(2), TestSupport.reportedRows(report, RowErrorEpisodeNumber.ERROR_EPISODE_NUMBER), "v1.6 episode without a whole episode number");
+        EMAXMLParserTest.checkNoWorkTypeNotices(report, "v1.6 episodes");
+
+        // v1.6, the second Avail is a Movie in a TV document. It's still checked against the TV columns.
+        report = EMAXMLParserTest.validate("avails_v1.6_mismatch.xml", 2);
+        TestSupport.check(report.contains("EMA Version: " + AbstractEMASpec.EMAVersion.EMASpec16TV), "a v1.6 document starting with an episode is validated against EMASpec16TV");
+        TestSupport.checkEquals(Arrays.asList(2), TestSupport.reportedRows(report, RowNotificationWorkTypeMismatch.WORK_TYPE_MISMATCH_NOTIFICATION_MESSAGE), "a Movie in a v1.6 TV document");
+        TestSupport.checkEquals(new ArrayList<Integer>(), TestSupport.reportedRows(report, RowNotificationWorkTypeMismatch.WORK_TYPE_MISSING_NOTIFICATION_MESSAGE), "v1.6 TV document has its WorkTypes");
+        EMAXMLParserTest.checkCellError(report, "FormatProfile", CellErrorSpecificValueFormat.SPECIFIC_VALUES_ONLY_ERROR, "8K", 2);
+        TestSupport.check(!report.contains("md:cid:org:e2"), "the Movie's contentID isn't an EpisodeContentID");
+
+        // v2.0, a Movie and a Short: both match the movie spec
+        report = EMAXMLParserTest.validate("avails_v2.0_movie.xml", 2);
+        TestSupport.check(report.contains("EMA Version: " + AbstractEMASpec.EMAVersion.EMASpec17), "v2.0 movies are validated against EMASpec17");
+        EMAXMLParserTest.checkCellError(report, "LicenseType", CellErrorLicenseType.VERSION_SPECIFIC_ERROR, "Rent", 2);
+        EMAXMLParserTest.checkCellError(report, "FormatProfile", CellErrorSpecificValueFormat.SPECIFIC_VALUES_ONLY_ERROR, "8K", 2);
+        TestSupport.checkEquals(Arrays.asList(2), TestSupport.reportedRows(report, RowErrorChronologicalDates.DATES_NOT_CHRONOLOGICAL), "v2.0 Short ending before it starts");
+        TestSupport.check(!report.contains("EIDR format error"), "the movies' EIDR contentIDs are accepted");
+        EMAXMLParserTest.checkNoWorkTypeNotices(report, "v2.0 movies");
+
+        // v2.0, the second Avail is an Episode in a movie document, so its episode title has nowhere to go
+        report = EMAXMLParserTest.validate("avails_v2.0_mismatch.xml", 2);
+        TestSupport.check(report.contains("EMA Version: " + AbstractEMASpec.EMAVersion.EMASpec17), "a v2.0 document starting with a Movie is validated against EMASpec17");
+        TestSupport.checkEquals(Arrays.asList(2), TestSupport.reportedRows(report, RowNotificationWorkTypeMismatch.WORK_TYPE_MISMATCH_NOTIFICATION_MESSAGE), "an Episode in a v2.0 movie document");
+        EMAXMLParserTest.checkCellError(report, "TitleInternalAlias", CellErrorEmptyValue.VALUE_IS_REQUIRED, "", 2);
+
+        // v2.1, the first Avail has no WorkType, the second is a movie and the third a Season
+        report = EMAXMLParserTest.validate("avails_v2.1_mismatch.xml", 3);
+        TestSupport.check(report.contains("EMA Version: " + AbstractEMASpec.EMAVersion.EMASpec17), "a v2.1 document without a first WorkType is validated against EMASpec17");
+        TestSupport.checkEquals(Arrays.asList(1), TestSupport.reportedRows(report, RowNotificationWorkTypeMismatch.WORK_TYPE_MISSING_NOTIFICATION_MESSAGE), "v2.1 first Avail without a WorkType");
+        TestSupport.checkEquals(Arrays.asList(3), TestSupport.reportedRows(report, RowNotificationWorkTypeMismatch.WORK_TYPE_MISMATCH_NOTIFICATION_MESSAGE), "a Season in a v2.1 movie document");
+        EMAXMLParserTest.checkCellError(report, "WorkType", CellErrorSpecificValueFormat.SPECIFIC_VALUES_ONLY_ERROR, "", 1);
+        EMAXMLParserTest.checkCellError(report, "TitleInternalAlias", CellErrorEmptyValue.VALUE_IS_REQUIRED, "", 3);
+
+        TestSupport.finish("EMAXMLParserTest");
+    }
+
+    /**
+     * @param resourceName An XML document under resources
+     * @param availCount The number of Avails in the document
+     * @return The error report of the document, in the "log" format
+     */
+    private static String validate(String resourceName, int availCount) throws Exception
+    {
+        ValidationContext validationContext = new ValidationContext(ErrorLog.OUTPUT_LOG_TYPE.LOG);
+        XMLStreamReader xmlStreamReader = XMLInputFactory.newInstance().createXMLStreamReader(new ByteArrayInputStream(TestSupport.readResource(resourceName)));
+        try
+        {
+            EMAXMLParser xmlParser = new EMAXMLParser(validationContext, xmlStreamReader, resourceName, EMAVersionParser.readVersion(xmlStreamReader));
+            while(xmlParser.hasNext())
+                xmlParser.next();
+            xmlParser.finish();
+            TestSupport.checkEquals(availCount, xmlParser.getAvailCount(), resourceName + " Avail count");
+            return validationContext.getErrorLog().getFormattedErrorLog();
+        }
+        finally
+        {
+            xmlStreamReader.close();
+            validationContext.release();
+        }
+    }
+
+    /**
+     * Checks that the report has an error for the column, at the given row only, for the given cell value
+     */
+    private static void checkCellError(String report, String columnName, String message, String cellValue, int rowNumber)
+    {
+        String entry = EMAXMLParserTest.columnEntry(report, columnName);
+        String description = columnName + " \"" + cellValue + "\"";
+        TestSupport.check(entry.contains(message), description + " is reported as: " + message + "\n" + entry);
+        TestSupport.check(entry.contains("cell value(s): \"" + cellValue + "\""), description + " is the reported value\n" + entry);
+        TestSupport.checkEquals(Arrays.asList(rowNumber), TestSupport.reportedRows(entry, message), description + " row");
+    }
+
+    private static void checkNoWorkTypeNotices(String report, String description)
+    {
+        TestSupport.check(!report.contains(RowNotificationWorkTypeMismatch.WORK_TYPE_MISMATCH_NOTIFICATION_MESSAGE), description + " match the spec picked");
+        TestSupport.check(!report.contains(RowNotificationWorkTypeMismatch.WORK_TYPE_MISSING_NOTIFICATION_MESSAGE), description + " have their WorkTypes");
+    }
+
+    /**
+     * @return The lines of the report's entry for the column, from its column name to its closing brace. Empty if the column has no entry.
+     */
+    private static String columnEntry(String report, String columnName)
+    {
+        List<String> lines = Arrays.asList(report.split("\n"));
+        StringBuilder entry = new StringBuilder();
+        for(int x = 0; x < lines.size(); x++)
+        {
+            if(!lines.get(x).trim().equals("column name: " + columnName))
+                continue;
+            for(int y = x; y < lines.size() && !lines.get(y).trim().equals("}"); y++)
+                entry.append(lines.get(y)).append('\n');
+            break;
+        }
+        return entry.toString();
+    }
+}
@@ -0,0 +1,148 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package emavalidator;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import emavalidator.AbstractErrorEntry.ErrorLevel;
+import emavalidator.validators.CellValidatorEnumeratedValues;
+import emavalidator.validators.ValidatorUtils;
+
+/**
+ * CellValidatorEnumeratedValues has to accept exactly what the "(?i)^(...)$" regexes it replaced accepted, for every ValidatorUtils value set.
+ * The regexes are kept here as they were. Inputs are the values in upper, lower and mixed case, every value of every other set,
+ * near misses of the same length, and characters outside ASCII that fold to an ASCII letter with Unicode case folding, such as U+0130, U+017F and U+212A,
+ * which a case insensitive regex doesn't fold by default. Blank values are accepted only where the column allows them.
+ */
+public class EnumeratedValuesTest
+{
+    private static final String EMPTY_STRING_REGEX = "^[ \t]*$";
+
+    /**
+     * Characters that a near miss swaps in for one character of a value
+     */
+    private static final char[] NEAR_MISS_CHARACTERS = { 'a', 'Z', '0', ' ', '-', '_', ':', '\t', '\u0130', '\u0131', '\u017F', '\u212A', '\u00E9', '\u0000' };
+
+    public static void main(String[] args)
+    {
+        LinkedHashMap<List<String>, String> valueSets = new LinkedHashMap<List<String>, String>();
+        valueSets.put(ValidatorUtils.WORK_TYPE_VALUES, "(?i)^(movie|short|season|episode|collection|episode:collection member|season:collection member|series:miniseries)$");
+        valueSets.put(ValidatorUtils.FORMAT_PROFILE_VALUES, "(?i)^(SD|HD|UHD|3D|3DSD|3DHD|3DUHD)$");
+        valueSets.put(ValidatorUtils.LICENSE_TYPE_VALUES_14_15, "(?i)^(EST|VOD|SVOD)$");
+        valueSets.put(ValidatorUtils.LICENSE_TYPE_VALUES_16, "(?i)^(EST|VOD|SVOD|POEST)$");
+        valueSets.put(ValidatorUtils.LOCALIZATION_TYPE_VALUES, "(?i)^(SUB|SUBBED|DUB|DUBBED|SUBDUB|ANY)$");
+        valueSets.put(ValidatorUtils.ENTRY_TYPE_VALUES_14, "(?i)^(Create|Update|Delete|Full Extract)$");
+        valueSets.put(ValidatorUtils.ENTRY_TYPE_VALUES_15_16, "(?i)^(Full Extract|Full Delete)$");
+        valueSets.put(ValidatorUtils.PRICE_TYPE_VALUES, "(?i)^(Tier|WSP|SRP|Category)$");
+        valueSets.put(ValidatorUtils.HDR_VALUES, "(?i)^(True|False|DV|HDR10)$");
+        valueSets.put(ValidatorUtils.WCG_VALUES, "(?i)^(True|False)$");
+        valueSets.put(ValidatorUtils.HFR_VALUES, "(?i)^(True|False)$");
+        valueSets.put(ValidatorUtils.NGAUDIO_VALUES, "(?i)^(True|False|Atmos|DTS:X|Auro3D)$");
+
+        Random random = new Random(20141106L);
+        ArrayList<String> allValues = new ArrayList<String>();
+        for(List<String> currentValues : valueSets.keySet())
+            allValues.addAll(currentValues);
+        ArrayList<String> inputs = new ArrayList<String>();
+        for(String currentValue : allValues)
+            EnumeratedValuesTest.addInputs(currentValue, inputs, random);
+        for(String blankValue : new String[] { "", " ", "\t", " \t ", "\n", "\u00A0" })
+            inputs.add(blankValue);
+
+        ErrorBuffer errorBuffer = new ErrorBuffer();
+        ErrorLog.setErrorBuffer(errorBuffer);
+        try
+        {
+            for(Map.Entry<List<String>, String> currentSet : valueSets.entrySet())
+            {
+                Pattern valuesPattern = Pattern.compile(currentSet.getValue());
+                int acceptedCount = 0;
+                for(boolean blankAllowed : new boolean[] { false, true })
+                {
+                    CellValidatorEnumeratedValues validator = new CellValidatorEnumeratedValues(currentSet.getKey(), blankAllowed, ErrorLevel.CRITICAL, "error", "expected");
+                    for(String currentInput : inputs)
+                    {
+                        boolean expected = valuesPattern.matcher(currentInput).matches();
+                        String description = currentSet.getKey() + " \"" + currentInput + "\"";
+                        TestSupport.checkEquals(expected, validator.isAccepted(currentInput), description + " is accepted the same as the regex");
+                        if(expected && !blankAllowed)
+                            acceptedCount++;
+
+                        boolean expectedValid = expected || (blankAllowed && Pattern.matches(EnumeratedValuesTest.EMPTY_STRING_REGEX, currentInput));
+                        errorBuffer.clear();
+                        TestSupport.checkEquals(expectedValid, validator.validate(currentInput, 1, 1), description + (blankAllowed ? " with" : " without") + " blanks allowed");
+                        TestSupport.checkEquals(expectedValid ? 0 : 1, errorBuffer.size(), description + " reports an error only when it isn't valid");
+                    }
+                }
+                TestSupport.check(acceptedCount >= currentSet.getKey().size() * 3, currentSet.getKey() + " is accepted in every case");
+            }
+        }
+        finally
+        {
+            ErrorLog.setErrorBuffer(null);
+        }
+
+        try
+        {
+            new CellValidatorEnumeratedValues(ValidatorUtils.WCG_VALUES.subList(0, 0), false, ErrorLevel.CRITICAL, "error", "expected");
+            TestSupport.check(false, "an empty value set is refused");
+        }
+        catch(IllegalArgumentException e) { }
+        try
+        {
+            List<String> caseDuplicates = new ArrayList<String>(ValidatorUtils.WCG_VALUES);
+            caseDuplicates.add("TRUE");
+            new CellValidatorEnumeratedValues(caseDuplicates, false, ErrorLevel.CRITICAL, "error", "expected");
+            TestSupport.check(false, "values equal without case are refused");
+        }
+        catch(IllegalArgumentException e) { }
+
+        TestSupport.finish("EnumeratedValuesTest");
+    }
+
+    /**
+     * Adds the value in upper, lower and mixed case, and near misses that are the same length or one character off
+     */
+    private static void addInputs(String value, ArrayList<String> inputs, Random random)
+    {
+        inputs.add(value);
+        inputs.add(value.toUpperCase());
+        inputs.add(value.toLowerCase());
+        char[] mixedCase = value.toCharArray();
+        for(int x = 0; x < mixedCase.length; x++)
+            mixedCase[x] = random.nextBoolean() ? Character.toUpperCase(mixedCase[x]) : Character.toLowerCase(mixedCase[x]);
+        inputs.add(new String(mixedCase));
+
+        for(int x = 0; x < value.length(); x++)
+        {
+            for(char nearMissCharacter : EnumeratedValuesTest.NEAR_MISS_CHARACTERS)
+                inputs.add(value.substring(0, x) + nearMissCharacter + value.substring(x + 1));
+            inputs.add(value.substring(0, x) + (char) (value.charAt(x) + 1) + value.substring(x + 1));
+            inputs.add(value.substring(0, x) + value.substring(x + 1));
+        }
+        inputs.add(" " + value);
+        inputs.add(value + " ");
+        inputs.add(value + value.charAt(value.length() - 1));
+        inputs.add(value.replace('i', '\u0130').replace('I', '\u0130'));
+        inputs.add(value.replace('s', '\u017F').replace('S', '\u017F'));
+        inputs.add(value.replace('k', '\u212A').replace('K', '\u212A'));
+    }
+}
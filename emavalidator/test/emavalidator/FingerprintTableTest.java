@@ -0,0 +1,77 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package emavalidator;
+
+import java.io.File;
+import java.io.IOException;
+
+import emavalidator.validators.FingerprintTable;
+
+/**
+ * FingerprintTable has to find every earlier row whether it's still in memory, spilled to a run file, or couldn't be spilled at all,
+ * and release() has to delete every run file it wrote.
+ */
+public class FingerprintTableTest
+{
+    /**
+     * Small enough that the table spills every few dozen fingerprints
+     */
+    private static final long MEMORY_BUDGET = 64 * 20;
+
+    private static final int FINGERPRINT_COUNT = 2000;
+
+    public static void main(String[] args) throws IOException
+    {
+        File spillDirectory = File.createTempFile("FingerprintTableTest", "");
+        spillDirectory.delete();
+        spillDirectory.mkdir();
+        try
+        {
+            FingerprintTable fingerprints = new FingerprintTable(FingerprintTableTest.MEMORY_BUDGET, spillDirectory);
+            FingerprintTableTest.checkDuplicatesFound(fingerprints, "spilled");
+            TestSupport.check(fingerprints.getSpilledRunCount() > 0, "the table spilled to disk");
+            TestSupport.checkEquals(fingerprints.getSpilledRunCount(), spillDirectory.list().length, "one run file per spilled run");
+
+            fingerprints.release();
+            TestSupport.checkEquals(0, spillDirectory.list().length, "release() deletes the run files");
+            TestSupport.checkEquals(FingerprintTable.NOT_FOUND, fingerprints.put(1, 1, 1), "release() forgets every fingerprint");
+        }
+        finally
+        {
+            for(File currentFile : spillDirectory.listFiles())
+                currentFile.delete();
+            spillDirectory.delete();
+        }
+
+        // a directory that can't be written to stands in for a host where temporary files aren't allowed
+        FingerprintTable inMemory = new FingerprintTable(FingerprintTableTest.MEMORY_BUDGET, new File(spillDirectory, "missing"));
+        FingerprintTableTest.checkDuplicatesFound(inMemory, "unspillable");
+        TestSupport.checkEquals(0, inMemory.getSpilledRunCount(), "nothing is spilled without a temporary file directory");
+
+        TestSupport.finish("FingerprintTableTest");
+    }
+
+    /**
+     * Put FINGERPRINT_COUNT distinct fingerprints, then every seventh one again, which has to find the row it was first put on
+     */
+    private static void checkDuplicatesFound(FingerprintTable fingerprints, String description)
+    {
+        for(int x = 1; x <= FingerprintTableTest.FINGERPRINT_COUNT; x++)
+            TestSupport.checkEquals(FingerprintTable.NOT_FOUND, fingerprints.put(x * 0x9E3779B97F4A7C15L, x, x), description + " fingerprint " + x + " is new");
+        for(int x = 7; x <= FingerprintTableTest.FINGERPRINT_COUNT; x += 7)
+            TestSupport.checkEquals(x, fingerprints.put(x * 0x9E3779B97F4A7C15L, x, FingerprintTableTest.FINGERPRINT_COUNT + x), description + " fingerprint " + x + " is a duplicate");
+    }
+}
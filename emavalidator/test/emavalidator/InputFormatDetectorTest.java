@@ -0,0 +1,66 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package emavalidator;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import emavalidator.utils.InputFormatDetector;
+import emavalidator.utils.InputFormatDetector.InputFormat;
+
+/**
+ * Text is only CSV or XML if it really is text. Binary input that isn't a workbook has to come back UNKNOWN so it can be turned away.
+ * Text that isn't UTF-8, such as a CSV file saved by Excel in Windows-1252, is still text and is read in the platform charset.
+ */
+public class InputFormatDetectorTest
+{
+    public static void main(String[] args) throws IOException
+    {
+        InputFormatDetectorTest.check(InputFormat.CSV, "a,b\r\n".getBytes("UTF-8"), "plain CSV");
+        InputFormatDetectorTest.check(InputFormat.CSV, "Titl\u00e9,\u20ac".getBytes("UTF-8"), "CSV with multi-byte characters");
+        InputFormatDetectorTest.check(InputFormat.XML, " \t\r\n<?xml version=\"1.0\"?>".getBytes("UTF-8"), "XML after ASCII whitespace");
+        InputFormatDetectorTest.check(InputFormat.XML, new byte[] { (byte) 0xFF, (byte) 0xFE, ' ', 0, '<', 0 }, "UTF-16LE XML");
+        InputFormatDetectorTest.check(InputFormat.XML, new byte[] { (byte) 0xFE, (byte) 0xFF, 0, '<' }, "UTF-16BE XML");
+        InputFormatDetectorTest.check(InputFormat.CSV, new byte[] { (byte) 0xFF, (byte) 0xFE, '<', 1 }, "UTF-16 text starting with a character that only ends in '<'");
+        InputFormatDetectorTest.check(InputFormat.UNKNOWN, new byte[] { 'a', 0, 'b' }, "input with a NUL byte");
+        InputFormatDetectorTest.check(InputFormat.CSV, new byte[] { (byte) 0xE9, ',', 'a' }, "CSV that isn't UTF-8");
+        InputFormatDetectorTest.check(InputFormat.UNKNOWN, new byte[] { (byte) 0xE9, ',', 0 }, "input that isn't UTF-8 with a NUL byte");
+        InputFormatDetectorTest.check(InputFormat.XML, new byte[] { '\n', '<', 'a', '>', (byte) 0xE9 }, "XML that isn't UTF-8");
+
+        byte[] windowsText = "Title,Studio\r\nAm\u00e9lie,\u2018Caf\u00e9\u2019 \u20ac\r\n".getBytes("windows-1252");
+        TestSupport.checkEquals(InputFormat.CSV, InputFormatDetector.detect(new ByteArrayInputStream(windowsText)).getInputFormat(), "Windows-1252 CSV");
+        TestSupport.checkEquals(Charset.defaultCharset(), InputFormatDetector.detect(new ByteArrayInputStream(windowsText)).getCharset(), "Windows-1252 CSV is read in the platform charset");
+        TestSupport.checkEquals(StandardCharsets.UTF_8, InputFormatDetector.detect(new ByteArrayInputStream("a,b".getBytes("UTF-8"))).getCharset(), "UTF-8 CSV is read as UTF-8");
+
+        // a character cut in half by the end of the sniffed bytes is still text
+        byte[] longText = new byte[100];
+        Arrays.fill(longText, (byte) 'a');
+        byte[] cutCharacter = "\u00e9".getBytes("UTF-8");
+        longText[63] = cutCharacter[0];
+        longText[64] = cutCharacter[1];
+        InputFormatDetectorTest.check(InputFormat.CSV, longText, "text with a character across the end of the sniffed bytes");
+
+        TestSupport.finish("InputFormatDetectorTest");
+    }
+
+    private static void check(InputFormat expected, byte[] input, String description) throws IOException
+    {
+        TestSupport.checkEquals(expected, InputFormatDetector.detect(new ByteArrayInputStream(input)).getInputFormat(), description);
+    }
+}
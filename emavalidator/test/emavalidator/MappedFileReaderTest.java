@@ -0,0 +1,103 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package emavalidator;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import emavalidator.utils.MappedFileReader;
+
+/**
+ * MappedFileReader has to give the same text as decoding the whole file at once, in every charset it's used for,
+ * whatever the size of the caller's buffer and wherever the segment boundaries cut through a character.
+ */
+public class MappedFileReaderTest
+{
+    /**
+     * ASCII, accented Latin, CJK and a character outside the Basic Multilingual Plane, which takes a surrogate pair
+     */
+    private static final String[] TEXT_PIECES = { "Title", ",", "\"", "\n", "\r\n", "Amélie", "İſ", "東京物語", "🎬", " " };
+
+    private static final int[] SEGMENT_SIZES = { 4, 5, 7, 64, 4096 };
+
+    private static final int[] BUFFER_SIZES = { 1, 2, 3, 17, 8192 };
+
+    public static void main(String[] args) throws IOException
+    {
+        Random random = new Random(20141106L);
+        StringBuilder text = new StringBuilder();
+        while(text.length() < 600) // every tiny segment is a mapping of its own, and mappings are only released by the garbage collector
+            text.append(MappedFileReaderTest.TEXT_PIECES[random.nextInt(MappedFileReaderTest.TEXT_PIECES.length)]);
+
+        File inputFile = File.createTempFile("MappedFileReaderTest", ".csv");
+        try
+        {
+            for(Charset charset : new Charset[] { StandardCharsets.UTF_8, StandardCharsets.UTF_16LE, StandardCharsets.UTF_16BE })
+            {
+                MappedFileReaderTest.writeFile(inputFile, text.toString().getBytes(charset));
+                for(int segmentSize : MappedFileReaderTest.SEGMENT_SIZES)
+                    for(int bufferSize : MappedFileReaderTest.BUFFER_SIZES)
+                        TestSupport.checkEquals(text.toString(), MappedFileReaderTest.readFile(new MappedFileReader(inputFile, charset, segmentSize), bufferSize),
+                                                charset + " with " + segmentSize + " byte segments and a " + bufferSize + " character buffer");
+            }
+
+            byte[] malformedBytes = { 'a', (byte) 0xC3, ',', 'b' };
+            MappedFileReaderTest.writeFile(inputFile, malformedBytes);
+            TestSupport.checkEquals(new String(malformedBytes, StandardCharsets.UTF_8), MappedFileReaderTest.readFile(new MappedFileReader(inputFile), 8192), "malformed bytes are replaced");
+
+            MappedFileReaderTest.writeFile(inputFile, new byte[0]);
+            TestSupport.checkEquals("", MappedFileReaderTest.readFile(new MappedFileReader(inputFile), 8192), "an empty file");
+        }
+        finally
+        {
+            inputFile.delete();
+        }
+        TestSupport.finish("MappedFileReaderTest");
+    }
+
+    private static void writeFile(File outputFile, byte[] contents) throws IOException
+    {
+        FileOutputStream outputStream = new FileOutputStream(outputFile);
+        try
+        {
+            outputStream.write(contents);
+        }
+        finally
+        {
+            outputStream.close();
+        }
+    }
+
+    private static String readFile(MappedFileReader reader, int bufferSize) throws IOException
+    {
+        StringBuilder text = new StringBuilder();
+        char[] buffer = new char[bufferSize];
+        try
+        {
+            for(int read = reader.read(buffer, 0, bufferSize); read != -1; read = reader.read(buffer, 0, bufferSize))
+                text.append(buffer, 0, read);
+        }
+        finally
+        {
+            reader.close();
+        }
+        return text.toString();
+    }
+}
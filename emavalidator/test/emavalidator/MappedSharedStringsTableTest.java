@@ -0,0 +1,130 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package emavalidator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+
+import emavalidator.utils.MappedSharedStringsTable;
+
+/**
+ * MappedSharedStringsTable has to return the same strings as POI's ReadOnlySharedStringsTable, whether the table is mapped from a temporary file
+ * or read into memory because temporary files can't be written. The tables compared are those of the workbook built from the CSV files under resources,
+ * and resources/sharedStrings.xml, which holds rich text runs, entities, character references, CDATA, phonetic runs and empty items.
+ * Character references that don't name a character are kept as literal text rather than failing the sheet.
+ */
+public class MappedSharedStringsTableTest
+{
+    private static final String SHARED_STRINGS_PART = "xl/sharedStrings.xml";
+
+    public static void main(String[] args) throws Exception
+    {
+        LinkedHashMap<String, List<List<String>>> sheets = new LinkedHashMap<String, List<List<String>>>();
+        sheets.put("Avails TV 1.6", TestSupport.readCSVResource("multisheet_16tv.csv"));
+        sheets.put("Avails TV 1.7", TestSupport.readCSVResource("multisheet_17tv.csv"));
+        byte[] workbook = XLSXValidationTest.buildXLSX(sheets, true);
+        byte[] edgeCaseWorkbook = MappedSharedStringsTableTest.replaceEntry(workbook, MappedSharedStringsTableTest.SHARED_STRINGS_PART, TestSupport.readResource("sharedStrings.xml"));
+
+        File tempDirectory = File.createTempFile("MappedSharedStringsTableTest", "");
+        tempDirectory.delete();
+        tempDirectory.mkdir();
+        try
+        {
+            MappedSharedStringsTableTest.checkSameStrings(workbook, tempDirectory, "multisheet workbook");
+            MappedSharedStringsTableTest.checkSameStrings(edgeCaseWorkbook, tempDirectory, "sharedStrings.xml");
+
+            // a directory that can't be written to stands in for a host where temporary files aren't allowed
+            File missingDirectory = new File(tempDirectory, "missing");
+            MappedSharedStringsTableTest.checkSameStrings(workbook, missingDirectory, "multisheet workbook in memory");
+            MappedSharedStringsTableTest.checkSameStrings(edgeCaseWorkbook, missingDirectory, "sharedStrings.xml in memory");
+
+            String malformedReferences = "<sst xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">"
+                                       + "<si><t>&#;&#x;&#X43;&#12a;&#xZZ;&#99999999999;&#x110000;&#-1;&#65</t></si></sst>";
+            MappedSharedStringsTable strings = MappedSharedStringsTableTest.openTable(MappedSharedStringsTableTest.replaceEntry(workbook, MappedSharedStringsTableTest.SHARED_STRINGS_PART, malformedReferences.getBytes("UTF-8")), tempDirectory);
+            TestSupport.checkEquals("&#;&#x;&#X43;&#12a;&#xZZ;&#99999999999;&#x110000;&#-1;&#65", strings.getEntryAt(0), "malformed character references are kept as literal text");
+            strings.close();
+        }
+        finally
+        {
+            for(File currentFile : tempDirectory.listFiles())
+                currentFile.delete();
+            tempDirectory.delete();
+        }
+        TestSupport.finish("MappedSharedStringsTableTest");
+    }
+
+    /**
+     * @param workbook The bytes of an .xlsx package
+     * @param tempDirectory Where the table copies sharedStrings.xml to
+     */
+    private static void checkSameStrings(byte[] workbook, File tempDirectory, String description) throws Exception
+    {
+        ReadOnlySharedStringsTable expectedStrings = new ReadOnlySharedStringsTable(OPCPackage.open(new ByteArrayInputStream(workbook)));
+        MappedSharedStringsTable strings = MappedSharedStringsTableTest.openTable(workbook, tempDirectory);
+        TestSupport.checkEquals(tempDirectory.isDirectory(), strings.isMapped(), description + " is mapped only where temporary files can be written");
+        if(tempDirectory.isDirectory())
+            TestSupport.checkEquals(1, tempDirectory.list().length, description + " is copied to one temporary file");
+
+        TestSupport.checkEquals(expectedStrings.getItems().size(), strings.getCount(), description + " string count");
+        for(int x = 0; x < expectedStrings.getItems().size(); x++)
+            TestSupport.checkEquals(expectedStrings.getEntryAt(x), strings.getEntryAt(x), description + " string " + x);
+        for(int x = expectedStrings.getItems().size() - 1; x >= 0; x--) // again, from the cache
+            TestSupport.checkEquals(expectedStrings.getEntryAt(x), strings.getEntryAt(x), description + " cached string " + x);
+
+        strings.close();
+        if(tempDirectory.isDirectory())
+            TestSupport.checkEquals(0, tempDirectory.list().length, description + " temporary file is deleted by close()");
+    }
+
+    private static MappedSharedStringsTable openTable(byte[] workbook, File tempDirectory) throws Exception
+    {
+        return new MappedSharedStringsTable(OPCPackage.open(new ByteArrayInputStream(workbook)), tempDirectory);
+    }
+
+    /**
+     * @return A copy of the package with the contents of one part replaced
+     */
+    private static byte[] replaceEntry(byte[] workbook, String entryName, byte[] contents) throws IOException
+    {
+        ByteArrayOutputStream packageBytes = new ByteArrayOutputStream();
+        ZipOutputStream zipOutput = new ZipOutputStream(packageBytes);
+        ZipInputStream zipInput = new ZipInputStream(new ByteArrayInputStream(workbook));
+        byte[] buffer = new byte[8192];
+        for(ZipEntry currentEntry = zipInput.getNextEntry(); currentEntry != null; currentEntry = zipInput.getNextEntry())
+        {
+            zipOutput.putNextEntry(new ZipEntry(currentEntry.getName()));
+            if(currentEntry.getName().equals(entryName))
+                zipOutput.write(contents);
+            else
+                for(int read = zipInput.read(buffer); read != -1; read = zipInput.read(buffer))
+                    zipOutput.write(buffer, 0, read);
+            zipOutput.closeEntry();
+        }
+        zipInput.close();
+        zipOutput.close();
+        return packageBytes.toByteArray();
+    }
+}
@@ -0,0 +1,205 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package emavalidator;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+
+import emavalidator.utils.ParallelCSVParser;
+
+/**
+ * ParallelCSVParser has to split every file into exactly the records that commons-csv's CSVFormat.EXCEL does, wherever its chunks happen to start.
+ * Files are parsed with every chunk size from a single byte up, so chunk boundaries land inside quoted values, between the CR and LF of a line break,
+ * between the two quotes of an escaped quote, and inside multi-byte characters.
+ */
+public class ParallelCSVParserTest
+{
+    private static final int PARALLELISM = 3;
+
+    /**
+     * The pieces values are built from. Covers every character the tokenizer treats specially, plus a two byte and a three byte UTF-8 character.
+     */
+    private static final String[] VALUE_PIECES = { "a", "Title", " ", ",", "\"", "\"\"", "\r", "\n", "\r\n", "\u00e9", "\u20ac", "" };
+
+    public static void main(String[] args) throws Exception
+    {
+        String handWritten = "Title,\"Quoted, with \"\"escaped\"\" quotes\r\nand a line break\",\u00e9\r\n"
+                + "\"\",,\"\"\"\"\r\n"
+                + "\r\n"
+                + "last,\"row\"\n"
+                + "no line break at the end";
+        ParallelCSVParserTest.checkEveryChunkSize("hand written", handWritten);
+
+        Random random = new Random(20141106L);
+        for(int x = 0; x < 40; x++)
+            ParallelCSVParserTest.checkEveryChunkSize("random file " + x, ParallelCSVParserTest.randomCSV(random));
+
+        ParallelCSVParserTest.checkMalformed("a,\"b\"c\r\nd\r\n");
+        ParallelCSVParserTest.checkMalformed("a,b\r\n\"never closed\r\n");
+
+        TestSupport.finish("ParallelCSVParserTest");
+    }
+
+    /**
+     * @return Between 1 and 30 records of random values, with quoting where EXCEL needs it and sometimes where it doesn't, and a mix of CRLF and LF line breaks
+     */
+    private static String randomCSV(Random random)
+    {
+        StringBuilder contents = new StringBuilder();
+        int recordCount = 1 + random.nextInt(30);
+        for(int x = 0; x < recordCount; x++)
+        {
+            int valueCount = 1 + random.nextInt(8);
+            for(int y = 0; y < valueCount; y++)
+            {
+                if(y > 0)
+                    contents.append(',');
+                StringBuilder value = new StringBuilder();
+                int pieceCount = random.nextInt(5);
+                for(int z = 0; z < pieceCount; z++)
+                    value.append(ParallelCSVParserTest.VALUE_PIECES[random.nextInt(ParallelCSVParserTest.VALUE_PIECES.length)]);
+                contents.append(ParallelCSVParserTest.quote(value.toString(), random.nextInt(4) == 0));
+            }
+            if(x < recordCount - 1 || random.nextBoolean())
+                contents.append(random.nextBoolean() ? "\r\n" : "\n");
+        }
+        return contents.toString();
+    }
+
+    private static String quote(String value, boolean alwaysQuote)
+    {
+        boolean needsQuotes = value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\r') >= 0 || value.indexOf('\n') >= 0;
+        if(!needsQuotes && !alwaysQuote)
+            return value;
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+
+    /**
+     * Parse the contents with every chunk size from 1 byte to the size of the whole file and compare each parse with CSVFormat.EXCEL's
+     */
+    private static void checkEveryChunkSize(String description, String contents) throws IOException
+    {
+        List<List<String>> expected = ParallelCSVParserTest.parseWithCommonsCSV(contents);
+        File inputFile = ParallelCSVParserTest.writeTempFile(contents);
+        try
+        {
+            int fileSize = (int) inputFile.length();
+            for(int chunkSize = 1; chunkSize <= fileSize; chunkSize++)
+                TestSupport.checkEquals(expected, ParallelCSVParserTest.parseInParallel(inputFile, chunkSize), description + " with " + chunkSize + " byte chunks");
+        }
+        finally
+        {
+            inputFile.delete();
+        }
+    }
+
+    /**
+     * Malformed records have to fail with the same message as CSVFormat.EXCEL's, whichever chunk they're found in
+     */
+    private static void checkMalformed(String contents) throws IOException
+    {
+        String expectedMessage = null;
+        try
+        {
+            ParallelCSVParserTest.parseWithCommonsCSV(contents);
+        }
+        catch (RuntimeException RE) // the CSVParser iterator wraps its IOExceptions
+        {
+            expectedMessage = RE.getCause().getMessage();
+        }
+        TestSupport.check(expectedMessage != null, "commons-csv rejects " + contents);
+
+        File inputFile = ParallelCSVParserTest.writeTempFile(contents);
+        try
+        {
+            for(int chunkSize = 1; chunkSize <= inputFile.length(); chunkSize++)
+            {
+                String actualMessage = null;
+                try
+                {
+                    ParallelCSVParserTest.parseInParallel(inputFile, chunkSize);
+                }
+                catch (IOException IOE)
+                {
+                    actualMessage = IOE.getMessage();
+                }
+                TestSupport.checkEquals(expectedMessage, actualMessage, "error for " + contents + " with " + chunkSize + " byte chunks");
+            }
+        }
+        finally
+        {
+            inputFile.delete();
+        }
+    }
+
+    private static List<List<String>> parseWithCommonsCSV(String contents) throws IOException
+    {
+        List<List<String>> records = new ArrayList<List<String>>();
+        for(CSVRecord currentRecord : CSVFormat.EXCEL.parse(new StringReader(contents)))
+        {
+            List<String> values = new ArrayList<String>();
+            for(String currentValue : currentRecord)
+                values.add(currentValue);
+            records.add(values);
+        }
+        return records;
+    }
+
+    private static List<List<String>> parseInParallel(File inputFile, int chunkSize) throws IOException
+    {
+        List<List<String>> records = new ArrayList<List<String>>();
+        ParallelCSVParser parser = new ParallelCSVParser(inputFile, ParallelCSVParserTest.PARALLELISM, chunkSize);
+        try
+        {
+            RowView rowView = new RowView();
+            while(parser.nextRecord(rowView))
+            {
+                List<String> values = new ArrayList<String>();
+                for(int x = 0; x < rowView.size(); x++)
+                    values.add(rowView.getCellString(x));
+                records.add(values);
+            }
+        }
+        finally
+        {
+            parser.close();
+        }
+        return records;
+    }
+
+    private static File writeTempFile(String contents) throws IOException
+    {
+        File inputFile = File.createTempFile("ParallelCSVParserTest", ".csv");
+        FileOutputStream outputStream = new FileOutputStream(inputFile);
+        try
+        {
+            outputStream.write(contents.getBytes("UTF-8"));
+        }
+        finally
+        {
+            outputStream.close();
+        }
+        return inputFile;
+    }
+}
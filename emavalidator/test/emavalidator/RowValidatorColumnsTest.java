@@ -0,0 +1,87 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package emavalidator;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import emavalidator.errors.CellErrorLicenseType;
+import emavalidator.notifications.RowNotificationEntryType;
+import emavalidator.notifications.RowNotificationSkippedValidator;
+
+/**
+ * Row validators have to run for short rows, which CSV files have whenever the trailing cells are empty, and for sheets missing columns they only read some of the time.
+ * Uses the header rows of resources/multisheet_16tv.csv, where row 5 is a Full Delete and row 10 is a Full Extract.
+ */
+public class RowValidatorColumnsTest
+{
+    private static final int HEADER_ROW = 2;
+    private static final int FULL_DELETE_ROW = 4;
+    private static final int FULL_EXTRACT_ROW = 9;
+
+    public static void main(String[] args) throws Exception
+    {
+        List<List<String>> rows = TestSupport.readCSVResource("multisheet_16tv.csv");
+        List<String> header = rows.get(RowValidatorColumnsTest.HEADER_ROW);
+        int entryTypeColumn = header.indexOf("EntryType");
+        int licenseTypeColumn = header.indexOf("LicenseType");
+        int endColumn = header.indexOf("End");
+
+        // Short rows: the Full Delete row ends right after its EntryType and the Full Extract row right before its LicenseType
+        List<List<String>> shortRows = new ArrayList<List<String>>(rows.subList(0, RowValidatorColumnsTest.FULL_DELETE_ROW));
+        shortRows.add(new ArrayList<String>(rows.get(RowValidatorColumnsTest.FULL_DELETE_ROW).subList(0, entryTypeColumn + 1)));
+        shortRows.add(new ArrayList<String>(rows.get(RowValidatorColumnsTest.FULL_EXTRACT_ROW).subList(0, licenseTypeColumn)));
+        String report = RowValidatorColumnsTest.validate("short_rows.csv", shortRows);
+        TestSupport.checkEquals(RowValidatorColumnsTest.rowList(5), TestSupport.reportedRows(report, RowNotificationEntryType.FULL_DELETE_NOTIFICATION_MESSAGE), "short Full Delete row is reported");
+        TestSupport.checkEquals(RowValidatorColumnsTest.rowList(6), TestSupport.reportedRows(report, CellErrorLicenseType.LICENSE_TYPE_EMPTY_ERROR_MESSAGE), "short Full Extract row is missing its LicenseType");
+        TestSupport.check(!report.contains(RowNotificationSkippedValidator.SKIPPED_VALIDATOR_NOTIFICATION_MESSAGE), "no row checks are skipped for short rows");
+
+        // No End column: EntryType still checks everything else, and only the checks that can't run without End are reported as skipped.
+        // The End header is renamed rather than removed, since the EMA version is deduced from the number of columns.
+        List<List<String>> noEndRows = new ArrayList<List<String>>();
+        for(int x = 0; x <= RowValidatorColumnsTest.FULL_EXTRACT_ROW; x++)
+        {
+            List<String> row = new ArrayList<String>(rows.get(x));
+            if(x == RowValidatorColumnsTest.HEADER_ROW)
+                row.set(endColumn, "EndDate");
+            if(x == RowValidatorColumnsTest.FULL_EXTRACT_ROW)
+                row.set(licenseTypeColumn, "");
+            noEndRows.add(row);
+        }
+        report = RowValidatorColumnsTest.validate("no_end.csv", noEndRows);
+        TestSupport.check(TestSupport.reportedRows(report, RowNotificationEntryType.FULL_DELETE_NOTIFICATION_MESSAGE).contains(5), "Full Delete row is reported without an End column");
+        TestSupport.check(TestSupport.reportedRows(report, CellErrorLicenseType.LICENSE_TYPE_EMPTY_ERROR_MESSAGE).contains(10), "Full Extract row is missing its LicenseType without an End column");
+        TestSupport.checkEquals(RowValidatorColumnsTest.rowList(3), TestSupport.reportedRows(report, RowNotificationSkippedValidator.SKIPPED_VALIDATOR_NOTIFICATION_MESSAGE), "skipped checks are reported once, on the header row");
+        TestSupport.check(report.contains("StartLessEnd needs End"), "the skipped check and its missing column are named");
+        TestSupport.check(!report.contains("EntryType needs"), "EntryType isn't skipped");
+
+        TestSupport.finish("RowValidatorColumnsTest");
+    }
+
+    private static String validate(String fileName, List<List<String>> rows) throws Exception
+    {
+        return EMAResourceValidator.validateEMACSVFile(fileName, new BufferedReader(new StringReader(TestSupport.toCSV(rows))), "log").getResults();
+    }
+
+    private static List<Integer> rowList(int rowNumber)
+    {
+        List<Integer> rowList = new ArrayList<Integer>();
+        rowList.add(rowNumber);
+        return rowList;
+    }
+}
@@ -0,0 +1,195 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package emavalidator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+
+/**
+ * Shared checks for the tests in this directory. There's no test framework in third_party, so every test is a plain class with a main()
+ * that exits with status 1 if any of its checks failed. Compile the tests against the validator's classes and run them with this directory on the classpath,
+ * so that the files under emavalidator/resources can be found.
+ */
+final class TestSupport
+{
+    private static int failureCount = 0;
+
+    private TestSupport() { }
+
+    /**
+     * @param passed Whether the check passed
+     * @param description What was checked. Printed if the check failed.
+     */
+    static void check(boolean passed, String description)
+    {
+        if(passed)
+            return;
+        TestSupport.failureCount++;
+        System.err.println("FAILED: " + description);
+    }
+
+    static void checkEquals(Object expected, Object actual, String description)
+    {
+        TestSupport.check(expected == null ? actual == null : expected.equals(actual), description + "\n  expected: " + expected + "\n  actual:   " + actual);
+    }
+
+    /**
+     * Print the result of the test and exit with status 1 if any check failed
+     */
+    static void finish(String testName)
+    {
+        if(TestSupport.failureCount > 0)
+        {
+            System.err.println(testName + ": " + TestSupport.failureCount + " check(s) failed");
+            System.exit(1);
+        }
+        System.err.println(testName + ": passed");
+    }
+
+    /**
+     * @param resourceName The name of a file under emavalidator/resources
+     * @return The file's contents
+     */
+    static byte[] readResource(String resourceName) throws IOException
+    {
+        InputStream inputStream = TestSupport.class.getResourceAsStream("resources/" + resourceName);
+        if(inputStream == null)
+            throw new IOException("Missing test resource: " + resourceName);
+        try
+        {
+            ByteArrayOutputStream contents = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for(int read = inputStream.read(buffer); read != -1; read = inputStream.read(buffer))
+                contents.write(buffer, 0, read);
+            return contents.toByteArray();
+        }
+        finally
+        {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * @param resourceName The name of a CSV file under emavalidator/resources
+     * @return Every row of the file, each with only as many cells as the file has for it
+     */
+    static List<List<String>> readCSVResource(String resourceName) throws IOException
+    {
+        List<List<String>> rows = new ArrayList<List<String>>();
+        InputStreamReader reader = new InputStreamReader(new ByteArrayInputStream(TestSupport.readResource(resourceName)), "UTF-8");
+        for(CSVRecord currentRecord : CSVFormat.EXCEL.parse(reader))
+        {
+            List<String> row = new ArrayList<String>();
+            for(String currentValue : currentRecord)
+                row.add(currentValue);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * @param rows The rows to write. Rows can have different numbers of cells.
+     * @return The rows as the contents of a CSV file
+     */
+    static String toCSV(List<List<String>> rows) throws IOException
+    {
+        StringBuilder contents = new StringBuilder();
+        CSVPrinter printer = new CSVPrinter(contents, CSVFormat.EXCEL);
+        for(List<String> currentRow : rows)
+            printer.printRecord(currentRow);
+        printer.close();
+        return contents.toString();
+    }
+
+    /**
+     * @param report An error report from the ErrorLog, in the "log" format
+     * @param message The message of an error or notification
+     * @return The row numbers, as printed in the report, that the first entry with the given message was reported at. Empty if there's no such entry.
+     */
+    static List<Integer> reportedRows(String report, String message)
+    {
+        String lastLocations = "";
+        for(String currentLine : report.split("\n"))
+        {
+            if(currentLine.contains("Row(s):"))
+                lastLocations = currentLine.substring(currentLine.indexOf("Row(s):") + "Row(s):".length());
+            if(currentLine.contains(message))
+                return TestSupport.expandRows(lastLocations);
+        }
+        return new ArrayList<Integer>();
+    }
+
+    /**
+     * @param locations Row numbers as the report prints them. E.G. "5 28 43-46, 49"
+     */
+    private static List<Integer> expandRows(String locations)
+    {
+        List<Integer> rows = new ArrayList<Integer>();
+        for(String currentToken : locations.replace(',', ' ').trim().split("\\s+"))
+        {
+            if(currentToken.isEmpty())
+                continue;
+            int dash = currentToken.indexOf('-');
+            if(dash < 0)
+                rows.add(Integer.valueOf(currentToken));
+            else
+                for(int x = Integer.parseInt(currentToken.substring(0, dash)); x <= Integer.parseInt(currentToken.substring(dash + 1)); x++)
+                    rows.add(x);
+        }
+        return rows;
+    }
+
+    /**
+     * The totals by error level are printed from a HashMap, so their order changes from run to run. Each block of them is sorted so reports can be compared.
+     * @param report An error report from the ErrorLog
+     * @return The report with every block of "Level:" lines in sorted order
+     */
+    static String normalizeReport(String report)
+    {
+        StringBuilder normalizedReport = new StringBuilder();
+        ArrayList<String> levelLines = new ArrayList<String>();
+        for(String currentLine : report.split("\n", -1))
+        {
+            if(currentLine.startsWith("Level:"))
+            {
+                levelLines.add(currentLine);
+                continue;
+            }
+            TestSupport.appendSorted(normalizedReport, levelLines);
+            normalizedReport.append(currentLine).append('\n');
+        }
+        TestSupport.appendSorted(normalizedReport, levelLines);
+        return normalizedReport.toString();
+    }
+
+    private static void appendSorted(StringBuilder normalizedReport, ArrayList<String> levelLines)
+    {
+        Collections.sort(levelLines);
+        for(String currentLine : levelLines)
+            normalizedReport.append(currentLine).append('\n');
+        levelLines.clear();
+    }
+}
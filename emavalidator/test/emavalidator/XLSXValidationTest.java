@@ -0,0 +1,215 @@
+/* Copyright 2014 Google Inc. All Rights Reserved.
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+*/
+
+package emavalidator;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Validates a multi-sheet .xlsx workbook end to end: the SAX sheet parser, the shared strings table and the parallel sheet validation.
+ * The workbook is written here from the CSV files under resources, with every cell in the shared strings table and no styles part, plus an Instructions sheet that must be skipped.
+ * Each data sheet's part of the report has to match resources/multisheet.expected.txt, which holds the reports the validator gave for each sheet as a workbook of its own
+ * before .xlsx sheets were streamed, when only the first sheet of a workbook was read.
+ * Excel leaves empty cells out of a sheet altogether, so the same workbook written that way also has to give the same report as the CSV files themselves.
+ */
+public class XLSXValidationTest
+{
+    private static final String EXPECTED_REPORT = "multisheet.expected.txt";
+
+    private static final String SPREADSHEETML = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    private static final String RELATIONSHIPS = "http://schemas.openxmlformats.org/package/2006/relationships";
+    private static final String OFFICE_RELATIONSHIPS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+
+    public static void main(String[] args) throws Exception
+    {
+        LinkedHashMap<String, List<List<String>>> sheets = new LinkedHashMap<String, List<List<String>>>();
+        sheets.put("Instructions", XLSXValidationTest.instructionRows());
+        sheets.put("Avails TV 1.6", XLSXValidationTest.padRows(TestSupport.readCSVResource("multisheet_16tv.csv")));
+        sheets.put("Avails TV 1.7", XLSXValidationTest.padRows(TestSupport.readCSVResource("multisheet_17tv.csv")));
+
+        String expectedReport = new String(TestSupport.readResource(XLSXValidationTest.EXPECTED_REPORT), "UTF-8");
+        String report = XLSXValidationTest.validateXLSX(XLSXValidationTest.buildXLSX(sheets, true));
+        TestSupport.check(!report.contains("Instructions"), "the Instructions sheet is skipped");
+        TestSupport.checkEquals(expectedReport, XLSXValidationTest.sheetReports(report), "every data sheet matches the saved report");
+
+        StringBuilder csvReports = new StringBuilder();
+        for(String sheetName : new String[] { "Avails TV 1.6", "Avails TV 1.7" })
+        {
+            String csvReport = EMAResourceValidator.validateEMACSVFile(sheetName, new BufferedReader(new StringReader(TestSupport.toCSV(sheets.get(sheetName)))), "log").getResults();
+            csvReports.append(XLSXValidationTest.sheetReports(csvReport));
+        }
+        report = XLSXValidationTest.validateXLSX(XLSXValidationTest.buildXLSX(sheets, false));
+        TestSupport.checkEquals(csvReports.toString(), XLSXValidationTest.sheetReports(report), "leaving empty cells out gives the same report as the CSV files");
+        TestSupport.finish("XLSXValidationTest");
+    }
+
+    private static String validateXLSX(byte[] workbook) throws Exception
+    {
+        ValidatorResults results = EMAResourceValidator.validateEMAXLSXAsCSV(new ByteArrayInputStream(workbook), "log");
+        TestSupport.check(results != null, "the .xlsx workbook opens");
+        return results == null ? "" : results.getResults();
+    }
+
+    /**
+     * The totals at the top of a report cover every sheet, and a sheet's index depends on the workbook it's in, so only the rest of each sheet's report is compared
+     * @param report An error report from the ErrorLog
+     * @return Each sheet's part of the report, without its index
+     */
+    static String sheetReports(String report)
+    {
+        StringBuilder sheetReports = new StringBuilder();
+        boolean inSheet = false;
+        for(String currentLine : report.split("\n"))
+        {
+            inSheet = inSheet || currentLine.startsWith("Sheet  name:");
+            if(inSheet && !currentLine.startsWith("Sheet index:") && !currentLine.trim().isEmpty())
+                sheetReports.append(currentLine).append('\n');
+        }
+        return sheetReports.toString();
+    }
+
+    /**
+     * @return The rows with empty cells added to the end of short rows, so every row is as wide as the widest
+     */
+    private static List<List<String>> padRows(List<List<String>> rows)
+    {
+        int columnCount = 0;
+        for(List<String> currentRow : rows)
+            columnCount = Math.max(columnCount, currentRow.size());
+        for(List<String> currentRow : rows)
+            while(currentRow.size() < columnCount)
+                currentRow.add("");
+        return rows;
+    }
+
+    private static List<List<String>> instructionRows()
+    {
+        List<List<String>> rows = new ArrayList<List<String>>();
+        List<String> row = new ArrayList<String>();
+        row.add("Fill in one Avail per row. This sheet is not validated.");
+        rows.add(row);
+        return rows;
+    }
+
+    /**
+     * Writes the smallest .xlsx package POI will open: a workbook part, one worksheet part per sheet and a shared strings table holding every cell value once.
+     * @param sheets The rows of each sheet, by sheet name, in order
+     * @param writeEmptyCells True to write empty cells as empty strings, false to leave them out the way Excel does
+     */
+    static byte[] buildXLSX(LinkedHashMap<String, List<List<String>>> sheets, boolean writeEmptyCells) throws IOException
+    {
+        LinkedHashMap<String, Integer> sharedStrings = new LinkedHashMap<String, Integer>();
+        int sharedStringReferences = 0;
+        ByteArrayOutputStream packageBytes = new ByteArrayOutputStream();
+        ZipOutputStream zip = new ZipOutputStream(packageBytes);
+
+        StringBuilder contentTypes = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>");
+        contentTypes.append("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">");
+        contentTypes.append("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>");
+        contentTypes.append("<Default Extension=\"xml\" ContentType=\"application/xml\"/>");
+        contentTypes.append("<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>");
+        contentTypes.append("<Override PartName=\"/xl/sharedStrings.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sharedStrings+xml\"/>");
+        StringBuilder workbook = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>");
+        workbook.append("<workbook xmlns=\"").append(XLSXValidationTest.SPREADSHEETML).append("\" xmlns:r=\"").append(XLSXValidationTest.OFFICE_RELATIONSHIPS).append("\"><sheets>");
+        StringBuilder workbookRelationships = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>");
+        workbookRelationships.append("<Relationships xmlns=\"").append(XLSXValidationTest.RELATIONSHIPS).append("\">");
+
+        int sheetNumber = 0;
+        for(String sheetName : sheets.keySet())
+        {
+            sheetNumber++;
+            contentTypes.append("<Override PartName=\"/xl/worksheets/sheet").append(sheetNumber).append(".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+            workbook.append("<sheet name=\"").append(XLSXValidationTest.escape(sheetName)).append("\" sheetId=\"").append(sheetNumber).append("\" r:id=\"rId").append(sheetNumber).append("\"/>");
+            workbookRelationships.append("<Relationship Id=\"rId").append(sheetNumber).append("\" Type=\"").append(XLSXValidationTest.OFFICE_RELATIONSHIPS).append("/worksheet\" Target=\"worksheets/sheet").append(sheetNumber).append(".xml\"/>");
+
+            StringBuilder worksheet = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>");
+            worksheet.append("<worksheet xmlns=\"").append(XLSXValidationTest.SPREADSHEETML).append("\"><sheetData>");
+            List<List<String>> rows = sheets.get(sheetName);
+            for(int y = 0; y < rows.size(); y++)
+            {
+                worksheet.append("<row r=\"").append(y + 1).append("\">");
+                for(int x = 0; x < rows.get(y).size(); x++)
+                {
+                    String value = rows.get(y).get(x);
+                    if(value.isEmpty() && !writeEmptyCells)
+                        continue;
+                    Integer sharedStringIndex = sharedStrings.get(value);
+                    if(sharedStringIndex == null)
+                    {
+                        sharedStringIndex = sharedStrings.size();
+                        sharedStrings.put(value, sharedStringIndex);
+                    }
+                    sharedStringReferences++;
+                    worksheet.append("<c r=\"").append(XLSXValidationTest.columnLetters(x)).append(y + 1).append("\" t=\"s\"><v>").append(sharedStringIndex).append("</v></c>");
+                }
+                worksheet.append("</row>");
+            }
+            worksheet.append("</sheetData></worksheet>");
+            XLSXValidationTest.putEntry(zip, "xl/worksheets/sheet" + sheetNumber + ".xml", worksheet);
+        }
+        workbookRelationships.append("<Relationship Id=\"rId").append(sheetNumber + 1).append("\" Type=\"").append(XLSXValidationTest.OFFICE_RELATIONSHIPS).append("/sharedStrings\" Target=\"sharedStrings.xml\"/>");
+
+        StringBuilder sharedStringsTable = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>");
+        sharedStringsTable.append("<sst xmlns=\"").append(XLSXValidationTest.SPREADSHEETML).append("\" count=\"").append(sharedStringReferences).append("\" uniqueCount=\"").append(sharedStrings.size()).append("\">");
+        for(String currentString : sharedStrings.keySet())
+            sharedStringsTable.append("<si><t xml:space=\"preserve\">").append(XLSXValidationTest.escape(currentString)).append("</t></si>");
+        sharedStringsTable.append("</sst>");
+
+        contentTypes.append("</Types>");
+        workbook.append("</sheets></workbook>");
+        workbookRelationships.append("</Relationships>");
+        StringBuilder packageRelationships = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>");
+        packageRelationships.append("<Relationships xmlns=\"").append(XLSXValidationTest.RELATIONSHIPS).append("\">");
+        packageRelationships.append("<Relationship Id=\"rId1\" Type=\"").append(XLSXValidationTest.OFFICE_RELATIONSHIPS).append("/officeDocument\" Target=\"xl/workbook.xml\"/>");
+        packageRelationships.append("</Relationships>");
+
+        XLSXValidationTest.putEntry(zip, "[Content_Types].xml", contentTypes);
+        XLSXValidationTest.putEntry(zip, "_rels/.rels", packageRelationships);
+        XLSXValidationTest.putEntry(zip, "xl/workbook.xml", workbook);
+        XLSXValidationTest.putEntry(zip, "xl/_rels/workbook.xml.rels", workbookRelationships);
+        XLSXValidationTest.putEntry(zip, "xl/sharedStrings.xml", sharedStringsTable);
+        zip.close();
+        return packageBytes.toByteArray();
+    }
+
+    private static void putEntry(ZipOutputStream zip, String entryName, CharSequence contents) throws IOException
+    {
+        zip.putNextEntry(new ZipEntry(entryName));
+        zip.write(contents.toString().getBytes("UTF-8"));
+        zip.closeEntry();
+    }
+
+    private static String columnLetters(int columnIndex)
+    {
+        StringBuilder letters = new StringBuilder();
+        for(int x = columnIndex + 1; x > 0; x = (x - 1) / 26)
+            letters.insert(0, (char) ('A' + (x - 1) % 26));
+        return letters.toString();
+    }
+
+    private static String escape(String value)
+    {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
@@ -2,7 +2,6 @@ package com.emavalidator.appengine.server;
 
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.List;
 import java.util.Map;
 
@@ -27,8 +26,9 @@ import com.google.appengine.api.taskqueue.TaskOptions;
 import com.google.apphosting.api.DeadlineExceededException;
 
 import emavalidator.EMAResourceValidator;
-import emavalidator.ErrorLog;
+import emavalidator.ValidationContext;
 import emavalidator.ValidatorResults;
+import emavalidator.utils.InputFormatDetector;
 
 public class Upload extends HttpServlet
 {
@@ -62,13 +62,16 @@ public class Upload extends HttpServlet
 	            BlobInfo blobFileInfo = blobInfoFactory.loadBlobInfo(blobKey);
 	            String fileName = blobFileInfo.getFilename().toLowerCase();
         		ValidatorResults validatorResults;
+        		ValidationContext validationContext = new ValidationContext("log"); // this upload's own error log, so other uploads can be validated at the same time
+	            // decide how to read the upload from its first bytes rather than its extension. compressed uploads are decompressed as they're read
+	            InputFormatDetector.DetectedInput detectedInput = InputFormatDetector.detect(blobInputStream);
 	            
-	            if(fileName.endsWith(".txt") || fileName.endsWith(".csv")) // if the input file is text formatted. either CSV or txt file is fine since both would have the same encoding scheme
+	            if(detectedInput.getInputFormat() == InputFormatDetector.InputFormat.CSV) // if the input file is text formatted. either CSV or txt file is fine since both would have the same encoding scheme
 	            {
 	                try
 	                {
-	                    BufferedReader bufferedCSVReader = new BufferedReader(new InputStreamReader(blobInputStream, "UTF-8"));
-	                    validatorResults = EMAResourceValidator.validateEMACSVFile(fileName, bufferedCSVReader, "log");
+	                    BufferedReader bufferedCSVReader = detectedInput.openReader();
+	                    validatorResults = EMAResourceValidator.validateEMACSVFile(fileName, bufferedCSVReader, validationContext);
 	                }
 	                catch (IOException IOE) // catch text related exceptions here only. throw them to the surrounding catch clause with context.
 	                {
@@ -77,12 +80,15 @@ public class Upload extends HttpServlet
 	                    throw new IllegalArgumentException("ERROR PARSING CSV: " + IOE.getMessage());
 	                }
 	            }
-	            else if(fileName.endsWith(".xls") || fileName.endsWith("xlsx")) // if the input file is a workbook. either XLS or XLSX is fine
+	            else if(detectedInput.getInputFormat() == InputFormatDetector.InputFormat.XLS || detectedInput.getInputFormat() == InputFormatDetector.InputFormat.XLSX) // if the input file is a workbook. either XLS or XLSX is fine
 	            {
 	                try
 	                {
 //	                    formattedOutput = EMAResourceValidator.validateEMAWorkbook(WorkbookFactory.create(blobInputStream), "log");
-	                    validatorResults = EMAResourceValidator.validateEMAXLSXAsCSV(blobInputStream, "log");
+	                    if(detectedInput.getInputFormat() == InputFormatDetector.InputFormat.XLS) // legacy workbooks are read with the HSSF event model instead of the XLSX SAX parser
+	                        validatorResults = EMAResourceValidator.validateEMAXLSFile(detectedInput.getInputStream(), validationContext);
+	                    else
+	                        validatorResults = EMAResourceValidator.validateEMAXLSXAsCSV(detectedInput.getInputStream(), validationContext);
 	                }
 	                catch (Exception e) // catch Apache POI or spreadsheet-based exceptions here only. throw them to the surrounding catch clause with context.
 	                {
@@ -90,10 +96,10 @@ public class Upload extends HttpServlet
 	                    throw new IllegalArgumentException("Input workbook was corrupted. Try using Google Sheets or Excel instead. This has only been experienced with Libre Office 4.2.7.2 on Ubuntu 14.04");
 	                }
 	            }
-	            else if(fileName.endsWith(".xml")) {
+	            else if(detectedInput.getInputFormat() == InputFormatDetector.InputFormat.XML) {
 	            	try
 	            	{
-	            		validatorResults = EMAResourceValidator.validateEMAXML(fileName, blobInputStream, "log");
+	            		validatorResults = EMAResourceValidator.validateEMAXML(fileName, detectedInput.getInputStream(), validationContext);
 	            	}
 	            	catch (Exception e) 
 	            	{
@@ -101,13 +107,13 @@ public class Upload extends HttpServlet
 	                    throw new IllegalArgumentException("ERROR VALIDATING XML: " + e.getMessage());
 	            	}
 	            }
-	            else // any other file ending or extension should be caught here. this should never get executed as front-end javascript validation should prevent any other file types / mimes / extensions from making it this far
+	            else // binary uploads that aren't a workbook, whatever their extension, are caught here
 	            {
 	                blobInputStream.close(); // close the input file to prevent resource leak
 	                throw new IllegalArgumentException("Unsupported file type. Please choose a supported file type and try again.");
 	            }
 
-	            int totalErrorColumnsCount = ErrorLog.getTotalErrorColumnsCount();
+	            int totalErrorColumnsCount = validationContext.getErrorLog().getTotalErrorColumnsCount();
 	            String resultsToSend;
 	            
 	            if (validatorResults.getFileType().equals("xml"))